@@ -6,6 +6,7 @@
 #include <cstdlib>
 #include <cstdio>
 #include <cstring>
+#include <new>
 
 using namespace Glucose;
 
@@ -32,6 +33,20 @@ JNIEXPORT void JNICALL Java_kodkod_engine_satlab_Glucose_free
 	//std::cout << "destroying " << solver << "\n";
 	delete ((Solver*)solver);
 }
+/*
+ * Class:     kodkod_engine_satlab_Glucose
+ * Method:    reset
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_kodkod_engine_satlab_Glucose_reset
+(JNIEnv *, jobject, jlong solver) {
+	Solver* solverPtr = (Solver*) solver;
+	solverPtr->~Solver();
+	new (solverPtr) Solver();
+	solverPtr->verbosity = 0;
+	return solver;
+}
+
 /*
  * Class:     kodkod_engine_satlab_Glucose
  * Method:    addVariables
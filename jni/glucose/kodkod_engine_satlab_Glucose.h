@@ -23,6 +23,14 @@ JNIEXPORT jlong JNICALL Java_kodkod_engine_satlab_Glucose_make
 JNIEXPORT void JNICALL Java_kodkod_engine_satlab_Glucose_free
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     kodkod_engine_satlab_Glucose
+ * Method:    reset
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_kodkod_engine_satlab_Glucose_reset
+  (JNIEnv *, jobject, jlong);
+
 /*
  * Class:     kodkod_engine_satlab_Glucose
  * Method:    addVariables
@@ -26,6 +26,19 @@ JNIEXPORT void JNICALL Java_kodkod_engine_satlab_Lingeling_free
 	lglrelease((LGL*)lgl);
 }
 
+/*
+ * Class:     kodkod_engine_satlab_Lingeling
+ * Method:    reset
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_kodkod_engine_satlab_Lingeling_reset
+  (JNIEnv * env, jobject obj, jlong lgl) {
+	// lingeling cannot be cleared in place, so the 
+	// peer is replaced by a fresh instance.
+	lglrelease((LGL*)lgl);
+	return ((jlong) lglinit());
+}
+
 /*
  * Class:     kodkod_engine_satlab_Lingeling
  * Method:    addVariables
@@ -23,6 +23,14 @@ JNIEXPORT jlong JNICALL Java_kodkod_engine_satlab_Lingeling_make
 JNIEXPORT void JNICALL Java_kodkod_engine_satlab_Lingeling_free
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     kodkod_engine_satlab_Lingeling
+ * Method:    reset
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_kodkod_engine_satlab_Lingeling_reset
+  (JNIEnv *, jobject, jlong);
+
 /*
  * Class:     kodkod_engine_satlab_Lingeling
  * Method:    addVariables
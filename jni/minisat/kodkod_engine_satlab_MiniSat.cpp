@@ -2,6 +2,7 @@
 #include <cstdlib>
 #include <cstdio>
 #include <cstring>
+#include <new>
 #include <cassert>
 
 #include <map>
@@ -40,6 +41,19 @@ JNIEXPORT void JNICALL Java_kodkod_engine_satlab_MiniSat_free
   delete ((Solver*)solver);  
 }
 
+/*
+ * Class:     kodkod_engine_satlab_MiniSat
+ * Method:    reset
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_kodkod_engine_satlab_MiniSat_reset
+  (JNIEnv *, jobject, jlong solver) {
+  Solver* solverPtr = (Solver*) solver;
+  solverPtr->~Solver();
+  new (solverPtr) Solver();
+  return solver;
+}
+
 /*
  * Class:     kodkod_engine_satlab_MiniSat
  * Method:    addVariables
@@ -23,6 +23,14 @@ JNIEXPORT jlong JNICALL Java_kodkod_engine_satlab_MiniSat_make
 JNIEXPORT void JNICALL Java_kodkod_engine_satlab_MiniSat_free
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     kodkod_engine_satlab_MiniSat
+ * Method:    reset
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_kodkod_engine_satlab_MiniSat_reset
+  (JNIEnv *, jobject, jlong);
+
 /*
  * Class:     kodkod_engine_satlab_MiniSat
  * Method:    addVariables
@@ -160,3 +160,58 @@ JNIEXPORT jobjectArray JNICALL Java_kodkod_engine_satlab_MiniSatProver_trace
     return tgen.trace;
   }
 
+struct TraceStreamer : public ProofTraverser {
+	JNIEnv* env;
+	jobject builder;
+	jmethodID axiom, resolvent;
+	
+	TraceStreamer(JNIEnv* environment, jobject traceBuilder) {
+		env = environment;
+		builder = traceBuilder;
+		jclass cls = env->GetObjectClass(builder);
+		axiom = env->GetMethodID(cls, "axiom", "([I)V");
+		resolvent = env->GetMethodID(cls, "resolvent", "([I)V");
+		env->DeleteLocalRef(cls);
+	}
+	
+	void root (const vec<Lit>& c) {
+		if (env->ExceptionCheck()) return;
+		jintArray lits = env->NewIntArray(c.size());
+		if (lits == NULL) return;
+		jint* data = env->GetIntArrayElements(lits, JNI_FALSE);
+		for(int i = 0; i < c.size(); i++) {
+			data[i] = toDimacs(c[i]);
+		}
+		env->ReleaseIntArrayElements(lits, data, 0);
+		env->CallVoidMethod(builder, axiom, lits);
+		env->DeleteLocalRef(lits);
+	}
+	
+	void chain  (const vec<ClauseId>& cs, const vec<Var>& xs) {
+		if (env->ExceptionCheck()) return;
+		jintArray ante = env->NewIntArray(cs.size());
+		if (ante == NULL) return;
+		jint* data = env->GetIntArrayElements(ante, JNI_FALSE);
+		for(int i = 0; i < cs.size(); i++) {
+			data[i] = cs[i];
+		}
+		env->ReleaseIntArrayElements(ante, data, 0);
+		env->CallVoidMethod(builder, resolvent, ante);
+		env->DeleteLocalRef(ante);
+	}
+	
+	void deleted(ClauseId c) {}
+	void done() {}
+	
+};
+
+/*
+ * Class:     kodkod_engine_satlab_MiniSatProver
+ * Method:    stream
+ * Signature: (JLkodkod/engine/satlab/LazyTrace$Builder;)V
+ */
+JNIEXPORT void JNICALL Java_kodkod_engine_satlab_MiniSatProver_stream
+  (JNIEnv * env, jobject, jlong solver, jobject builder) {
+    TraceStreamer streamer = TraceStreamer(env, builder);
+    ((Solver*) solver)->proof->traverse(streamer);
+  }
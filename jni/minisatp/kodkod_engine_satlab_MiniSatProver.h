@@ -63,6 +63,14 @@ JNIEXPORT jboolean JNICALL Java_kodkod_engine_satlab_MiniSatProver_valueOf
 JNIEXPORT jobjectArray JNICALL Java_kodkod_engine_satlab_MiniSatProver_trace
   (JNIEnv *, jobject, jlong, jboolean);
 
+/*
+ * Class:     kodkod_engine_satlab_MiniSatProver
+ * Method:    stream
+ * Signature: (JLkodkod/engine/satlab/LazyTrace$Builder;)V
+ */
+JNIEXPORT void JNICALL Java_kodkod_engine_satlab_MiniSatProver_stream
+  (JNIEnv *, jobject, jlong, jobject);
+
 #ifdef __cplusplus
 }
 #endif
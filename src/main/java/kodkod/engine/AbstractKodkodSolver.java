@@ -27,25 +27,34 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import kodkod.ast.Formula;
 import kodkod.ast.IntExpression;
 import kodkod.ast.Relation;
 import kodkod.engine.config.Options;
 import kodkod.engine.fol2sat.HigherOrderDeclException;
+import kodkod.engine.fol2sat.PhaseMetrics;
+import kodkod.engine.fol2sat.PhaseMetrics.Phase;
 import kodkod.engine.fol2sat.Translation;
 import kodkod.engine.fol2sat.TranslationLog;
 import kodkod.engine.fol2sat.Translator;
 import kodkod.engine.fol2sat.UnboundLeafException;
+import kodkod.engine.satlab.CubeSolver;
 import kodkod.engine.satlab.SATAbortedException;
 import kodkod.engine.satlab.SATProver;
 import kodkod.engine.satlab.SATSolver;
 import kodkod.instance.Bounds;
 import kodkod.instance.Instance;
 import kodkod.instance.TupleSet;
+import kodkod.util.ints.IntIterator;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.IntTreeSet;
 import kodkod.util.nodes.PrettyPrinter;
 
 /** 
@@ -74,14 +83,37 @@ import kodkod.util.nodes.PrettyPrinter;
 //[HASLab] solver hierarchy
 public abstract class AbstractKodkodSolver<B extends Bounds, O extends Options> implements KodkodSolver<B,O>, IterableSolver<B, O> { 
 	
+	/** [HASLab] the parallel iterators created by this solver, which may still be enumerating */
+	private final Set<ParallelSolutionIterator> parallel = Collections.newSetFromMap(new WeakHashMap<ParallelSolutionIterator, Boolean>());
+	
 	/**
 	 * {@inheritDoc}
+	 * Also cancels the parallel enumerations started by this solver.
 	 * @see kodkod.engine.KodkodSolver#free()
 	 */
-	public void free() {}
+	public void free() {
+		synchronized (parallel) {
+			for (ParallelSolutionIterator it : parallel)
+				it.free();
+			parallel.clear();
+		}
+	}
 	
 	// [HASLab] solver hierarchy
 	protected Iterator<Solution> iterator(Formula formula, Bounds bounds, Options options) {
+		if (options.enumerationThreads() > 1) {
+			final long startTransl = System.currentTimeMillis();
+			final Translation.Whole translation = Translator.translate(formula, bounds, options);
+			final long translTime = System.currentTimeMillis() - startTransl;
+			// trivial problems are enumerated through re-translation, sequentially
+			if (translation.trivial())
+				return new SolutionIterator(translation, translTime);
+			final ParallelSolutionIterator it = new ParallelSolutionIterator(formula, bounds, translation, translTime);
+			synchronized (parallel) {
+				parallel.add(it);
+			}
+			return it;
+		}
 		return new SolutionIterator(formula, bounds, options);
 	}
 	
@@ -136,11 +168,15 @@ public abstract class AbstractKodkodSolver<B extends Bounds, O extends Options>
 				return trivial(translation, endTransl - startTransl);
 
 			final SATSolver cnf = translation.cnf();
+			if (cnf instanceof CubeSolver)
+				((CubeSolver) cnf).prioritize(primaryVariables(translation));
 			
 			options().reporter().solvingCNF(0, translation.numPrimaryVariables(), cnf.numberOfVariables(), cnf.numberOfClauses()); // [HASLab]
-			final long startSolve = System.currentTimeMillis();
+			final long startSolve = System.currentTimeMillis(), startNanos = System.nanoTime(), startBytes = PhaseMetrics.allocated();
 			final boolean isSat = cnf.solve();
 			final long endSolve = System.currentTimeMillis();
+			if (translation.metrics() != null)
+				translation.metrics().record(Phase.SOLVING, startNanos, startBytes);
 
 			final Statistics stats = new Statistics(translation, endTransl - startTransl, endSolve - startSolve);
 			return isSat ? sat(translation, stats) : unsat(translation, stats);
@@ -150,6 +186,52 @@ public abstract class AbstractKodkodSolver<B extends Bounds, O extends Options>
 		}
 	}
 	
+	/**
+	 * Returns the non-empty sets of primary variables of each relation in the
+	 * given translation.
+	 * 
+	 * @return { s: IntSet | some r: translation.bounds.relations | s = translation.primaryVariables(r) && some s }
+	 */
+	static List<IntSet> primaryVariables(Translation translation) {
+		final List<IntSet> groups = new ArrayList<IntSet>();
+		for (Relation r : translation.bounds().relations()) {
+			final IntSet vars = translation.primaryVariables(r);
+			if (vars != null && !vars.isEmpty())
+				groups.add(vars);
+		}
+		return groups;
+	}
+	
+	/**
+	 * Returns the negation of the current model of the given translation, restricted to 
+	 * the primary variables of the relations in {@code translation.options.projection}, 
+	 * if any, or else to the primary variables of an {@linkplain Translation.Whole#implicant() implicant} 
+	 * of the translated formula.  Unless {@code translation.options.minimalBlocking} is set, 
+	 * the latter comprises all primary variables.
+	 * @requires translation.cnf.solve() has been called and returned true
+	 * @return a clause that is falsified by the current model of {@code translation.cnf}, 
+	 *         over the primary variables described above
+	 */
+	static int[] notModel(Translation.Whole translation) {
+		final SATSolver cnf = translation.cnf();
+		final Set<Relation> projection = translation.options().projection();
+		final IntSet vars;
+		if (projection.isEmpty()) {
+			vars = translation.implicant();
+		} else {
+			vars = new IntTreeSet();
+			for (Relation r : projection)
+				vars.addAll(translation.primaryVariables(r));
+		}
+		final int[] notModel = new int[vars.size()];
+		int idx = 0;
+		for (IntIterator iter = vars.iterator(); iter.hasNext();) {
+			final int i = iter.next();
+			notModel[idx++] = cnf.valueOf(i) ? -i : i;
+		}
+		return notModel;
+	}
+	
 	/**
 	 * Attempts to find all solutions to the given formula with respect to the specified bounds or
 	 * to prove the formula's unsatisfiability.
@@ -276,6 +358,15 @@ public abstract class AbstractKodkodSolver<B extends Bounds, O extends Options>
 			this.trivial = 0;
 		}
 		
+		/**
+		 * Constructs a solution iterator for the given translation, computed in the given time.
+		 */
+		SolutionIterator(Translation.Whole translation, long translTime) {
+			this.translation = translation;
+			this.translTime = translTime;
+			this.trivial = 0;
+		}
+		
 		/**
 		 * Returns true if there is another solution.
 		 * @see java.util.Iterator#hasNext()
@@ -318,9 +409,11 @@ public abstract class AbstractKodkodSolver<B extends Bounds, O extends Options>
 			
 			transl.options().reporter().solvingCNF(0, primaryVars, cnf.numberOfVariables(), cnf.numberOfClauses()); // [HASLab]
 			
-			final long startSolve = System.currentTimeMillis();
+			final long startSolve = System.currentTimeMillis(), startNanos = System.nanoTime(), startBytes = PhaseMetrics.allocated();
 			final boolean isSat = cnf.solve();
 			final long endSolve = System.currentTimeMillis();
+			if (transl.metrics() != null)
+				transl.metrics().record(Phase.SOLVING, startNanos, startBytes);
 
 			final Statistics stats = new Statistics(transl, translTime, endSolve - startSolve);
 			final Solution sol;
@@ -329,11 +422,7 @@ public abstract class AbstractKodkodSolver<B extends Bounds, O extends Options>
 				// extract the current solution; can't use the sat(..) method because it frees the sat solver
 				sol = Solution.satisfiable(stats, transl.interpret());
 				// add the negation of the current model to the solver
-				final int[] notModel = new int[primaryVars];
-				for(int i = 1; i <= primaryVars; i++) {
-					notModel[i-1] = cnf.valueOf(i) ? -i : i;
-				}
-				cnf.addClause(notModel);
+				cnf.addClause(notModel(transl));
 			} else {
 				sol = unsat(transl, stats); // this also frees up solver resources, if any
 				translation = null; // unsat, no more solutions
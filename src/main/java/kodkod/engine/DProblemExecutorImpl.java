@@ -35,6 +35,7 @@ import kodkod.engine.config.Reporter;
 import kodkod.engine.decomp.DMonitorImpl;
 import kodkod.engine.decomp.DProblem;
 import kodkod.engine.decomp.IProblem;
+import kodkod.engine.decomp.RProblem;
 import kodkod.instance.PardinusBounds;
 
 /**
@@ -70,6 +71,9 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 	/** the amalgamated problem, if in hybrid mode */
 	private DProblem<S> amalgamated;
 
+	/** the worker processes solving the integrated problems, if any */
+	private final DProcessPool processes;
+
 	/**
 	 * Constructs an effective decomposed problem executor for a decomposed
 	 * model finding problem and the number of desired parallel solvers.
@@ -95,9 +99,25 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 	public DProblemExecutorImpl(Reporter rep, Formula formula,
 			PardinusBounds bounds, ExtendedSolver solver1,
 			S solver2, int n, boolean hybrid) {
+		this(rep, formula, bounds, solver1, solver2, n, hybrid, null);
+	}
+
+	/**
+	 * Constructs an effective decomposed problem executor for a decomposed
+	 * model finding problem whose integrated problems are solved by the
+	 * worker processes of a pool, unless it is null.
+	 * 
+	 * @see #DProblemExecutorImpl(Reporter, Formula, PardinusBounds, ExtendedSolver, AbstractSolver, int, boolean)
+	 * @param processes
+	 *            the worker processes, or null to solve in this process.
+	 */
+	public DProblemExecutorImpl(Reporter rep, Formula formula,
+			PardinusBounds bounds, ExtendedSolver solver1,
+			S solver2, int n, boolean hybrid, DProcessPool processes) {
 		super(new DMonitorImpl(rep), formula, bounds, solver1, solver2, n);
 		this.solution_queue = new LinkedBlockingQueue<Entry<Solution,Iterator<Solution>>>(BATCH_SIZE+1);
 		this.hybrid = hybrid;
+		this.processes = processes;
 	}
 
 	/**
@@ -215,7 +235,7 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 			if (config.sat()) {
 				monitor.newConfig(config);
 
-				DProblem<S> problem = new IProblem<S>(config, this);
+				DProblem<S> problem = processes == null ? new IProblem<S>(config, this) : new RProblem<S>(config, this, processes);
 				problem_queue.add(problem);
 			}
 			first_config = false;
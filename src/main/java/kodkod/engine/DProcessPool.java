@@ -0,0 +1,777 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import kodkod.ast.Formula;
+import kodkod.ast.Relation;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.engine.config.Options.IntEncoding;
+import kodkod.engine.config.TargetOptions.TMode;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.instance.BinaryCodec;
+import kodkod.instance.Instance;
+import kodkod.instance.PardinusBounds;
+
+/**
+ * A pool of local worker processes that solve the integrated problems of a
+ * decomposed model finding problem on behalf of a
+ * {@link DProblemExecutorImpl decomposed executor}. The formula and the
+ * decomposed bounds of the problem are shipped to each worker, encoded by
+ * {@link BinaryCodec}, the first time that worker is asked to solve one of
+ * its integrated problems. Afterwards, only the configurations and solutions
+ * are exchanged, also encoded by {@link BinaryCodec}, with relations matched
+ * by name. The relations of the bounds must thus have distinct names, and
+ * their symbolic bounds, if any, must be resolved.
+ * 
+ * <p>
+ * Workers are spawned lazily, up to {@link #capacity()}, and connect back to
+ * a loopback server socket owned by the pool. Since workers connect to a
+ * host and port, nothing prevents them from running on other machines,
+ * although only local spawning is currently supported. A worker whose
+ * connection fails is discarded and replaced on the next request. The
+ * integrated problems are solved by a {@link PardinusSolver} under the
+ * options given at construction, which are sent to each worker once it
+ * connects. All options that affect the translation and solving of a single
+ * problem are sent, including the temporal ones, but not the reporter nor
+ * the options over relations, such as the projection.
+ * </p>
+ * 
+ * <p>
+ * The solutions of each integrated problem are enumerated by the worker that
+ * found the first one, which keeps the state of the enumeration until it is 
+ * exhausted. The worker is only busy while computing a solution, so it may 
+ * serve other integrated problems in between. An enumeration that is 
+ * abandoned before its last solution should be {@link Solutions#free() freed},
+ * so that the worker drops its state once idle.
+ * </p>
+ * 
+ * <p>
+ * While waiting for a worker, the calling thread polls for interrupts. A
+ * thread that is interrupted while its worker is computing a solution
+ * discards the worker, since its reply can no longer be consumed.
+ * </p>
+ * 
+ * @specfield capacity: int
+ * @specfield workers: set Process
+ * @invariant #workers <= capacity
+ * @author Nuno Macedo // [HASLab] decomposed model finding
+ */
+public final class DProcessPool implements AutoCloseable {
+
+	/** messages exchanged between the pool and its workers */
+	private static final int QUIT = 0, SOLVE = 1, NEXT = 2, DROP = 3, PROBLEM = 4, FAILED = -1;
+	/** the interval, in milliseconds, at which a thread waiting for a worker checks for interrupts */
+	private static final int POLL = 500;
+
+	private final ServerSocket server;
+	private final List<String> command;
+	private final byte[] settings;
+	private final int capacity;
+	// the following are guarded by this pool's monitor
+	private final Deque<Worker> idle;
+	private final List<Worker> workers;
+	private int spawning, sessions, problems;
+	private Problem problem;
+	private boolean closed;
+
+	/**
+	 * Constructs a pool of at most <code>capacity</code> worker processes,
+	 * each solving integrated problems under the given options.
+	 * 
+	 * @ensures this.capacity' = capacity && no this.workers'
+	 * @throws IllegalArgumentException
+	 *             capacity < 1 || options.solver() or options.boundedSolver()
+	 *             is not a named {@link SATFactory} constant
+	 * @throws IOException
+	 *             the server socket could not be opened.
+	 */
+	public DProcessPool(ExtendedOptions options, int capacity) throws IOException {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity < 1: " + capacity);
+		this.settings = settings(options);
+		this.capacity = capacity;
+		this.command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(DProcessPool.class.getName());
+		command.add(InetAddress.getLoopbackAddress().getHostAddress());
+		this.server = new ServerSocket(0, capacity, InetAddress.getLoopbackAddress());
+		command.add(String.valueOf(server.getLocalPort()));
+		this.idle = new ArrayDeque<Worker>();
+		this.workers = new ArrayList<Worker>();
+		this.closed = false;
+	}
+
+	/**
+	 * Encodes the options that are sent to each worker, in the order in which
+	 * they are read by {@link #settings(DataInputStream)}.
+	 */
+	private static byte[] settings(ExtendedOptions options) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeUTF(solverName(options.solver()));
+			out.writeUTF(options.boundedSolver() == null ? "" : solverName(options.boundedSolver()));
+			out.writeInt(options.bitwidth());
+			out.writeInt(options.intEncoding().ordinal());
+			out.writeBoolean(options.noOverflow());
+			out.writeInt(options.symmetryBreaking());
+			out.writeInt(options.sharing());
+			out.writeInt(options.sharingCache());
+			out.writeBoolean(options.boundTightening());
+			out.writeBoolean(options.preprocessing());
+			out.writeInt(options.cnfSymmetryBreaking());
+			out.writeBoolean(options.minimalBlocking());
+			out.writeInt(options.skolemDepth());
+			out.writeInt(options.logTranslation());
+			out.writeInt(options.coreGranularity());
+			out.writeBoolean(options.targetoriented());
+			out.writeInt(options.targetMode().ordinal());
+			out.writeBoolean(options.temporal());
+			out.writeBoolean(options.unbounded());
+			out.writeInt(options.maxTraceLength());
+			out.writeInt(options.minTraceLength());
+			out.writeInt(options.traceThreads());
+			out.writeBoolean(options.staticCheck());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes the options written by {@link #settings(ExtendedOptions)}.
+	 */
+	private static ExtendedOptions settings(DataInputStream in) throws Exception {
+		final ExtendedOptions options = new ExtendedOptions();
+		options.setSolver((SATFactory) SATFactory.class.getField(in.readUTF()).get(null));
+		final String bounded = in.readUTF();
+		if (!bounded.isEmpty())
+			options.setBoundedSolver((SATFactory) SATFactory.class.getField(bounded).get(null));
+		options.setBitwidth(in.readInt());
+		options.setIntEncoding(IntEncoding.values()[in.readInt()]);
+		options.setNoOverflow(in.readBoolean());
+		options.setSymmetryBreaking(in.readInt());
+		options.setSharing(in.readInt());
+		options.setSharingCache(in.readInt());
+		options.setBoundTightening(in.readBoolean());
+		options.setPreprocessing(in.readBoolean());
+		options.setCnfSymmetryBreaking(in.readInt());
+		options.setMinimalBlocking(in.readBoolean());
+		options.setSkolemDepth(in.readInt());
+		options.setLogTranslation(in.readInt());
+		options.setCoreGranularity(in.readInt());
+		options.setRunTarget(in.readBoolean());
+		options.setTargetMode(TMode.values()[in.readInt()]);
+		options.setRunTemporal(in.readBoolean());
+		options.setRunUnbounded(in.readBoolean());
+		options.setMaxTraceLength(in.readInt());
+		options.setMinTraceLength(in.readInt());
+		options.setTraceThreads(in.readInt());
+		options.setStaticCheck(in.readBoolean());
+		return options;
+	}
+
+	/**
+	 * Returns the name of the {@link SATFactory} constant that holds the given
+	 * factory, so that it can be resolved by the workers.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             no such constant exists.
+	 */
+	private static String solverName(SATFactory factory) {
+		for (Field f : SATFactory.class.getFields()) {
+			try {
+				if (Modifier.isStatic(f.getModifiers()) && f.get(null) == factory)
+					return f.getName();
+			} catch (IllegalAccessException e) {
+				// skip
+			}
+		}
+		throw new IllegalArgumentException("Only named SAT factories can be used by worker processes: " + factory);
+	}
+
+	/**
+	 * Returns the maximum number of worker processes of this pool.
+	 * 
+	 * @return this.capacity
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of worker processes currently alive.
+	 * 
+	 * @return #this.workers
+	 */
+	public synchronized int workers() {
+		return workers.size();
+	}
+
+	/**
+	 * Returns an iterator over the solutions of the integrated problem obtained
+	 * by extending the given configuration of the given decomposed bounds,
+	 * under the given formula, which are enumerated by one of the workers. The
+	 * first call to <code>next()</code> blocks until a worker is available. As
+	 * with other solution iterators, the last solution returned is
+	 * unsatisfiable. The solutions are expressed over the universe and
+	 * relations of the given bounds; relations unknown to them, such as
+	 * skolems, are created anew. The iterator throws an
+	 * {@link AbortedException} if its worker fails, in which case the worker is
+	 * discarded, or if the calling thread is interrupted while waiting.
+	 * 
+	 * <p>
+	 * The formula and bounds are encoded once for consecutive calls over the
+	 * same formula and bounds, as is the case for the integrated problems of a
+	 * decomposed problem, and shipped once to each worker.
+	 * </p>
+	 * 
+	 * @requires config is a configuration of bounds
+	 * @requires bounds.amalgamated() != null
+	 * @return an iterator over the solutions of the integrated problem
+	 * @throws IllegalArgumentException
+	 *             bounds has unresolved symbolic bounds || some relations of
+	 *             bounds share a name
+	 */
+	public Solutions solveAll(Formula formula, Solution config, PardinusBounds bounds) {
+		final Problem problem = problem(formula, bounds);
+		final int session;
+		synchronized (this) {
+			session = sessions++;
+		}
+		return new Solutions(session, problem, config);
+	}
+
+	/**
+	 * Returns the encoding of the given formula and bounds, reusing the last
+	 * one if over the same formula and bounds.
+	 */
+	private synchronized Problem problem(Formula formula, PardinusBounds bounds) {
+		if (problem != null && problem.formula == formula && problem.bounds == bounds)
+			return problem;
+		final Set<String> names = new HashSet<String>();
+		for (Relation r : relations(bounds))
+			if (!names.add(r.name()))
+				throw new IllegalArgumentException("Relations shipped to worker processes must have distinct names: " + r);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			BinaryCodec.write(bounds, bytes);
+			BinaryCodec.write(formula, bytes);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		problem = new Problem(problems++, formula, bounds, bytes.toByteArray());
+		return problem;
+	}
+
+	/**
+	 * Returns an idle worker, spawning a new one if below capacity. The new
+	 * process is started and connects back outside this pool's monitor, so
+	 * that other workers can be leased and returned in the meantime.
+	 */
+	private Worker lease() throws IOException, InterruptedException {
+		synchronized (this) {
+			while (true) {
+				if (closed)
+					throw new IOException("Pool closed.");
+				if (!idle.isEmpty())
+					return idle.poll();
+				if (workers.size() + spawning < capacity) {
+					spawning++;
+					break;
+				}
+				wait();
+			}
+		}
+		Worker worker = null;
+		boolean added = false;
+		try {
+			worker = spawn();
+		} finally {
+			synchronized (this) {
+				spawning--;
+				if (worker != null && !closed) {
+					workers.add(worker);
+					added = true;
+				}
+				notifyAll();
+			}
+		}
+		if (!added) {
+			worker.close();
+			throw new IOException("Pool closed.");
+		}
+		return worker;
+	}
+
+	/**
+	 * Leases the given worker, which holds the state of an enumeration,
+	 * blocking until it is idle.
+	 * 
+	 * @throws IOException
+	 *             the worker was discarded or this pool closed.
+	 */
+	private synchronized void lease(Worker worker) throws IOException, InterruptedException {
+		while (!idle.remove(worker)) {
+			if (closed || !workers.contains(worker))
+				throw new IOException("Worker lost.");
+			wait();
+		}
+	}
+
+	/**
+	 * Returns a leased worker to the pool, after sending it the sessions that
+	 * were dropped while it was busy.
+	 */
+	private synchronized void release(Worker worker) {
+		if (!worker.dropped.isEmpty()) {
+			try {
+				for (int session : worker.dropped) {
+					worker.out.writeInt(DROP);
+					worker.out.writeInt(session);
+				}
+				worker.out.flush();
+				worker.dropped.clear();
+			} catch (IOException e) {
+				discard(worker);
+				return;
+			}
+		}
+		idle.add(worker);
+		notifyAll();
+	}
+
+	/**
+	 * Asks the given worker to drop the state of the given session, as soon
+	 * as the worker is idle.
+	 */
+	private synchronized void drop(Worker worker, int session) {
+		if (closed || !workers.contains(worker))
+			return;
+		worker.dropped.add(session);
+		if (idle.remove(worker))
+			release(worker);
+	}
+
+	/**
+	 * Starts a worker process and waits for it to connect to the server
+	 * socket. Connections are accepted one at a time, so that each process is
+	 * matched with its own connection.
+	 */
+	private Worker spawn() throws IOException {
+		synchronized (server) {
+			final Process process = new ProcessBuilder(command).redirectOutput(Redirect.INHERIT)
+					.redirectError(Redirect.INHERIT).start();
+			return new Worker(process, server, settings);
+		}
+	}
+
+	/**
+	 * Kills the given worker and removes it from this pool.
+	 */
+	private synchronized void discard(Worker worker) {
+		workers.remove(worker);
+		worker.close();
+		notifyAll();
+	}
+
+	/**
+	 * Shuts down every worker and the server socket of this pool.
+	 * 
+	 * @ensures no this.workers'
+	 */
+	public synchronized void close() {
+		closed = true;
+		for (Worker worker : workers) {
+			try {
+				worker.out.writeInt(QUIT);
+				worker.out.flush();
+			} catch (IOException e) {
+				// killed below
+			}
+			worker.close();
+		}
+		workers.clear();
+		idle.clear();
+		notifyAll();
+		try {
+			server.close();
+		} catch (IOException e) {
+			// already closed
+		}
+	}
+
+	/**
+	 * The solutions of an integrated problem, enumerated by a worker. The
+	 * first request is sent to any worker, and the following ones to that
+	 * same worker, which keeps the enumeration under the session identifier.
+	 */
+	public final class Solutions implements Iterator<Solution> {
+		private final int session;
+		private final Problem problem;
+		private final Solution config;
+		private Worker worker;
+		private boolean done;
+
+		Solutions(int session, Problem problem, Solution config) {
+			this.session = session;
+			this.problem = problem;
+			this.config = config;
+			this.done = false;
+		}
+
+		public boolean hasNext() {
+			return !done;
+		}
+
+		public Solution next() {
+			if (done)
+				throw new NoSuchElementException();
+			try {
+				final Solution sol = worker == null ? first() : request();
+				done = !sol.sat();
+				return sol;
+			} catch (IOException e) {
+				done = true;
+				throw new AbortedException(e);
+			} catch (InterruptedException e) {
+				done = true;
+				Thread.currentThread().interrupt();
+				throw new AbortedException(e);
+			}
+		}
+
+		/**
+		 * Sends the problem, unless already known to the worker, and the
+		 * configuration to a worker, and reads the first solution.
+		 */
+		private Solution first() throws IOException, InterruptedException {
+			final Worker worker = lease();
+			try {
+				if (worker.problem != problem.id) {
+					worker.out.writeInt(PROBLEM);
+					worker.out.writeInt(problem.id);
+					write(worker.out, problem.encoding);
+					worker.problem = problem.id;
+				}
+				worker.out.writeInt(SOLVE);
+				worker.out.writeInt(session);
+				worker.out.writeBoolean(config.stats().primaryVariables() == 0);
+				write(worker.out, config.instance());
+				worker.out.flush();
+				final Solution sol = read(worker);
+				this.worker = worker;
+				release(worker);
+				return sol;
+			} catch (IOException | InterruptedException | RuntimeException e) {
+				discard(worker);
+				throw e;
+			}
+		}
+
+		/**
+		 * Asks the worker of this enumeration for the next solution.
+		 */
+		private Solution request() throws IOException, InterruptedException {
+			lease(worker);
+			try {
+				worker.out.writeInt(NEXT);
+				worker.out.writeInt(session);
+				worker.out.flush();
+				final Solution sol = read(worker);
+				release(worker);
+				return sol;
+			} catch (IOException | InterruptedException | RuntimeException e) {
+				discard(worker);
+				throw e;
+			}
+		}
+
+		/**
+		 * Reads a solution sent by the given worker, once available.
+		 */
+		private Solution read(Worker worker) throws IOException, InterruptedException {
+			worker.await();
+			final int outcome = worker.in.readInt();
+			if (outcome == FAILED)
+				throw new IOException("Worker failed: " + worker.in.readUTF());
+			final Statistics stats = new Statistics(worker.in.readInt(), worker.in.readInt(), worker.in.readInt(),
+					worker.in.readLong(), worker.in.readLong());
+			switch (Solution.Outcome.values()[outcome]) {
+			case SATISFIABLE:
+				return Solution.satisfiable(stats, DProcessPool.read(worker.in, problem.bounds));
+			case TRIVIALLY_SATISFIABLE:
+				return Solution.triviallySatisfiable(stats, DProcessPool.read(worker.in, problem.bounds));
+			case UNSATISFIABLE:
+				return Solution.unsatisfiable(stats, null);
+			default:
+				return Solution.triviallyUnsatisfiable(stats, null);
+			}
+		}
+
+		/**
+		 * Abandons this enumeration, if not exhausted, so that its worker
+		 * drops the state of the session once idle. Afterwards, this iterator
+		 * has no further solutions.
+		 * 
+		 * @ensures !this.hasNext()
+		 */
+		public void free() {
+			if (!done && worker != null)
+				drop(worker, session);
+			done = true;
+		}
+
+		/** @throws UnsupportedOperationException */
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * The encoding of a formula and its decomposed bounds, identified within
+	 * this pool.
+	 */
+	private static final class Problem {
+		final int id;
+		final Formula formula;
+		final PardinusBounds bounds;
+		final byte[] encoding;
+
+		Problem(int id, Formula formula, PardinusBounds bounds, byte[] encoding) {
+			this.id = id;
+			this.formula = formula;
+			this.bounds = bounds;
+			this.encoding = encoding;
+		}
+	}
+
+	/**
+	 * Returns the relations of the given decomposed bounds, including those
+	 * of the amalgamated bounds.
+	 */
+	private static Collection<Relation> relations(PardinusBounds bounds) {
+		final Set<Relation> relations = new HashSet<Relation>(bounds.relations());
+		if (bounds.amalgamated() != null)
+			relations.addAll(bounds.amalgamated().relations());
+		return relations;
+	}
+
+	private static void write(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static ByteBuffer read(DataInputStream in) throws IOException {
+		final byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return ByteBuffer.wrap(bytes);
+	}
+
+	/**
+	 * Writes the encoding of the given instance.
+	 */
+	private static void write(DataOutputStream out, Instance instance) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinaryCodec.write(instance, bytes);
+		write(out, bytes.toByteArray());
+	}
+
+	/**
+	 * Reads an instance written by {@link #write(DataOutputStream, Instance)}
+	 * over the universe and relations of the given bounds. For temporal
+	 * problems, the universe of the bounds is the static universe of the
+	 * instance.
+	 */
+	private static Instance read(DataInputStream in, PardinusBounds bounds) throws IOException {
+		return BinaryCodec.readInstance(read(in), bounds.universe(), relations(bounds));
+	}
+
+	/**
+	 * A worker process and its connection.
+	 */
+	private static final class Worker {
+		final Process process;
+		final Socket socket;
+		final DataInputStream in;
+		final DataOutputStream out;
+		/** the sessions to be dropped once idle, guarded by the pool's monitor */
+		final List<Integer> dropped = new ArrayList<Integer>();
+		/** the last problem sent to this worker, only accessed while leased */
+		int problem = -1;
+
+		/**
+		 * Waits for the given process to connect to the server, and sends it
+		 * the given settings.
+		 */
+		Worker(Process process, ServerSocket server, byte[] settings) throws IOException {
+			this.process = process;
+			try {
+				server.setSoTimeout(60000);
+				this.socket = server.accept();
+			} catch (IOException e) {
+				process.destroy();
+				throw e;
+			}
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			try {
+				write(out, settings);
+				out.flush();
+			} catch (IOException e) {
+				close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Blocks until a reply from this worker is available, checking for
+		 * interrupts every {@link #POLL} milliseconds. The reply itself is read
+		 * without a timeout, so that it is never read partially.
+		 * 
+		 * @throws InterruptedException
+		 *             the calling thread was interrupted while waiting.
+		 */
+		void await() throws IOException, InterruptedException {
+			socket.setSoTimeout(POLL);
+			try {
+				while (true) {
+					if (Thread.interrupted())
+						throw new InterruptedException();
+					try {
+						in.mark(1);
+						if (in.read() < 0)
+							throw new EOFException();
+						in.reset();
+						return;
+					} catch (SocketTimeoutException e) {
+						// no reply yet
+					}
+				}
+			} finally {
+				socket.setSoTimeout(0);
+			}
+		}
+
+		void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// already closed
+			}
+			process.destroy();
+		}
+	}
+
+	/**
+	 * Runs a worker process, connecting to a pool and solving the integrated
+	 * problems it sends until asked to quit. The arguments are the host and
+	 * port of the pool. The options are the first message sent by the pool.
+	 */
+	public static void main(String[] args) throws Exception {
+		final Map<Integer, Iterator<Solution>> sessions = new HashMap<Integer, Iterator<Solution>>();
+		Formula formula = null;
+		PardinusBounds bounds = null;
+
+		try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			final ExtendedOptions options = settings(new DataInputStream(new ByteArrayInputStream(read(in).array())));
+			for (int request = in.readInt(); request != QUIT; request = in.readInt()) {
+				if (request == PROBLEM) {
+					in.readInt();
+					final ByteBuffer encoding = read(in);
+					bounds = (PardinusBounds) BinaryCodec.readBounds(encoding);
+					formula = BinaryCodec.readFormula(encoding, relations(bounds));
+					continue;
+				}
+				final int session = in.readInt();
+				if (request == DROP) {
+					sessions.remove(session);
+					continue;
+				}
+				try {
+					final Iterator<Solution> sols;
+					if (request == SOLVE) {
+						final boolean trivial = in.readBoolean();
+						final Instance config = read(in, bounds);
+						final PardinusBounds integrated = bounds.integrated(config);
+						integrated.trivial_config |= trivial;
+						sols = new PardinusSolver(options).solveAll(formula, integrated);
+					} else {
+						sols = sessions.remove(session);
+						if (sols == null)
+							throw new IllegalStateException("Unknown session: " + session);
+					}
+					final Solution sol = sols.next();
+					// the enumeration ends with the first unsatisfiable solution
+					if (sol.sat() && sols.hasNext())
+						sessions.put(session, sols);
+					out.writeInt(sol.outcome().ordinal());
+					out.writeInt(sol.stats().primaryVariables());
+					out.writeInt(sol.stats().variables());
+					out.writeInt(sol.stats().clauses());
+					out.writeLong(sol.stats().translationTime());
+					out.writeLong(sol.stats().solvingTime());
+					if (sol.sat())
+						write(out, sol.instance());
+				} catch (RuntimeException e) {
+					out.writeInt(FAILED);
+					out.writeUTF(String.valueOf(e));
+				}
+				out.flush();
+			}
+		}
+	}
+
+}
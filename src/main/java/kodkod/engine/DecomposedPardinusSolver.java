@@ -37,6 +37,7 @@ import kodkod.engine.config.DecomposedOptions.DMode;
 import kodkod.engine.config.ExtendedOptions;
 import kodkod.engine.config.PardinusOptions;
 import kodkod.engine.config.Reporter;
+import kodkod.engine.decomp.DecompFormulaSlicer;
 import kodkod.instance.Instance;
 import kodkod.instance.PardinusBounds;
 
@@ -118,7 +119,8 @@ public class DecomposedPardinusSolver<S extends AbstractSolver<PardinusBounds, E
 		if (!options.configOptions().solver().incremental())
 			throw new IllegalArgumentException("An incremental solver is required to iterate the configurations.");
 
-		executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), options.decomposedMode() == DMode.HYBRID);
+		bounds = partition(formula, bounds);
+		executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), options.decomposedMode() == DMode.HYBRID, options.processes());
 		ExecutorService ex = Executors.newSingleThreadExecutor();
 		Future<?> fut = ex.submit(executor);
 		try {
@@ -131,6 +133,7 @@ public class DecomposedPardinusSolver<S extends AbstractSolver<PardinusBounds, E
 		try {
 			Entry<Solution,Iterator<Solution>> exp = executor.next();
 			sol = exp.getKey();
+			free(exp.getValue());
 			executor.terminate();
 		} catch (InterruptedException e) {
 			options.reporter().debug("Waiting for next interrupted.");
@@ -170,7 +173,35 @@ public class DecomposedPardinusSolver<S extends AbstractSolver<PardinusBounds, E
 	public Explorer<Solution> solveAll(Formula formula, PardinusBounds bounds) {
 		if (!options.configOptions().solver().incremental())
 			throw new IllegalArgumentException("cannot enumerate solutions without an incremental solver.");
-		return new DSolutionIterator<S>(formula, bounds, options, solver1, solver2); 
+		return new DSolutionIterator<S>(formula, partition(formula, bounds), options, solver1, solver2); 
+	}
+	
+	/**
+	 * Splits the given bounds into a partial and a remainder problem, using 
+	 * the relations proposed by {@link DecompFormulaSlicer#partition(Formula, PardinusBounds)}, 
+	 * unless the bounds are already decomposed.
+	 * 
+	 * @param formula
+	 *            the formula to be solved.
+	 * @param bounds
+	 *            the bounds of the problem.
+	 * @return bounds with a partial problem.
+	 */
+	private PardinusBounds partition(Formula formula, PardinusBounds bounds) {
+		if (bounds.amalgamated() != null)
+			return bounds;
+		final Set<Relation> partials = DecompFormulaSlicer.partition(formula, bounds);
+		options.reporter().debug("automatic partial problem: "+partials);
+		return PardinusBounds.splitAt(bounds, partials);
+	}
+	
+	/**
+	 * Abandons the given solutions of an integrated problem, if they are
+	 * enumerated by a worker process, which then drops its state.
+	 */
+	private static void free(Iterator<Solution> sols) {
+		if (sols instanceof DProcessPool.Solutions)
+			((DProcessPool.Solutions) sols).free();
 	}
 	
 	private static class DSolutionIterator<S extends AbstractSolver<PardinusBounds, ExtendedOptions>> implements Explorer<Solution> {
@@ -183,10 +214,8 @@ public class DecomposedPardinusSolver<S extends AbstractSolver<PardinusBounds, E
 		 */
 		DSolutionIterator(Formula formula, PardinusBounds bounds, DecomposedOptions options, ExtendedSolver solver1, S solver2) {
 			reporter = options.reporter();
-			if (options.decomposedMode() == DMode.HYBRID)
-				executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), true);
-			else
-				executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), false);
+			executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), 
+					options.decomposedMode() == DMode.HYBRID, options.processes());
 			ExecutorService ex = Executors.newSingleThreadExecutor();
 			Future<?> fut = ex.submit(executor);
 			try {
@@ -233,6 +262,7 @@ public class DecomposedPardinusSolver<S extends AbstractSolver<PardinusBounds, E
 			try {
 				Entry<Solution,Iterator<Solution>> xx = executor.next();
 				Solution sol = xx.getKey();
+				free(sols);
 				sols = xx.getValue();
 				return sol;
 			} catch (InterruptedException e) {
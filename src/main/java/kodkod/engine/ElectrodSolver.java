@@ -23,15 +23,20 @@
 package kodkod.engine;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
@@ -76,6 +81,9 @@ public class ElectrodSolver implements UnboundedSolver<ExtendedOptions>,
 
 	private final ExtendedOptions options;
 
+	/** the Electrod processes currently running */
+	private final Set<Process> running = Collections.synchronizedSet(new HashSet<Process>());
+
 	/**
 	 * Constructs a new Electrod solver with the given options.
 	 * 
@@ -201,7 +209,7 @@ public class ElectrodSolver implements UnboundedSolver<ExtendedOptions>,
 	 * @param options
 	 * @return a solution to the problem
 	 */
-	private static Solution go(Formula formula, PardinusBounds bounds, ExtendedOptions options) {
+	private Solution go(Formula formula, PardinusBounds bounds, ExtendedOptions options) {
 		Reporter rep = options.reporter();
 		
 		// if not decomposed, use the amalgamated if any
@@ -214,19 +222,17 @@ public class ElectrodSolver implements UnboundedSolver<ExtendedOptions>,
 		if (!dir.exists()) dir.mkdir();
 		
 		String file = dir.toString()+File.separatorChar+String.format("%05d", bounds.integration);
-		PrintWriter writer;
-		try {
-			if (!Options.isDebug()) {
-				new File(file+".elo").deleteOnExit();
-			}
-			writer = new PrintWriter(file+".elo");
-		} catch (Exception e) {
+		if (!Options.isDebug()) {
+			new File(file+".elo").deleteOnExit();
+		}
+		// stream the problem rather than building it in memory
+		try (Writer writer = new BufferedWriter(new FileWriter(file+".elo"))) {
+			ElectrodPrinter.print(formula, bounds, rep, writer);
+			writer.write(System.lineSeparator());
+		} catch (IOException e) {
 			rep.debug(e.getMessage());
 			throw new AbortedException("Electrod problem generation failed.", e);
 		}
-		String electrod = ElectrodPrinter.print(formula, bounds, rep);
-		writer.println(electrod);
-		writer.close();
 		rep.debug("New Electrod problem at "+dir+".");
 		ProcessBuilder builder;
 		List<String> args = new ArrayList<String>();
@@ -249,6 +255,7 @@ public class ElectrodSolver implements UnboundedSolver<ExtendedOptions>,
 		try {
 			options.reporter().solvingCNF(-1, -1, -1, -1);
 			p = builder.start();
+			running.add(p);
 			// stores the pid so that it can be correctly terminated
 			Runtime.getRuntime().addShutdownHook(new Thread() {
 				@Override
@@ -270,6 +277,8 @@ public class ElectrodSolver implements UnboundedSolver<ExtendedOptions>,
 			} catch (InterruptedException e) {
 				p.destroy();
 				throw new AbortedException("Electrod problem interrupted.", e);
+			} finally {
+				running.remove(p);
 			}
 		} catch (IOException e1) {
 			throw new AbortedException("Electrod problem failed.", e1);
@@ -308,6 +317,18 @@ public class ElectrodSolver implements UnboundedSolver<ExtendedOptions>,
 		}
 	}
 	
+	/**
+	 * Kills the Electrod processes currently launched by this solver, if any.
+	 * The respective calls to {@link #solve(Formula, PardinusBounds)} will
+	 * throw an {@link AbortedException}.
+	 */
+	public void cancel() {
+		synchronized (running) {
+			for (Process p : running)
+				p.destroy();
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -179,19 +179,13 @@ public class ExtendedSolver extends AbstractKodkodSolver<PardinusBounds,Extended
 			final boolean isSat = cnf.solve();
 			final long endSolve = System.currentTimeMillis();
 
-			int primaryVars = transl.numPrimaryVariables();
-
 			final Statistics stats = new Statistics(transl, translTime, endSolve - startSolve);
 			final Solution sol;
 			if (isSat) {			
 				// extract the current solution; can't use the sat(..) method because it frees the sat solver
 				sol = Solution.satisfiable(stats, transl.interpret());
 				// add the negation of the current model to the solver
-				final int[] notModel = new int[primaryVars];
-				for(int i = 1; i <= primaryVars; i++) {
-					notModel[i-1] = cnf.valueOf(i) ? -i : i;
-				}
-				cnf.addClause(notModel);
+				cnf.addClause(notModel(transl));
 			} else {
 				sol = unsat(transl, stats); // this also frees up solver resources, if any
 				translation = null; // unsat, no more solutions
@@ -325,6 +319,9 @@ public class ExtendedSolver extends AbstractKodkodSolver<PardinusBounds,Extended
 	// [HASLab]
 	@Override
 	protected Iterator<Solution> iterator(Formula formula, Bounds bounds, Options options) {
+		// target-oriented enumeration retargets a single solver
+		if (!options().targetoriented() && options().enumerationThreads() > 1)
+			return super.iterator(formula, bounds, options());
 		return new SolutionIterator(formula, bounds, options());
 	}
 		
@@ -0,0 +1,146 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine;
+
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import kodkod.ast.Formula;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.instance.PardinusBounds;
+
+/**
+ * A temporal solver that races an {@link ElectrodSolver Electrod solver}
+ * against the bounded {@link TemporalPardinusSolver temporal Pardinus solver},
+ * returning the first conclusive answer. The bounded engine uses the
+ * {@link ExtendedOptions#boundedSolver() bounded SAT solver} of the options,
+ * while Electrod uses {@link ExtendedOptions#solver()}.
+ * 
+ * <p>
+ * A satisfiable answer from either engine is conclusive, as is any answer
+ * from Electrod. An unsatisfiable answer from the bounded engine is only
+ * conclusive if Electrod is also running in bounded mode, since otherwise
+ * a longer trace may exist; in that case the solver waits for Electrod. Once
+ * an answer is accepted, the Electrod process is killed and the bounded
+ * engine is interrupted, which stops it between trace lengths and aborts
+ * SAT solvers that support interruption. If one of the engines fails, the
+ * answer of the other is returned if conclusive, otherwise the failure is
+ * rethrown.
+ * </p>
+ * 
+ * <p>
+ * Each engine works on its own copy of the bounds, since the engines expand
+ * and annotate them while solving. Formulas are immutable and are shared.
+ * </p>
+ * 
+ * @author Nuno Macedo // [HASLab] unbounded temporal model finding
+ */
+public class HybridTemporalSolver implements UnboundedSolver<ExtendedOptions>, TemporalSolver<ExtendedOptions> {
+
+	private final ExtendedOptions options;
+	private final ExtendedOptions bounded_options;
+
+	/**
+	 * Constructs a new hybrid temporal solver with the given options.
+	 * 
+	 * @param options
+	 *            the solver options.
+	 * @throws NullPointerException
+	 *             options = null
+	 * @throws IllegalArgumentException
+	 *             no options.boundedSolver() || options.boundedSolver().unbounded()
+	 */
+	public HybridTemporalSolver(ExtendedOptions options) {
+		if (options == null)
+			throw new NullPointerException();
+		if (options.boundedSolver() == null || options.boundedSolver().unbounded())
+			throw new IllegalArgumentException("A bounded SAT solver is required to race Electrod.");
+		this.options = options;
+		this.bounded_options = options.clone();
+		bounded_options.setSolver(options.boundedSolver());
+		bounded_options.setRunUnbounded(false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public ExtendedOptions options() {
+		return options;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Solution solve(final Formula formula, final PardinusBounds bounds) {
+		final ElectrodSolver electrod = new ElectrodSolver(options);
+		final TemporalPardinusSolver kodkod = new TemporalPardinusSolver(bounded_options);
+		final ExecutorService executor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				final Thread t = new Thread(r, "hybrid-temporal");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		final CompletionService<Solution> race = new ExecutorCompletionService<Solution>(executor);
+		final PardinusBounds electrod_bounds = bounds.clone(), kodkod_bounds = bounds.clone();
+		final Future<Solution> unbounded = race.submit(() -> electrod.solve(formula, electrod_bounds));
+		race.submit(() -> kodkod.solve(formula, kodkod_bounds));
+		RuntimeException failure = null;
+		try {
+			for (int i = 0; i < 2; i++) {
+				final Future<Solution> done = race.take();
+				final boolean isElectrod = done == unbounded;
+				try {
+					final Solution sol = done.get();
+					if (isElectrod || sol.sat() || !options.unbounded()) {
+						options.reporter().debug((isElectrod ? "Electrod" : "Bounded engine") + " answered first.");
+						return sol;
+					}
+					// inconclusive, Electrod may still find a longer trace
+				} catch (ExecutionException e) {
+					options.reporter().warning((isElectrod ? "Electrod" : "Bounded engine") + " failed: " + e.getCause());
+					if (failure == null)
+						failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+								: new AbortedException(e.getCause());
+				}
+			}
+			throw failure;
+		} catch (InterruptedException e) {
+			throw new AbortedException("Hybrid temporal solving interrupted.", e);
+		} finally {
+			electrod.cancel();
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void free() {}
+
+}
@@ -29,11 +29,14 @@ import kodkod.engine.fol2sat.SymmetryDetector;
 import kodkod.engine.fol2sat.Translation;
 import kodkod.engine.fol2sat.Translator;
 import kodkod.engine.fol2sat.UnboundLeafException;
+import kodkod.engine.satlab.AssumptionSATSolver;
 import kodkod.engine.satlab.SATAbortedException;
 import kodkod.engine.satlab.SATFactory;
 import kodkod.engine.satlab.SATSolver;
 import kodkod.instance.Bounds;
 import kodkod.instance.Universe;
+import kodkod.util.ints.ArrayIntVector;
+import kodkod.util.ints.IntVector;
 
 /** 
  * A computational engine for solving a sequence of related relational
@@ -83,6 +86,19 @@ import kodkod.instance.Universe;
  * this requirement, but it is better to group related atoms into sets to enable symmetry breaking.
  * </p>
  *  
+ * <p>
+ * Formulas can also be added within a scope, opened by {@link #push()} and closed by {@link #pop()}.
+ * The formulas added within a scope are retracted when it is closed, and an UNSAT outcome 
+ * obtained while a scope is open leaves the solver usable.  Each scope is implemented by a single 
+ * guard variable, which is allocated the first time a formula is added within the scope and is not 
+ * allocated to any relation.  The scope's formulas are translated as implied by that variable, and the 
+ * SAT solver is called under the assumption that the guards of all open scopes are true.  Closing a 
+ * scope asserts the negation of its guard.  The bounds added within a scope are 
+ * not retracted:  the relations they bind remain in the solver, but they are unconstrained 
+ * by the formulas of closed scopes.  Scopes require the {@linkplain Options#solver() opt.solver} 
+ * to produce {@linkplain AssumptionSATSolver solvers that accept assumptions}.
+ * </p>
+ * 
  * <p>We additionally require {@linkplain Options#logTranslation() opt.logTranslation} to be 
  * {@linkplain Options#setLogTranslation(int) disabled} and {@linkplain Options#solver() opt.solver} 
  * to specify an {@linkplain SATFactory#incremental() incremental} SAT solver.  Note that these 
@@ -91,6 +107,7 @@ import kodkod.instance.Universe;
  * @specfield options: {@link Options} 
  * @specfield bounds: lone {@link Bounds}
  * @specfield formulas: set {@link Formula}
+ * @specfield scopes: seq set {@link Formula} // the formulas added within each open scope
  * @invariant formulas.*components & Relation in bounds.relations
  * @invariant some formulas iff some bounds 
  * @invariant options.solver.incremental() && options.logTranslation = 0   
@@ -108,15 +125,18 @@ public final class IncrementalSolver implements BoundedSolver<Bounds,Options> {
 	private final Options options;
 	private Translation.Incremental translation;
 	private Boolean outcome;
+	/** the guard variable of each open scope, or 0 if no formula was added within it */
+	private final IntVector scopes;
 	
 	/**
 	 * Initializes the solver with the given options.
 	 * @ensures no this.solution' && no this.formulas' && 
-	 *          no this.bounds'&& this.options' = options
+	 *          no this.bounds'&& this.options' = options && no this.scopes'
 	 */
 	private IncrementalSolver(Options options) { 
 		this.options = options;
 		this.outcome = null;
+		this.scopes = new ArrayIntVector();
 	}
 	
 	/**
@@ -134,7 +154,8 @@ public final class IncrementalSolver implements BoundedSolver<Bounds,Options> {
 	/**
 	 * Adds the specified formula and bounds to the solver's state, modifies 
 	 * the current solution to reflect the updated state (if needed), 
-	 * and returns this solver.  This solver should not be used again if a 
+	 * and returns this solver.  If a scope is open, the formula is added to
+	 * the innermost scope.  This solver should not be used again if a 
 	 * call to this method results in an exception.
 	 * @requires this.{@link #usable() usable}()
 	 * @requires f.*components & Relation in (this.bounds + b).relations
@@ -143,16 +164,17 @@ public final class IncrementalSolver implements BoundedSolver<Bounds,Options> {
 	 *            all s: {@link SymmetryDetector#partition(Bounds) partition}(this.bounds) |  
 	 * 				some p: {@link SymmetryDetector#partition(Bounds) partition}(b) | 
 	 * 				   s.elements in p.elements
-	 * @ensures this.formulas' = this.formulas + f
+	 * @ensures no this.scopes => this.formulas' = this.formulas + f
+	 * @ensures some this.scopes => this.scopes' = this.scopes ++ (#this.scopes-1) -> (this.scopes.last + f)
 	 * @ensures some this.bounds =>
 	 *            (this.bounds.relations' = this.bounds.relations + b.relations &&
 	 *             this.bounds.upperBound' = this.bounds.upperBound + b.upperBound &&
 	 *             this.bounds.lowerBound' = this.bounds.lowerBound + b.lowerBound) else
 	 *            (this.bounds' = bounds)
-	 * @return some sol: Solution | sol.instance() = null => 
-	 *              UNSAT(this.formulas', this.bounds', this.options) else 
-	 *              sol.instance() in MODELS(Formula.and(this.formulas'), this.bounds', this.options)
-	 * @throws IllegalStateException a prior call returned an UNSAT solution or resulted in an exception
+	 * @return some sol: Solution | let all = this.formulas' + this.scopes'.elems | sol.instance() = null => 
+	 *              UNSAT(all, this.bounds', this.options) else 
+	 *              sol.instance() in MODELS(Formula.and(all), this.bounds', this.options)
+	 * @throws IllegalStateException a prior call returned an UNSAT solution while no scope was open, or resulted in an exception
 	 * @throws NullPointerException  any of the arguments are null
 	 * @throws UnboundLeafException  the formula refers to an undeclared variable or a relation not mapped by this.bounds + b
 	 * @throws HigherOrderDeclException  the formula contains a higher order declaration
@@ -167,11 +189,27 @@ public final class IncrementalSolver implements BoundedSolver<Bounds,Options> {
 			throw new IllegalStateException("Cannot use this solver since a prior call to solve(...) resulted in an exception.");
 		
 		final Solution solution;
+		final int[] assumptions;
 		try {			
 			final long startTransl = System.currentTimeMillis();
-			translation = translation==null ? Translator.translateIncremental(f, b, options) : Translator.translateIncremental(f, b, translation);
+			if (scopes.isEmpty()) {
+				translation = translation==null ? Translator.translateIncremental(f, b, options) : Translator.translateIncremental(f, b, translation);
+			} else {
+				final Bounds inc;
+				if (translation==null) { // the initial bounds are translated first, so that f can be guarded
+					translation = Translator.translateIncremental(Formula.TRUE, b, options);
+					inc = new Bounds(b.universe());
+				} else {
+					inc = b;
+				}
+				final int last = scopes.size()-1, guard = scopes.get(last);
+				translation = Translator.translateIncremental(f, inc, guard, translation);
+				if (guard==0) 
+					scopes.set(last, translation.guard());
+			}
 			final long endTransl = System.currentTimeMillis();
 			
+			assumptions = assumptions();
 			if (translation.trivial()) {
 				final Statistics stats = new Statistics(translation, endTransl - startTransl, 0);
 				if (translation.cnf().solve()) {
@@ -184,7 +222,7 @@ public final class IncrementalSolver implements BoundedSolver<Bounds,Options> {
 				
 				translation.options().reporter().solvingCNF(0, translation.numPrimaryVariables(), cnf.numberOfVariables(), cnf.numberOfClauses()); // [HASLab]
 				final long startSolve = System.currentTimeMillis();
-				final boolean sat = cnf.solve();
+				final boolean sat = assumptions.length==0 ? cnf.solve() : ((AssumptionSATSolver)cnf).solve(assumptions);
 				final long endSolve = System.currentTimeMillis();
 
 				final Statistics stats = new Statistics(translation, endTransl - startTransl, endSolve - startSolve);
@@ -204,13 +242,72 @@ public final class IncrementalSolver implements BoundedSolver<Bounds,Options> {
 		
 		if (solution.sat()) {
 			outcome = Boolean.TRUE;
-		} else {
+		} else if (assumptions.length==0) {
 			outcome = Boolean.FALSE;
 			free();
-		}
+		} // else the formulas of the open scopes may be to blame, so the solver remains usable
 		
 		return solution;
 	}
+	
+	/**
+	 * Returns the guard variables of the open scopes.
+	 * @return the guard variables of the open scopes
+	 */
+	private int[] assumptions() {
+		int size = 0;
+		for(int i = 0; i < scopes.size(); i++) {
+			if (scopes.get(i) != 0) size++;
+		}
+		final int[] ret = new int[size];
+		for(int i = 0, j = 0; i < scopes.size(); i++) {
+			if (scopes.get(i) != 0) ret[j++] = scopes.get(i);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Opens a new scope.  The formulas added by subsequent calls to {@link #solve(Formula, Bounds)} 
+	 * are retracted when the scope is closed by a matching call to {@link #pop()}.  
+	 * @requires this.{@link #usable() usable}()
+	 * @ensures this.scopes' = this.scopes.add({})
+	 * @throws IllegalStateException this solver is not usable
+	 * @throws IllegalArgumentException this.options.solver does not produce {@link AssumptionSATSolver assumption solvers}
+	 */
+	public void push() {
+		if (!usable())
+			throw new IllegalStateException("Cannot use this solver since a prior call to solve(...) produced an UNSAT solution or resulted in an exception.");
+		final SATSolver cnf = translation==null ? options.solver().instance() : translation.cnf();
+		final boolean assumes = cnf instanceof AssumptionSATSolver;
+		if (translation==null) 
+			cnf.free();
+		if (!assumes)
+			throw new IllegalArgumentException("Scopes require a SAT solver that accepts assumptions: " + options.solver());
+		scopes.add(0);
+	}
+	
+	/**
+	 * Closes the innermost open scope, retracting the formulas that were added within it.
+	 * @requires some this.scopes
+	 * @ensures this.scopes' = this.scopes.delete(#this.scopes-1)
+	 * @throws IllegalStateException no scope is open
+	 */
+	public void pop() {
+		if (scopes.isEmpty())
+			throw new IllegalStateException("No scope to pop.");
+		final int guard = scopes.removeAt(scopes.size()-1);
+		if (guard != 0 && translation != null) {
+			translation.cnf().addClause(new int[] { -guard });
+		}
+	}
+	
+	/**
+	 * Returns the number of open scopes.
+	 * @return #this.scopes
+	 */
+	public int scopes() {
+		return scopes.size();
+	}
 
 	/**
 	 * Returns true iff this solver has neither returned an UNSAT solution so far
@@ -0,0 +1,237 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import kodkod.ast.Decl;
+import kodkod.ast.Decls;
+import kodkod.ast.Formula;
+import kodkod.ast.QuantifiedFormula;
+import kodkod.ast.operator.Multiplicity;
+import kodkod.ast.operator.Quantifier;
+import kodkod.engine.config.Options;
+import kodkod.engine.fol2sat.HigherOrderDeclException;
+import kodkod.engine.fol2sat.Translation;
+import kodkod.engine.fol2sat.Translator;
+import kodkod.engine.fol2sat.UnboundLeafException;
+import kodkod.engine.satlab.SATAbortedException;
+import kodkod.engine.satlab.SATSolver;
+import kodkod.instance.Bounds;
+import kodkod.instance.Instance;
+import kodkod.instance.TupleSet;
+import kodkod.util.nodes.Nodes;
+
+/** 
+ * A computational engine for solving relational satisfiability problems by 
+ * lazy instantiation of universally quantified formulas.  
+ * <p>
+ * A top-level conjunct <code>all x1: e1, ..., xn: en | body</code> of a problem, 
+ * whose declarations are all of multiplicity one, is <i>deferred</i> if the number
+ * of its groundings (as estimated by the upper bounds on <code>e1, ..., en</code>)
+ * is at least {@link #threshold()}.  The solver translates the problem without its 
+ * deferred conjuncts to an incremental SAT solver, and then repeats the following steps:
+ * it solves the SAT problem, evaluates each deferred conjunct against the resulting instance, and adds 
+ * the groundings of the deferred conjuncts that are violated by the instance to the SAT solver.  
+ * The iteration stops when the SAT solver returns UNSAT, or when the instance satisfies all
+ * deferred conjuncts.  The circuits of the deferred conjuncts thus only contain the 
+ * groundings that were needed to refute candidate instances, instead of all of their groundings. 
+ * </p>
+ * <p>
+ * The options of a lazy solver must satisfy the requirements of an {@link IncrementalSolver}.  
+ * In particular, they must specify an incremental SAT solver and disable translation logging, which
+ * prevents unsat core extraction.
+ * </p>
+ * @specfield options: {@link Options} 
+ * @specfield threshold: int
+ * @invariant options.solver.incremental() && options.logTranslation = 0   
+ * @see IncrementalSolver
+ * @see Translator#translateIncremental(Formula, Decls, TupleSet, kodkod.engine.fol2sat.Translation.Incremental)
+ * @author Nuno Macedo // [HASLab] lazy quantifier instantiation
+ */
+public final class LazySolver implements BoundedSolver<Bounds,Options> {
+	private final Options options;
+	private final int threshold;
+	
+	/**
+	 * Initializes the solver with the given options and threshold.
+	 * @ensures this.options' = options && this.threshold' = threshold
+	 */
+	private LazySolver(Options options, int threshold) { 
+		this.options = options;
+		this.threshold = threshold;
+	}
+	
+	/**
+	 * Returns a new {@link LazySolver} using the given options, which defers
+	 * all quantified conjuncts with at least the given number of groundings.
+	 * @requires options.solver.incremental() && options.logTranslation = 0 && threshold >= 0
+	 * @return some s: LazySolver | s.options = options.clone() && s.threshold = threshold
+	 * @throws NullPointerException  options = null
+	 * @throws IllegalArgumentException any of the preconditions on the arguments are violated
+	 */
+	public static LazySolver solver(Options options, int threshold) {
+		Translator.checkIncrementalOptions(options);
+		if (threshold < 0)
+			throw new IllegalArgumentException("threshold < 0: " + threshold);
+		return new LazySolver(options.clone(), threshold);
+	}
+	
+	/**
+	 * Returns a copy of {@code this.options}.
+	 * @return this.options.clone()
+	 */
+	public Options options() { return options.clone(); }
+	
+	/**
+	 * Returns the minimum number of groundings of a deferred conjunct.
+	 * @return this.threshold
+	 */
+	public int threshold() { return threshold; }
+	
+	/**
+	 * Returns true if the given conjunct should be deferred with respect to the given bounds.
+	 * @return conjunct in QuantifiedFormula && conjunct.quantifier = ALL && 
+	 *         conjunct.decls.multiplicity = ONE && groundings(conjunct) >= this.threshold 
+	 */
+	private boolean deferred(Formula conjunct, Bounds bounds) {
+		if (!(conjunct instanceof QuantifiedFormula)) return false;
+		final QuantifiedFormula quant = (QuantifiedFormula) conjunct;
+		if (quant.quantifier() != Quantifier.ALL) return false;
+		long groundings = 1;
+		for(Decl decl : quant.decls()) {
+			if (decl.multiplicity() != Multiplicity.ONE || decl.expression().arity() != 1) return false;
+			int size;
+			try {
+				size = Translator.approximate(decl.expression(), bounds, options).density();
+			} catch (UnboundLeafException e) { // the declaration depends on a previously declared variable
+				size = bounds.universe().size();
+			}
+			groundings = StrictMath.min(groundings * size, Integer.MAX_VALUE);
+		}
+		return groundings >= threshold;
+	}
+	
+	/**
+	 * Returns the formula that is instantiated for the violated groundings of the given quantified formula: 
+	 * its body, guarded by the membership of each declared variable in its declaration.
+	 * @return quant.decls.variable in quant.decls.expression => quant.formula 
+	 */
+	private static Formula guarded(QuantifiedFormula quant) {
+		final List<Formula> guards = new ArrayList<Formula>(quant.decls().size());
+		for(Decl decl : quant.decls()) {
+			guards.add(decl.variable().in(decl.expression()));
+		}
+		return Formula.and(guards).implies(quant.formula());
+	}
+	
+	/**
+	 * Attempts to satisfy the given {@code formula} and {@code bounds} with respect to 
+	 * {@code this.options}, instantiating its deferred conjuncts lazily.
+	 * @return some sol: Solution | sol.instance() = null => 
+	 *              UNSAT(formula, bounds, this.options) else 
+	 *              sol.instance() in MODELS(formula, bounds, this.options)
+	 * @throws NullPointerException  any of the arguments are null
+	 * @throws UnboundLeafException  the formula refers to an undeclared variable or a relation not mapped by the bounds
+	 * @throws HigherOrderDeclException  the formula contains a higher order declaration
+	 * @throws AbortedException this solving task has been aborted
+	 */
+	public Solution solve(Formula formula, Bounds bounds) throws HigherOrderDeclException, UnboundLeafException, AbortedException {
+		final List<Formula> eager = new ArrayList<Formula>();
+		final List<QuantifiedFormula> lazy = new ArrayList<QuantifiedFormula>();
+		for(Formula conjunct : Nodes.conjuncts(formula)) {
+			if (deferred(conjunct, bounds)) 
+				lazy.add((QuantifiedFormula) conjunct);
+			else
+				eager.add(conjunct);
+		}
+		
+		Translation.Incremental translation = null;
+		try {
+			long translTime = System.currentTimeMillis();
+			translation = Translator.translateIncremental(Formula.and(eager), bounds, options);
+			if (translation.trivial() && !lazy.isEmpty() && translation.cnf().solve()) {
+				// nothing to instantiate the deferred conjuncts against, so translate them eagerly 
+				translation.cnf().free();
+				translation = Translator.translateIncremental(formula, bounds, options);
+				lazy.clear();
+			}
+			translTime = System.currentTimeMillis() - translTime;
+			
+			if (translation.trivial()) {
+				final Statistics stats = new Statistics(translation, translTime, 0);
+				return translation.cnf().solve() ? Solution.triviallySatisfiable(stats, translation.interpret()) 
+						                         : Solution.triviallyUnsatisfiable(stats, null);
+			}
+			
+			final List<Formula> instances = new ArrayList<Formula>(lazy.size());
+			for(QuantifiedFormula quant : lazy) {
+				instances.add(guarded(quant));
+			}
+			
+			long solveTime = 0;
+			for(int round = 0; ; round++) {
+				final SATSolver cnf = translation.cnf();
+				options.reporter().solvingCNF(round, translation.numPrimaryVariables(), cnf.numberOfVariables(), cnf.numberOfClauses()); 
+				final long startSolve = System.currentTimeMillis();
+				final boolean sat = cnf.solve();
+				solveTime += System.currentTimeMillis() - startSolve;
+				if (!sat) 
+					return Solution.unsatisfiable(new Statistics(translation, translTime, solveTime), null);
+				
+				final Instance instance = translation.interpret();
+				final Evaluator eval = new Evaluator(instance, options);
+				final long startTransl = System.currentTimeMillis();
+				boolean refined = false;
+				for(int i = 0, size = lazy.size(); i < size && !translation.trivial(); i++) {
+					final QuantifiedFormula quant = lazy.get(i);
+					final TupleSet violations = eval.evaluate(quant.formula().not().comprehension(quant.decls()));
+					if (!violations.isEmpty()) {
+						options.reporter().debug("instantiating " + violations.size() + " groundings of " + quant);
+						translation = Translator.translateIncremental(instances.get(i), quant.decls(), violations, translation);
+						refined = true;
+					}
+				}
+				translTime += System.currentTimeMillis() - startTransl;
+				
+				if (!refined) 
+					return Solution.satisfiable(new Statistics(translation, translTime, solveTime), instance);
+				if (translation.trivial()) // a violated grounding reduced to false
+					return Solution.unsatisfiable(new Statistics(translation, translTime, solveTime), null);
+			}
+		} catch (SATAbortedException sae) {
+			throw new AbortedException(sae);		
+		} finally {
+			if (translation != null) 
+				translation.cnf().free();
+		}
+	}
+	
+	/**
+	 * Releases the resources, if any, associated with this solver.  A lazy solver
+	 * retains no resources between calls to {@link #solve(Formula, Bounds)}.
+	 */
+	public void free() { }
+	
+}
@@ -0,0 +1,293 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kodkod.ast.Formula;
+import kodkod.ast.Relation;
+import kodkod.engine.config.Options;
+import kodkod.engine.fol2sat.Translation;
+import kodkod.engine.fol2sat.Translator;
+import kodkod.engine.satlab.SATAbortedException;
+import kodkod.engine.satlab.SATSolver;
+import kodkod.instance.Bounds;
+
+/**
+ * An iterator over all solutions of a model that enumerates them concurrently.
+ * The search space is split into disjoint cubes, i.e., assignments to a few
+ * primary variables, and the solutions of each cube are enumerated by its own
+ * SAT solver, with the usual blocking clauses, on a pool of
+ * {@link Options#enumerationThreads()} threads. Each cube is translated
+ * separately, so that the solvers share no state. The solutions are merged
+ * into a bounded buffer as they are found, so the enumerating threads wait
+ * while it is full. As in the sequential iterator, the last solution is
+ * unsatisfiable.
+ * 
+ * The primary variables that define the cubes are taken in turn from the
+ * relations of the problem, or from those in
+ * {@link Options#projection()} if solutions are projected, so that the
+ * cubes do not enumerate the same projections.
+ * 
+ * An iterator that is abandoned before its last solution keeps its threads
+ * waiting on the full buffer until it is {@link #free() freed}, which the
+ * solver that created it does when freed.
+ * 
+ * @author Nuno Macedo // [HASLab] parallel solution enumeration
+ */
+final class ParallelSolutionIterator implements Iterator<Solution> {
+	/** The number of solutions buffered per enumerating thread. */
+	private static final int BUFFER = 8;
+	/** The maximum number of primary variables that define the cubes. */
+	private static final int MAX_SPLIT = 16;
+
+	private final Options options;
+	private final BlockingQueue<Solution> buffer;
+	private final ExecutorService executor;
+	/** The relations and the offsets into their primary variables that define the cubes. */
+	private final Relation[] splitRelations;
+	private final int[] splitOffsets;
+	/** The number of cubes still being enumerated. */
+	private final AtomicInteger pending;
+	private volatile Statistics last;
+	private volatile Throwable failure;
+	private volatile boolean done;
+
+	/**
+	 * Constructs a parallel solution iterator for the given formula and bounds,
+	 * whose translation, which must not be trivial, has already been computed.
+	 * 
+	 * @requires !translation.trivial() && translation.options.enumerationThreads > 1
+	 * @requires translation is the translation of formula and bounds
+	 */
+	ParallelSolutionIterator(Formula formula, Bounds bounds, Translation.Whole translation, long translTime) {
+		this.options = translation.options();
+		final int threads = options.enumerationThreads();
+
+		// choose the split variables in turn from each relation
+		final Set<Relation> candidates = options.projection().isEmpty() ? bounds.relations() : options.projection();
+		int split = 0;
+		while ((1 << split) < threads && split < MAX_SPLIT)
+			split++;
+		final List<Relation> rels = new ArrayList<Relation>();
+		final List<Integer> offsets = new ArrayList<Integer>();
+		for (int offset = 0; rels.size() < split; offset++) {
+			boolean any = false;
+			for (Relation r : candidates) {
+				if (rels.size() < split && offset < translation.primaryVariables(r).size()) {
+					rels.add(r);
+					offsets.add(offset);
+					any = true;
+				}
+			}
+			if (!any)
+				break;
+		}
+		this.splitRelations = rels.toArray(new Relation[rels.size()]);
+		this.splitOffsets = new int[offsets.size()];
+		for (int i = 0; i < splitOffsets.length; i++)
+			splitOffsets[i] = offsets.get(i);
+
+		final int cubes = 1 << splitRelations.length;
+		this.buffer = new ArrayBlockingQueue<Solution>(BUFFER * threads);
+		this.pending = new AtomicInteger(cubes);
+		this.executor = Executors.newFixedThreadPool(Math.min(threads, cubes), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				final Thread t = new Thread(r, "enumeration");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		// the first cube reuses the given translation, the others translate copies of the bounds
+		try {
+			executor.execute(enumerate(formula, null, translation, translTime, 0));
+			for (int cube = 1; cube < cubes; cube++)
+				executor.execute(enumerate(formula, bounds.clone(), null, 0, cube));
+		} catch (RejectedExecutionException e) {
+			// a cube already failed and cancelled the enumeration, which next() reports
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * Creates a task that enumerates the solutions of the given cube, translating
+	 * the problem first if no translation is given.
+	 */
+	private Runnable enumerate(final Formula formula, final Bounds bounds, final Translation.Whole translation,
+			final long translTime, final int cube) {
+		return new Runnable() {
+			public void run() {
+				Translation.Whole transl = translation;
+				long time = translTime;
+				try {
+					if (transl == null) {
+						final long start = System.currentTimeMillis();
+						transl = Translator.translate(formula, bounds, options);
+						time = System.currentTimeMillis() - start;
+					}
+					final SATSolver cnf = transl.cnf();
+					for (int i = 0; i < splitRelations.length; i++) {
+						final int var = transl.primaryVariables(splitRelations[i]).min() + splitOffsets[i];
+						cnf.addClause(new int[] { (cube & (1 << i)) == 0 ? -var : var });
+					}
+					while (!Thread.currentThread().isInterrupted()) {
+						options.reporter().solvingCNF(0, transl.numPrimaryVariables(), cnf.numberOfVariables(),
+								cnf.numberOfClauses());
+						final long startSolve = System.currentTimeMillis();
+						final boolean isSat = cnf.solve();
+						final Statistics stats = new Statistics(transl, time, System.currentTimeMillis() - startSolve);
+						if (!isSat) {
+							last = stats;
+							break;
+						}
+						buffer.put(Solution.satisfiable(stats, transl.interpret()));
+						cnf.addClause(AbstractKodkodSolver.notModel(transl));
+					}
+				} catch (InterruptedException e) {
+					// the enumeration was cancelled
+				} catch (Throwable t) {
+					failure = t;
+					executor.shutdownNow();
+					// the cubes that were still queued will never finish, so wake up the consumer now
+					wake();
+				} finally {
+					if (transl != null)
+						transl.cnf().free();
+					if (pending.decrementAndGet() == 0)
+						finish();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Adds the final unsatisfiable solution to the buffer, once every cube has
+	 * been enumerated.
+	 */
+	private void finish() {
+		if (failure != null) {
+			wake();
+			return;
+		}
+		final Solution end = Solution.unsatisfiable(last == null ? new Statistics(0, 0, 0, 0, 0) : last, null);
+		try {
+			buffer.put(end);
+		} catch (InterruptedException e) {
+			buffer.offer(end);
+		}
+	}
+
+	/**
+	 * Wakes up the consumer after a failure, which it reports after taking any
+	 * solution from the buffer. If the buffer is full, the consumer is not
+	 * waiting.
+	 */
+	private void wake() {
+		buffer.offer(Solution.unsatisfiable(new Statistics(0, 0, 0, 0, 0), null));
+	}
+
+	/**
+	 * Returns true if there is another solution.
+	 * 
+	 * @see java.util.Iterator#hasNext()
+	 */
+	public boolean hasNext() {
+		return !done;
+	}
+
+	/**
+	 * Returns the next solution found by any of the enumerating threads, waiting
+	 * for one if none is buffered.
+	 * 
+	 * @see java.util.Iterator#next()
+	 * @throws AbortedException
+	 *             an enumerating thread was aborted, or this thread was
+	 *             interrupted while waiting
+	 */
+	public Solution next() {
+		if (done)
+			throw new NoSuchElementException();
+		checkFailure();
+		final Solution sol;
+		try {
+			sol = buffer.take();
+		} catch (InterruptedException e) {
+			done = true;
+			executor.shutdownNow();
+			throw new AbortedException(e);
+		}
+		checkFailure();
+		if (!sol.sat())
+			done = true;
+		return sol;
+	}
+
+	/**
+	 * Rethrows the failure of an enumerating thread, if any.
+	 */
+	private void checkFailure() {
+		final Throwable t = failure;
+		if (t == null)
+			return;
+		done = true;
+		if (t instanceof SATAbortedException)
+			throw new AbortedException(t);
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+		throw new AbortedException(t);
+	}
+
+	/**
+	 * Cancels the enumeration, interrupting the enumerating threads and
+	 * discarding the buffered solutions. A thread that is solving its cube
+	 * stops once the SAT solver returns. Afterwards, this iterator has no
+	 * further solutions, except for the unsatisfiable one that wakes up a
+	 * consumer still waiting for a solution.
+	 * 
+	 * @ensures !this.hasNext()
+	 */
+	void free() {
+		done = true;
+		executor.shutdownNow();
+		buffer.clear();
+		wake();
+	}
+
+	/** @throws UnsupportedOperationException */
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -136,11 +136,7 @@ public class PardinusSolver implements
 		if (options.decomposed()) {
 
 			if (options.temporal()) {
-				TemporalSolver<ExtendedOptions> solver2;
-				if (options.solver().toString().equals("electrod"))
-					solver2 = new ElectrodSolver(options);
-				else 
-					solver2 = new TemporalPardinusSolver(options);
+				TemporalSolver<ExtendedOptions> solver2 = temporalSolver();
 				DecomposedPardinusSolver<TemporalSolver<ExtendedOptions>> solver = new DecomposedPardinusSolver<TemporalSolver<ExtendedOptions>>(options,solver2);
 				return solver;
 			} else {
@@ -152,12 +148,7 @@ public class PardinusSolver implements
 		} else {
 
 			if (options.temporal()) {
-				TemporalSolver<ExtendedOptions> solver;
-				if (options.solver().toString().equals("electrod"))
-					solver = new ElectrodSolver(options);
-				else 
-					solver = new TemporalPardinusSolver(options);
-				return solver;
+				return temporalSolver();
 			} else {
 				ExtendedSolver solver = new ExtendedSolver(options);
 				return solver;				
@@ -167,6 +158,23 @@ public class PardinusSolver implements
 		
 	}
 	
+	/**
+	 * Calculates the temporal solver that will be used, given the specified
+	 * options. This may be an {@link ElectrodSolver Electrod solver}, a
+	 * {@link HybridTemporalSolver hybrid solver} racing Electrod against the
+	 * bounded engine, if a bounded solver is also set, or a
+	 * {@link TemporalPardinusSolver temporal Pardinus solver}.
+	 * 
+	 * @return the temporal solver to be used internally.
+	 */
+	private TemporalSolver<ExtendedOptions> temporalSolver() {
+		if (!options.solver().toString().equals("electrod"))
+			return new TemporalPardinusSolver(options);
+		if (options.boundedSolver() != null)
+			return new HybridTemporalSolver(options);
+		return new ElectrodSolver(options);
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
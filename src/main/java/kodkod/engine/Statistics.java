@@ -21,6 +21,7 @@
  */
 package kodkod.engine;
 
+import kodkod.engine.fol2sat.PhaseMetrics;
 import kodkod.engine.fol2sat.Translation;
 
 /**
@@ -38,6 +39,7 @@ public final class Statistics {
 	// [HASLab] remove final
 	private int vars, pVars, clauses;
 	private long translation, solving; 
+	private PhaseMetrics metrics;
 	
 	/**
 	 * Constructs a new Statistics object using the provided values.
@@ -57,6 +59,8 @@ public final class Statistics {
 	Statistics(Translation translation, long translationTime, long solvingTime) { 
 		this(translation.numPrimaryVariables(), translation.cnf().numberOfVariables(), 
 				translation.cnf().numberOfClauses(), translationTime, solvingTime);
+		if (translation.metrics() != null)
+			this.metrics = new PhaseMetrics(translation.metrics());
 	}
 	
 	// [HASLab]
@@ -66,6 +70,12 @@ public final class Statistics {
 		this.clauses += translation.cnf().numberOfClauses();
 		this.translation += translationTime;
 		this.solving += solvingTime;
+		if (translation.metrics() != null) {
+			if (metrics == null) 
+				metrics = new PhaseMetrics(translation.metrics());
+			else 
+				metrics.add(translation.metrics());
+		}
 	}
 	
 	/**
@@ -120,6 +130,16 @@ public final class Statistics {
 		return solving;
 	}
 	
+	/**
+	 * Returns the time and memory spent in each phase of the 
+	 * translation and solving of this.formula, along with the
+	 * size of its circuit, or null if these were not gathered. 
+	 * @return the metrics gathered for this.formula, if any
+	 */
+	public PhaseMetrics metrics() {
+		return metrics;
+	}
+	
 	/**
 	 * Returns a string representation of this
 	 * Statistics object.
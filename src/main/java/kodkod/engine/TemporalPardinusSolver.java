@@ -26,8 +26,10 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -35,14 +37,25 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import kodkod.ast.Expression;
 import kodkod.ast.Formula;
+import kodkod.ast.Node;
 import kodkod.ast.Relation;
 import kodkod.engine.config.ExtendedOptions;
 import kodkod.engine.config.Options;
 import kodkod.engine.config.TargetOptions.TMode;
 import kodkod.engine.fol2sat.HigherOrderDeclException;
+import kodkod.engine.fol2sat.PhaseMetrics;
+import kodkod.engine.fol2sat.PhaseMetrics.Phase;
+import kodkod.engine.fol2sat.RelationCollector;
 import kodkod.engine.fol2sat.Translation;
 import kodkod.engine.fol2sat.TranslationLog;
 import kodkod.engine.fol2sat.Translator;
@@ -55,11 +68,14 @@ import kodkod.engine.satlab.SATSolver;
 import kodkod.engine.satlab.TargetSATSolver;
 import kodkod.engine.satlab.WTargetSATSolver;
 import kodkod.instance.Bounds;
+import kodkod.instance.Instance;
 import kodkod.instance.PardinusBounds;
 import kodkod.instance.TemporalInstance;
 import kodkod.instance.TupleSet;
+import kodkod.util.ints.IndexedEntry;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
+import kodkod.util.nodes.Nodes;
 import kodkod.util.nodes.PrettyPrinter;
 
 /**
@@ -79,6 +95,8 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 	public static boolean SomeDisjPattern = false;
 
 	private final ExtendedOptions options;
+	/** the iterators whose static problems have not been released yet */
+	private final Set<SolutionIterator> iterators = Collections.newSetFromMap(new WeakHashMap<SolutionIterator, Boolean>());
 
 	/**
 	 * Constructs a new Solver with the default options.
@@ -116,9 +134,17 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 	/**
 	 * {@inheritDoc}
 	 * 
+	 * Also releases the static problems of the solution iterators that have
+	 * not been exhausted.
+	 * 
 	 * @see kodkod.engine.KodkodSolver#free()
 	 */
 	public void free() {
+		synchronized (iterators) {
+			for (SolutionIterator it : iterators)
+				it.free();
+			iterators.clear();
+		}
 	}
 
 	// [HASLab]
@@ -131,6 +157,20 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 			Formula extformula = tmptrans.translate();
 			long endTransl = System.currentTimeMillis();
 			long transTime = endTransl - startTransl;
+			if (options.staticCheck()) {
+				final StaticCheck statics = new StaticCheck(formula, tmptrans, options);
+				final Solution sol;
+				try {
+					sol = statics.solve();
+				} finally {
+					statics.free();
+				}
+				if (!sol.sat())
+					return sol;
+			}
+			if (options.traceThreads() > 1 && options.logTranslation() == 0
+					&& options.minTraceLength() < options.maxTraceLength())
+				return solveParallel(tmptrans, extformula, bounds, transTime);
 			boolean isSat = false;
 			long solveTime = 0;
 			Translation.Whole translation = null;
@@ -139,6 +179,7 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 			startTransl = System.currentTimeMillis();
 			// increase while UNSAT and below max
 			do {
+				checkInterrupted();
 				traceLength++;
 				extbounds = tmptrans.expand(traceLength);
 				translation = Translator.translate(extformula, extbounds, options);
@@ -156,13 +197,15 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 
 			options.reporter().solvingCNF(traceLength, translation.numPrimaryVariables(), cnf.numberOfVariables(),
 					cnf.numberOfClauses());
-			long startSolve = System.currentTimeMillis();
+			long startSolve = System.currentTimeMillis(), startNanos = System.nanoTime(), startBytes = PhaseMetrics.allocated();
 			isSat = cnf.solve();
 			long endSolve = System.currentTimeMillis();
+			translation.metrics().record(Phase.SOLVING, startNanos, startBytes);
 			solveTime = endSolve - startSolve;
 			final Statistics stats = new Statistics(translation, transTime, solveTime);
 
 			while (!isSat && traceLength < options.maxTraceLength()) {
+				checkInterrupted();
 				traceLength++;
 				extbounds = tmptrans.expand(traceLength);
 				Formula exp_reforms = tmptrans.translate();
@@ -177,9 +220,10 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 
 				options.reporter().solvingCNF(traceLength, translation.numPrimaryVariables(), cnf.numberOfVariables(),
 						cnf.numberOfClauses());
-				startSolve = System.currentTimeMillis();
+				startSolve = System.currentTimeMillis(); startNanos = System.nanoTime(); startBytes = PhaseMetrics.allocated();
 				isSat = cnf.solve();
 				endSolve = System.currentTimeMillis();
+				translation.metrics().record(Phase.SOLVING, startNanos, startBytes);
 				solveTime = endSolve - startSolve;
 
 				stats.update(translation, transTime, solveTime);
@@ -190,6 +234,187 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 		}
 	}
 
+	/**
+	 * Solves the expanded problem for several trace lengths concurrently, up to
+	 * {@link ExtendedOptions#traceThreads()} at a time, each on its own SAT
+	 * solver. Results are consumed in increasing trace length, so the
+	 * shortest satisfying trace is returned as soon as every shorter length is
+	 * known to be unsatisfiable, at which point the remaining lengths are
+	 * cancelled. Leading trivial translations are skipped as in the
+	 * sequential procedure.
+	 * 
+	 * @requires options.logTranslation() = 0
+	 */
+	private Solution solveParallel(final TemporalTranslator tmptrans, final Formula extformula,
+			PardinusBounds bounds, long transTime) {
+		final ExecutorService executor = Executors.newFixedThreadPool(options.traceThreads(), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				final Thread t = new Thread(r, "trace-length");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		final TraceTasks tasks = new TraceTasks(tmptrans, extformula);
+		final Deque<Future<TraceResult>> pending = new ArrayDeque<Future<TraceResult>>();
+		int next = options.minTraceLength();
+		try {
+			for (; next <= options.maxTraceLength() && pending.size() < options.traceThreads(); next++)
+				pending.add(executor.submit(tasks.task(next)));
+			Statistics stats = null;
+			boolean leading = true;
+			TraceResult result = null;
+			while (!pending.isEmpty()) {
+				result = pending.remove().get();
+				tasks.consume(result);
+				if (next <= options.maxTraceLength())
+					pending.add(executor.submit(tasks.task(next++)));
+				if (leading && result.translation.trivial()) {
+					if (result.traceLength == options.maxTraceLength())
+						return trivial(result.translation, transTime + result.transTime, result.extbounds);
+					transTime += result.transTime;
+					result.translation.cnf().free();
+					continue;
+				}
+				if (leading) {
+					stats = new Statistics(result.translation, transTime + result.transTime, result.solveTime);
+					leading = false;
+				} else
+					stats.update(result.translation, result.transTime, result.solveTime);
+				if (result.sat)
+					return sat(result.translation, stats, bounds);
+				if (!pending.isEmpty())
+					result.translation.cnf().free();
+			}
+			return unsat(result.translation, stats);
+		} catch (InterruptedException e) {
+			throw new AbortedException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SATAbortedException)
+				throw new AbortedException(e.getCause());
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new AbortedException(e.getCause());
+		} finally {
+			for (Future<TraceResult> f : pending)
+				f.cancel(true);
+			executor.shutdownNow();
+			tasks.close();
+		}
+	}
+
+	/**
+	 * The trace length tasks of a parallel solve. A task that completes hands
+	 * its translation over to this object until the result is consumed; once
+	 * closed, the translations that were not consumed are freed, as are those
+	 * of the tasks that complete afterwards. Cancelled tasks are interrupted,
+	 * which aborts SAT solvers that support it.
+	 */
+	private final class TraceTasks {
+		private final TemporalTranslator tmptrans;
+		private final Formula extformula;
+		private final List<Translation.Whole> unconsumed = new ArrayList<Translation.Whole>();
+		private boolean closed = false;
+
+		TraceTasks(TemporalTranslator tmptrans, Formula extformula) {
+			this.tmptrans = tmptrans;
+			this.extformula = extformula;
+		}
+
+		/**
+		 * Creates a task that expands, translates and solves the problem for
+		 * the given trace length. The task returns null if the tasks were
+		 * closed before it completed.
+		 */
+		Callable<TraceResult> task(final int traceLength) {
+			return new Callable<TraceResult>() {
+				public TraceResult call() {
+					if (Thread.currentThread().isInterrupted())
+						return null;
+					final long startTransl = System.currentTimeMillis();
+					final PardinusBounds extbounds;
+					synchronized (tmptrans) {
+						extbounds = tmptrans.expand(traceLength);
+					}
+					final Translation.Whole translation = Translator.translate(extformula, extbounds, options);
+					final long transTime = System.currentTimeMillis() - startTransl;
+					final SATSolver cnf = translation.cnf();
+					final boolean sat;
+					final long solveTime;
+					try {
+						if (!translation.trivial())
+							options.reporter().solvingCNF(traceLength, translation.numPrimaryVariables(),
+									cnf.numberOfVariables(), cnf.numberOfClauses());
+						final long startSolve = System.currentTimeMillis(), startNanos = System.nanoTime(),
+								startBytes = PhaseMetrics.allocated();
+						sat = cnf.solve();
+						solveTime = System.currentTimeMillis() - startSolve;
+						translation.metrics().record(Phase.SOLVING, startNanos, startBytes);
+					} catch (RuntimeException e) {
+						cnf.free();
+						throw e;
+					}
+					if (!complete(translation))
+						return null;
+					return new TraceResult(traceLength, extbounds, translation, sat, transTime, solveTime);
+				}
+			};
+		}
+
+		/**
+		 * Hands the translation of a completed task over to this object,
+		 * freeing it instead if this is already closed.
+		 * 
+		 * @return !this.closed
+		 */
+		private synchronized boolean complete(Translation.Whole translation) {
+			if (closed) {
+				translation.cnf().free();
+				return false;
+			}
+			unconsumed.add(translation);
+			return true;
+		}
+
+		/**
+		 * Takes the translation of the given result back from this object,
+		 * so that the caller becomes responsible for freeing it.
+		 */
+		synchronized void consume(TraceResult result) {
+			unconsumed.remove(result.translation);
+		}
+
+		/**
+		 * Closes this object, freeing the translations that were not consumed.
+		 */
+		synchronized void close() {
+			closed = true;
+			for (Translation.Whole translation : unconsumed)
+				translation.cnf().free();
+			unconsumed.clear();
+		}
+	}
+
+	/**
+	 * The outcome of solving the expanded problem for a trace length.
+	 */
+	private static final class TraceResult {
+		final int traceLength;
+		final PardinusBounds extbounds;
+		final Translation.Whole translation;
+		final boolean sat;
+		final long transTime, solveTime;
+
+		TraceResult(int traceLength, PardinusBounds extbounds, Translation.Whole translation, boolean sat,
+				long transTime, long solveTime) {
+			this.traceLength = traceLength;
+			this.extbounds = extbounds;
+			this.translation = translation;
+			this.sat = sat;
+			this.transTime = transTime;
+			this.solveTime = solveTime;
+		}
+	}
+
 	public Explorer<Solution> solveAll(Formula formula, PardinusBounds bounds) throws HigherOrderDeclException,
 			UnboundLeafException, AbortedException {
 		if (Options.isDebug())
@@ -201,8 +426,14 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 
 		if (options instanceof ExtendedOptions && options.targetoriented())
 			return new TSolutionIterator(formula, bounds, options); // [HASLab]
-		else
-			return new SolutionIterator(formula, bounds, options);
+		else {
+			final SolutionIterator it = new SolutionIterator(formula, bounds, options);
+			if (options.staticCheck())
+				synchronized (iterators) {
+					iterators.add(it);
+				}
+			return it;
+		}
 	}
 
 	// [AM]
@@ -228,6 +459,20 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 		return options.toString();
 	}
 
+	/**
+	 * Aborts the solving procedure if the current thread was interrupted, so
+	 * that an interrupted solve stops between trace lengths even if its SAT
+	 * solver cannot be aborted.
+	 * 
+	 * @throws AbortedException
+	 *             the current thread was interrupted
+	 */
+	// [HASLab]
+	private static void checkInterrupted() {
+		if (Thread.currentThread().isInterrupted())
+			throw new AbortedException("Temporal solving interrupted.");
+	}
+
 	// [HASLab]
 	private static Solution sat(Translation.Whole translation, Statistics stats, PardinusBounds originalBounds) {
 		final Solution sol = Solution.satisfiable(stats, new TemporalInstance(translation.interpret(),originalBounds));
@@ -273,6 +518,140 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 		return log == null ? null : new TrivialProof(log);
 	}
 
+	/**
+	 * A check of the static part of a temporal problem, i.e., the root
+	 * conjuncts of the temporal formula that refer to static relations alone,
+	 * translated over the static bounds, which do not depend on the trace
+	 * length. Since these conjuncts are implied by the temporal formula, if the
+	 * static part is unsatisfiable so is the temporal problem for every trace
+	 * length. During configuration iteration, the translation is kept and the
+	 * configurations already found are blocked on it, so that the iteration
+	 * stops as soon as no configuration is left, rather than after exploring
+	 * every trace length of the temporal problem. This translation is an extra
+	 * one: its circuit and variables are not shared with the translations of
+	 * the temporal problem, which still encode the static part themselves.
+	 * 
+	 * @author Nuno Macedo // [HASLab] temporal model finding
+	 */
+	private static final class StaticCheck {
+		private final Translation.Whole translation;
+		private final long translTime;
+		/** The static relations with non-exact bounds. */
+		private final Set<Relation> config = new HashSet<Relation>();
+		/**
+		 * Whether every static relation with non-exact bounds has variables in
+		 * the translation, and thus configurations can be blocked.
+		 */
+		private final boolean complete;
+		private boolean freed = false;
+
+		/**
+		 * Translates the static part of a temporal problem.
+		 * 
+		 * @param formula
+		 *            the original temporal formula.
+		 * @param tmptrans
+		 *            the temporal translator of the problem.
+		 * @param options
+		 *            the options of the temporal solver.
+		 */
+		StaticCheck(Formula formula, TemporalTranslator tmptrans, ExtendedOptions options) {
+			final long start = System.currentTimeMillis();
+			final Bounds bounds = new Bounds(tmptrans.bounds.universe());
+			for (Relation r : tmptrans.bounds.relations())
+				if (!r.isVariable()) {
+					bounds.bound(r, tmptrans.bounds.lowerBound(r), tmptrans.bounds.upperBound(r));
+					if (tmptrans.bounds.lowerBound(r).size() != tmptrans.bounds.upperBound(r).size())
+						config.add(r);
+				}
+			for (IndexedEntry<TupleSet> e : tmptrans.bounds.intBounds())
+				bounds.boundExactly(e.index(), e.value());
+
+			final List<Formula> conjuncts = new ArrayList<Formula>();
+			for (Formula f : Nodes.roots(formula)) {
+				if (TemporalTranslator.isTemporal(f))
+					continue;
+				final Set<Relation> rels = f.accept(new RelationCollector(new HashSet<Node>()));
+				if (bounds.relations().containsAll(rels))
+					conjuncts.add(f);
+			}
+
+			// symmetry breaking, on the bounds or on the CNF, would prune
+			// configurations that the temporal problem may still report
+			final ExtendedOptions opt = options.clone();
+			opt.setSymmetryBreaking(0);
+			opt.setCnfSymmetryBreaking(0);
+			this.translation = Translator.translate(Formula.and(conjuncts), bounds, opt);
+			this.translTime = System.currentTimeMillis() - start;
+			boolean complete = !translation.trivial();
+			for (Relation r : config)
+				complete &= translation.bounds().relations().contains(r);
+			this.complete = complete;
+		}
+
+		/**
+		 * Solves the static part of the problem.
+		 * 
+		 * @return the solution to the static part, whose instance is irrelevant.
+		 */
+		Solution solve() {
+			final long start = System.currentTimeMillis();
+			final boolean isSat = translation.cnf().solve();
+			if (translation.trivial()) {
+				final Statistics stats = new Statistics(0, 0, 0, translTime, 0);
+				return isSat ? Solution.triviallySatisfiable(stats, null)
+						: Solution.triviallyUnsatisfiable(stats, trivialProof(translation.log()));
+			}
+			final Statistics stats = new Statistics(translation, translTime, System.currentTimeMillis() - start);
+			return isSat ? Solution.satisfiable(stats, null) : unsat(translation, stats);
+		}
+
+		/**
+		 * Blocks the configuration of a temporal instance, i.e., the value of
+		 * its static relations, and checks whether other configurations may
+		 * exist.
+		 * 
+		 * @param instance
+		 *            the temporal instance whose configuration is blocked.
+		 * @return false if no other configuration satisfies the static part,
+		 *         true if some may.
+		 */
+		synchronized boolean block(TemporalInstance instance) {
+			if (!complete || freed)
+				return true;
+			final Instance state = instance.state(0);
+			final List<Integer> clause = new ArrayList<Integer>();
+			for (Relation r : config) {
+				TupleSet tuples = state.tuples(r);
+				if (tuples == null)
+					return true;
+				tuples = TemporalBoundsExpander.convertToUniv(tuples, translation.bounds().universe());
+				final IntSet vars = translation.primaryVariables(r);
+				if (vars.isEmpty()) // exact after the translation tightened its bounds
+					continue;
+				final IntSet lower = translation.bounds().lowerBound(r).indexView();
+				int lit = vars.min();
+				for (IntIterator iter = translation.bounds().upperBound(r).indexView().iterator(); iter.hasNext();) {
+					final int index = iter.next();
+					if (!lower.contains(index))
+						clause.add(tuples.indexView().contains(index) ? -lit++ : lit++);
+				}
+			}
+			translation.cnf().addClause(clause.stream().mapToInt(i -> i).toArray());
+			return translation.cnf().solve();
+		}
+
+		/**
+		 * Releases the resources of the static translation, if not yet
+		 * released.
+		 */
+		synchronized void free() {
+			if (!freed)
+				translation.cnf().free();
+			freed = true;
+		}
+	}
+
 	/**
 	 * An iterator over all solutions of a model.
 	 * 
@@ -287,7 +666,8 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 		private PardinusBounds extbounds;
 		private final PardinusBounds originalBounds;
 		private final Formula originalFormula;
-		private TemporalTranslator tmptrans;
+		private final TemporalTranslator tmptrans;
+		private final StaticCheck statics;
 
 		// [HASLab] structures for reformulated iteration
 		private TemporalInstance previousSol = null;
@@ -310,6 +690,7 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 				if (options.logTranslation() > 0)
 					this.translation.log().logTempTranslation(tmptrans.tempTransLog);
 			} while (this.translation.trivial() && current_trace <= options.maxTraceLength());
+			this.statics = options.staticCheck() ? new StaticCheck(formula, tmptrans, options) : null;
 
 			this.translTime = System.currentTimeMillis() - translTime;
 			this.trivial = 0;
@@ -340,6 +721,10 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 		 * @see java.util.Iterator#next()
 		 */
 		public Solution nextS(int state, int delta, Set<Relation> change) {
+			return release(nextS0(state, delta, change));
+		}
+
+		private Solution nextS0(int state, int delta, Set<Relation> change) {
 			if (delta < 1)
 				throw new IllegalArgumentException("Cannot iterate boundless with s != 0, breaks completeness.");
 
@@ -366,11 +751,16 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 				return (translation != null && translation.trivial()) ? nextTrivialSolution() : nextNonTrivialSolution(state, delta, fix, change);
 			} catch (SATAbortedException sae) {
 				translation.cnf().free();
+				free();
 				throw new AbortedException(sae);
 			}
 		}
 
 		public Solution nextP() {
+			return release(nextP0());
+		}
+
+		private Solution nextP0() {
 			if (iteration_stage == 2)
 				throw new IllegalArgumentException(
 						"Cannot iterate boundless after segment iteration, breaks completeness.");
@@ -392,11 +782,16 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 				return translation.trivial() ? nextTrivialSolution() : nextNonTrivialSolution(0, -1, fix, change);
 			} catch (SATAbortedException sae) {
 				translation.cnf().free();
+				free();
 				throw new AbortedException(sae);
 			}
 		}
 
 		public Solution nextC() {
+			return release(nextC0());
+		}
+
+		private Solution nextC0() {
 			// if unsat on other mode, can still try new config
 			if (iteration_stage == 0 && !hasNext())
 				throw new NoSuchElementException();
@@ -405,6 +800,13 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 				Set<Relation> change = originalBounds.relations().stream().filter(r -> !r.isVariable())
 						.collect(Collectors.toSet());
 
+				// no need to explore every trace length if no configuration is left
+				if (statics != null && previousSol != null && !statics.block(previousSol)) {
+					iteration_stage = 0;
+					translation = null;
+					return Solution.unsatisfiable(new Statistics(0, 0, 0, 0, 0), null);
+				}
+
 				// if coming back from other mode, restart the process
 				// this will force the re-generation of the solver at minimal length
 				if (iteration_stage != 0) {
@@ -418,6 +820,7 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 				return (translation != null && translation.trivial()) ? nextTrivialSolution() : nextNonTrivialSolution(-1, 0, fix, change);
 			} catch (SATAbortedException sae) {
 				translation.cnf().free();
+				free();
 				throw new AbortedException(sae);
 			}
 		}
@@ -431,6 +834,25 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 			return nextP();
 		}
 
+		/**
+		 * Releases the static problem once no other configuration can be
+		 * requested, and returns the given solution.
+		 */
+		private Solution release(Solution sol) {
+			if (!hasNextC())
+				free();
+			return sol;
+		}
+
+		/**
+		 * Releases the static problem, if any. The iteration may proceed, but
+		 * configurations are no longer checked against the static problem.
+		 */
+		void free() {
+			if (statics != null)
+				statics.free();
+		}
+
 		/** @throws UnsupportedOperationException */
 		public void remove() {
 			throw new UnsupportedOperationException();
@@ -589,9 +1011,6 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 			// the previous solution is converted into sat
 			if (translation == null) {
 
-				// the translation of the original formula could in principle be re-used but
-				// the original past depth level is needed
-				tmptrans = new TemporalTranslator(originalFormula, originalBounds, opt);
 				extbounds = tmptrans.expand(current_trace);
 				Formula exp_reforms = tmptrans.translate();
 				long translStart = System.currentTimeMillis();
@@ -625,9 +1044,6 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 			while (!isSat && current_trace <= opt.maxTraceLength()) {
 				if (translation == null) {
 
-					// the translation of the original formula could in principle be re-used but
-					// the original past depth level is needed
-					tmptrans = new TemporalTranslator(originalFormula, originalBounds, opt);
 					extbounds = tmptrans.expand(current_trace);
 					Formula exp_reforms = tmptrans.translate();
 					long translStart = System.currentTimeMillis();
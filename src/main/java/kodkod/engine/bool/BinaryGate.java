@@ -34,12 +34,13 @@ final class BinaryGate extends MultiGate {
 	private final BooleanFormula low, high;
 	
 	/**
-	 * Constructs a new binary gate with the given operator, label, and inputs.
+	 * Constructs a new binary gate with the given operator, label, and inputs, 
+	 * created by the given factory.
 	 * @requires components.h = components.l && l.label < h.label
-	 * @ensures this.op' = op && this.inputs' = l + h && this.label' = label
+	 * @ensures this.op' = op && this.inputs' = l + h && this.label' = label && this.owner' = owner
 	 */
-	BinaryGate(Operator.Nary op, int label, int hashcode, BooleanFormula l, BooleanFormula h) {
-		super(op, label, hashcode);
+	BinaryGate(Operator.Nary op, int label, int hashcode, BooleanFormula l, BooleanFormula h, Object owner) {
+		super(op, label, hashcode, owner);
 		assert l.label() < h.label();
 		this.low = l;
 		this.high = h;
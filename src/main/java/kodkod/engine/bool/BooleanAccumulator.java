@@ -58,7 +58,8 @@ public final class BooleanAccumulator extends BooleanValue implements Iterable<B
 	
 	/**
 	 * Returns a tree based implementation of BooleanAccumulator.
-	 * The addInput operation executes in O(lg n) time where n is the number of gate inputs. 
+	 * The addInput operation executes in O(lg n) time where n is the number of gate inputs, 
+	 * plus the time to shift the inputs with larger labels, if any. 
 	 * @return an empty tree based BooleanAccumulator with the given operator.
 	 * @throws NullPointerException  op = null
 	 */
@@ -69,7 +70,8 @@ public final class BooleanAccumulator extends BooleanValue implements Iterable<B
 	
 	/**
 	 * Returns a tree based implementation of BooleanAccumulator, initialized with the given inputs.
-	 * The addInput operation executes in O(lg n) time where n is the number of gate inputs. 
+	 * The addInput operation executes in O(lg n) time where n is the number of gate inputs, 
+	 * plus the time to shift the inputs with larger labels, if any. 
 	 * @return a tree based BooleanAccumulator with the given operator, initialized with the given inputs 
 	 * @throws NullPointerException  op = null || inputs = null
 	 */
@@ -129,7 +131,8 @@ public final class BooleanAccumulator extends BooleanValue implements Iterable<B
 	 * @return this.inputs = this.op.shortCircuit
 	 */
 	public boolean isShortCircuited() {
-		return inputs.size()==1 && inputs.first().value()==op.shortCircuit();
+		// [HASLab] only the short circuit has its label, so no entry is looked up
+		return inputs.size()==1 && inputs.containsIndex(op.shortCircuit().label);
 //		return inputs.size()==1 && inputs.get(0)==op.shortCircuit();
 	}
 
@@ -29,6 +29,7 @@ import java.util.Iterator;
 
 import kodkod.engine.config.Options;
 import kodkod.engine.config.Options.IntEncoding;
+import kodkod.engine.config.Reporter;
 import kodkod.util.ints.IntSet;
 
 
@@ -37,6 +38,7 @@ import kodkod.util.ints.IntSet;
  * {@link kodkod.engine.bool.BooleanMatrix matrices}, and {@link kodkod.engine.bool.Int ints}.
  * 
  * @specfield comparisonDepth: int // the depth to which circuits should be checked for equality 
+ * @specfield sharingCache: int // the maximum number of gates cached per operator for sharing, or 0 if unbounded
  * @specfield intEncoding: {@link IntEncoding} // the encoding used for generating integers ({@link #integer(int)}
  * @specfield bitwidth: int // the bitwidth used for integer computations
  * @specfield components: set {@link BooleanValue}
@@ -111,7 +113,9 @@ public abstract class BooleanFactory {
 	public static BooleanFactory factory(int numVars, Options options) {
 		switch(options.intEncoding()) {
 		case TWOSCOMPLEMENT : 
-			return new TwosComplementFactory(numVars, options.sharing(), options.bitwidth(), options.noOverflow()); 
+			final BooleanFactory factory = new TwosComplementFactory(numVars, options.sharing(), options.bitwidth(), options.noOverflow());
+			factory.circuits.setCacheMax(options.sharingCache());
+			return factory; 
 		default :
 			throw new IllegalArgumentException("unknown encoding: " + options.intEncoding());
 		}
@@ -150,6 +154,33 @@ public abstract class BooleanFactory {
 		circuits.setCmpMax(1<<newDepth);
 	}
 	
+	/**
+	 * Returns the maximum number of gates, per gate operator, that this factory 
+	 * caches for sharing, or 0 if the caches are unbounded.
+	 * @return this.sharingCache
+	 */
+	public final int sharingCache() { return circuits.cacheMax(); }
+	
+	/**
+	 * Reports the hit rates, collision chain lengths and sizes of the gate
+	 * caches of this factory to the given reporter.
+	 * @ensures reporter.reportGateCache(...) for each of AND, OR and ITE gates
+	 */
+	public final void reportGateCaches(Reporter reporter) { circuits.report(reporter); }
+	
+	/**
+	 * Returns the number of lookups into the gate caches of this factory.
+	 * @return number of lookups into the gate caches of this factory
+	 */
+	public final long cacheLookups() { return circuits.lookups(); }
+	
+	/**
+	 * Returns the number of lookups into the gate caches of this factory that
+	 * found a cached gate.
+	 * @return number of lookups into the gate caches of this factory that found a cached gate
+	 */
+	public final long cacheHits() { return circuits.hits(); }
+	
 	/**
 	 * Returns the bitwidth used for integer representation.
 	 * @return this.bitwidth
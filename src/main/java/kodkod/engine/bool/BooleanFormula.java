@@ -104,6 +104,14 @@ public abstract class BooleanFormula extends BooleanValue implements Iterable<Bo
 	 * @return true if the negation of this formula has already been computed.
 	 */
 	final boolean hasNegation()  { return negation != null; }
+	
+	/**
+	 * Returns the factory that created this formula, if it is a gate. 
+	 * Otherwise returns null.
+	 * @return the factory that created this formula, if it is a gate
+	 */
+	// [HASLab]
+	Object owner() { return null; }
 
 	/**
 	 * Passes this value and the given
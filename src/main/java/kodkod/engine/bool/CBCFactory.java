@@ -37,6 +37,7 @@ import java.util.Set;
 
 import kodkod.ast.operator.ExprOperator;
 import kodkod.engine.bool.Operator.Nary;
+import kodkod.engine.config.Reporter;
 import kodkod.util.collections.CacheSet;
 import kodkod.util.collections.IdentityHashSet;
 
@@ -45,6 +46,7 @@ import kodkod.util.collections.IdentityHashSet;
  * A factory for creating variables, multigates, and if-then-else gates.
  * @specfield values: set (BooleanVariable + MultiGate + ITEGate)
  * @specfield cmpMax: int // the maximum number of comparisons made when comparing circuits for equality
+ * @specfield cacheMax: int // the maximum number of gates cached per operator, or 0 if unbounded
  * @invariant no disj factory, factory' : CircuitFactory | some factory.values & factory'.values
  * @author Emina Torlak
  */
@@ -68,7 +70,13 @@ final class CBCFactory {
 	 * @invariant all i: [0..2] | c[i].op.ordinal = i
 	 */
 	private final CacheSet<BooleanFormula>[] cache;
-	private int label, cmpMax;
+	/**
+	 * Cache statistics, indexed by operator ordinal:  the number of cache lookups, the number
+	 * of cached gates compared during lookups, the number of lookups that missed (and 
+	 * hence created a new gate), and the number of times a cache was flushed to respect cacheMax.
+	 */
+	private final long[] lookups, probes, misses, flushes;
+	private int label, cmpMax, cacheMax;
 	
 
 	
@@ -94,6 +102,10 @@ final class CBCFactory {
 		scrap0 = new IdentityHashSet<BooleanFormula>(cmpMax);
 		scrap1 = new IdentityHashSet<BooleanFormula>(cmpMax);
 		cache = new CacheSet[]{new CacheSet<BooleanFormula>(), new CacheSet<BooleanFormula>(), new CacheSet<BooleanFormula>()};
+		lookups = new long[3];
+		probes = new long[3];
+		misses = new long[3];
+		flushes = new long[3];
 	}
 	
 	/**
@@ -105,6 +117,74 @@ final class CBCFactory {
 		return cache[op.ordinal];
 	}
 	
+	/**
+	 * Returns an iterator over the cached gates with the given operator and hash,
+	 * and records the lookup.
+	 * @requires op in AND + OR + ITE
+	 * @return opCache(op).get(hash)
+	 */
+	private Iterator<BooleanFormula> lookup(Operator op, int hash) {
+		lookups[op.ordinal]++;
+		return cache[op.ordinal].get(hash);
+	}
+	
+	/**
+	 * Adds the given freshly created gate to the cache for its operator.  If this.cacheMax
+	 * is positive and the cache is full, the cache is flushed first.  Flushing 
+	 * loses sharing with the gates created so far, but not correctness.  The 
+	 * flushed gates are not retained by this factory, only counted.
+	 * @requires gate.op in AND + OR + ITE
+	 * @ensures gate in opCache(gate.op)
+	 */
+	private void store(BooleanFormula gate) {
+		final int op = gate.op().ordinal;
+		misses[op]++;
+		if (cacheMax > 0 && cache[op].size() >= cacheMax) {
+			cache[op] = new CacheSet<BooleanFormula>();
+			flushes[op]++;
+		}
+		cache[op].add(gate);
+	}
+	
+	/**
+	 * Sets this.cacheMax to the given value.
+	 * @requires cacheMax >= 0
+	 * @ensures this.cacheMax' = cacheMax
+	 */
+	void setCacheMax(int cacheMax) {
+		assert cacheMax >= 0;
+		this.cacheMax = cacheMax;
+	}
+	
+	/**
+	 * Returns this.cacheMax.
+	 * @return this.cacheMax
+	 */
+	int cacheMax() { return cacheMax; }
+	
+	/**
+	 * Reports the statistics of the AND, OR and ITE caches to the given reporter.
+	 * @ensures all op: AND + OR + ITE | reporter.reportGateCache(op, ...)
+	 */
+	void report(Reporter reporter) {
+		for(Operator op : new Operator[]{AND, OR, ITE}) {
+			final int i = op.ordinal;
+			reporter.reportGateCache(op, cache[i].size(), lookups[i], misses[i], probes[i], cache[i].maxChain(), flushes[i]);
+		}
+	}
+	
+	/**
+	 * Returns the total number of AND, OR and ITE cache lookups.
+	 * @return sum of the lookups of the AND, OR and ITE caches
+	 */
+	long lookups() { return lookups[0] + lookups[1] + lookups[2]; }
+	
+	/**
+	 * Returns the total number of AND, OR and ITE cache lookups that found a cached gate.
+	 * @return sum of the hits of the AND, OR and ITE caches
+	 */
+	long hits() { return lookups() - (misses[0] + misses[1] + misses[2]); }
+	
 	/**
 	 * Sets this.cmpMax to the given value.
 	 * @requires cmpMax > 0
@@ -135,12 +215,8 @@ final class CBCFactory {
 		if (v instanceof BooleanVariable) {
 			return v == variable(v.label());
 		} else {
-			final BooleanFormula g = (BooleanFormula) v;
-			for(Iterator<BooleanFormula> gates = opCache(g.op()).get(g.hashCode()); gates.hasNext(); ) {
-		    	if (g==gates.next()) 
-		    		return true;
-		    }
-			return false;
+			// gates flushed from the caches are not retained, so gates are recognized by their owner
+			return ((BooleanFormula) v).owner() == this;
 		}
 	}
 	
@@ -232,13 +308,14 @@ final class CBCFactory {
 			final BooleanFormula f0 = (BooleanFormula) i, f1 = (BooleanFormula) t, f2 = (BooleanFormula) e;
 			final int hash = ITE.hash(f0, f1, f2);
 			
-			for(Iterator<BooleanFormula> gates = opCache(ITE).get(hash); gates.hasNext();) {
+			for(Iterator<BooleanFormula> gates = lookup(ITE, hash); gates.hasNext();) {
 				BooleanFormula gate = gates.next();
+				probes[ITE.ordinal]++;
 				if (gate.input(0)==i && gate.input(1)==t && gate.input(2)==e)
 					return gate;
 			}
-			final BooleanFormula ret = new ITEGate(label++, hash, f0, f1, f2);
-			opCache(ITE).add(ret);
+			final BooleanFormula ret = new ITEGate(label++, hash, f0, f1, f2, this);
+			store(ret);
 			return ret;
 		}
 	}
@@ -283,15 +360,17 @@ final class CBCFactory {
 		default :
 			final int hash = op.hash((Iterator)acc.iterator());
 			if (asize > cmpMax) {
-				for(Iterator<BooleanFormula> gates = opCache(op).get(hash); gates.hasNext(); ) {
+				for(Iterator<BooleanFormula> gates = lookup(op, hash); gates.hasNext(); ) {
 					BooleanFormula g = gates.next();
+					probes[op.ordinal]++;
 					if (g.size()==asize && ((NaryGate) g).sameInputs(acc.iterator())) { 
 						return g;
 					} 
 				}
 			} else {
-				LOOKUP: for(Iterator<BooleanFormula> gates = opCache(op).get(hash); gates.hasNext(); ) {
+				LOOKUP: for(Iterator<BooleanFormula> gates = lookup(op, hash); gates.hasNext(); ) {
 					BooleanFormula g = gates.next();
+					probes[op.ordinal]++;
 					if (g.size()==asize && ((NaryGate) g).sameInputs(acc.iterator())) { 
 						return g;
 					} else if (g.size() < asize) {
@@ -307,8 +386,8 @@ final class CBCFactory {
 					}
 				}
 			}
-			final BooleanFormula ret = new NaryGate(acc, label++, hash);	
-			opCache(acc.op).add(ret);
+			final BooleanFormula ret = new NaryGate(acc, label++, hash, this);	
+			store(ret);
 			return ret;
 		}
 	}
@@ -350,8 +429,9 @@ final class CBCFactory {
 			scrap0.clear();
 			l.flatten(op, scrap0, cmpMax-1);
 			h.flatten(op, scrap0, cmpMax-scrap0.size());
-			for(Iterator<BooleanFormula> gates = opCache(op).get(hash); gates.hasNext(); ) {
+			for(Iterator<BooleanFormula> gates = lookup(op, hash); gates.hasNext(); ) {
 				BooleanFormula gate = gates.next();
+				probes[op.ordinal]++;
 				if (gate.size()==2 && gate.input(0)==l && gate.input(1)==h)
 					return gate;
 				else {
@@ -362,14 +442,15 @@ final class CBCFactory {
 				}
 			}
 		} else {
-			for(Iterator<BooleanFormula> gates = opCache(op).get(hash); gates.hasNext(); ) {
+			for(Iterator<BooleanFormula> gates = lookup(op, hash); gates.hasNext(); ) {
 				BooleanFormula gate = gates.next();
+				probes[op.ordinal]++;
 				if (gate.size()==2 && gate.input(0)==l && gate.input(1)==h)
 					return gate;
 			}
 		}
-		final BooleanFormula ret = new BinaryGate(op, label++, hash, l, h);
-		opCache(op).add(ret);
+		final BooleanFormula ret = new BinaryGate(op, label++, hash, l, h, this);
+		store(ret);
 		return ret;
 	}
 
@@ -42,19 +42,20 @@ import kodkod.util.ints.Ints;
 public final class ITEGate extends BooleanFormula {
 	private final BooleanFormula[] inputs;
 	private final int label, hashcode, labelhash;
+	private final Object owner;
 	
 	/**
-	 * Constructs a new ITEGate from the given formulas and label.
+	 * Constructs a new ITEGate from the given formulas and label, created by the given factory.
 	 * @requires label >= 0 && null !in ifFormula + thenFormula + elseFormula
 	 * @requires hashcode = ITE.hash(ifFormula, thenFormula, elseFormula)
 	 * @ensures this.label' = label && this.ifFormula' = ifFormula &&
-	 * this.thenFormula' = thenFormula && this.elseFormula' = elseFormula
-	 * @throws NullPointerException  owner = null
+	 * this.thenFormula' = thenFormula && this.elseFormula' = elseFormula && this.owner' = owner
 	 */
-	ITEGate(int label, int hashcode, BooleanFormula ifFormula, BooleanFormula thenFormula, BooleanFormula elseFormula) {
+	ITEGate(int label, int hashcode, BooleanFormula ifFormula, BooleanFormula thenFormula, BooleanFormula elseFormula, Object owner) {
 		super(null);
 		assert label >= 0;
 		this.label = label;
+		this.owner = owner;
 		this.labelhash = Ints.superFastHash(label);
 		this.hashcode = hashcode;
 		this.inputs = new BooleanFormula[3];
@@ -101,6 +102,13 @@ public final class ITEGate extends BooleanFormula {
 	public int label() {
 		return label;
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.bool.BooleanFormula#owner()
+	 */
+	@Override
+	Object owner() { return owner; }
 
 	/**
 	 * Passes this value and the given
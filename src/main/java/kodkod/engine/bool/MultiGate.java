@@ -40,17 +40,20 @@ public abstract class MultiGate extends BooleanFormula {
 	final Operator.Nary op;
 	
 	private final int label, labelhash, hashcode;
+	private final Object owner;
 	
 	/**
-	 * Constructs a new MultiGate gate with the given operator and label.
+	 * Constructs a new MultiGate gate with the given operator and label, 
+	 * created by the given factory.
 	 * @requires op != null && label >= 0
-	 * @ensures this.op' = op && this.label' = label
+	 * @ensures this.op' = op && this.label' = label && this.owner' = owner
 	 */
-	 MultiGate(Operator.Nary op, int label, int hashcode) {
+	 MultiGate(Operator.Nary op, int label, int hashcode, Object owner) {
 		super(null);
 		assert op != null;
 		assert label >= 0;
 		this.op = op;
+		this.owner = owner;
 		this.label = label;
 		this.labelhash = Ints.superFastHash(label);
 		this.hashcode = hashcode;
@@ -63,6 +66,13 @@ public abstract class MultiGate extends BooleanFormula {
 	@Override
 	public final int label() { return label; }
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.bool.BooleanFormula#owner()
+	 */
+	@Override
+	final Object owner() { return owner; }
+	
 	/**
 	 * Returns the operator used to combine the input
 	 * variables of this connective gate.
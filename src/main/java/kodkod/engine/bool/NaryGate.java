@@ -35,12 +35,13 @@ final class NaryGate extends MultiGate {
 	private final BooleanFormula[] inputs;
 	
 	/**
-	 * Constructs a new n-ary gate with the given label, from the given mutable multi gate.
+	 * Constructs a new n-ary gate with the given label, from the given mutable multi gate, 
+	 * created by the given factory.
 	 * @requires g != null && #g.inputs > 2
-	 * @ensures this.op' = g.op && this.inputs' = g.inputs && this.label' = label
+	 * @ensures this.op' = g.op && this.inputs' = g.inputs && this.label' = label && this.owner' = owner
 	 */
-	NaryGate(BooleanAccumulator g, int label, int hashcode) {
-		super(g.op, label, hashcode);
+	NaryGate(BooleanAccumulator g, int label, int hashcode, Object owner) {
+		super(g.op, label, hashcode, owner);
 		this.inputs = new BooleanFormula[g.size()];
 		int index = 0;
 		for(Iterator<BooleanValue> i = g.iterator(); i.hasNext(); ) {
@@ -187,7 +187,7 @@ final class RBCFactory {
 				if (gate.input(0)==i && gate.input(1)==t && gate.input(2)==e)
 					return gate;
 			}
-			final BooleanFormula ret = new ITEGate(label++, hash, f0, f1, f2);
+			final BooleanFormula ret = new ITEGate(label++, hash, f0, f1, f2, this);
 			opCache(ITE).add(ret);
 			return neg ? ret.negation() : ret;
 		}
@@ -277,7 +277,7 @@ final class RBCFactory {
 			if (gate.size()==2 && gate.input(0)==l && gate.input(1)==h)
 				return gate;
 		}
-		final BooleanFormula ret = new BinaryGate(op, label++, hash, l, h);
+		final BooleanFormula ret = new BinaryGate(op, label++, hash, l, h, this);
 		opCache(op).add(ret);
 		return ret;
 	}
@@ -31,6 +31,8 @@ import kodkod.ast.Decl;
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
 import kodkod.engine.bool.BooleanFormula;
+import kodkod.engine.bool.Operator;
+import kodkod.engine.fol2sat.PhaseMetrics.Phase;
 import kodkod.instance.Bounds;
 import kodkod.instance.Tuple;
 import kodkod.util.ints.IntSet;
@@ -91,6 +93,25 @@ public abstract class AbstractReporter implements Reporter {
 	 * @see kodkod.engine.config.Reporter#translatingToCNF(kodkod.engine.bool.BooleanFormula)
 	 */
 	public void translatingToCNF(BooleanFormula circuit) {}
+	
+	/**
+	 * Reports the state of the cache of gates with the given operator at the end 
+	 * of the translation to a boolean circuit:  the number of gates currently cached, 
+	 * the number of cache lookups and of lookups that missed (i.e. created a new gate), 
+	 * the number of cached gates compared during lookups, the length of the longest 
+	 * hash collision chain, and the number of times the cache was flushed to respect 
+	 * {@link Options#sharingCache()}.
+	 * @see kodkod.engine.config.Reporter#reportGateCache(Operator, int, long, long, long, int, long)
+	 */
+	public void reportGateCache(Operator op, int gates, long lookups, long misses, long probes, int maxChain, long flushes) {}
+
+	/**
+	 * Reports that the given phase of the analysis has ended, having taken the given 
+	 * number of nanoseconds and allocated the given number of bytes (or 0 if 
+	 * allocation is not measured).
+	 * @see kodkod.engine.fol2sat.PhaseMetrics
+	 */
+	public void reportPhase(Phase phase, long nanos, long bytes) {}
 
 	/**
 	 * @see kodkod.engine.config.Reporter#reportLex(List, List)
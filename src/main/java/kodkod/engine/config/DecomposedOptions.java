@@ -22,6 +22,7 @@
  */
 package kodkod.engine.config;
 
+import kodkod.engine.DProcessPool;
 import kodkod.engine.DecomposedSolver;
 
 /**
@@ -88,6 +89,25 @@ public interface DecomposedOptions extends PardinusOptions {
 	 */
 	public void setThreads(int threads);
 
+	/**
+	 * The pool of worker processes that will solve the integrated problems,
+	 * if any. If null, the integrated problems are solved by threads of this
+	 * process.
+	 * 
+	 * @return the worker processes for solving integrated problems.
+	 */
+	public DProcessPool processes();
+
+	/**
+	 * Sets the pool of worker processes that will solve the integrated
+	 * problems. The pool is not closed by the solver.
+	 * 
+	 * @param processes
+	 *            the worker processes for solving integrated problems, or null
+	 *            to solve them in this process.
+	 */
+	public void setProcesses(DProcessPool processes);
+
 	/**
 	 * The specific options to the partial (configuration) solver. Unless
 	 * {@link #setConfigOptions(ExtendedOptions)} is called, a clone of
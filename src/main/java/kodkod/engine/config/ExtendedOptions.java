@@ -22,7 +22,9 @@
  */
 package kodkod.engine.config;
 
+import kodkod.engine.DProcessPool;
 import kodkod.engine.Retargeter;
+import kodkod.engine.satlab.SATFactory;
 
 /**
  * Stores information about various user-level translation and analysis options.
@@ -55,11 +57,15 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		this.run_decomposed = options.run_decomposed;
 		this.run_temporal = options.run_temporal;
 		this.threads = options.threads;
+		this.processes = options.processes;
 		this.target_mode = options.target_mode;
 		this.decomp_mode = options.decomp_mode;
 		this.config_options = options.config_options!=null?options.config_options.clone():null;
 		this.trace_length = options.trace_length;
 		this.min_trace_length = options.min_trace_length;
+		this.trace_threads = options.trace_threads;
+		this.static_check = options.static_check;
+		this.bounded_solver = options.bounded_solver;
 		this.name = options.name;
 		this.retargeter = options.retargeter;
 	}
@@ -115,6 +121,7 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 	
 	private boolean run_decomposed = false;
 	private int threads = 4;
+	private DProcessPool processes = null;
 	private DMode decomp_mode = DMode.PARALLEL;
 	private ExtendedOptions config_options = null;
 	
@@ -165,6 +172,20 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		this.threads = threads;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public DProcessPool processes() {
+		return processes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setProcesses(DProcessPool processes) {
+		this.processes = processes;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -184,6 +205,9 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 	private boolean run_temporal = false;
 	private int trace_length = 2;
 	private int min_trace_length = 1;
+	private int trace_threads = 1;
+	private boolean static_check = false;
+	private SATFactory bounded_solver = null;
 
 	/**
 	 * {@inheritDoc}
@@ -228,6 +252,50 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		this.min_trace_length = trace_length;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public int traceThreads() {
+		return trace_threads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setTraceThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads < 1: " + threads);
+		this.trace_threads = threads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean staticCheck() {
+		return static_check;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setStaticCheck(boolean staticCheck) {
+		this.static_check = staticCheck;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public SATFactory boundedSolver() {
+		return bounded_solver;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setBoundedSolver(SATFactory solver) {
+		this.bounded_solver = solver;
+	}
+
 
 	// unbounded solving
 	private boolean run_unbounded = false;
@@ -262,6 +330,13 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		c.setBitwidth(bitwidth());
 		c.setIntEncoding(intEncoding());
 		c.setSharing(sharing());
+		c.setSharingCache(sharingCache());
+		c.setBoundTightening(boundTightening());
+		c.setPreprocessing(preprocessing());
+		c.setCnfSymmetryBreaking(cnfSymmetryBreaking());
+		c.setMinimalBlocking(minimalBlocking());
+		c.setProjection(projection());
+		c.setEnumerationThreads(enumerationThreads());
 		c.setSymmetryBreaking(symmetryBreaking());
 		c.setSkolemDepth(skolemDepth());
 		c.setLogTranslation(logTranslation());
@@ -271,10 +346,14 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		c.run_temporal = run_temporal;
 		c.run_target = run_target;
 		c.setThreads(threads);
+		c.setProcesses(processes);
 		c.setDecomposedMode(decomp_mode);
 		c.setConfigOptions(config_options);
 		c.setMaxTraceLength(trace_length);
 		c.setMinTraceLength(min_trace_length);
+		c.setTraceThreads(trace_threads);
+		c.setStaticCheck(static_check);
+		c.setBoundedSolver(bounded_solver);
 		c.name = name;
 		c.setRetargeter(retargeter);
 		return c;
@@ -296,12 +375,20 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		b.append(decomp_mode);
 		b.append("\n threads: ");
 		b.append(threads);
+		b.append("\n worker processes: ");
+		b.append(processes == null ? 0 : processes.capacity());
 		b.append("\n run temporal: ");
 		b.append(run_temporal);
 		b.append("\n min trace length: ");
 		b.append(min_trace_length);
 		b.append("\n max trace length: ");
 		b.append(trace_length);
+		b.append("\n trace threads: ");
+		b.append(trace_threads);
+		b.append("\n static check: ");
+		b.append(static_check);
+		b.append("\n bounded solver: ");
+		b.append(bounded_solver);
 		b.append("\n run unbounded: ");
 		b.append(run_unbounded);
 		b.append("\n custom retargeter?: ");
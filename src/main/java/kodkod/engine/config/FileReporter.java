@@ -33,6 +33,7 @@ import kodkod.ast.Decl;
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
 import kodkod.engine.bool.BooleanFormula;
+import kodkod.engine.bool.Operator;
 import kodkod.instance.Bounds;
 import kodkod.instance.Tuple;
 import kodkod.util.ints.IntSet;
@@ -144,5 +145,11 @@ public final class FileReporter implements Reporter {
 	public String toString() {
 		return "FileReporter";
 	}
+	
+	/**
+	 * @see kodkod.engine.config.Reporter#reportGateCache(Operator, int, long, long, long, int, long)
+	 */
+	// [HASLab]
+	public void reportGateCache(Operator op, int gates, long lookups, long misses, long probes, int maxChain, long flushes) {}
 
 }
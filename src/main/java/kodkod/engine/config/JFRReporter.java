@@ -0,0 +1,179 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.config;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import kodkod.engine.bool.Operator;
+import kodkod.engine.fol2sat.PhaseMetrics.Phase;
+
+/**
+ * A reporter that emits Java Flight Recorder events for the phases of the
+ * analysis and the state of the gate caches, so that recordings of a running
+ * application show where each query spends its time. Events are only
+ * committed while a recording that enables them is running. All other
+ * messages are ignored; this reporter can be combined with others by
+ * subclassing.
+ * 
+ * <p>
+ * The Flight Recorder API (jdk.jfr) is only available since Java 11, so the
+ * event types are defined reflectively, through jdk.jfr.EventFactory, rather
+ * than compiled against it. On virtual machines without the Flight Recorder,
+ * no events are emitted.
+ * </p>
+ * 
+ * @author Nuno Macedo // [HASLab] phase metrics
+ */
+public class JFRReporter extends AbstractReporter {
+
+	/**
+	 * Creates jdk.jfr events of a given type, or does nothing if the Flight
+	 * Recorder is not available.
+	 */
+	private static final class EventType {
+		private static final Method NEW_EVENT, IS_ENABLED, SET, COMMIT;
+		private static final Method CREATE;
+		private static final Constructor<?> ANNOTATION, VALUE;
+		static {
+			Method newEvent = null, isEnabled = null, set = null, commit = null, create = null;
+			Constructor<?> annotation = null, value = null;
+			try {
+				final Class<?> factory = Class.forName("jdk.jfr.EventFactory");
+				final Class<?> event = Class.forName("jdk.jfr.Event");
+				create = factory.getMethod("create", List.class, List.class);
+				newEvent = factory.getMethod("newEvent");
+				isEnabled = event.getMethod("isEnabled");
+				set = event.getMethod("set", int.class, Object.class);
+				commit = event.getMethod("commit");
+				annotation = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+				value = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				create = null; // no Flight Recorder
+			}
+			NEW_EVENT = newEvent;
+			IS_ENABLED = isEnabled;
+			SET = set;
+			COMMIT = commit;
+			CREATE = create;
+			ANNOTATION = annotation;
+			VALUE = value;
+		}
+
+		private final Object factory;
+
+		/**
+		 * Creates an event type with the given name, label and description,
+		 * in the Kodkod category, with the given fields, each described by
+		 * its type, its name, its label and, optionally, the name and value
+		 * of an additional jdk.jfr annotation.
+		 */
+		EventType(String name, String label, String description, Object[]... fields) {
+			Object factory = null;
+			if (CREATE != null) {
+				try {
+					final List<Object> annotations = Arrays.asList(annotation("Name", name),
+							annotation("Label", label), annotation("Category", new String[] { "Kodkod" }),
+							annotation("Description", description));
+					final List<Object> values = new ArrayList<Object>();
+					for (Object[] field : fields) {
+						final List<Object> fannotations = new ArrayList<Object>();
+						fannotations.add(annotation("Label", field[2]));
+						if (field.length > 3)
+							fannotations.add(annotation((String) field[3], field[4]));
+						values.add(VALUE.newInstance(field[0], field[1], fannotations));
+					}
+					factory = CREATE.invoke(null, annotations, values);
+				} catch (ReflectiveOperationException | RuntimeException e) {
+					factory = null;
+				}
+			}
+			this.factory = factory;
+		}
+
+		private static Object annotation(String type, Object value) throws ReflectiveOperationException {
+			return ANNOTATION.newInstance(Class.forName("jdk.jfr." + type), value);
+		}
+
+		/**
+		 * Commits an event of this type with the given field values, if
+		 * events of this type are enabled.
+		 */
+		void commit(Object... values) {
+			if (factory == null)
+				return;
+			try {
+				final Object event = NEW_EVENT.invoke(factory);
+				if ((Boolean) IS_ENABLED.invoke(event)) {
+					for (int i = 0; i < values.length; i++)
+						SET.invoke(event, i, values[i]);
+					COMMIT.invoke(event);
+				}
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Emitted at the end of each phase of the analysis.
+	 */
+	private static final EventType PHASE = new EventType("kodkod.Phase", "Analysis Phase",
+			"A phase of the translation or solving of a problem",
+			new Object[] { String.class, "phase", "Phase" },
+			new Object[] { long.class, "elapsed", "Elapsed", "Timespan", "NANOSECONDS" },
+			new Object[] { long.class, "allocated", "Allocated", "DataAmount", "BYTES" });
+
+	/**
+	 * Emitted at the end of the translation to a boolean circuit, for each gate cache.
+	 */
+	private static final EventType GATE_CACHE = new EventType("kodkod.GateCache", "Gate Cache",
+			"The state of a gate cache at the end of a translation",
+			new Object[] { String.class, "operator", "Operator" },
+			new Object[] { int.class, "gates", "Gates" },
+			new Object[] { long.class, "lookups", "Lookups" },
+			new Object[] { long.class, "hits", "Hits" },
+			new Object[] { long.class, "flushes", "Flushes" });
+
+	/**
+	 * Constructs a new JFR reporter.
+	 */
+	public JFRReporter() {}
+
+	/**
+	 * @see kodkod.engine.config.AbstractReporter#reportPhase(kodkod.engine.fol2sat.PhaseMetrics.Phase, long, long)
+	 */
+	public void reportPhase(Phase phase, long nanos, long bytes) {
+		PHASE.commit(phase.name(), nanos, bytes);
+	}
+
+	/**
+	 * @see kodkod.engine.config.AbstractReporter#reportGateCache(kodkod.engine.bool.Operator, int, long, long, long, int, long)
+	 */
+	public void reportGateCache(Operator op, int gates, long lookups, long misses, long probes, int maxChain, long flushes) {
+		GATE_CACHE.commit(op.toString(), gates, lookups, lookups - misses, flushes);
+	}
+}
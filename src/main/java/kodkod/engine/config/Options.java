@@ -22,6 +22,12 @@
  */
 package kodkod.engine.config;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import kodkod.ast.Relation;
 import kodkod.engine.satlab.SATFactory;
 import kodkod.util.ints.IntRange;
 import kodkod.util.ints.Ints;
@@ -36,6 +42,20 @@ import kodkod.util.ints.Ints;
  *            perform
  * @specfield sharing: int // the depth to which circuits should be checked for
  *            equivalence during translation
+ * @specfield sharingCache: int // the maximum number of gates cached for sharing, 
+ *            per gate operator, or 0 if unbounded
+ * @specfield boundTightening: boolean // whether bounds are tightened using the
+ *            top-level conjuncts of a formula before translation
+ * @specfield preprocessing: boolean // whether the CNF of a formula is simplified
+ *            before it is solved
+ * @specfield cnfSymmetryBreaking: int // the maximum length of the lex-leader 
+ *            constraints generated for the automorphisms of the CNF of a formula
+ * @specfield minimalBlocking: boolean // whether enumerated solutions are blocked 
+ *            by the primary variables of an implicant of the formula
+ * @specfield projection: set Relation // the relations onto which solutions are 
+ *            projected during enumeration, or none if they are not projected
+ * @specfield enumerationThreads: int // the number of threads that enumerate 
+ *            solutions concurrently
  * @specfield intEncoding: IntEncoding // encoding to use for translating int
  *            expressions
  * @specfield bitwidth: int // the bitwidth to use for integer representation /
@@ -56,6 +76,13 @@ public class Options implements Cloneable, BoundedOptions {
 	private IntEncoding intEncoding = IntEncoding.TWOSCOMPLEMENT;
 	private int bitwidth = 4;
 	private int sharing = 3;
+	private int sharingCache = 0;
+	private boolean boundTightening = false;
+	private boolean preprocessing = false;
+	private int cnfSymmetryBreaking = 0;
+	private boolean minimalBlocking = false;
+	private Set<Relation> projection = Collections.emptySet();
+	private int enumerationThreads = 1;
 	private boolean noOverflow = false; // [AM]
 	private int skolemDepth = 0;
 	private int logTranslation = 0;
@@ -74,6 +101,13 @@ public class Options implements Cloneable, BoundedOptions {
 	 *          this.reporter' is silent (no messages reported)
 	 *          this.symmetryBreaking' = 20
 	 *          this.sharing' = 3
+	 *          this.sharingCache' = 0
+	 *          this.boundTightening' = false
+	 *          this.preprocessing' = false
+	 *          this.cnfSymmetryBreaking' = 0
+	 *          this.minimalBlocking' = false
+	 *          no this.projection'
+	 *          this.enumerationThreads' = 1
 	 *          this.intEncoding' = BINARY
 	 *          this.bitwidth' = 4
 	 *          this.skolemDepth' = 0
@@ -93,6 +127,13 @@ public class Options implements Cloneable, BoundedOptions {
 		this.setBitwidth(options.bitwidth());
 		this.setIntEncoding(options.intEncoding());
 		this.setSharing(options.sharing());
+		this.setSharingCache(options.sharingCache());
+		this.setBoundTightening(options.boundTightening());
+		this.setPreprocessing(options.preprocessing());
+		this.setCnfSymmetryBreaking(options.cnfSymmetryBreaking());
+		this.setMinimalBlocking(options.minimalBlocking());
+		this.setProjection(options.projection());
+		this.setEnumerationThreads(options.enumerationThreads());
 		this.setSymmetryBreaking(options.symmetryBreaking());
 		this.setSkolemDepth(options.skolemDepth());
 		this.setLogTranslation(options.logTranslation());
@@ -244,6 +285,170 @@ public class Options implements Cloneable, BoundedOptions {
 		this.sharing = sharing;
 	}
 	
+	/**
+	 * Returns the maximum number of gates, per gate operator, that are cached 
+	 * for sharing during translation.  When a cache is full, it is flushed, so 
+	 * subsequent gates are not shared with the ones created before the flush.  
+	 * The default is 0, which leaves the caches unbounded.  Bounding the caches
+	 * keeps the memory of long incremental sessions in check at the cost of a
+	 * possibly larger CNF.
+	 * @return this.sharingCache
+	 */
+	public int sharingCache() {
+		return sharingCache;
+	}
+	
+	/**
+	 * Sets the sharingCache option to the given value.
+	 * @ensures this.sharingCache' = sharingCache
+	 * @throws IllegalArgumentException  sharingCache !in [0..Integer.MAX_VALUE]
+	 */
+	public void setSharingCache(int sharingCache) {
+		checkRange(sharingCache, 0, Integer.MAX_VALUE);
+		this.sharingCache = sharingCache;
+	}
+	
+	/**
+	 * Returns whether the bounds of a problem are tightened, before translation, 
+	 * using its top-level subset, equality, multiplicity and function constraints.  
+	 * Tightening shrinks upper bounds and grows lower bounds without changing the 
+	 * models of the problem, so fewer primary variables are allocated.  It is not 
+	 * performed when translation logging is enabled, or for incremental or 
+	 * decomposed translations.  The default is false.
+	 * @return this.boundTightening
+	 */
+	public boolean boundTightening() {
+		return boundTightening;
+	}
+	
+	/**
+	 * Sets the boundTightening option to the given value.
+	 * @ensures this.boundTightening' = boundTightening
+	 */
+	public void setBoundTightening(boolean boundTightening) {
+		this.boundTightening = boundTightening;
+	}
+	
+	/**
+	 * Returns whether the CNF of a formula is simplified before it is handed 
+	 * to the SAT solver, using {@link SATFactory#preprocessing(SATFactory, int)}.  
+	 * The primary variables are frozen, so solutions are interpreted and 
+	 * enumerated as usual.  Preprocessing is not performed for incremental 
+	 * translations, or when the solver is a prover, a Max-SAT solver or an 
+	 * unbounded solver.  The default is false.
+	 * @return this.preprocessing
+	 */
+	public boolean preprocessing() {
+		return preprocessing;
+	}
+	
+	/**
+	 * Sets the preprocessing option to the given value.
+	 * @ensures this.preprocessing' = preprocessing
+	 */
+	public void setPreprocessing(boolean preprocessing) {
+		this.preprocessing = preprocessing;
+	}
+	
+	/**
+	 * Returns the maximum length of the lex-leader constraints generated for the 
+	 * automorphisms of the CNF of a formula, using {@link SATFactory#symmetryBreaking(SATFactory, int)}.
+	 * These automorphisms include symmetries that arise from the structure of the 
+	 * formula rather than from its bounds, and which are therefore not broken 
+	 * according to {@link #symmetryBreaking()}.  The CNF symmetries are not broken 
+	 * for incremental or decomposed translations, since the partial problems share 
+	 * their variables with the rest of the problem, or when the solver is a prover, 
+	 * a Max-SAT solver or an unbounded solver.  Like the bounds symmetries, they are broken during 
+	 * solution enumeration, so fewer isomorphic solutions are returned.  The default 
+	 * is 0, which disables the detection of CNF symmetries.
+	 * @return this.cnfSymmetryBreaking
+	 */
+	public int cnfSymmetryBreaking() {
+		return cnfSymmetryBreaking;
+	}
+	
+	/**
+	 * Sets the cnfSymmetryBreaking option to the given value.
+	 * @ensures this.cnfSymmetryBreaking' = cnfSymmetryBreaking
+	 * @throws IllegalArgumentException  cnfSymmetryBreaking !in [0..Integer.MAX_VALUE]
+	 */
+	public void setCnfSymmetryBreaking(int cnfSymmetryBreaking) {
+		checkRange(cnfSymmetryBreaking, 0, Integer.MAX_VALUE);
+		this.cnfSymmetryBreaking = cnfSymmetryBreaking;
+	}
+	
+	/**
+	 * Returns whether each solution found during enumeration is blocked by a clause 
+	 * over the primary variables of an implicant of the formula, rather than over 
+	 * all primary variables.  The implicant is extracted from the boolean circuit of 
+	 * the formula, which is retained for that purpose, and every assignment that 
+	 * agrees with it is a solution.  Blocking clauses are thus shorter, but each 
+	 * enumerated solution stands for all the solutions that agree with its implicant, 
+	 * which are not enumerated separately.  It does not apply to incremental 
+	 * translations, or when solutions are {@linkplain #projection() projected}.  
+	 * The default is false.
+	 * @return this.minimalBlocking
+	 */
+	public boolean minimalBlocking() {
+		return minimalBlocking;
+	}
+	
+	/**
+	 * Sets the minimalBlocking option to the given value.
+	 * @ensures this.minimalBlocking' = minimalBlocking
+	 */
+	public void setMinimalBlocking(boolean minimalBlocking) {
+		this.minimalBlocking = minimalBlocking;
+	}
+	
+	/**
+	 * Returns the relations onto which solutions are projected during enumeration.  
+	 * If not empty, each solution found is blocked by a clause over the primary 
+	 * variables of these relations alone, so that exactly one solution is enumerated 
+	 * for each distinct valuation of the projection.  The default is the empty set, 
+	 * in which case solutions are not projected.
+	 * @return this.projection
+	 */
+	public Set<Relation> projection() {
+		return projection;
+	}
+	
+	/**
+	 * Sets the projection option to the given relations.
+	 * @ensures this.projection' = relations
+	 * @throws NullPointerException  relations = null
+	 */
+	public void setProjection(Collection<Relation> relations) {
+		this.projection = relations.isEmpty() ? Collections.<Relation>emptySet() 
+				: Collections.unmodifiableSet(new LinkedHashSet<Relation>(relations));
+	}
+	
+	/**
+	 * Returns the number of threads that enumerate solutions concurrently.  If greater 
+	 * than 1, the search space is split into disjoint cubes over a few primary 
+	 * variables, the solutions of each cube are enumerated by a separate SAT solver, 
+	 * and they are returned in the order in which they are found, which may differ 
+	 * between runs.  The last solution is unsatisfiable, without a proof.  Enumeration 
+	 * is sequential for trivial problems, for target-oriented problems, and for the 
+	 * exploration of temporal solutions.  The threads wait while the solutions found 
+	 * are not consumed, so an iterator that is abandoned before its last solution 
+	 * must be cancelled by freeing the solver that created it.  The default is 1.
+	 * @return this.enumerationThreads
+	 */
+	public int enumerationThreads() {
+		return enumerationThreads;
+	}
+	
+	/**
+	 * Sets the enumerationThreads option to the given value.
+	 * @ensures this.enumerationThreads' = enumerationThreads
+	 * @throws IllegalArgumentException  enumerationThreads !in [1..Integer.MAX_VALUE]
+	 */
+	public void setEnumerationThreads(int enumerationThreads) {
+		checkRange(enumerationThreads, 1, Integer.MAX_VALUE);
+		this.enumerationThreads = enumerationThreads;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 * @return this.skolemDepth
@@ -312,7 +517,13 @@ public class Options implements Cloneable, BoundedOptions {
 		c.setBitwidth(bitwidth);
 		c.setIntEncoding(intEncoding);
 		c.setSharing(sharing);
-		c.setSharing(sharing);
+		c.setSharingCache(sharingCache);
+		c.setBoundTightening(boundTightening);
+		c.setPreprocessing(preprocessing);
+		c.setCnfSymmetryBreaking(cnfSymmetryBreaking);
+		c.setMinimalBlocking(minimalBlocking);
+		c.setProjection(projection);
+		c.setEnumerationThreads(enumerationThreads);
 		c.setSymmetryBreaking(symmetryBreaking);
 		c.setSkolemDepth(skolemDepth);
 		c.setLogTranslation(logTranslation);
@@ -338,6 +549,20 @@ public class Options implements Cloneable, BoundedOptions {
 		b.append(bitwidth);
 		b.append("\n sharing: ");
 		b.append(sharing);
+		b.append("\n sharingCache: ");
+		b.append(sharingCache);
+		b.append("\n boundTightening: ");
+		b.append(boundTightening);
+		b.append("\n preprocessing: ");
+		b.append(preprocessing);
+		b.append("\n cnfSymmetryBreaking: ");
+		b.append(cnfSymmetryBreaking);
+		b.append("\n minimalBlocking: ");
+		b.append(minimalBlocking);
+		b.append("\n projection: ");
+		b.append(projection);
+		b.append("\n enumerationThreads: ");
+		b.append(enumerationThreads);
 		b.append("\n symmetryBreaking: ");
 		b.append(symmetryBreaking);
 		b.append("\n skolemDepth: ");
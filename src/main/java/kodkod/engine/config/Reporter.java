@@ -30,6 +30,7 @@ import kodkod.ast.Decl;
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
 import kodkod.engine.bool.BooleanFormula;
+import kodkod.engine.bool.Operator;
 import kodkod.instance.Bounds;
 import kodkod.instance.Tuple;
 import kodkod.util.ints.IntSet;
@@ -127,5 +128,16 @@ public interface Reporter {
 	 */
 	// [HASLab]
 	public void reportConfigs(int configs, int primaryVars, int vars, int clauses);
+	
+	/**
+	 * Reports the state of the cache of gates with the given operator at the end 
+	 * of the translation to a boolean circuit:  the number of gates currently cached, 
+	 * the number of cache lookups and of lookups that missed (i.e. created a new gate), 
+	 * the number of cached gates compared during lookups, the length of the longest 
+	 * hash collision chain, and the number of times the cache was flushed to respect 
+	 * {@link Options#sharingCache()}.
+	 */
+	// [HASLab]
+	public void reportGateCache(Operator op, int gates, long lookups, long misses, long probes, int maxChain, long flushes);
 
 }
@@ -33,6 +33,7 @@ import kodkod.ast.Decl;
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
 import kodkod.engine.bool.BooleanFormula;
+import kodkod.engine.bool.Operator;
 import kodkod.instance.Bounds;
 import kodkod.instance.Tuple;
 import kodkod.util.ints.IntSet;
@@ -150,5 +151,13 @@ public class SLF4JReporter implements Reporter {
 		if (Options.isDebug())
 			debug("found at least "+configs+" configs...");
 	}
+	
+	/**
+	 * @see kodkod.engine.config.Reporter#reportGateCache(Operator, int, long, long, long, int, long)
+	 */
+	public void reportGateCache(Operator op, int gates, long lookups, long misses, long probes, int maxChain, long flushes) {
+		if (Options.isDebug())
+			debug(op+" gate cache: "+gates+" gates, "+lookups+" lookups, "+misses+" misses, "+probes+" probes, longest chain "+maxChain+", "+flushes+" flushes");
+	}
 
 }
@@ -24,6 +24,7 @@ package kodkod.engine.config;
 
 import kodkod.engine.TemporalSolver;
 import kodkod.engine.UnboundedSolver;
+import kodkod.engine.satlab.SATFactory;
 
 /**
  * The options required by a {@link TemporalSolver temporal solver} for handling
@@ -70,5 +71,72 @@ public interface TemporalOptions extends PardinusOptions {
 	
 	public void setMinTraceLength(int traceLength);
 
+	/**
+	 * The number of trace lengths that will be translated and solved
+	 * concurrently by the temporal model finder. If 1, trace lengths are
+	 * explored sequentially.
+	 * 
+	 * @return the number of trace lengths explored concurrently.
+	 */
+	public int traceThreads();
+
+	/**
+	 * Sets the number of trace lengths that will be translated and solved
+	 * concurrently by the temporal model finder. The shortest satisfying
+	 * trace is still the one returned.
+	 * 
+	 * @param threads
+	 *            the number of trace lengths explored concurrently.
+	 * @throws IllegalArgumentException
+	 *             threads < 1
+	 */
+	public void setTraceThreads(int threads);
+
+	/**
+	 * Whether the static part of a temporal problem, i.e., the root conjuncts
+	 * over static relations alone, is checked on its own before the temporal
+	 * problem is solved. If so, problems whose static part is unsatisfiable are
+	 * reported as such without exploring every trace length, and configuration
+	 * iteration stops as soon as the static part admits no configuration other
+	 * than those already found. The static part is translated separately from
+	 * the temporal problem, which is still translated in full, static part
+	 * included, for every trace length.
+	 * 
+	 * @return whether the static part of temporal problems is checked on its
+	 *         own.
+	 */
+	public boolean staticCheck();
+
+	/**
+	 * Sets whether the static part of a temporal problem is checked on its own,
+	 * to detect unsatisfiable static parts early and to stop configuration
+	 * iterations once no configuration is left.
+	 * 
+	 * @param staticCheck
+	 *            whether the static part is checked on its own.
+	 */
+	public void setStaticCheck(boolean staticCheck);
+
+	/**
+	 * The SAT solver of a bounded engine that is raced against the
+	 * {@link UnboundedSolver unbounded} model checker selected as the solver,
+	 * if any. If null, only the selected solver is run.
+	 * 
+	 * @return the SAT solver of the bounded engine raced against the model
+	 *         checker.
+	 */
+	public SATFactory boundedSolver();
+
+	/**
+	 * Sets the SAT solver of a bounded engine that is raced against the
+	 * {@link UnboundedSolver unbounded} model checker selected as the solver.
+	 * Must be set prior to solver creation.
+	 * 
+	 * @param solver
+	 *            the bounded SAT solver, or null to run the model checker
+	 *            alone.
+	 */
+	public void setBoundedSolver(SATFactory solver);
+
 
 }
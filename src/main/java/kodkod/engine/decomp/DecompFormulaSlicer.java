@@ -24,15 +24,18 @@ package kodkod.engine.decomp;
 
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import kodkod.ast.BinaryFormula;
 import kodkod.ast.Formula;
 import kodkod.ast.NaryFormula;
+import kodkod.ast.Node;
 import kodkod.ast.Relation;
 import kodkod.ast.operator.FormulaOperator;
 import kodkod.engine.fol2sat.FormulaFlattener;
@@ -91,40 +94,189 @@ public class DecompFormulaSlicer {
 	}
 		
 	public static Entry<Formula, Formula> slice(Formula formula, Set<Relation> partials) {
-
+		List<Formula> f2 = new ArrayList<Formula>();
+		List<Formula> f1 = new ArrayList<Formula>();
+		// select the appropriate conjuncts
+		for (Entry<Formula, Set<Relation>> c : conjuncts(formula)) {
+			if (partials.containsAll(c.getValue()))
+				f1.add(c.getKey());
+			else
+				f2.add(c.getKey());
+		}
+		return new SimpleEntry<Formula, Formula>(NaryFormula.and(f1), NaryFormula.and(f2));
+	}
+	
+	/**
+	 * Converts a formula to NNF, flattens it, and collects the relations of
+	 * each of the resulting top-level conjuncts.
+	 * 
+	 * @param formula
+	 *            the formula to be flattened.
+	 * @return the top-level conjuncts of the flattened formula, paired with
+	 *         the relations they refer to, in order.
+	 */
+	private static List<Entry<Formula, Set<Relation>>> conjuncts(Formula formula) {
 		// converts to NNF and flattens the formula
 		AnnotatedNode<Formula> flat = FormulaFlattener.flatten(
 				AnnotatedNode.annotateRoots(formula), false);
 		final Formula form = flat.node();
-		List<Formula> f2 = new ArrayList<Formula>();
-		List<Formula> f1 = new ArrayList<Formula>();
 		RelationCollector col = new RelationCollector(flat.sharedNodes());
-		// select the appropriate conjuncts
+		List<Entry<Formula, Set<Relation>>> cs = new ArrayList<Entry<Formula, Set<Relation>>>();
+		List<Formula> fs = new ArrayList<Formula>();
 		if (form instanceof BinaryFormula
 				&& ((BinaryFormula) form).op() == FormulaOperator.AND) {
-			Set<Relation> rsl = ((BinaryFormula) form).left().accept(col);
-			Set<Relation> rsr = ((BinaryFormula) form).right().accept(col);
-			(partials.containsAll(rsl)?f1:f2).add(((BinaryFormula) form).left());
-			(partials.containsAll(rsr)?f1:f2).add(((BinaryFormula) form).right());
+			fs.add(((BinaryFormula) form).left());
+			fs.add(((BinaryFormula) form).right());
 		} else if (form instanceof NaryFormula
 				&& ((NaryFormula) form).op() == FormulaOperator.AND) {
 			Iterator<Formula> it = ((NaryFormula) form).iterator();
-			while (it.hasNext()) {
-				Formula f = it.next();
-				Set<Relation> rs = f.accept(col);
-				if (partials.containsAll(rs))
-					f1.add(f);
-				else
-					f2.add(f);
-			}
+			while (it.hasNext())
+				fs.add(it.next());
 		} else {
-			Set<Relation> rs = form.accept(col);
-			if (partials.containsAll(rs))
-				f1.add(form);
-			else 
-				f2.add(form);
+			fs.add(form);
 		}
-		return new SimpleEntry<Formula, Formula>(NaryFormula.and(f1), NaryFormula.and(f2));
+		for (Formula f : fs)
+			cs.add(new SimpleEntry<Formula, Set<Relation>>(f, f.accept(col)));
+		return cs;
+	}
+	
+	/**
+	 * Proposes the relations of the partial problem for the decomposed
+	 * solving of a formula, using at most half of the primary variables of
+	 * the problem for the partial problem.
+	 * 
+	 * @see #partition(Formula, PardinusBounds, double)
+	 */
+	public static Set<Relation> partition(Formula formula, PardinusBounds bounds) {
+		return partition(formula, bounds, 0.5);
+	}
+	
+	/**
+	 * Proposes the relations of the partial problem for the decomposed
+	 * solving of a formula, so that the partial problem can be passed to
+	 * {@link PardinusBounds#splitAt(PardinusBounds, Set)}. The size of a
+	 * relation is estimated by the number of primary variables needed to
+	 * encode it, i.e., the difference between its upper and lower bounds.
+	 * 
+	 * The relations are selected greedily from the graph that connects each
+	 * top-level conjunct of the flattened formula to the relations it refers
+	 * to. At each step, the relation (together with the relations on which
+	 * its symbolic bounds depend) that most increases the coverage of the
+	 * conjuncts per primary variable is selected, as long as the partial
+	 * problem does not exceed the given fraction of the primary variables.
+	 * The integrated problems then only encode the remaining relations. In
+	 * the end, only the relations of fully covered conjuncts are kept, since
+	 * unconstrained partial relations would only multiply the number of
+	 * configurations. Variable relations are never selected, so that
+	 * temporal problems are split as in
+	 * {@link PardinusBounds#splitAtTemporal(PardinusBounds)}.
+	 * 
+	 * @param formula
+	 *            the formula to be decomposed.
+	 * @param bounds
+	 *            the bounds of the problem, not yet decomposed.
+	 * @param ratio
+	 *            the maximum fraction of primary variables in the partial
+	 *            problem.
+	 * @return the relations proposed for the partial problem, possibly none.
+	 * @throws IllegalArgumentException
+	 *             ratio !in [0..1]
+	 */
+	public static Set<Relation> partition(Formula formula, PardinusBounds bounds, double ratio) {
+		if (ratio < 0 || ratio > 1)
+			throw new IllegalArgumentException("ratio !in [0..1]: " + ratio);
+		final List<Set<Relation>> conjuncts = new ArrayList<Set<Relation>>();
+		for (Entry<Formula, Set<Relation>> c : conjuncts(formula))
+			conjuncts.add(c.getValue());
+		
+		// estimate the size of each relation, and collect symbolic dependencies
+		final Map<Relation, Long> sizes = new HashMap<Relation, Long>();
+		final Map<Relation, Set<Relation>> deps = new HashMap<Relation, Set<Relation>>();
+		final RelationCollector col = new RelationCollector(new HashSet<Node>());
+		long total = 0;
+		for (Relation r : bounds.relations()) {
+			final long size;
+			if (bounds.upperBound(r) != null) 
+				size = bounds.upperBound(r).size() - bounds.lowerBound(r).size();
+			else
+				size = (long) Math.pow(bounds.universe().size(), r.arity());
+			sizes.put(r, size);
+			total += size;
+			final Set<Relation> ds = new HashSet<Relation>();
+			if (bounds.lowerSymbBound(r) != null)
+				ds.addAll(bounds.lowerSymbBound(r).accept(col));
+			if (bounds.upperSymbBound(r) != null)
+				ds.addAll(bounds.upperSymbBound(r).accept(col));
+			deps.put(r, ds);
+		}
+		final double budget = total * ratio;
+		
+		Set<Relation> partials = new HashSet<Relation>();
+		long used = 0;
+		while (true) {
+			Set<Relation> best = null;
+			double bestScore = 0;
+			long bestCost = 0;
+			for (Set<Relation> c : conjuncts) {
+				for (Relation r : c) {
+					if (partials.contains(r)) continue;
+					final Set<Relation> added = closure(r, partials, deps);
+					if (added == null) continue;
+					long cost = 0;
+					for (Relation a : added)
+						cost += sizes.get(a);
+					if (used + cost > budget) continue;
+					double gain = 0;
+					for (Set<Relation> c1 : conjuncts) {
+						if (partials.containsAll(c1)) continue;
+						int n = 0;
+						for (Relation a : added)
+							if (c1.contains(a)) n++;
+						gain += (double) n / c1.size();
+					}
+					final double score = gain / (cost + 1);
+					if (score > bestScore) {
+						best = added;
+						bestScore = score;
+						bestCost = cost;
+					}
+				}
+			}
+			if (best == null) break;
+			partials.addAll(best);
+			used += bestCost;
+		}
+		
+		// keep only the relations of fully covered conjuncts
+		final Set<Relation> covered = new HashSet<Relation>();
+		for (Set<Relation> c : conjuncts)
+			if (partials.containsAll(c))
+				covered.addAll(c);
+		final Set<Relation> result = new HashSet<Relation>();
+		for (Relation r : covered)
+			result.addAll(closure(r, result, deps));
+		return result;
+	}
+	
+	/**
+	 * Collects the relations that must be added to the partial problem
+	 * together with a given relation, i.e., the relation and those on which
+	 * its symbolic bounds (transitively) depend.
+	 * 
+	 * @return the relations missing from partials, or null if some of them is
+	 *         variable or not bound.
+	 */
+	private static Set<Relation> closure(Relation r, Set<Relation> partials, Map<Relation, Set<Relation>> deps) {
+		final Set<Relation> added = new HashSet<Relation>();
+		final List<Relation> todo = new ArrayList<Relation>();
+		todo.add(r);
+		while (!todo.isEmpty()) {
+			final Relation a = todo.remove(todo.size() - 1);
+			if (partials.contains(a) || !added.add(a)) continue;
+			if (a.isVariable() || !deps.containsKey(a)) return null;
+			todo.addAll(deps.get(a));
+		}
+		return added;
 	}
 	
 	// TODO: temporal slicing will fail if temporal formulas over static relations
@@ -58,4 +58,22 @@ public class IProblem<S extends AbstractSolver<PardinusBounds, ExtendedOptions>>
 		assert bounds.amalgamated() != null;
 	}
 
+	/**
+	 * Constructs a new integrated problem thread with a given partial solution
+	 * (configuration) over the given bounds, whose integration is left to the
+	 * subclass.
+	 * 
+	 * @param config
+	 *            the partial solution to be extended.
+	 * @param manager
+	 *            the callback manager.
+	 * @param bounds
+	 *            the bounds of the problem.
+	 */
+	protected IProblem(Solution config, DProblemExecutor<S> manager, PardinusBounds bounds) {
+		super(manager, manager.formula, bounds);
+		this.config = config;
+		assert bounds.amalgamated() != null;
+	}
+
 }
\ No newline at end of file
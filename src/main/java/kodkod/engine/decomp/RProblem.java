@@ -0,0 +1,93 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.decomp;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import kodkod.engine.AbortedException;
+import kodkod.engine.AbstractSolver;
+import kodkod.engine.DProblemExecutor;
+import kodkod.engine.DProcessPool;
+import kodkod.engine.Solution;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.instance.PardinusBounds;
+
+/**
+ * An integrated problem that is solved by a worker process of a
+ * {@link DProcessPool pool} rather than by the integrated solver of the
+ * manager. The configuration is integrated by the worker, which also
+ * enumerates the remaining solutions on demand.
+ * 
+ * @param <S>
+ *            The solver that will be used to handle integrated problems.
+ * 
+ * @author Nuno Macedo // [HASLab] decomposed model finding
+ */
+public class RProblem<S extends AbstractSolver<PardinusBounds, ExtendedOptions>>
+		extends IProblem<S> {
+
+	private final Solution config;
+	private final DProcessPool pool;
+	private Iterator<Solution> solutions;
+	private Solution solution;
+
+	/**
+	 * Constructs a new remote integrated problem thread with a given partial
+	 * solution (configuration), to be solved by one of the workers of the
+	 * given pool.
+	 * 
+	 * @param config
+	 *            the partial solution to be extended.
+	 * @param manager
+	 *            the callback manager.
+	 * @param pool
+	 *            the worker processes.
+	 */
+	public RProblem(Solution config, DProblemExecutor<S> manager, DProcessPool pool) {
+		super(config, manager, manager.bounds);
+		this.config = config;
+		this.pool = pool;
+	}
+
+	public void run() {
+		try {
+			solutions = pool.solveAll(manager.formula, config, bounds);
+			solution = solutions.next();
+			manager.end(this);
+		} catch (AbortedException e) {
+			// unless terminated in the meantime
+			if (!(e.getCause() instanceof InterruptedException))
+				manager.failed(e);
+		} catch (RuntimeException e) {
+			manager.failed(e);
+		}
+	}
+
+	@Override
+	public Entry<Solution, Iterator<Solution>> getSolutions() {
+		return new AbstractMap.SimpleEntry<Solution, Iterator<Solution>>(solution, solutions);
+	}
+
+}
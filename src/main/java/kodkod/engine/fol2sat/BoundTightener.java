@@ -0,0 +1,208 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.fol2sat;
+
+import static kodkod.util.nodes.AnnotatedNode.annotate;
+
+import java.util.Set;
+
+import kodkod.ast.BinaryExpression;
+import kodkod.ast.ComparisonFormula;
+import kodkod.ast.Expression;
+import kodkod.ast.Formula;
+import kodkod.ast.MultiplicityFormula;
+import kodkod.ast.Relation;
+import kodkod.ast.RelationPredicate;
+import kodkod.engine.config.Options;
+import kodkod.instance.Bounds;
+import kodkod.instance.TupleSet;
+import kodkod.util.nodes.Nodes;
+
+/**
+ * Tightens the bounds of a problem using the top-level conjuncts of its formula, 
+ * before any primary variables are allocated.  In particular, the upper bound of a 
+ * relation r is intersected with an overapproximation of E for every conjunct of the form 
+ * <code>r in E</code>, <code>r = E</code>, <code>E = r</code>, <code>r.function(A, B)</code> (with E = A->B), 
+ * or <code>no r</code> (with E empty); the lower bound of a relation R is extended with the lower 
+ * bound of e for every conjunct <code>e in R</code>, <code>e = R</code> or <code>R = e</code>; and
+ * the lower bound of a relation r is set to its upper bound for every conjunct <code>one r</code> 
+ * or <code>some r</code> such that r's upper bound contains a single tuple.  These rules are applied 
+ * until a fixpoint is reached.  Since all conjuncts hold in every model of the formula, the 
+ * tightened bounds have the same models as the original ones. They are also invariant under 
+ * all the symmetries of the original bounds.  
+ * @specfield formula: Formula
+ * @specfield bounds: Bounds
+ * @specfield options: Options
+ * @author Nuno Macedo // [HASLab] bound tightening
+ */
+final class BoundTightener {
+	private final Bounds bounds;
+	private final Options options;
+	private int tightened;
+	
+	/**
+	 * Constructs a bound tightener for the given bounds and options.
+	 */
+	private BoundTightener(Bounds bounds, Options options) {
+		this.bounds = bounds;
+		this.options = options;
+	}
+	
+	/**
+	 * Tightens the given bounds using the top-level conjuncts of the given formula, 
+	 * as described above, and returns the number of tuples that were removed from 
+	 * upper bounds or added to lower bounds.
+	 * @requires formula.*components & Relation in bounds.relations
+	 * @ensures all r: bounds.relations | bounds.upperBound'[r] in bounds.upperBound[r] && bounds.lowerBound[r] in bounds.lowerBound'[r]
+	 * @ensures MODELS(formula, bounds') = MODELS(formula, bounds) 
+	 * @return number of tuples that were removed from upper bounds or added to lower bounds
+	 */
+	static int tighten(Formula formula, Bounds bounds, Options options) {
+		final Set<Formula> conjuncts = Nodes.roots(formula);
+		final BoundTightener tightener = new BoundTightener(bounds, options);
+		int last;
+		do {
+			last = tightener.tightened;
+			for(Formula conjunct : conjuncts) {
+				tightener.tighten(conjunct);
+			}
+		} while (last != tightener.tightened);
+		return tightener.tightened;
+	}
+	
+	/**
+	 * Tightens this.bounds using the given conjunct.
+	 */
+	private void tighten(Formula conjunct) {
+		if (conjunct instanceof ComparisonFormula) {
+			final ComparisonFormula comp = (ComparisonFormula) conjunct;
+			switch(comp.op()) {
+			case SUBSET : 
+				subset(comp.left(), comp.right()); 
+				break;
+			case EQUALS : 
+				subset(comp.left(), comp.right());
+				subset(comp.right(), comp.left());
+				break;
+			default : 
+			}
+		} else if (conjunct instanceof MultiplicityFormula) {
+			final MultiplicityFormula mult = (MultiplicityFormula) conjunct;
+			if (!(mult.expression() instanceof Relation)) return;
+			final Relation r = (Relation) mult.expression();
+			switch(mult.multiplicity()) {
+			case NO : 
+				bound(r, bounds.lowerBound(r), bounds.universe().factory().noneOf(r.arity()));
+				break;
+			case ONE : case SOME :
+				if (bounds.upperBound(r).size()==1)
+					bound(r, bounds.upperBound(r), bounds.upperBound(r));
+				break;
+			default : 
+			}
+		} else if (conjunct instanceof RelationPredicate.Function) {
+			final RelationPredicate.Function fun = (RelationPredicate.Function) conjunct;
+			subset(fun.relation(), fun.domain().product(fun.range()));
+		}
+	}
+	
+	/**
+	 * Tightens this.bounds using the fact that the value of e is a subset of the value of E.
+	 */
+	private void subset(Expression e, Expression E) {
+		if (e instanceof Relation) {
+			final Relation r = (Relation) e;
+			final TupleSet upper = upperBound(E);
+			if (upper != null) {
+				upper.retainAll(bounds.upperBound(r));
+				bound(r, bounds.lowerBound(r), upper);
+			}
+		} else if (e instanceof BinaryExpression && ((BinaryExpression) e).op()==kodkod.ast.operator.ExprOperator.UNION) {
+			subset(((BinaryExpression) e).left(), E);
+			subset(((BinaryExpression) e).right(), E);
+		}
+		if (E instanceof Relation) {
+			final Relation R = (Relation) E;
+			final TupleSet lower = lowerBound(e);
+			if (lower != null) {
+				lower.addAll(bounds.lowerBound(R));
+				bound(R, lower, bounds.upperBound(R));
+			}
+		}
+	}
+	
+	/**
+	 * Returns a modifiable tuple set that contains every tuple in the value of the given 
+	 * expression with respect to this.bounds, or null if the expression refers to integers.
+	 * @return a modifiable overapproximation of the value of the given expression, if any
+	 */
+	private TupleSet upperBound(Expression expr) {
+		if (annotate(expr).usesInts()) return null;
+		return bounds.universe().factory().setOf(expr.arity(), Translator.approximate(expr, bounds, options).denseIndices());
+	}
+	
+	/**
+	 * Returns a modifiable tuple set that is contained in the value of the given expression 
+	 * with respect to this.bounds, or null if such a set is not computed for the expression.
+	 * @return a modifiable underapproximation of the value of the given expression, if any
+	 */
+	private TupleSet lowerBound(Expression expr) {
+		if (expr instanceof Relation) {
+			return bounds.lowerBound((Relation) expr).clone();
+		} else if (expr instanceof BinaryExpression) {
+			final BinaryExpression bin = (BinaryExpression) expr;
+			switch(bin.op()) {
+			case UNION : 
+				final TupleSet left = lowerBound(bin.left()), right = lowerBound(bin.right());
+				if (left == null) return right;
+				if (right != null) left.addAll(right);
+				return left;
+			case PRODUCT :
+				final TupleSet l = lowerBound(bin.left());
+				if (l == null) return null;
+				final TupleSet r = lowerBound(bin.right());
+				return r == null ? null : l.product(r);
+			default :
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Binds r to the given lower and upper bounds, and updates this.tightened accordingly,
+	 * if the new bounds are strictly tighter than the current ones and lower is 
+	 * contained in upper.  Otherwise does nothing; if lower is not contained in
+	 * upper, the problem is unsatisfiable, which is left for the translation to discover.
+	 * @ensures lower in upper && (lower + bounds.lowerBound[r] != bounds.lowerBound[r] || upper != bounds.upperBound[r]) =>
+	 *          bounds.lowerBound'[r] = lower && bounds.upperBound'[r] = upper
+	 */
+	private void bound(Relation r, TupleSet lower, TupleSet upper) {
+		final TupleSet oldLower = bounds.lowerBound(r), oldUpper = bounds.upperBound(r);
+		if (!upper.containsAll(lower)) return;
+		final int delta = (oldUpper.size() - upper.size()) + (lower.size() - oldLower.size());
+		if (delta > 0) {
+			bounds.bound(r, lower, upper);
+			tightened += delta;
+		}
+	}
+}
@@ -112,6 +112,20 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 		return (T) annotated.node().accept(translator);
 	}
 
+	/**
+	 * Translates the given annotated formula into a boolean value with respect to the 
+	 * given interpreter and the variable bindings in the given environment.
+	 * @requires interpreter.relations = AnnotatedNode.relations(annotated)
+	 * @return the meaning of the given annotated formula with respect to the given interpreter and environment
+	 * @throws HigherOrderDeclException  annotated.node contains a higher order declaration
+	 * @throws UnboundLeafException  annotated.node refers to a variable that neither declared nor bound in env
+	 **/
+	static final BooleanValue translate(AnnotatedNode<Formula> annotated, LeafInterpreter interpreter, Environment<BooleanMatrix, Expression> env) {
+		final FOL2BoolCache cache = new FOL2BoolCache(annotated);
+		final FOL2BoolTranslator translator = new FOL2BoolTranslator(cache, interpreter, env) {};
+		return annotated.node().accept(translator);
+	}
+
 	/**
 	 * Translates the given annotated formula into a boolean
 	 * accumulator with respect to the given interpreter and logs the translation events to the given logger.  
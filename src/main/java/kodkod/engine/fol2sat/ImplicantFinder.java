@@ -0,0 +1,144 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.fol2sat;
+
+import kodkod.engine.bool.BooleanFormula;
+import kodkod.engine.bool.Operator;
+import kodkod.engine.satlab.SATSolver;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.IntTreeSet;
+
+/**
+ * Extracts an implicant of a boolean circuit from a model of its CNF, by 
+ * justifying the value of the circuit's root.  A gate whose value is 
+ * determined by one of its inputs (a false input of a false conjunction 
+ * or a true input of a true disjunction) is justified by that input alone;
+ * other gates are justified by all of their inputs, and if-then-else gates
+ * by their condition and the branch it selects.  The primary variables 
+ * reached this way form the implicant.
+ * 
+ * @specfield circuit: BooleanFormula
+ * @specfield cnf: SATSolver
+ * @invariant meaning(circuit) = meaning(cnf.clauses) && cnf.solve() = true
+ * @author Nuno Macedo // [HASLab] minimal blocking clauses
+ */
+final class ImplicantFinder {
+	private final SATSolver cnf;
+	/** the labels of the gates that have been evaluated, and those that evaluate to true */
+	private final IntSet evaluated = new IntTreeSet(), trueGates = new IntTreeSet();
+	/** the labels of the gates and variables that have been justified */
+	private final IntSet justified = new IntTreeSet();
+	private final IntSet implicant = new IntTreeSet();
+	
+	private ImplicantFinder(SATSolver cnf) { 
+		this.cnf = cnf;
+	}
+	
+	/**
+	 * Returns the labels of the variables of an implicant of the given circuit
+	 * that is satisfied by the current model of the given cnf.
+	 * @requires meaning(circuit) = meaning(cnf.clauses) 
+	 * @requires cnf.solve() has been called and returned true
+	 * @return some s: IntSet | s in circuit.*inputs.label && 
+	 *          all assignments a | (all i: s | a(i) = cnf.valueOf(i)) => a satisfies circuit
+	 */
+	static IntSet implicant(BooleanFormula circuit, SATSolver cnf) { 
+		final ImplicantFinder finder = new ImplicantFinder(cnf);
+		finder.justify(circuit);
+		return finder.implicant;
+	}
+	
+	/**
+	 * Returns the value of the given formula under the current model of this.cnf.
+	 * @return the value of the given formula under the current model of this.cnf.
+	 */
+	private boolean value(BooleanFormula f) { 
+		final Operator op = f.op();
+		if (op == Operator.NOT) 
+			return !value(f.input(0));
+		final int label = f.label();
+		if (op == Operator.VAR) 
+			return cnf.valueOf(label);
+		if (evaluated.contains(label)) 
+			return trueGates.contains(label);
+		final boolean value;
+		if (op == Operator.ITE) { 
+			value = value(f.input(0)) ? value(f.input(1)) : value(f.input(2));
+		} else { 
+			// the value of an input that determines the value of the gate
+			final boolean controlling = op == Operator.OR;
+			boolean determined = false;
+			for(BooleanFormula input : f) { 
+				if (value(input) == controlling) { 
+					determined = true;
+					break;
+				}
+			}
+			value = determined == controlling;
+		}
+		evaluated.add(label);
+		if (value) trueGates.add(label);
+		return value;
+	}
+	
+	/**
+	 * Adds to this.implicant the variables that justify the value of the given 
+	 * formula under the current model of this.cnf.
+	 */
+	private void justify(BooleanFormula f) { 
+		final Operator op = f.op();
+		if (op == Operator.NOT) { 
+			justify(f.input(0));
+			return;
+		}
+		final int label = f.label();
+		if (!justified.add(label)) 
+			return;
+		if (op == Operator.VAR) { 
+			implicant.add(label);
+		} else if (op == Operator.ITE) { 
+			justify(f.input(0));
+			justify(f.input(value(f.input(0)) ? 1 : 2));
+		} else { 
+			final boolean controlling = op == Operator.OR;
+			if (value(f) == controlling) { 
+				// one controlling input suffices; prefer one that is already justified
+				BooleanFormula witness = null;
+				for(BooleanFormula input : f) { 
+					if (value(input) == controlling) { 
+						if (justified.contains(Math.abs(input.label()))) { 
+							witness = input;
+							break;
+						} else if (witness == null) { 
+							witness = input;
+						}
+					}
+				}
+				justify(witness);
+			} else { 
+				for(BooleanFormula input : f) 
+					justify(input);
+			}
+		}
+	}
+}
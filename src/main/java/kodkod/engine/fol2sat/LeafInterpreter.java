@@ -136,11 +136,26 @@ final class LeafInterpreter {
 	 *          l.vars[relations] = l.factory & BooleanVariable
 	 */
 	static final LeafInterpreter exact(Bounds bounds, Options options, boolean incremental) {
+		return exact(bounds, options, incremental, 0);
+	}
+	
+	/**  
+	 * Returns an exact interpreter for the given bounds and options, as specified by {@link #exact(Bounds, Options, boolean)}, 
+	 * whose factory contains the given number of additional variables.  The additional variables are 
+	 * not allocated to any relation, and their labels follow those of the relation variables.
+	 * @requires extra >= 0
+	 * @return some l: LeafInterpreter | l.universe = bounds.universe && l.relations = bounds.relations() && 
+	 *          l.ints = bounds.ints() && l.lbounds = bounds.lowerBound && l.ubounds = bounds.upperBound && 
+	 *          l.ibounds = bounds.intBound && 
+	 *          l.factory = BooleanFactory.factory(sum(r: l.relations | #(l.ubounds[r]-l.lbounds[r]))-1+extra, options) &&
+	 *          l.vars[relations] = l.factory & BooleanVariable - { v: BooleanVariable | v.label > l.factory.maxVariable() - extra }
+	 */
+	static final LeafInterpreter exact(Bounds bounds, Options options, boolean incremental, int extra) {
 		final Map<Relation, IntRange> vars = new LinkedHashMap<Relation,IntRange>();
 		final Map<Relation, TupleSet> lowers = incremental ? new LinkedHashMap<Relation, TupleSet>(bounds.lowerBounds()) : bounds.lowerBounds();
 		final Map<Relation, TupleSet> uppers = incremental ? new LinkedHashMap<Relation, TupleSet>(bounds.upperBounds()) : bounds.upperBounds();
 		final int numVars = allocateVars(1, vars, bounds.relations(), lowers, uppers);
-		return new LeafInterpreter(bounds.universe(), lowers, uppers, bounds.intBounds(), BooleanFactory.factory(numVars, options), vars);
+		return new LeafInterpreter(bounds.universe(), lowers, uppers, bounds.intBounds(), BooleanFactory.factory(numVars + extra, options), vars);
 	}
 	
 	/**
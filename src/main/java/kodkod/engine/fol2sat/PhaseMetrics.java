@@ -0,0 +1,218 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.fol2sat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import kodkod.engine.config.AbstractReporter;
+import kodkod.engine.config.Reporter;
+
+/**
+ * Per-phase metrics gathered while translating and solving a problem: the
+ * time, in nanoseconds, and the bytes allocated by the translating thread in
+ * each {@link Phase phase}, as well as the number of gates in the circuit and
+ * the gate cache lookups and hits. Each recorded phase is also reported to a
+ * {@link Reporter reporter}, if it is an {@link AbstractReporter}. Allocated
+ * bytes are only measured if the virtual machine supports per-thread
+ * allocation counting, through the com.sun.management extension of the
+ * thread bean, which is accessed reflectively since not every virtual
+ * machine provides it; otherwise they are 0.
+ * 
+ * @specfield nanos: Phase -> long
+ * @specfield bytes: Phase -> long
+ * @specfield gates: int
+ * @specfield cacheLookups, cacheHits: long
+ * @author Nuno Macedo // [HASLab] phase metrics
+ */
+public final class PhaseMetrics {
+	
+	/**
+	 * The phases of the analysis, in the order in which they are run.
+	 */
+	public static enum Phase {
+		/** detection of the symmetries of the bounds */
+		SYMMETRY_DETECTION,
+		/** breaking of matrix symmetries on top-level predicates and their inlining */
+		OPTIMIZATION,
+		/** skolemization of the optimized formula */
+		SKOLEMIZATION,
+		/** translation of the formula to a boolean circuit */
+		FOL2BOOL,
+		/** generation of the symmetry breaking predicate */
+		SBP,
+		/** translation of the circuit to CNF */
+		BOOL2CNF,
+		/** solving of the CNF */
+		SOLVING
+	}
+	
+	private static final ThreadMXBean BEAN = ManagementFactory.getThreadMXBean();
+	private static final Method ALLOCATED;
+	static {
+		Method allocated = null;
+		try {
+			final Class<?> extension = Class.forName("com.sun.management.ThreadMXBean");
+			if (extension.isInstance(BEAN) &&
+				(Boolean) extension.getMethod("isThreadAllocatedMemorySupported").invoke(BEAN) &&
+				(Boolean) extension.getMethod("isThreadAllocatedMemoryEnabled").invoke(BEAN))
+				allocated = extension.getMethod("getThreadAllocatedBytes", long.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// not measured
+		}
+		ALLOCATED = allocated;
+	}
+	
+	private final Reporter reporter;
+	private final long[] nanos, bytes;
+	private int gates;
+	private long cacheLookups, cacheHits;
+	
+	/**
+	 * Constructs empty metrics that report each recorded phase to the given reporter.
+	 * @ensures no this.nanos && no this.bytes && this.gates' = 0 && this.cacheLookups' = this.cacheHits' = 0
+	 */
+	public PhaseMetrics(Reporter reporter) {
+		this.reporter = reporter;
+		this.nanos = new long[Phase.values().length];
+		this.bytes = new long[Phase.values().length];
+	}
+	
+	/**
+	 * Constructs a copy of the given metrics, which reports to the same reporter.
+	 * @ensures this.nanos' = other.nanos && this.bytes' = other.bytes && this.gates' = other.gates &&
+	 *          this.cacheLookups' = other.cacheLookups && this.cacheHits' = other.cacheHits
+	 */
+	public PhaseMetrics(PhaseMetrics other) {
+		this.reporter = other.reporter;
+		this.nanos = other.nanos.clone();
+		this.bytes = other.bytes.clone();
+		this.gates = other.gates;
+		this.cacheLookups = other.cacheLookups;
+		this.cacheHits = other.cacheHits;
+	}
+	
+	/**
+	 * Returns the number of bytes allocated so far by the current thread, or 0 if 
+	 * allocation is not measured.
+	 * @return number of bytes allocated so far by the current thread
+	 */
+	public static long allocated() {
+		if (ALLOCATED == null)
+			return 0;
+		try {
+			return (Long) ALLOCATED.invoke(BEAN, Thread.currentThread().getId());
+		} catch (ReflectiveOperationException e) {
+			return 0;
+		}
+	}
+	
+	/**
+	 * Records that the given phase, which started at the given {@link System#nanoTime() time}
+	 * and {@link #allocated() allocation count}, has just ended, and reports it if 
+	 * this.reporter is an {@link AbstractReporter}.
+	 * @ensures this.nanos' = this.nanos ++ phase -> (this.nanos[phase] + System.nanoTime() - startNanos) &&
+	 *          this.bytes' = this.bytes ++ phase -> (this.bytes[phase] + allocated() - startBytes)
+	 */
+	public void record(Phase phase, long startNanos, long startBytes) {
+		final long dn = System.nanoTime() - startNanos, db = allocated() - startBytes;
+		nanos[phase.ordinal()] += dn;
+		bytes[phase.ordinal()] += db;
+		if (reporter instanceof AbstractReporter)
+			((AbstractReporter) reporter).reportPhase(phase, dn, db);
+	}
+	
+	/**
+	 * Records the size of the circuit and the use of the gate caches.
+	 * @ensures this.gates' = gates && this.cacheLookups' = lookups && this.cacheHits' = hits
+	 */
+	void recordCircuit(int gates, long lookups, long hits) {
+		this.gates = gates;
+		this.cacheLookups = lookups;
+		this.cacheHits = hits;
+	}
+	
+	/**
+	 * Adds the given metrics to these metrics.
+	 * @ensures this.nanos' = this.nanos + other.nanos && this.bytes' = this.bytes + other.bytes &&
+	 *          this.gates' = this.gates + other.gates && this.cacheLookups' = this.cacheLookups + other.cacheLookups && 
+	 *          this.cacheHits' = this.cacheHits + other.cacheHits
+	 */
+	public void add(PhaseMetrics other) {
+		for(int i = 0; i < nanos.length; i++) {
+			nanos[i] += other.nanos[i];
+			bytes[i] += other.bytes[i];
+		}
+		gates += other.gates;
+		cacheLookups += other.cacheLookups;
+		cacheHits += other.cacheHits;
+	}
+	
+	/**
+	 * Returns the time, in nanoseconds, spent in the given phase.
+	 * @return this.nanos[phase]
+	 */
+	public long nanos(Phase phase) { return nanos[phase.ordinal()]; }
+	
+	/**
+	 * Returns the number of bytes allocated in the given phase.
+	 * @return this.bytes[phase]
+	 */
+	public long bytes(Phase phase) { return bytes[phase.ordinal()]; }
+	
+	/**
+	 * Returns the number of gates in the translated circuit.
+	 * @return this.gates
+	 */
+	public int gates() { return gates; }
+	
+	/**
+	 * Returns the number of gate cache lookups.
+	 * @return this.cacheLookups
+	 */
+	public long cacheLookups() { return cacheLookups; }
+	
+	/**
+	 * Returns the number of gate cache lookups that found an existing gate.
+	 * @return this.cacheHits
+	 */
+	public long cacheHits() { return cacheHits; }
+	
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		final StringBuilder ret = new StringBuilder();
+		for(Phase p : Phase.values()) {
+			ret.append(p.name().toLowerCase()).append(": ");
+			ret.append(nanos(p)/1000000.0).append(" ms, ");
+			ret.append(bytes(p)).append(" bytes");
+			ret.append(System.getProperty("line.separator"));
+		}
+		ret.append("gates: ").append(gates).append(", cache hits: ");
+		ret.append(cacheHits).append("/").append(cacheLookups);
+		return ret.toString();
+	}
+}
@@ -26,6 +26,7 @@ import java.util.Set;
 
 import kodkod.ast.Relation;
 import kodkod.engine.bool.BooleanConstant;
+import kodkod.engine.bool.BooleanFormula;
 import kodkod.engine.config.Options;
 import kodkod.engine.satlab.SATSolver;
 import kodkod.instance.Bounds;
@@ -68,6 +69,7 @@ public abstract class Translation {
 
 	private final Bounds bounds;
 	private final Options options;
+	PhaseMetrics metrics;
 	
 	/**
 	 * Creates a translation using the given bounds and options.   
@@ -92,6 +94,12 @@ public abstract class Translation {
 	 */
 	public final Options options() { return options; }
 	
+	/**
+	 * Returns the metrics gathered while generating this translation. 
+	 * @return metrics gathered while generating this translation
+	 */
+	public final PhaseMetrics metrics() { return metrics; }
+	
 	/** 
 	 * Returns the set of primary variables that represent
 	 * the tuples in the given relation.  If no variables were allocated
@@ -208,6 +216,7 @@ public abstract class Translation {
 		private final Map<Relation, IntSet> primaryVarUsage;
 		private final TranslationLog log;
 		private final int maxPrimaryVar;
+		private final BooleanFormula circuit;
 		
 		/**
 		 * Creates a whole translation using the given bounds, options, solver, var map, and log.
@@ -220,11 +229,28 @@ public abstract class Translation {
 		 *          this.options' = options && this.log' = log && this.vars' = varUsage
 		 */
 		Whole(Bounds bounds, Options options, SATSolver solver, Map<Relation, IntSet> varUsage, int maxPrimaryVar, TranslationLog log) {
+			this(bounds, options, solver, varUsage, maxPrimaryVar, log, null);
+		}
+		
+		/**
+		 * Creates a whole translation using the given bounds, options, solver, var map, log, 
+		 * and the boolean circuit that was translated to CNF, if it is to be retained.
+		 * 
+		 * @requires primaryVarUsage.keySet() in { r: bounds.relations | bounds.lower[r] != bounds.upper[r] }
+		 * @requires maxPrimaryVar = max(varUsage[Relation].max)
+		 * @requires all i: varUsage.map[Relation].ints | 1 <= i <= maxPrimaryVar
+		 * @requires varUsage.map[Relation].ints in solver.variables
+		 * @requires circuit != null => meaning(circuit) = meaning(solver.clauses) 
+		 * @ensures this.solver' = solver &&  this.bounds' = bounds &&
+		 *          this.options' = options && this.log' = log && this.vars' = varUsage
+		 */
+		Whole(Bounds bounds, Options options, SATSolver solver, Map<Relation, IntSet> varUsage, int maxPrimaryVar, TranslationLog log, BooleanFormula circuit) {
 			super(bounds, options);
 			this.solver = solver;
 			this.log = log;
 			this.maxPrimaryVar = maxPrimaryVar;
 			this.primaryVarUsage = varUsage;
+			this.circuit = circuit;
 		}
 
 		/**
@@ -257,6 +283,23 @@ public abstract class Translation {
 		 * @return translation log for this translation, if one was generated, or null otherwise 
 		 */
 		public TranslationLog log() { return log; }
+		
+		/**
+		 * Returns the primary variables of an implicant of the translated formula that is 
+		 * satisfied by the current model of {@code this.cnf}, that is, a set of primary variables 
+		 * such that every assignment that agrees with that model on them satisfies the formula.  
+		 * The implicant is extracted from the boolean circuit of the formula, which is only 
+		 * retained if {@code this.options.minimalBlocking} is set; otherwise, all primary 
+		 * variables are returned.
+		 * @requires this.cnf.solve() has been called and returned true
+		 * @return some s: IntSet | s in { i: int | 1 <= i <= #vars } && 
+		 *          all assignments a | (all i: s | a(i) = this.cnf.valueOf(i)) => a satisfies this.formula
+		 */
+		public IntSet implicant() { 
+			if (circuit != null)
+				return ImplicantFinder.implicant(circuit, solver);
+			return maxPrimaryVar == 0 ? Ints.EMPTY_SET : Ints.rangeSet(Ints.range(1, maxPrimaryVar));
+		}
 	}
 
 	/**
@@ -300,6 +343,10 @@ public abstract class Translation {
 		 */
 		private final Bool2CNFTranslator incrementer;
 		private final Set<IntSet> symmetries;
+		/**
+		 * the label of the guard variable of the most recently added guarded formula, or 0 if none
+		 */
+		int guard;
 		
 		/**
 		 * Creates an Incremental translation using the given bounds, options, symmetries of the original bounds, 
@@ -336,6 +383,14 @@ public abstract class Translation {
 		 */
 		Bool2CNFTranslator incrementer() { return incrementer; }
 		
+		/**
+		 * Returns the label of the guard variable of the formula that was most recently added to this translation by
+		 * {@link Translator#translateIncremental(kodkod.ast.Formula, Bounds, int, Incremental)}, or 0 if that formula 
+		 * translated to true and needed no guard.  Guard variables are not allocated to any relation.
+		 * @return label of the guard variable of the most recently added guarded formula, or 0 if none
+		 */
+		public int guard() { return guard; }
+		
 		/**
 		 * {@inheritDoc}
 		 * @see kodkod.engine.fol2sat.Translation#cnf()
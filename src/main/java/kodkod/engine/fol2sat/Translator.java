@@ -35,6 +35,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import kodkod.ast.Decl;
+import kodkod.ast.Decls;
 import kodkod.ast.Expression;
 import kodkod.ast.Formula;
 import kodkod.ast.IntExpression;
@@ -49,17 +51,21 @@ import kodkod.engine.bool.BooleanFactory;
 import kodkod.engine.bool.BooleanFormula;
 import kodkod.engine.bool.BooleanMatrix;
 import kodkod.engine.bool.BooleanValue;
+import kodkod.engine.bool.Dimensions;
 import kodkod.engine.bool.Int;
 import kodkod.engine.bool.Operator;
 import kodkod.engine.config.Options;
+import kodkod.engine.fol2sat.PhaseMetrics.Phase;
 import kodkod.engine.decomp.DecompFormulaSlicer;
 import kodkod.engine.ltl2fol.TemporalTranslator;
+import kodkod.engine.satlab.SATFactory;
 import kodkod.engine.satlab.SATSolver;
 import kodkod.engine.satlab.TargetSATSolver;
 import kodkod.engine.satlab.WTargetSATSolver;
 import kodkod.instance.Bounds;
 import kodkod.instance.Instance;
 import kodkod.instance.PardinusBounds;
+import kodkod.instance.Tuple;
 import kodkod.instance.TupleSet;
 import kodkod.util.ints.IndexedEntry;
 import kodkod.util.ints.IntSet;
@@ -217,9 +223,51 @@ public final class Translator {
 		checkIncrementalOptions(translation.options());
 		checkIncrementalBounds(bounds, translation);		
 		if (translation.trivial())  { 
-			return translateIncrementalTrivial(formula, bounds, translation);
+			return translateIncrementalTrivial(formula, bounds, translation, false);
 		} else {
-			return translateIncrementalNonTrivial(formula, bounds, translation);
+			return translateIncrementalNonTrivial(formula, bounds, translation, -1);
+		}	
+	}
+
+	/**
+	 * Updates the given translation with {@code CNF(guard => formula, translation.originalBounds + bounds, translation.options)}, 
+	 * where {@code guard} is the primary variable with the given label, or a fresh primary variable if the label is 0.  
+	 * A fresh guard variable is not allocated to any relation, and its label is given by {@code t.guard()}, where t is the 
+	 * updated translation.  No guard is allocated, and {@code t.guard()} is 0, if the formula translates to true.  Guard variables keep the translation non-trivial, so that the guarded formulas are only enforced 
+	 * when their guards are assumed by the {@linkplain kodkod.engine.satlab.AssumptionSATSolver SAT solver}, and they can be 
+	 * retracted by asserting the negation of their guards.  The requirements on the bounds and translation are as specified by 
+	 * {@link #translateIncremental(Formula, Bounds, kodkod.engine.fol2sat.Translation.Incremental)}.
+	 * 
+	 * @requires guard = 0 or guard is the label of a guard variable previously allocated for translation 
+	 * @requires translation.cnf.solve()
+	 * @requires formula.*components & Relation in (translation.bounds + bounds).relations
+	 * @requires translation.bounds.universe = bounds.universe && no bounds.intBound && no (translation.bounds.relations & bounds.relations)
+	 * @requires all s: translation.symmetries | 
+	 *            some p: {@link SymmetryDetector#partition(Bounds) partition}(bounds) |
+	 *             s.ints in p.ints       
+	 * @return some t: Translation | 
+	 *          t.originalFormula = translation.originalFormula.and(t.guard => formula) && 
+	 * 	        t.originalBounds.relations = translation.originalBounds.relations + bounds.relations &&
+	 *          t.originalBounds.upperBound = translation.originalBounds.upperBound + bounds.upperBound &&
+	 *          t.originalBounds.lowerBound = translation.originalBounds.lowerBound + bounds.lowerBound &&
+	 *          t.originalBounds.intBound = translation.originalBounds.intBound && 
+	 *          (t.guard = 0 || (guard != 0 => t.guard = guard) && !t.trivial())
+	 * @throws NullPointerException  any of the arguments are null
+	 * @throws UnboundLeafException  the formula refers to an undeclared variable or a relation not mapped by translation.bounds + bounds
+	 * @throws HigherOrderDeclException  the formula contains a higher order declaration
+	 * @throws IllegalArgumentException any of the other preconditions on the arguments are violated
+	 */
+	public static Translation.Incremental translateIncremental(Formula formula, Bounds bounds, int guard, Translation.Incremental translation)  {
+		checkIncrementalOptions(translation.options());
+		checkIncrementalBounds(bounds, translation);
+		if (guard < 0)
+			throw new IllegalArgumentException("Expected a guard label >= 0, given " + guard);
+		if (translation.trivial())  { 
+			if (guard != 0)
+				throw new IllegalArgumentException("Expected a non-trivial translation for guard " + guard + ", given " + translation);
+			return translateIncrementalTrivial(formula, bounds, translation, true);
+		} else {
+			return translateIncrementalNonTrivial(formula, bounds, translation, guard);
 		}	
 	}
 
@@ -228,9 +276,10 @@ public final class Translator {
 	 * @requires checkIncrementalOptions(transl.options) 
 	 * @requires transl.trivial()
 	 * @requires transl.cnf.solve()
-	 * @return see {@link #translateIncremental(Formula, Bounds, Options)}
+	 * @return see {@link #translateIncremental(Formula, Bounds, Options)}, where the formula is 
+	 * guarded by a fresh guard variable if {@code guarded} is true
 	 **/
-	private static Translation.Incremental translateIncrementalTrivial(Formula formula, Bounds bounds, Translation.Incremental transl) {
+	private static Translation.Incremental translateIncrementalTrivial(Formula formula, Bounds bounds, Translation.Incremental transl, boolean guarded) {
 		if (!transl.cnf().solve()) 
 			throw new IllegalArgumentException("Expected a satisfiable translation, given " + transl);
 		
@@ -252,23 +301,27 @@ public final class Translator {
 		// re-translate the given formula with respect to tBounds.  note that we don't have to re-translate 
 		// the conjunction of transl.formula and formula since transl.formula is guaranteed to evaluate to 
 		// TRUE with respect to tBounds (since no bindings that were originally in tBounds were changed by the above loop).
-		final Translation.Incremental updated = translateIncremental(formula, tBounds, tOptions);
+		final Translation.Incremental updated = (Translation.Incremental) (new Translator(formula, tBounds, tOptions, true, guarded)).translate();
 		
 		// we can't return the updated translation as is, since we have to make sure that updated.symmetries is set to
 		// transl.symmetries rather than the potentially finer set of symmetries induced by tBounds. note that 
 		// the updated translation currently has updated.originalBounds = tBounds, while updated.bounds is a copy of 
 		// tBounds with possibly additional skolem relations, as well as new bounds for some relations in formula.*components 
 		// due to symmetry breaking.
-		return new Translation.Incremental(updated.bounds(), tOptions, transl.symmetries(), updated.interpreter(), updated.incrementer());
+		final Translation.Incremental ret = new Translation.Incremental(updated.bounds(), tOptions, transl.symmetries(), updated.interpreter(), updated.incrementer());
+		ret.guard = updated.guard;
+		return ret;
 	}
 	
 	/** 
 	 * @requires checkIncrementalBounds(bounds, transl)
 	 * @requires checkIncrementalOptions(transl.options) 
 	 * @requires !transl.trivial()
-	 * @return see {@link #translateIncremental(Formula, Bounds, Options)}
+	 * @return see {@link #translateIncremental(Formula, Bounds, Options)}, where the formula is guarded
+	 * by the given guard variable if {@code guard > 0}, by a fresh guard variable if {@code guard = 0}, 
+	 * and not guarded otherwise
 	 **/
-	private static Translation.Incremental translateIncrementalNonTrivial(Formula formula, Bounds bounds, Translation.Incremental transl) {
+	private static Translation.Incremental translateIncrementalNonTrivial(Formula formula, Bounds bounds, Translation.Incremental transl, int guard) {
 		
 		final Options tOptions = transl.options();
 		final Bounds tBounds = transl.bounds();
@@ -288,7 +341,85 @@ public final class Translator {
 		final LeafInterpreter interpreter = transl.interpreter();
 		interpreter.extend(setDifference(tBounds.relations(), oldRelations), tBounds.lowerBounds(), tBounds.upperBounds());
 		
-		final BooleanValue circuit = FOL2BoolTranslator.translate(annotated, interpreter); 
+		BooleanValue circuit = (BooleanValue)FOL2BoolTranslator.translate(annotated, interpreter);
+		if (guard >= 0) {
+			if (circuit==BooleanConstant.TRUE) { // nothing to guard
+				transl.guard = 0;
+			} else {
+				final BooleanFactory factory = interpreter.factory();
+				if (guard == 0) { // allocate a fresh guard, which is added to the solver by addIncremental
+					factory.addVariables(1);
+					guard = factory.maxVariable();
+				}
+				transl.guard = guard;
+				circuit = factory.implies(factory.variable(guard), circuit);
+			}
+		}
+		return addIncremental(circuit, transl);
+	}
+	
+	/**
+	 * Updates the given non-trivial translation with the CNF of the conjunction of the instances 
+	 * of the given formula that are obtained by binding its free variables, as declared by the given decls,
+	 * to the atoms of each tuple in the given set.  That is, for each tuple t in bindings, the formula
+	 * is translated with decls[i].variable bound to t.atom(i), with respect to {@code translation.bounds}.
+	 * The result of the update is either a new translation instance or the given {@code translation}, 
+	 * modified in place.  This method is used to instantiate quantified formulas lazily: given 
+	 * {@code all decls | body}, the {@code bindings} are the violating instances of its body, and 
+	 * {@code formula} is {@code body}, guarded by the membership of each variable in its declaration.
+	 * 
+	 * <p>
+	 * The behavior of this method is unspecified if a prior call to {@code translation.cnf.solve()} returned false, or 
+	 * if a prior call to this method resulted in an exception.
+	 * </p>
+	 * 
+	 * @requires !translation.trivial() 
+	 * @requires all d: decls | d.multiplicity = ONE && d.expression.arity = 1  
+	 * @requires bindings.arity = decls.size() && bindings.universe = translation.bounds.universe
+	 * @requires (formula.*components & Relation) in translation.bounds.relations
+	 * @requires formula.*components & Variable in decls.variable + formula.^children.decls.variable
+	 * @return some t: Translation | 
+	 *          t.originalFormula = translation.originalFormula.and({ f: Formula | some b: bindings | f = formula[decls.variable/b] })
+	 * @throws NullPointerException  any of the arguments are null
+	 * @throws HigherOrderDeclException  the formula contains a higher order declaration
+	 * @throws IllegalArgumentException any of the other preconditions on the arguments are violated
+	 */
+	public static Translation.Incremental translateIncremental(Formula formula, Decls decls, TupleSet bindings, Translation.Incremental translation)  {
+		checkIncrementalOptions(translation.options());
+		if (translation.trivial())
+			throw new IllegalArgumentException("Expected a non-trivial translation, given " + translation);
+		if (bindings.arity() != decls.size())
+			throw new IllegalArgumentException("Expected bindings of arity " + decls.size() + ", given " + bindings);
+		
+		final LeafInterpreter interpreter = translation.interpreter();
+		final BooleanFactory factory = interpreter.factory();
+		final Dimensions dims = Dimensions.square(translation.bounds().universe().size(), 1);
+		final AnnotatedNode<Formula> annotated = annotate(formula);
+		final BooleanAccumulator circuit = BooleanAccumulator.treeGate(Operator.AND);
+		for(Tuple binding : bindings) {
+			Environment<BooleanMatrix, Expression> env = Environment.empty();
+			for(int i = 0, size = decls.size(); i < size; i++) {
+				final Decl decl = decls.get(i);
+				final BooleanMatrix atom = factory.matrix(dims);
+				atom.set(binding.atomIndex(i), BooleanConstant.TRUE);
+				env = env.extend(decl.variable(), decl.expression(), atom);
+			}
+			if (circuit.add((BooleanValue)FOL2BoolTranslator.translate(annotated, interpreter, env)) == BooleanConstant.FALSE)
+				break;
+		}
+		return addIncremental(factory.accumulate(circuit), translation);
+	}
+	
+	/**
+	 * Adds the CNF of the given circuit to the given non-trivial translation.  The result
+	 * is either a new translation instance or the given {@code translation}, modified in place.
+	 * @requires !transl.trivial() && circuit.factory = transl.interpreter.factory
+	 * @return some t: Translation | t.originalFormula = transl.originalFormula.and(meaning(circuit))
+	 */
+	private static Translation.Incremental addIncremental(BooleanValue circuit, Translation.Incremental transl) {
+		final Options tOptions = transl.options();
+		final Bounds tBounds = transl.bounds();
+		final LeafInterpreter interpreter = transl.interpreter();
 	
 		if (circuit==BooleanConstant.FALSE) {
 			// release the old solver and state, and return a fresh trivially false incremental translation.
@@ -305,6 +436,7 @@ public final class Translator {
 			}
 		} else {
 			// circuit is a formula; add its CNF representation to transl.incrementer.solver()			
+			reportGateCaches(interpreter.factory(), tOptions);
 			Bool2CNFTranslator.translateIncremental((BooleanFormula) circuit, interpreter.factory().maxVariable(), transl.incrementer());			
 		}  
 		
@@ -380,6 +512,8 @@ public final class Translator {
 	private final Options options;
 	private final boolean logging;
 	private final boolean incremental;
+	private final boolean guarded;
+	private final PhaseMetrics metrics;
 	
 	/**
 	 * Constructs a Translator for the given formula, bounds, options and incremental flag.
@@ -392,6 +526,19 @@ public final class Translator {
 	 *  this.incremental' = incremental 
 	 */
 	private Translator(Formula formula, Bounds bounds, Options options, boolean incremental) {
+		this(formula, bounds, options, incremental, false);
+	}
+	
+	/**
+	 * Constructs a Translator for the given formula, bounds, options and incremental flag, as specified by 
+	 * {@link #Translator(Formula, Bounds, Options, boolean)}.  If the guarded flag is true, then the translator 
+	 * produces an initial incremental translation of {@code guard => formula}, where {@code guard} is a fresh 
+	 * primary variable that is not allocated to any relation.
+	 * @requires guarded => incremental
+	 * @ensures this.guarded' = guarded
+	 */
+	private Translator(Formula formula, Bounds bounds, Options options, boolean incremental, boolean guarded) {
+		assert !guarded || incremental;
 		// [HASLab] retrieve the additional formula imposed by the symbolic
 		// bounds, depending on execution stage
 		Formula symbForm = Formula.TRUE;
@@ -410,6 +557,8 @@ public final class Translator {
 		this.options = options;
 		this.logging = options.logTranslation()>0;
 		this.incremental = incremental;
+		this.guarded = guarded;
+		this.metrics = new PhaseMetrics(options.reporter());
 	}
 	
 	/**
@@ -458,13 +607,25 @@ public final class Translator {
 			if (!actualAnnotated.usesInts()) bounds.ints().clear();
 		}
 
+		// Tighten bounds using the top-level constraints, if requested.
+		if (options.boundTightening() && !logging && !incremental && !options.decomposed()) {
+			final long t = System.nanoTime(), a = PhaseMetrics.allocated();
+			final int tightened = BoundTightener.tighten(actualAnnotated.node(), bounds, options);
+			options.reporter().debug("tightened bounds by "+tightened+" tuples");
+			metrics.record(Phase.OPTIMIZATION, t, a);
+		}
+		
 		// Detect symmetries.
+		final long t = System.nanoTime(), a = PhaseMetrics.allocated();
 		final SymmetryBreaker breaker = new SymmetryBreaker(bounds, options.reporter());
+		metrics.record(Phase.SYMMETRY_DETECTION, t, a);
 		// Optimize formula and bounds by using symmetry information to tighten bounds and 
 		// eliminate top-level predicates, and also by skolemizing.  Then translate the optimize
 		// formula and bounds to a circuit, augment the circuit with a symmetry breaking predicate 
 		// that eliminates any remaining symmetries, and translate everything to CNF.
-		return toBoolean(optimizeFormulaAndBounds(actualAnnotated, breaker), breaker);
+		final Translation result = toBoolean(optimizeFormulaAndBounds(actualAnnotated, breaker), breaker);
+		result.metrics = metrics;
+		return result;
 	}
 	
 	/**
@@ -496,15 +657,27 @@ public final class Translator {
 				annotated = flatten(annotated, false);
 			}
 			if (options.skolemDepth()>=0) {
+				final long t = System.nanoTime(), a = PhaseMetrics.allocated();
 				annotated = skolemize(annotated, bounds, options);
+				metrics.record(Phase.SKOLEMIZATION, t, a);
 			}
 			if (coreGranularity>1) { 
 				annotated = flatten(annotated, options.coreGranularity()==3);
 			}
-			return inlinePredicates(annotated, breaker.breakMatrixSymmetries(annotated.predicates(), false));
+			final long t = System.nanoTime(), a = PhaseMetrics.allocated();
+			annotated = inlinePredicates(annotated, breaker.breakMatrixSymmetries(annotated.predicates(), false));
+			metrics.record(Phase.OPTIMIZATION, t, a);
+			return annotated;
 		} else {  			
+			long t = System.nanoTime(), a = PhaseMetrics.allocated();
 			annotated = inlinePredicates(annotated, breaker.breakMatrixSymmetries(annotated.predicates(), true).keySet());
-			return options.skolemDepth()>=0 ? Skolemizer.skolemize(annotated, bounds, options) : annotated;
+			metrics.record(Phase.OPTIMIZATION, t, a);
+			if (options.skolemDepth()>=0) {
+				t = System.nanoTime(); a = PhaseMetrics.allocated();
+				annotated = Skolemizer.skolemize(annotated, bounds, options);
+				metrics.record(Phase.SKOLEMIZATION, t, a);
+			}
+			return annotated;
 		}
 		
 	}
@@ -598,24 +771,35 @@ public final class Translator {
 
 		options.reporter().translatingToBoolean(annotated.node(), bounds);
 		
-		final LeafInterpreter interpreter = LeafInterpreter.exact(bounds, options, incremental);
+		final LeafInterpreter interpreter = LeafInterpreter.exact(bounds, options, incremental, guarded ? 1 : 0);
 		final BooleanFactory factory = interpreter.factory();
 		
 		if (logging) {
 			assert !incremental;
 			final TranslationLogger logger = options.logTranslation()==1 ? new MemoryLogger(annotated, bounds) : new FileLogger(annotated, bounds);
+			long t = System.nanoTime(), a = PhaseMetrics.allocated();
 			final BooleanAccumulator circuit = FOL2BoolTranslator.translate(annotated, interpreter, logger);
+			metrics.record(Phase.FOL2BOOL, t, a);
 			final TranslationLog log = logger.log();
 			if (circuit.isShortCircuited()) { 
 				return trivial(circuit.op().shortCircuit(), log, annotated.relations());
 			} else if (circuit.size()==0) { 
 				return trivial(circuit.op().identity(), log, annotated.relations());
 			}
+			t = System.nanoTime(); a = PhaseMetrics.allocated();
 			circuit.add(breaker.generateSBP(interpreter, options));
+			metrics.record(Phase.SBP, t, a);
 			return toCNF((BooleanFormula)factory.accumulate(circuit), interpreter, log);
 		} else {
+			long t = System.nanoTime(), a = PhaseMetrics.allocated();
 			final BooleanValue circuit = (BooleanValue)FOL2BoolTranslator.translate(annotated, interpreter);
+			metrics.record(Phase.FOL2BOOL, t, a);
+			t = System.nanoTime(); a = PhaseMetrics.allocated();
 			BooleanValue sbp = breaker.generateSBP(interpreter, options); // [HASLab] for Electrod we need symmetries even when trivial
+			metrics.record(Phase.SBP, t, a);
+			if (guarded && circuit!=BooleanConstant.TRUE) {
+				return guard(circuit, sbp, interpreter);
+			}
 			if (circuit.op()==Operator.CONST) { 
 				options.reporter().debug("trivial boolean circuit: "+circuit);
 				return trivial((BooleanConstant)circuit, null, bounds.relations());
@@ -624,6 +808,38 @@ public final class Translator {
 		}
 	}
 	
+	/**
+	 * Returns the incremental translation of {@code guard => circuit}, conjoined with the given SBP, where {@code guard}
+	 * is the last variable of the given interpreter's factory, which is not allocated to any relation.  The translation
+	 * is not trivial even if the guarded circuit is constant, so that the guard can be assumed by the SAT solver.
+	 * @requires this.guarded && circuit != BooleanConstant.TRUE && circuit.factory = sbp.factory = interpreter.factory
+	 * @return some t: Translation.Incremental | t.guard = interpreter.factory.maxVariable() && !t.trivial() &&
+	 *           t.cnf.solve() iff SAT(t.guard => this.formula, this.bounds, this.options)
+	 */
+	private Translation.Incremental guard(BooleanValue circuit, BooleanValue sbp, LeafInterpreter interpreter) {
+		final BooleanFactory factory = interpreter.factory();
+		final int guard = factory.maxVariable();
+		final BooleanValue guarded = factory.and(factory.implies(factory.variable(guard), circuit), sbp);
+		final Translation.Incremental transl;
+		if (guarded.op()==Operator.CONST) {
+			final Bool2CNFTranslator incrementer = Bool2CNFTranslator.translateIncremental((BooleanConstant)guarded, options.solver());
+			incrementer.solver().addVariables(guard);
+			transl = new Translation.Incremental(completeBounds(), options, SymmetryDetector.partition(originalBounds), interpreter, incrementer);
+		} else {
+			transl = (Translation.Incremental) toCNF((BooleanFormula)guarded, interpreter, null);
+		}
+		transl.guard = guard;
+		return transl;
+	}
+	
+	/**
+	 * Reports the gate caches of the given factory to the reporter of the given 
+	 * options.
+	 */
+	private static void reportGateCaches(BooleanFactory factory, Options options) {
+		factory.reportGateCaches(options.reporter());
+	}
+	
 	/**
 	 * Translates the given circuit to CNF, adds the clauses to a SATSolver returned
 	 * by options.solver(), and returns a Translation object constructed from the solver
@@ -643,22 +859,35 @@ public final class Translator {
 	 *           t.solver.solve() iff SAT(this.formula, this.bounds, this.options)
 	 */
 	private Translation toCNF(BooleanFormula circuit, LeafInterpreter interpreter, TranslationLog log) {
+		reportGateCaches(interpreter.factory(), options);
 		options.reporter().translatingToCNF(circuit);
-		final int maxPrimaryVar = interpreter.factory().maxVariable();
+		final BooleanFactory factory = interpreter.factory();
+		final int maxPrimaryVar = factory.maxVariable();
+		metrics.recordCircuit(factory.maxFormula() - maxPrimaryVar, factory.cacheLookups(), factory.cacheHits());
+		final long t = System.nanoTime(), a = PhaseMetrics.allocated();
 
 		if (incremental) {
 			final Bool2CNFTranslator incrementer = Bool2CNFTranslator.translateIncremental(circuit, maxPrimaryVar, options.solver());
+			metrics.record(Phase.BOOL2CNF, t, a);
 			return new Translation.Incremental(completeBounds(), options, SymmetryDetector.partition(originalBounds), interpreter, incrementer);
 		} else {
 			final Map<Relation, IntSet> varUsage = interpreter.vars();
-			final SATSolver cnf = Bool2CNFTranslator.translate((BooleanFormula)circuit, maxPrimaryVar, options.solver());
+			final SATFactory solver = options.solver();
+			final boolean plain = !solver.prover() && !solver.maxsat() && !solver.unbounded();
+			SATFactory cnfFactory = options.preprocessing() && plain ? SATFactory.preprocessing(solver, maxPrimaryVar) : solver;
+			if (options.cnfSymmetryBreaking() > 0 && plain && !options.decomposed())
+				cnfFactory = SATFactory.symmetryBreaking(cnfFactory, options.cnfSymmetryBreaking());
+			final SATSolver cnf = Bool2CNFTranslator.translate((BooleanFormula)circuit, maxPrimaryVar, cnfFactory);
 			// [HASLab] add the targets to the SAT problem
 			if (bounds instanceof PardinusBounds) 
 				doTargets((PardinusBounds) bounds, interpreter, cnf);
+			metrics.record(Phase.BOOL2CNF, t, a);
 
 			interpreter = null; // enable gc
 
-			return new Translation.Whole(completeBounds(), options, cnf, varUsage, maxPrimaryVar, log);
+			// the circuit is only retained for the extraction of implicants during enumeration
+			return new Translation.Whole(completeBounds(), options, cnf, varUsage, maxPrimaryVar, log, 
+					options.minimalBlocking() && options.projection().isEmpty() ? circuit : null);
 		}
 	}
 
@@ -23,9 +23,12 @@
 package kodkod.engine.ltl2fol;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import kodkod.ast.Relation;
 import kodkod.engine.Evaluator;
@@ -36,6 +39,9 @@ import kodkod.instance.Tuple;
 import kodkod.instance.TupleSet;
 import kodkod.instance.Universe;
 import kodkod.util.ints.IndexedEntry;
+import kodkod.util.ints.IntIterator;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.Ints;
 
 /**
  * An extension to the regular Kodkod {@link Bounds bounds} that stores
@@ -49,11 +55,143 @@ import kodkod.util.ints.IndexedEntry;
  * strategy} to support past-time operators.
  * 
  * As of Pardinus 1.1, traces are assumed to always loop.
+ * 
+ * The expanded universe for a given number of steps and unrolls, and the bounds
+ * of the relations that encode the trace over it, are cached per original
+ * universe, so the expansions for each trace length are only built once. Tuple
+ * sets are converted between universes by index arithmetic.
  *
  * @author Eduardo Pessoa, Nuno Macedo // [HASLab] temporal model finding
  */
 public class TemporalBoundsExpander {
 
+	/** the expansions of each original universe, by number of steps and unrolls */
+	private static final Map<Universe, Map<Long, Expansion>> expansions = new WeakHashMap<Universe, Map<Long, Expansion>>();
+
+	/**
+	 * Returns the expansion of the given universe with the given number of steps
+	 * and unrolls, creating and caching it if needed.
+	 */
+	private static Expansion expansion(Universe universe, int steps, int unrolls) {
+		final Long key = ((long) steps << 32) | unrolls;
+		synchronized (expansions) {
+			Map<Long, Expansion> cached = expansions.get(universe);
+			if (cached == null) {
+				cached = new HashMap<Long, Expansion>();
+				expansions.put(universe, cached);
+			}
+			Expansion expansion = cached.get(key);
+			if (expansion == null) {
+				expansion = new Expansion(universe, steps, unrolls);
+				cached.put(key, expansion);
+			}
+			return expansion;
+		}
+	}
+
+	/**
+	 * The expansion of a universe with state atoms for a given number of steps and
+	 * unrolls, together with the bounds of the relations that encode the trace.
+	 * Does not reference the original universe, so that it can be cached
+	 * against it.
+	 */
+	private static final class Expansion {
+		final Universe universe;
+		final int steps;
+		/** the bounds of the trace relations */
+		final Bounds trace;
+		/** the states of the first unroll, over which variable relations are expanded */
+		final TupleSet time;
+
+		Expansion(Universe oldUniverse, int steps, int unrolls) {
+			this.steps = steps;
+			this.universe = createUniverse(oldUniverse, steps, unrolls);
+			this.trace = new Bounds(universe);
+			final Universe uni = universe;
+
+			if (TemporalTranslator.ExplicitUnrolls) {
+				trace.boundExactly(TemporalTranslator.FIRST, set(state(0, 0)));
+				trace.boundExactly(TemporalTranslator.LAST, set(state(steps - 1, unrolls - 1)));
+				trace.boundExactly(TemporalTranslator.LAST_, set(state(steps - 1, 0)));
+
+				TupleSet tupleSetTime_unr = range(state(0, 0), state(steps - 1, unrolls - 1));
+				time = range(state(0, 0), state(steps - 1, 0));
+				TupleSet tupleSetTime_unr_first_lasts = time.clone();
+				for (int j = 0; j < unrolls; j++)
+					tupleSetTime_unr_first_lasts.add(uni.factory().tuple(1, state(steps - 1, j)));
+				trace.bound(TemporalTranslator.STATE, tupleSetTime_unr_first_lasts, tupleSetTime_unr);
+
+				trace.bound(TemporalTranslator.LOOP, range(state(0, unrolls - 1), state(steps - 1, unrolls - 1)));
+
+				TupleSet trace_unr_u = uni.factory().noneOf(2);
+				TupleSet trace_unr_l = uni.factory().noneOf(2);
+				for (int i = 0; i < steps - 1; i++) // add the prefix to lower
+					trace_unr_l.add(pair(state(i, 0), state(i + 1, 0)));
+				for (int j = 0; j < unrolls; j++) {
+					for (int i = 0; i < steps - 1; i++) // add the successor in non-loop
+						trace_unr_u.add(pair(state(i, j), state(i + 1, j)));
+					if (j < unrolls - 1)
+						for (int k = 0; k < steps; k++) // add the possible successors in loop
+							trace_unr_u.add(pair(state(steps - 1, j), state(k, j + 1)));
+				}
+				trace.bound(TemporalTranslator.PREFIX, trace_unr_l, trace_unr_u);
+
+				if (unrolls > 1) { // otherwise no need for unrolls
+					TupleSet unrollMap = uni.factory().noneOf(2);
+					for (int i = 0; i < steps; i++)
+						for (int j = 0; j < unrolls; j++)
+							unrollMap.add(pair(state(i, j), state(i, 0)));
+					trace.boundExactly(TemporalTranslator.UNROLL_MAP, unrollMap);
+				}
+
+			} else {
+				// the state atoms [0..steps] are followed by the level atoms [0..unrolls-1]
+				trace.boundExactly(TemporalTranslator.FIRST, set(0));
+				trace.boundExactly(TemporalTranslator.LAST, set(steps));
+
+				time = range(0, steps);
+				trace.boundExactly(TemporalTranslator.STATE, time);
+
+				TupleSet trace_unr_l = uni.factory().noneOf(2);
+				for (int i = 0; i < steps; i++) // add the prefix to lower
+					trace_unr_l.add(pair(i, i + 1));
+				trace.boundExactly(TemporalTranslator.PREFIX, trace_unr_l);
+
+				final int level = steps + 1;
+				trace.boundExactly(TemporalTranslator.L_FIRST, set(level));
+				trace.boundExactly(TemporalTranslator.L_LAST, set(level + unrolls - 1));
+				trace.boundExactly(TemporalTranslator.LEVEL, range(level, level + unrolls - 1));
+
+				TupleSet trace_lvl = uni.factory().noneOf(2);
+				for (int i = 0; i < unrolls - 1; i++) // add the prefix to lower
+					trace_lvl.add(pair(level + i, level + i + 1));
+				trace.boundExactly(TemporalTranslator.L_PREFIX, trace_lvl);
+
+				trace.bound(TemporalTranslator.LOOP, range(1, steps));
+			}
+		}
+
+		/** Returns the index of the state atom for the given step and unroll. */
+		private int state(int step, int unroll) {
+			return unroll * steps + step;
+		}
+
+		/** Returns the singleton unary tuple set with the given atom. */
+		private TupleSet set(int atom) {
+			return universe.factory().setOf(universe.factory().tuple(1, atom));
+		}
+
+		/** Returns the unary tuple set with the atoms in [from..to]. */
+		private TupleSet range(int from, int to) {
+			return universe.factory().range(universe.factory().tuple(1, from), universe.factory().tuple(1, to));
+		}
+
+		/** Returns the binary tuple with the given atoms. */
+		private Tuple pair(int from, int to) {
+			return universe.factory().tuple(2, from * universe.size() + to);
+		}
+	}
+
 	/**
 	 * Expands the old bounds by converting the bounds over variable relations into
 	 * regular bounds with {@link TemporalTranslator#STATE state} atoms appended. It
@@ -81,8 +219,7 @@ public class TemporalBoundsExpander {
 			throw new IllegalArgumentException("Number of unrolls or steps <1.");
 		if (!bounds.resolved())
 			throw new IllegalArgumentException("Symbolic bounds must be resolved at this stage.");
-		Universe u = expandUniverse(bounds.universe(), steps, unrolls);
-		return expand(bounds, u, steps, unrolls);
+		return expand(bounds, expansion(bounds.universe(), steps, unrolls));
 	}
 
 	/**
@@ -98,112 +235,19 @@ public class TemporalBoundsExpander {
 	 * 
 	 * @param bounds
 	 *            the bounds with variable relations to be expanded.
-	 * @param uni
-	 *            the new universe with state atoms.
-	 * @param steps
-	 *            the number of distinguished states in the trace.
-	 * @param unrolls
-	 *            the number of trace unrolls.
-	 * @param force_loop
-	 *            whether the trace will necessarily loop.
+	 * @param expansion
+	 *            the expansion of the universe with state atoms.
 	 * @return the expanded bounds with the new universe.
 	 */
-	private static PardinusBounds expand(PardinusBounds bounds, Universe uni, int steps, int unrolls) {
-		assert(unrolls > 0);
-		assert(steps > 0);
+	private static PardinusBounds expand(PardinusBounds bounds, Expansion expansion) {
 		assert(bounds.resolved());
 
+		final Universe uni = expansion.universe;
 		PardinusBounds newBounds = new PardinusBounds(uni);
 
-		TupleSet tupleSetTime_unr_first;
-
-		if (TemporalTranslator.ExplicitUnrolls) {
-
-			String sp = TemporalTranslator.STATE_SEP;
-			newBounds.boundExactly(TemporalTranslator.FIRST,uni.factory().setOf(uni.factory().tuple(TemporalTranslator.STATEATOM + "0" + sp + "0")));
-			newBounds.boundExactly(TemporalTranslator.LAST, uni.factory().setOf(uni.factory().tuple(TemporalTranslator.STATEATOM + (steps - 1) + sp + (unrolls - 1))));
-			newBounds.boundExactly(TemporalTranslator.LAST_,uni.factory().setOf(uni.factory().tuple(TemporalTranslator.STATEATOM + (steps - 1) + sp + 0)));
-
-			TupleSet tupleSetTime_unr = uni.factory().range(
-					uni.factory().tuple(TemporalTranslator.STATEATOM + "0" + sp + "0"),
-					uni.factory().tuple(TemporalTranslator.STATEATOM + (steps - 1) + sp + (unrolls - 1)));
-			tupleSetTime_unr_first = uni.factory().range(
-					uni.factory().tuple(TemporalTranslator.STATEATOM + "0" + sp + "0"),
-					uni.factory().tuple(TemporalTranslator.STATEATOM + (steps - 1) + sp + "0"));
-			TupleSet tupleSetTime_unr_first_lasts = uni.factory().setOf(tupleSetTime_unr_first);
-			for (int j = 0; j < unrolls; j++)
-				tupleSetTime_unr_first_lasts.add(uni.factory().tuple(TemporalTranslator.STATEATOM + (steps - 1) + sp + j));
-			newBounds.bound(TemporalTranslator.STATE, tupleSetTime_unr_first_lasts, tupleSetTime_unr);
-
-			TupleSet tupleSetTime_unr_last = uni.factory().range(
-					uni.factory().tuple(TemporalTranslator.STATEATOM + "0" + sp + (unrolls - 1)),
-					uni.factory().tuple(TemporalTranslator.STATEATOM + (steps - 1) + sp + (unrolls - 1)));
-			newBounds.bound(TemporalTranslator.LOOP, tupleSetTime_unr_last);
-
-			TupleSet trace_unr_u = uni.factory().noneOf(2);
-			TupleSet trace_unr_l = uni.factory().noneOf(2);
-			for (int i = 0; i < steps - 1; i++) // add the prefix to lower
-				trace_unr_l.add(uni.factory().tuple(TemporalTranslator.STATEATOM + i + sp + 0,
-						TemporalTranslator.STATEATOM + (i + 1) + sp + 0));
-			for (int j = 0; j < unrolls; j++) {
-				for (int i = 0; i < steps - 1; i++) // add the successor in non-loop
-					trace_unr_u.add(uni.factory().tuple(TemporalTranslator.STATEATOM + i + sp + j,
-							TemporalTranslator.STATEATOM + (i + 1) + sp + j));
-				if (j < unrolls - 1)
-					for (int k = 0; k < steps; k++) // add the possible successors in loop
-						trace_unr_u.add(uni.factory().tuple(TemporalTranslator.STATEATOM + (steps - 1) + sp + j,
-								TemporalTranslator.STATEATOM + k + sp + (j + 1)));
-			}
-			newBounds.bound(TemporalTranslator.PREFIX, trace_unr_l, trace_unr_u);
-
-			if (unrolls > 1) { // otherwise no need for unrolls
-				TupleSet unrollMap = uni.factory().noneOf(2);
-				for (int i = 0; i < steps; i++) {
-					unrollMap.add(uni.factory().tuple(new Object[] { TemporalTranslator.STATEATOM + i + sp + 0,
-							TemporalTranslator.STATEATOM + i + sp + 0 }));
-					for (int j = 1; j < unrolls; j++)
-						unrollMap.add(uni.factory().tuple(new Object[] { TemporalTranslator.STATEATOM + i + sp + j,
-								TemporalTranslator.STATEATOM + i + sp + 0 }));
-				}
-				newBounds.bound(TemporalTranslator.UNROLL_MAP, unrollMap, unrollMap);
-			}
-
-		} else {
-			newBounds.boundExactly(TemporalTranslator.FIRST,
-					uni.factory().setOf(uni.factory().tuple(TemporalTranslator.STATEATOM + "0")));
-			newBounds.boundExactly(TemporalTranslator.LAST,
-					uni.factory().setOf(uni.factory().tuple(TemporalTranslator.STATEATOM + "" + steps)));
-
-			tupleSetTime_unr_first = uni.factory().range(uni.factory().tuple(TemporalTranslator.STATEATOM + "0"),
-					uni.factory().tuple(TemporalTranslator.STATEATOM + steps));
-			newBounds.boundExactly(TemporalTranslator.STATE, tupleSetTime_unr_first);
-
-			TupleSet trace_unr_l = uni.factory().noneOf(2);
-			for (int i = 0; i < steps; i++) // add the prefix to lower
-				trace_unr_l.add(
-						uni.factory().tuple(TemporalTranslator.STATEATOM + i, TemporalTranslator.STATEATOM + (i + 1)));
-			newBounds.boundExactly(TemporalTranslator.PREFIX, trace_unr_l);
-
-			newBounds.boundExactly(TemporalTranslator.L_FIRST,
-					uni.factory().setOf(uni.factory().tuple(TemporalTranslator.LEVEL + "0")));
-			newBounds.boundExactly(TemporalTranslator.L_LAST,
-					uni.factory().setOf(uni.factory().tuple(TemporalTranslator.LEVEL + "" + (unrolls - 1))));
-
-			TupleSet tupleSetTime_lvl = uni.factory().range(uni.factory().tuple(TemporalTranslator.LEVEL + "0"),
-					uni.factory().tuple(TemporalTranslator.LEVEL + "" + (unrolls - 1)));
-			newBounds.boundExactly(TemporalTranslator.LEVEL, tupleSetTime_lvl);
-
-			TupleSet trace_lvl = uni.factory().noneOf(2);
-			for (int i = 0; i < unrolls - 1; i++) // add the prefix to lower
-				trace_lvl.add(uni.factory().tuple(TemporalTranslator.LEVEL + "" + i,
-						TemporalTranslator.LEVEL + "" + (i + 1)));
-			newBounds.boundExactly(TemporalTranslator.L_PREFIX, trace_lvl);
-
-			TupleSet tupleSetTime_unr_last = uni.factory().range(
-					uni.factory().tuple(TemporalTranslator.STATEATOM + "1"),
-					uni.factory().tuple(TemporalTranslator.STATEATOM + steps));
-			newBounds.bound(TemporalTranslator.LOOP, tupleSetTime_unr_last);
-		}
+		for (Relation r : expansion.trace.relations())
+			newBounds.bound(r, expansion.trace.lowerBound(r), expansion.trace.upperBound(r));
+		final TupleSet tupleSetTime_unr_first = expansion.time;
 
 		for (Relation r : bounds.relations()) {
 			TupleSet tupleSetL = convertToUniv(bounds.lowerBound(r), uni);
@@ -237,7 +281,7 @@ public class TemporalBoundsExpander {
 		newBounds.integration = bounds.integration;
 
 		if (bounds.amalgamated() != null) {
-			PardinusBounds newAmalg = expand(bounds.amalgamated(), uni, steps, unrolls);
+			PardinusBounds newAmalg = expand(bounds.amalgamated(), expansion);
 			newBounds = new PardinusBounds(newBounds, newAmalg);
 		}
 
@@ -262,6 +306,7 @@ public class TemporalBoundsExpander {
 	public static Bounds extend(PardinusBounds tmpBounds, Bounds extBounds, int prefxLen, int traceLen, TemporalInstance inst) {
 		if (!TemporalTranslator.ExplicitUnrolls)
 			throw new UnsupportedOperationException();
+		// the i-th atom of the expanded universe is the i-th state of the first unroll
 		Universe u = extBounds.universe();
 		for (Relation r : tmpBounds.relations()) {
 			if (r.isVariable()) {
@@ -270,7 +315,7 @@ public class TemporalBoundsExpander {
 				TupleSet low = u.factory().noneOf(r.arity()+1);
 				for (i = 0; i < traceLen && i < prefxLen; i++) {
 					Evaluator eval = new Evaluator(inst);
-					TupleSet time = u.factory().setOf(TemporalTranslator.STATEATOM + i + TemporalTranslator.STATE_SEP + 0);
+					TupleSet time = u.factory().setOf(u.factory().tuple(1, i));
 					TupleSet ts = eval.evaluate(r,i);
 					low.addAll(convertToUniv(ts,u).product(time));
 					upp.addAll(convertToUniv(ts,u).product(time));
@@ -279,7 +324,7 @@ public class TemporalBoundsExpander {
 					TupleSet tupleSetL = convertToUniv(tmpBounds.lowerBound(r), u);
 					TupleSet tupleSetU = convertToUniv(tmpBounds.upperBound(r), u);
 
-					TupleSet time = u.factory().setOf(TemporalTranslator.STATEATOM + i + TemporalTranslator.STATE_SEP + 0);
+					TupleSet time = u.factory().setOf(u.factory().tuple(1, i));
 
 					low.addAll(tupleSetL.product(time));
 					upp.addAll(tupleSetU.product(time));
@@ -312,6 +357,7 @@ public class TemporalBoundsExpander {
 	public static Bounds extend(PardinusBounds tmpBounds, Bounds extBounds, int prefxLen, int traceLen, TemporalInstance inst, Map<Relation,TupleSet> excepts) {
 		if (!TemporalTranslator.ExplicitUnrolls)
 			throw new UnsupportedOperationException();
+		// the i-th atom of the expanded universe is the i-th state of the first unroll
 		Universe u = extBounds.universe();
 		Evaluator eval = new Evaluator(inst);
 		for (Relation r : tmpBounds.relations()) {
@@ -322,7 +368,7 @@ public class TemporalBoundsExpander {
 				TupleSet upp = u.factory().noneOf(r.arity()+1);
 				TupleSet low = u.factory().noneOf(r.arity()+1);
 				for (i = 0; i < traceLen-1 && i < prefxLen-1; i++) {
-					TupleSet time = u.factory().setOf(TemporalTranslator.STATEATOM + i + TemporalTranslator.STATE_SEP + 0);
+					TupleSet time = u.factory().setOf(u.factory().tuple(1, i));
 					TupleSet ts = eval.evaluate(r,i);
 					low.addAll(convertToUniv(ts,u).product(time));
 					upp.addAll(convertToUniv(ts,u).product(time));
@@ -330,11 +376,11 @@ public class TemporalBoundsExpander {
 				
 				if (i < traceLen && i < prefxLen) {
 					if (excepts.containsKey(r)) {
-						TupleSet time = u.factory().setOf(TemporalTranslator.STATEATOM + i + TemporalTranslator.STATE_SEP + 0);
+						TupleSet time = u.factory().setOf(u.factory().tuple(1, i));
 						low.addAll(convertToUniv(excepts.get(r),u).product(time));
 						upp.addAll(convertToUniv(excepts.get(r),u).product(time));
 					} else {
-						TupleSet time = u.factory().setOf(TemporalTranslator.STATEATOM + i + TemporalTranslator.STATE_SEP + 0);
+						TupleSet time = u.factory().setOf(u.factory().tuple(1, i));
 						TupleSet ts = eval.evaluate(r,i);
 						low.addAll(convertToUniv(ts,u).product(time));
 						upp.addAll(convertToUniv(ts,u).product(time));
@@ -342,7 +388,7 @@ public class TemporalBoundsExpander {
 					i++;
 				}
 				for (; i < traceLen; i++) {
-					TupleSet time = u.factory().setOf(TemporalTranslator.STATEATOM + i + TemporalTranslator.STATE_SEP + 0);
+					TupleSet time = u.factory().setOf(u.factory().tuple(1, i));
 
 					low.addAll(tupleSetL.product(time));
 					upp.addAll(tupleSetU.product(time));
@@ -390,7 +436,13 @@ public class TemporalBoundsExpander {
 	static public Universe expandUniverse(Universe oldUniverse, int steps, int unrolls) {
 		if (unrolls < 1 || steps < 1)
 			throw new IllegalArgumentException("Number of unrolls or steps <1.");
+		return expansion(oldUniverse, steps, unrolls).universe;
+	}
 
+	/**
+	 * Creates the universe returned by {@link #expandUniverse(Universe, int, int)}.
+	 */
+	private static Universe createUniverse(Universe oldUniverse, int steps, int unrolls) {
 		List<Object> newAtoms = new ArrayList<Object>();
 
 		if (TemporalTranslator.ExplicitUnrolls) {
@@ -419,25 +471,36 @@ public class TemporalBoundsExpander {
 
 	/**
 	 * Converts an existing tuple set into an identical tuple set with a different
-	 * universe.
+	 * universe. The tuples are converted by index arithmetic, looking up each atom
+	 * of the old universe in the new universe at most once.
 	 * 
 	 * @param tset
 	 *            the existing tuple set from the old universe.
 	 * @param universe
 	 *            the new universe.
 	 * @return the converted tuple set.
+	 * @throws IllegalArgumentException
+	 *             some atom of tset is not in universe.
 	 */
 	static public TupleSet convertToUniv(TupleSet tset, Universe universe) {
-		TupleSet tupleSet = universe.factory().noneOf(tset.arity());
-		Iterator<Tuple> itr = tset.iterator();
-		while (itr.hasNext()) {
-			Tuple t = itr.next();
-			List<Object> l = new ArrayList<Object>();
-			for (int i = 0; i < t.arity(); i++)
-				l.add(t.atom(i));
-			tupleSet.add(universe.factory().tuple(l));
+		final Universe old = tset.universe();
+		if (old == universe)
+			return tset.clone();
+		final int arity = tset.arity(), oldSize = old.size(), newSize = universe.size();
+		final int[] atoms = new int[oldSize];
+		Arrays.fill(atoms, -1);
+		final IntSet indices = Ints.bestSet((int) StrictMath.pow(newSize, arity));
+		for (IntIterator itr = tset.indexView().iterator(); itr.hasNext();) {
+			int index = 0;
+			for (int t = itr.next(), i = 0, base = 1; i < arity; i++, t /= oldSize, base *= newSize) {
+				final int atom = t % oldSize;
+				if (atoms[atom] < 0)
+					atoms[atom] = universe.index(old.atom(atom));
+				index += atoms[atom] * base;
+			}
+			indices.add(index);
 		}
-		return tupleSet;
+		return universe.factory().setOf(arity, indices);
 	}
 
 }
\ No newline at end of file
@@ -122,6 +122,8 @@ public class TemporalTranslator {
 	public final int past_depth;
 	/** Map logging the translation of temporal formulas, from resulting formula to original one. **/
 	public final Map<Formula,Formula> tempTransLog = new HashMap<Formula,Formula>();
+	/** The static version of the temporal formula, translated on demand. **/
+	private Formula translated;
 	
 	/**
 	 * Constructs a new temporal translator to expand temporal formulas and variable
@@ -184,11 +186,17 @@ public class TemporalTranslator {
 	 * 
 	 * @see LTL2FOLTranslator
 	 * 
+	 * The translation does not depend on the trace length, so it is computed
+	 * once and shared by every expansion of the bounds.
+	 * 
 	 * @return the static version of the temporal formula.
 	 */
 	public Formula translate() {
-		tempTransLog.clear();
-		return LTL2FOLTranslator.translate(formula, 0, past_depth > 1, tempTransLog);
+		if (translated == null) {
+			tempTransLog.clear();
+			translated = LTL2FOLTranslator.translate(formula, 0, past_depth > 1, tempTransLog);
+		}
+		return translated;
 	}
 
 	/**
@@ -0,0 +1,50 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.satlab;
+
+/**
+ * Provides an interface to incremental SAT solvers that can solve their 
+ * clauses under a set of assumptions.  Unlike a false outcome of 
+ * {@link #solve()}, a false outcome of {@link #solve(int[])} may be due 
+ * to the assumptions alone, so the solver remains usable:  clauses can
+ * be added to it and it can be called again, with or without assumptions.
+ * 
+ * @author Nuno Macedo // [HASLab] incremental scopes
+ */
+public interface AssumptionSATSolver extends SATSolver {
+
+	/**
+	 * Returns true if there is a satisfying assignment for this.clauses
+	 * in which all of the given literals are true.  Otherwise returns false.  
+	 * If this.clauses are satisfiable under the given assumptions, the 
+	 * satisfying assignment for a given variable can be obtained by calling 
+	 * {@link #valueOf(int)}.  No reference to the specified array is kept, 
+	 * and its contents are not modified.
+	 * @requires all i: [0..assumptions.length) | abs(assumptions[i]) in this.variables 
+	 * @return true if this.clauses && assumptions are satisfiable; otherwise false.
+	 * @throws SATAbortedException - the call to solve was cancelled or
+	 * could not terminate normally.
+	 */
+	public abstract boolean solve(int[] assumptions) throws SATAbortedException;
+	
+}
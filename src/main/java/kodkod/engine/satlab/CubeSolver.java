@@ -0,0 +1,366 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.satlab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kodkod.util.ints.IntIterator;
+import kodkod.util.ints.IntSet;
+
+/**
+ * A cube-and-conquer solver. When {@link #solve()} is called, a few
+ * splitting variables are chosen, and one cube is generated for each
+ * assignment to these variables. The cubes are solved in parallel, and
+ * solving stops at the first satisfiable cube.
+ * 
+ * <p>
+ * Each thread owns a replica of the problem, created by a base factory
+ * that must produce {@link AssumptionSATSolver assumption solvers}, as
+ * checked by {@link SATFactory#cubes(SATFactory, int)}. The
+ * replicas persist across calls to {@link #solve()}: the clauses added to
+ * this solver are buffered and handed to every replica at the next call,
+ * and each cube is solved as a set of assumptions, so that the replicas keep
+ * their learned clauses from cube to cube. Once a satisfiable cube is found,
+ * the threads solving the remaining cubes are interrupted, which aborts the
+ * search of replicas that support it.
+ * </p>
+ * 
+ * <p>
+ * Splitting variables are chosen among the groups of variables given to
+ * {@link #prioritize(Collection)} (for instance, the primary variables of
+ * each relation), preferring the groups whose variables occur most often in
+ * the clauses, and within each group the variables that occur most often.
+ * If no groups are given, any variable may be chosen.
+ * </p>
+ * 
+ * @specfield base: SATFactory
+ * @specfield threads: int
+ * @author Nuno Macedo // [HASLab] cube-and-conquer solving
+ */
+public final class CubeSolver implements SATSolver {
+	private final SATFactory base;
+	private final int threads;
+	private final AssumptionSATSolver[] replicas;
+	private final List<int[]> buffered;
+	private int[] occurrences;
+	private List<IntSet> groups;
+	private int vars, clauses;
+	private AssumptionSATSolver model;
+	private Boolean sat;
+
+	/**
+	 * Constructs a cube-and-conquer solver that solves cubes on the given
+	 * number of threads, with replicas produced by the given factory.
+	 * 
+	 * @requires threads > 0
+	 */
+	CubeSolver(SATFactory base, int threads) {
+		this.base = base;
+		this.threads = threads;
+		this.replicas = new AssumptionSATSolver[threads];
+		this.buffered = new ArrayList<int[]>();
+		this.occurrences = new int[1];
+		this.vars = this.clauses = 0;
+	}
+
+	/**
+	 * Sets the groups of variables among which the splitting variables are
+	 * chosen.
+	 * 
+	 * @ensures this.groups' = groups
+	 */
+	public void prioritize(Collection<IntSet> groups) {
+		this.groups = new ArrayList<IntSet>(groups);
+	}
+
+	/**
+	 * Returns the number of splitting variables used for this.threads:
+	 * enough to generate about four cubes per thread.
+	 * 
+	 * @return the number of splitting variables
+	 */
+	int depth() {
+		return 34 - Integer.numberOfLeadingZeros(threads - 1 | 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#numberOfVariables()
+	 */
+	public int numberOfVariables() {
+		return vars;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#numberOfClauses()
+	 */
+	public int numberOfClauses() {
+		return clauses;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#addVariables(int)
+	 */
+	public void addVariables(int numVars) {
+		if (numVars < 0)
+			throw new IllegalArgumentException("numVars < 0: " + numVars);
+		vars += numVars;
+		if (occurrences.length <= vars)
+			occurrences = Arrays.copyOf(occurrences, Math.max(vars + 1, occurrences.length * 2));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#addClause(int[])
+	 */
+	public boolean addClause(int[] lits) {
+		if (Boolean.FALSE.equals(sat))
+			return false;
+		buffered.add(lits.clone());
+		for (int lit : lits)
+			occurrences[Math.abs(lit)]++;
+		clauses++;
+		sat = null;
+		return true;
+	}
+
+	/**
+	 * Returns the splitting variables, ordered by priority.
+	 */
+	private int[] split() {
+		final List<int[]> candidates = new ArrayList<int[]>();
+		if (groups == null) {
+			final int[] all = new int[vars];
+			for (int i = 0; i < vars; i++)
+				all[i] = i + 1;
+			candidates.add(all);
+		} else {
+			final List<long[]> ranked = new ArrayList<long[]>();
+			for (int g = 0; g < groups.size(); g++) {
+				long score = 0;
+				for (IntIterator itr = groups.get(g).iterator(); itr.hasNext();) {
+					final int v = itr.next();
+					if (v > 0 && v <= vars)
+						score += occurrences[v];
+				}
+				ranked.add(new long[] { score, g });
+			}
+			ranked.sort((a, b) -> Long.compare(b[0], a[0]));
+			for (long[] r : ranked)
+				candidates.add(groups.get((int) r[1]).toArray());
+		}
+		final int depth = depth();
+		final int[] split = new int[depth];
+		int size = 0;
+		for (int[] group : candidates) {
+			final List<Integer> sorted = new ArrayList<Integer>();
+			for (int v : group)
+				if (v > 0 && v <= vars && occurrences[v] > 0)
+					sorted.add(v);
+			sorted.sort((a, b) -> occurrences[b] != occurrences[a] ? occurrences[b] - occurrences[a] : a - b);
+			for (int v : sorted) {
+				if (size == depth)
+					return split;
+				split[size++] = v;
+			}
+		}
+		final int[] ret = new int[size];
+		System.arraycopy(split, 0, ret, 0, size);
+		return ret;
+	}
+
+	/**
+	 * Returns the assumptions that encode the given cube over the given
+	 * splitting variables.
+	 */
+	private static int[] cube(int[] split, int cube) {
+		final int[] assumptions = new int[split.length];
+		for (int i = 0; i < split.length; i++)
+			assumptions[i] = (cube & (1 << i)) == 0 ? -split[i] : split[i];
+		return assumptions;
+	}
+
+	/**
+	 * Hands the buffered variables and clauses over to the replica of the
+	 * given thread, creating the replica if needed.
+	 * 
+	 * @return false if the clauses are inconsistent, otherwise true
+	 */
+	private boolean update(int thread) {
+		if (replicas[thread] == null) {
+			final SATSolver replica = base.instance();
+			if (!(replica instanceof AssumptionSATSolver)) {
+				replica.free();
+				throw new IllegalStateException("Cube-and-conquer requires solvers with assumptions: " + base);
+			}
+			replicas[thread] = (AssumptionSATSolver) replica;
+		}
+		final AssumptionSATSolver replica = replicas[thread];
+		replica.addVariables(vars - replica.numberOfVariables());
+		boolean consistent = true;
+		for (int i = 0, max = buffered.size(); i < max && consistent; i++)
+			consistent = replica.addClause(buffered.get(i));
+		return consistent;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#solve()
+	 */
+	public boolean solve() throws SATAbortedException {
+		if (sat != null)
+			return sat;
+		model = null;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				final Thread t = new Thread(r, "cube");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			final List<Callable<Boolean>> updates = new ArrayList<Callable<Boolean>>(threads);
+			for (int t = 0; t < threads; t++) {
+				final int thread = t;
+				updates.add(() -> update(thread));
+			}
+			boolean consistent = true;
+			for (Future<Boolean> update : executor.invokeAll(updates))
+				consistent &= update.get();
+			buffered.clear();
+			if (consistent)
+				model = conquer(executor);
+		} catch (InterruptedException e) {
+			throw new SATAbortedException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new SATAbortedException(e.getCause());
+		} finally {
+			stop(executor);
+		}
+		sat = model != null;
+		return sat;
+	}
+
+	/**
+	 * Solves the cubes on the replicas, each thread taking the next unsolved
+	 * cube until a satisfiable one is found or every cube is solved.
+	 * 
+	 * @return the replica that found a satisfiable cube, if any
+	 */
+	private AssumptionSATSolver conquer(ExecutorService executor)
+			throws InterruptedException, ExecutionException {
+		final int[] split = split();
+		final int n = 1 << split.length;
+		final AtomicInteger next = new AtomicInteger(0);
+		final AtomicBoolean found = new AtomicBoolean(false);
+		final CompletionService<AssumptionSATSolver> cubes = new ExecutorCompletionService<AssumptionSATSolver>(executor);
+		for (int t = 0; t < threads; t++) {
+			final AssumptionSATSolver replica = replicas[t];
+			cubes.submit(() -> {
+				for (int cube = next.getAndIncrement(); cube < n && !found.get(); cube = next.getAndIncrement())
+					if (replica.solve(cube(split, cube)) && !found.getAndSet(true))
+						return replica;
+				return null;
+			});
+		}
+		try {
+			AssumptionSATSolver ret = null;
+			for (int t = 0; t < threads && ret == null; t++)
+				ret = cubes.take().get();
+			return ret;
+		} finally {
+			found.set(true);
+		}
+	}
+
+	/**
+	 * Interrupts the threads of the given executor and waits for them to
+	 * terminate, so that the replicas are no longer in use.
+	 */
+	private static void stop(ExecutorService executor) {
+		executor.shutdownNow();
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (executor.awaitTermination(1, TimeUnit.SECONDS))
+					break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#valueOf(int)
+	 */
+	public boolean valueOf(int variable) {
+		if (!Boolean.TRUE.equals(sat))
+			throw new IllegalStateException();
+		if (variable < 1 || variable > vars)
+			throw new IllegalArgumentException(variable + " !in [1.." + vars + "]");
+		return model.valueOf(variable);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#free()
+	 */
+	public synchronized void free() {
+		for (int t = 0; t < threads; t++) {
+			if (replicas[t] != null)
+				replicas[t].free();
+			replicas[t] = null;
+		}
+		model = null;
+		buffered.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "cubes(" + base + ", " + threads + ")";
+	}
+}
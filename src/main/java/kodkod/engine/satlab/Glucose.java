@@ -25,6 +25,7 @@ package kodkod.engine.satlab;
  * Java wrapper for the Glucose solver by G. Audemard and L. Simon.
  * 
  * @author Emina Torlak
+ * @author Nuno Macedo // [HASLab] solver pooling
  */
 final class Glucose extends NativeSolver {
 
@@ -57,6 +58,13 @@ final class Glucose extends NativeSolver {
 	 */
 	native void free(long peer);
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.NativeSolver#reset(long)
+	 */
+	// [HASLab] solver pooling
+	native long reset(long peer);
+	
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.NativeSolver#addVariables(long, int)
@@ -21,42 +21,58 @@
  */
 package kodkod.engine.satlab;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-import kodkod.util.collections.Containers;
 import kodkod.util.ints.IntBitSet;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
 import kodkod.util.ints.Ints;
+import kodkod.util.ints.SparseSequence;
+import kodkod.util.ints.TreeSequence;
 
 /**
- * An array-backed implementation of the {@linkplain ResolutionTrace} interface.
- * Resolvent literals are computed on-demand, and only the resolvents reachable
- * from the conflict clause are stored.
+ * A buffer-backed implementation of the {@linkplain ResolutionTrace} interface.
+ * The trace is encoded compactly in a single byte buffer, which is
+ * memory-mapped to a temporary file if its size exceeds the number of bytes given by the
+ * <tt>kodkod.tracespill</tt> system property. Resolvent literals are computed on-demand, 
+ * and only the resolvents reachable from the conflict clause are stored.
  * 
  * @author Emina Torlak
  */
 final class LazyTrace implements ResolutionTrace {
-	/* The trace array encodes the resolution trace as follows.
-	 * The first <tt>axioms</tt> entries in the trace array contain
-	 * the literals of the clauses added to the prover, in the order
-	 * in which they were added.  The remaining entries encode the
-	 * resolvents as follows.   Let i >= <tt>axioms</tt>
-	 * represent the ith resolvent.  If resolved.contains(i-axioms), then trace[i][0] 
-	 * contains the number of the resolvent's antecedents; trace[i][1..trace[i][0]] 
-	 * contains the indices of the resolvent's antecedents in the trace;
-	 * and trace[i][trace[i][0]+1..trace[i].length-1] contains the literals of the ith resolvent.
-	 * Otherwise, the literals for the given resolvent have not yet been computed so 
-	 * trace[i][0..trace[i].length-1] contains the indices of the resolvent's antecedents.  
+	/* The data buffer encodes the resolution trace as follows.  The first 
+	 * 4*(size+1) bytes contain the offsets, in the buffer, of the trace 
+	 * elements:  the ith element is stored in data[offset(i)..offset(i+1)).  
+	 * The first <tt>axioms</tt> elements are the clauses added to the prover,
+	 * in the order in which they were added.  The remaining elements are the 
+	 * resolvents.  Each element is a sequence of unsigned varints, with 
+	 * 7 bits per byte and the high bit set in all but the last byte of a value.
+	 * An axiom is encoded as the sequence of its literals, sorted in the increasing
+	 * order of absolute values, where the literal l following the literal p is encoded 
+	 * as ((|l|-|p|) << 1) | (l < 0 ? 1 : 0), and the first literal l is encoded as 
+	 * (|l| << 1) | (l < 0 ? 1 : 0).  The ith resolvent is encoded as the sequence of
+	 * i-a, for each of its antecedents a.
 	 * 
-	 * All computed and axiom literals are sorted in the increasing order of absolute values. 
-	 * All antecedents of a given resolvent  precede it in the trace,
+	 * All computed literals are sorted in the increasing order of absolute values, 
+	 * and stored in the computed sequence, at the index of their resolvent.
+	 * All antecedents of a given resolvent precede it in the trace,
 	 * and the conflict clause should be the last trace element.
 	 */
-	private final int[][] trace;
-	private final int axioms;
-	private final IntSet core, resolved;
+	private static final long SPILL = Long.getLong("kodkod.tracespill", Long.MAX_VALUE);
+	private static final int[] EMPTY = new int[0];
+	
+	private final ByteBuffer data;
+	private final int size, axioms;
+	private final IntSet core;
+	private final SparseSequence<int[]> computed;
 	
 	/**
 	 * Constructs a resolution trace view for the given raw trace.
@@ -70,54 +86,69 @@ final class LazyTrace implements ResolutionTrace {
 	 * All antecedents of a given resolvent should precede it in the trace,
 	 * and the conflict clause should be the last trace element.
 	 * 
-     * <p><b>Note: </b> the given array's contents must not be modified while
-     * in use by this resolution trace object.</p>
+     * <p><b>Note: </b> the given array is not referenced by this trace once
+     * the constructor returns.</p>
 	 */
 	LazyTrace(int[][] trace, int axioms) {
-		this.axioms = axioms;
+		this(Builder.of(trace, axioms), SPILL);
+	}
+	
+	/**
+	 * Constructs a resolution trace view for the raw trace recorded by the given builder.
+	 * @requires some raw.count && the last element of the raw trace is the conflict clause
+	 */
+	LazyTrace(Builder raw) {
+		this(raw, SPILL);
+	}
+	
+	/**
+	 * Constructs a resolution trace view for the raw trace recorded by the given builder. 
+	 * The encoding is memory-mapped to a temporary file if its size exceeds the given 
+	 * number of bytes.
+	 * @requires some raw.count && the last element of the raw trace is the conflict clause
+	 */
+	LazyTrace(Builder raw, long spill) {
+		this.axioms = raw.axioms;
 		
 		// find all the clauses that are reachable from the conflict
-		final IntSet reachable = reachable(trace, axioms);
+		final IntSet reachable = raw.reachable();
 		
-		// get the core clauses
-		this.core = core(reachable, axioms);
-		
-		// trim the trace so that it contains all axioms but only those resolvents that are reachable from the conflict
-		this.trace = compress(trace, axioms, reachable, core);
+		// get the core clauses and the position of each element in the encoded trace; 
+		// all axioms are kept but only those resolvents that are reachable from the conflict
+		final int[] position = new int[raw.count];
+		final IntSet core = new IntBitSet(axioms);
+		int next = axioms;
+		for(int i = 0, axiomIndex = 0; i < raw.count; i++) {
+			if (raw.resolvent(i)) {
+				if (reachable.contains(i))
+					position[i] = next++;
+			} else {
+				if (reachable.contains(i))
+					core.add(axiomIndex);
+				position[i] = axiomIndex++;
+			}
+		}
+		this.core = Ints.unmodifiableIntSet(core);
+		this.size = next;
+		this.data = raw.encode(reachable, position, size, spill);
 		
 		// we haven't computed any resolvent literals yet ...
-		this.resolved = new IntBitSet(this.trace.length-axioms);
+		this.computed = new TreeSequence<int[]>();
 	}
 	
-	
 	/**
 	 * Constructs a resolution trace from the given subtrace and partial
 	 * trace. This constructor assumes that <tt>partial</tt> is the result 
 	 * of solving the subtrace of the <tt>original</tt> trace that is given by the
 	 * specified set of indices.  The first indices.size() of the partial
-	 * trace are assumed to represent the clauses given by original.trace[indices],
+	 * trace are assumed to be empty and to represent the clauses given by original.trace[indices],
 	 * in the increasing order of indices; the remaining entries should encode
 	 * the resolvents computed from original.trace[indices], as specified by 
 	 * {@linkplain #LazyTrace(int[][], int)}. The given subtrace of the original 
 	 * trace must be self-contained, i.e. original.reachable(indices).equals(indices). 
-	 * 
-	 * <p><b>Note: </b> the given array's contents must not be modified while
-     * in use by this resolution trace object.</p>
 	 */
 	LazyTrace(LazyTrace original, IntSet indices, int[][] partial) {
-		this.axioms = reconstruct(original, indices, partial);
-		
-		// find all the clauses that are reachable from the conflict
-		final IntSet reachable = reachable(partial, axioms);
-		
-		// get the core clauses
-		this.core = core(reachable, axioms);
-		
-		// trim the trace so that it contains all axioms but only those resolvents that are reachable from the conflict
-		this.trace = compress(partial, axioms, reachable, core);
-		
-		// we haven't computed any resolvent literals yet ...
-		this.resolved = new IntBitSet(this.trace.length-axioms);
+		this(partial, reconstruct(original, indices, partial));
 	}
 	
 	/**
@@ -125,27 +156,25 @@ final class LazyTrace implements ResolutionTrace {
 	 * corresponding clauses from the original trace and returns the number of axioms
 	 * in the reconstructed trace.  
 	 * @requires original, indices, and partial are as specified by {@linkplain #LazyTrace(LazyTrace, IntSet, int[][])} constructor
-	 * @ensures modifies partial so that it conforms to the {@linkplain #trace LazyTrace.trace} spec
-	 * using the provided original trace and indices.
+	 * @ensures modifies partial so that it conforms to the raw trace spec of 
+	 * {@linkplain #LazyTrace(int[][], int)} using the provided original trace and indices.
 	 * @return number of axioms in the modified partial trace
 	 */
 	private static int reconstruct(LazyTrace original, IntSet indices, int[][] partial) { 
 		int axiomCount = indices.size();
-		// fill the partial[0..indices.size()-1] with the corresponding clauses from original.trace[indices]
-		final int[][] originalTrace = original.trace;	
+		// fill the partial[0..indices.size()-1] with the corresponding clauses from original[indices]
 		final int[] position = new int[indices.max()+1];
 
 		IntIterator itr = indices.iterator();
 		for(int i = 0, length = indices.size(); i < length; i++) {
 			int index = itr.next();
 			position[index] = i;
-			if (original.axiom(index)) { // just set the ith pointer to original literals
-				partial[i] = originalTrace[index];
-			} else { // copy the resolvent and adjust copy's antecedent indices
-				int antes = originalTrace[index][0];
-				int[] resolvent = new int[antes];
-				for(int j = 0; j < antes; j++) {
-					resolvent[j] = position[originalTrace[index][j+1]];
+			if (original.axiom(index)) { 
+				partial[i] = original.literals(index);
+			} else { // adjust the antecedent indices of the resolvent
+				int[] resolvent = original.antecedents(index);
+				for(int j = 0; j < resolvent.length; j++) {
+					resolvent[j] = position[resolvent[j]];
 				}
 				partial[i] = resolvent;
 				axiomCount--;
@@ -154,100 +183,312 @@ final class LazyTrace implements ResolutionTrace {
 		
 		return axiomCount;
 	}
-
+	
 	/**
-	 * Returns the indices of all clauses in the given trace that are 
-	 * reachable from the conflict clause through the resolvents
-	 * in trace[roots..trace.length-1].  This method assumes that 
-	 * that the last trace[roots..trace.length-1] clauses encode 
-	 * resolvents as specified by the
-	 * {@linkplain #LazyTrace(int[][], int)} constructor.
-	 * @return indices of all clauses in the given trace that are 
-	 * reachable from the conflict clause through the resolvents in
-	 * trace[roots..trace.length-1]
-	 */
-	private static IntSet reachable(int[][] trace, int roots) { 
-		final IntSet reachable = new IntBitSet(trace.length);
-		reachable.add(trace.length-1);
-		for(int i = trace.length-1; i >= roots; i--) {
-			if (reachable.contains(i)) {
-				int[] resolvent = trace[i];
-				for(int j = 0; j < resolvent.length; j++) {
-					reachable.add(resolvent[j]);
+	 * Returns the number of bytes needed to encode the given value as an unsigned varint.
+	 * @return number of bytes needed to encode the given value as an unsigned varint
+	 */
+	private static int varintSize(int value) {
+		int bytes = 1;
+		while((value & ~0x7F) != 0) { 
+			value >>>= 7;
+			bytes++;
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Writes the given value to the given buffer as an unsigned varint. 
+	 * @ensures writes the given value to the given buffer as an unsigned varint, 
+	 * at buffer.position, and advances the position past it.
+	 */
+	private static void putVarint(ByteBuffer buffer, int value) {
+		while((value & ~0x7F) != 0) { 
+			buffer.put((byte)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+	
+	/**
+	 * Returns the varint encoding of the given literal, which follows the given previous literal 
+	 * in an axiom (or 0 if it is the first literal).
+	 * @requires abs(prev) < abs(lit)
+	 * @return ((abs(lit) - abs(prev)) << 1) | (lit < 0 ? 1 : 0)
+	 */
+	private static int literalCode(int prev, int lit) {
+		assert StrictMath.abs(prev) < StrictMath.abs(lit);
+		return ((StrictMath.abs(lit) - StrictMath.abs(prev)) << 1) | (lit >>> 31);
+	}
+	
+	/**
+	 * Records a raw resolution trace as it is produced by a prover, so that the trace 
+	 * is never materialized as an array of clauses.  The elements of the raw trace are 
+	 * numbered in the order in which they are added; axioms and resolvents may be 
+	 * interleaved, and the antecedents of a resolvent are given by their numbers.  
+	 * Each element is stored as soon as it is added, as a sequence of unsigned varints:  
+	 * an axiom is encoded as in {@linkplain LazyTrace#data}, and the ith element, if it is 
+	 * a resolvent, as the sequence of i-a, for each of its antecedents a.
+	 * @specfield count: int
+	 * @specfield axioms: int
+	 */
+	static final class Builder {
+		private byte[] bytes = new byte[1024];
+		private int length = 0;
+		// the ith element is stored in bytes[starts[i]..starts[i+1]), with starts[count] = length
+		private int[] starts = new int[256];
+		private final BitSet resolvents = new BitSet();
+		private int count = 0, axioms = 0;
+		
+		/**
+		 * Returns a builder that records the given raw trace, as specified by {@linkplain LazyTrace#LazyTrace(int[][], int)}.
+		 * @return a builder that records the given raw trace
+		 */
+		static Builder of(int[][] trace, int axioms) {
+			final Builder raw = new Builder();
+			for(int i = 0; i < trace.length; i++) {
+				if (i < axioms) raw.axiom(trace[i]);
+				else raw.resolvent(trace[i]);
+			}
+			return raw;
+		}
+		
+		/**
+		 * Adds the axiom with the given literals to the raw trace.
+		 * @requires lits are sorted in the increasing order of absolute values
+		 * @ensures this.count' = this.count + 1 && this.axioms' = this.axioms + 1
+		 */
+		void axiom(int[] lits) {
+			for(int j = 0, prev = 0; j < lits.length; prev = lits[j++]) {
+				put(literalCode(prev, lits[j]));
+			}
+			end();
+			axioms++;
+		}
+		
+		/**
+		 * Adds the resolvent of the elements with the given numbers to the raw trace.
+		 * @requires all a: antecedents[int] | 0 <= a < this.count
+		 * @ensures this.count' = this.count + 1
+		 */
+		void resolvent(int[] antecedents) {
+			for(int ante : antecedents) {
+				assert 0 <= ante && ante < count;
+				put(count - ante);
+			}
+			resolvents.set(count);
+			end();
+		}
+		
+		/**
+		 * Appends the given value, as an unsigned varint, to the element being added.
+		 */
+		private void put(int value) {
+			if (length + 5 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, StrictMath.max(length + 5, bytes.length * 2));
+			}
+			while((value & ~0x7F) != 0) { 
+				bytes[length++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte)value;
+		}
+		
+		/**
+		 * Ends the element being added.
+		 */
+		private void end() {
+			if (count + 2 > starts.length) {
+				starts = Arrays.copyOf(starts, starts.length * 2);
+			}
+			starts[++count] = length;
+		}
+		
+		/**
+		 * Returns true if the ith element is a resolvent.
+		 * @return true if the ith element is a resolvent
+		 */
+		boolean resolvent(int i) { return resolvents.get(i); }
+		
+		/**
+		 * Returns the numbers of the antecedents of the ith element.
+		 * @requires resolvent(i)
+		 * @return numbers of the antecedents of the ith element
+		 */
+		private int[] antecedents(int i) {
+			final int from = starts[i], to = starts[i+1];
+			int count = 0;
+			for(int k = from; k < to; k++) {
+				if (bytes[k] >= 0) count++;
+			}
+			final int[] antes = new int[count];
+			for(int k = from, j = 0; j < count; j++) {
+				int value = 0;
+				for(int shift = 0; ; shift += 7) {
+					final byte b = bytes[k++];
+					value |= (b & 0x7F) << shift;
+					if (b >= 0) break;
+				}
+				antes[j] = i - value;
+			}
+			return antes;
+		}
+		
+		/**
+		 * Returns the numbers of all elements that are reachable from the 
+		 * conflict clause, i.e. the last element.
+		 * @return numbers of all elements that are reachable from the conflict clause
+		 */
+		IntSet reachable() {
+			final IntSet reachable = new IntBitSet(count);
+			reachable.add(count-1);
+			for(int i = count-1; i >= 0; i--) {
+				if (resolvent(i) && reachable.contains(i)) {
+					for(int ante : antecedents(i)) {
+						reachable.add(ante);
+					}
 				}
 			}
+			return reachable;
+		}
+		
+		/**
+		 * Encodes the raw trace into a buffer that contains the same axioms as the 
+		 * raw trace but only the given reachable resolvents, with the ith element stored at 
+		 * position[i].  The buffer is memory-mapped to a temporary file if its size exceeds 
+		 * the given number of bytes.
+		 * @requires reachable.elts = reachable().elts
+		 * @requires position maps the axioms, in order, to [0..this.axioms) and the reachable 
+		 * resolvents, in order, to [this.axioms..size)
+		 * @return a new buffer, laid out as specified by {@linkplain LazyTrace#data}, that contains the same axioms as the 
+		 * raw trace but only the resolvents that are reachable from the conflict clause.
+		 */
+		ByteBuffer encode(IntSet reachable, int[] position, int size, long spill) {
+			// compute the size of the encoding; axioms are encoded as they were recorded
+			long bytes = 4L * (size+1);
+			for(int i = 0; i < count; i++) {
+				if (!resolvent(i)) {
+					bytes += starts[i+1] - starts[i];
+				} else if (reachable.contains(i)) {
+					for(int ante : antecedents(i)) {
+						bytes += varintSize(position[i] - position[ante]);
+					}
+				}
+			}
+			if (bytes > Integer.MAX_VALUE)
+				throw new IllegalStateException("resolution trace too large to encode: " + bytes + " bytes");
+			
+			// write the encoding
+			final ByteBuffer data = bytes > spill ? map((int)bytes) : ByteBuffer.allocate((int)bytes);
+			data.position(4 * (size+1));
+			for(int i = 0; i < count; i++) {
+				if (!resolvent(i)) {
+					data.putInt(4*position[i], data.position());
+					data.put(this.bytes, starts[i], starts[i+1] - starts[i]);
+				}
+			}
+			for(IntIterator itr = reachable.iterator(); itr.hasNext(); ) {
+				final int i = itr.next();
+				if (resolvent(i)) {
+					data.putInt(4*position[i], data.position());
+					for(int ante : antecedents(i)) {
+						putVarint(data, position[i] - position[ante]);
+					}
+				}
+			}
+			data.putInt(4*size, data.position());
+			return data;
 		}
-		return reachable;
 	}
 	
 	/**
-	 * Returns a set that contains the elements from the given
-	 * reachable between 0, inclusive, and axioms, exclusive.
-	 * @return a set that contains the elements from the given
-	 * reachable between 0, inclusive, and axioms, exclusive.
+	 * Returns a buffer of the given size, memory-mapped to a temporary file if possible, 
+	 * and allocated on the heap otherwise.
+	 * @return a buffer of the given size
 	 */
-	private static IntSet core(IntSet reachable, int axioms) { 
-		final IntSet core = new IntBitSet(axioms);
-		for(IntIterator itr = reachable.iterator(0, axioms-1); itr.hasNext(); ) {
-			core.add(itr.next());
+	private static ByteBuffer map(int bytes) {
+		try {
+			final File file = File.createTempFile("kodkod", ".trace");
+			file.deleteOnExit();
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+			} finally {
+				file.delete(); // the mapping remains valid
+			}
+		} catch (IOException e) {
+			return ByteBuffer.allocate(bytes);
 		}
-		return Ints.unmodifiableIntSet(core);
 	}
 	
+	/** @return the offset in this.data at which the encoding of the given trace element starts */
+	private int start(int index) { return data.getInt(index << 2); }
+	
 	/**
-	 * Compresses the given src trace into a destination trace that contains the same axioms as the 
-	 * source but only the resolvents that are reachable from the conflict clause.
-	 * @requires src and axioms are as specified by the {@linkplain #LazyTrace(int[][], int)} constructor
-	 * @requires reachable.elts = reachable(src, axioms).elts
-	 * @requires core.elts = core(reachable, axioms).elts
-	 * @ensures invalidates the contents of src; src should not be used after this method returns
-	 * @return a new trace that contains the same axioms as the 
-	 * source but only the resolvents that are reachable from the conflict clause.
-	 */
-	private static int[][] compress(int[][] src, int axioms, IntSet reachable, IntSet core) { 
-		final int[][] dest = new int[reachable.size()-core.size()+axioms][];
-		System.arraycopy(src, 0, dest, 0, axioms);
-		
-		final int[] pos = new int[src.length-axioms];
-		final IntIterator srcIdxs = reachable.iterator(axioms, src.length);
-		for(int i = axioms; srcIdxs.hasNext(); i++) { 
-			int srcIdx = srcIdxs.next();
-			pos[srcIdx-axioms] = i;
-			// move the resolvent and adjust its antecedent indices
-			int[] resolvent = src[srcIdx];
-			dest[i] = resolvent; 
-			for(int j = 0, lastAnte = resolvent.length; j < lastAnte; j++) {
-				int ante = resolvent[j];
-				resolvent[j] = ante < axioms ? ante : pos[ante-axioms];
+	 * Decodes the unsigned varints stored in this.data[from..to).
+	 * @return the unsigned varints stored in this.data[from..to)
+	 */
+	private int[] decode(int from, int to) {
+		int count = 0;
+		for(int i = from; i < to; i++) {
+			if (data.get(i) >= 0) count++;
+		}
+		final int[] values = new int[count];
+		for(int i = from, k = 0; k < count; k++) {
+			int value = 0;
+			for(int shift = 0; ; shift += 7) {
+				final byte b = data.get(i++);
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) break;
 			}
+			values[k] = value;
+		}
+		return values;
+	}
+	
+	/**
+	 * Returns the literals of the axiom at the given index.
+	 * @requires axiom(index)
+	 * @return literals of the axiom at the given index, sorted in the increasing order of absolute values
+	 */
+	private int[] literals(int index) {
+		final int[] lits = decode(start(index), start(index+1));
+		for(int j = 0, var = 0; j < lits.length; j++) {
+			final int code = lits[j];
+			var += code >>> 1;
+			lits[j] = (code & 1)==0 ? var : -var;
 		}
-		return dest;
+		return lits;
+	}
+	
+	/**
+	 * Returns the indices of the antecedents of the resolvent at the given index.
+	 * @requires !axiom(index)
+	 * @return indices of the antecedents of the resolvent at the given index
+	 */
+	private int[] antecedents(int index) {
+		final int[] antes = decode(start(index), start(index+1));
+		for(int j = 0; j < antes.length; j++) {
+			antes[j] = index - antes[j];
+		}
+		return antes;
 	}
 	
 	/**
 	 * Returns an array of integers representing the result of 
 	 * resolving the clauses c1 and c2, sorted in the increasing order
-	 * of absolute values.  The parameters axiom1 and axiom2 specify 
-	 * whether c1 and c2 encode axioms or resolvents.  In particular, 
-	 * if axiom1 (resp. axiom2) is true, then all integers in c1 (resp. c2) 
-	 * are assumed to be literals, sorted in the increasing order of absolute 
-	 * values.  If axiom1 (resp. axiom2) is false, then the integers starting 
-	 * at c1[0]+1 (resp. c2[0]+1) are assumed to be literals, sorted in the increasing
-	 * order of absolute values.   
-	 * @requires let off1 = axiom1 ? 0 : c1[0] + 1, off2 = axiom2 ? 0 : c2[0]+1 | 
-	 *  (all i: [off1..c1.length), j: [off1..c1.length) | i < j => abs(c1[i]) < abs(c1[j])) and
-	 *  (all i: [off2..c2.length), j: [off2..c2.length) | i < j => abs(c2[i]) < abs(c2[j])) and
-	 *  (one i: [off1..c1.length), j: [off2..c2.length) | c1[i] = -c2[j])
+	 * of absolute values.
+	 * @requires 
+	 *  (all i: [0..c1.length), j: [0..c1.length) | i < j => abs(c1[i]) < abs(c1[j])) and
+	 *  (all i: [0..c2.length), j: [0..c2.length) | i < j => abs(c2[i]) < abs(c2[j])) and
+	 *  (one i: [0..c1.length), j: [0..c2.length) | c1[i] = -c2[j])
 	 * @return an array of integers representing the result of 
 	 * resolving the clauses c1 and c2, sorted in the increasing order of absolute values
 	 */
-	private static int[] resolve(int[] c1, boolean axiom1, int[] c2, boolean axiom2) {
+	private static int[] resolve(int[] c1, int[] c2) {
 		final int len1 = c1.length, len2 = c2.length;
-		int i = axiom1 ? 0 : c1[0] + 1;
-		int j = axiom2 ? 0 : c2[0] + 1;
-		int k = 0;
+		int i = 0, j = 0, k = 0;
 		
-		final int[] tmp = new int[(len1-i + len2-j) - 2];
+		final int[] tmp = new int[(len1 + len2) - 2];
 		
 		while(i < len1 && j < len2) {
 			int lit1 = c1[i], lit2 = c2[j];
@@ -286,31 +527,26 @@ final class LazyTrace implements ResolutionTrace {
 	}
 	
 	/**
-	 * Computes the resolvent at the given index, sets this.trace index
-	 * to the computed resolvent and returns it.
-	 * @ensures computes the resolvent at the given index and sets trace[index]
-	 * to the computed array.
-	 * @return this.trace'[index]
+	 * Returns the literals of the clause at the given index, computing and
+	 * storing them first if the clause is a resolvent whose literals have 
+	 * not been computed yet.
+	 * @ensures !axiom(index) => this.computed'.get(index) = resolvent literals
+	 * @return literals of the clause at the given index
 	 */
 	private int[] resolve(int index) { 
-		if (index < axioms || resolved(index)) return trace[index];
-		int[] ante = trace[index];
-		int[] lits = resolve(resolve(ante[0]), ante[0]<axioms, resolve(ante[1]), ante[1]<axioms);
-		for(int j = 2; j < ante.length; j++) {
-			lits = resolve(lits, true, resolve(ante[j]), ante[j]<axioms);
-		}
-		int[] resolvent = new int[ante.length + lits.length + 1];
-		resolvent[0] = ante.length;
-		System.arraycopy(ante, 0, resolvent, 1, ante.length);
-		System.arraycopy(lits, 0, resolvent, ante.length+1, lits.length);
-		trace[index] = resolvent;
-		resolved.add(index-axioms);
-		return resolvent;
+		if (axiom(index)) return literals(index);
+		int[] lits = computed.get(index);
+		if (lits == null) {
+			final int[] ante = antecedents(index);
+			lits = resolve(resolve(ante[0]), resolve(ante[1]));
+			for(int j = 2; j < ante.length; j++) {
+				lits = resolve(lits, resolve(ante[j]));
+			}
+			computed.put(index, lits);
+		}
+		return lits;
 	}
 	
-	/** @return true if resolvent literals have been computed for the resolvent at the given index  */
-	private boolean resolved(int index) { return resolved.contains(index-axioms); }
-	
 	/**
 	 * Returns true if the clause at the given index is an axiom.
 	 * @return index < this.axioms
@@ -319,21 +555,11 @@ final class LazyTrace implements ResolutionTrace {
 		return index < axioms;
 	}
 	
-	/**
-	 * Returns the offset in this.trace[index] array where literal
-	 * data is stored, if any.
-	 * @return axiom(index) ? 0 : resolved(index) ? this.trace[index][0] + 1 : -1
-	 */
-	private int litOffset(int index) {
-		return axiom(index) ? 0 : resolved(index) ? trace[index][0] + 1 : -1;
-	}
-	
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#size()
 	 */
-	public int size() {	return trace.length; }
-	
+	public int size() {	return size; }
 	
 	/**
 	 * {@inheritDoc}
@@ -352,8 +578,8 @@ final class LazyTrace implements ResolutionTrace {
 	 * @see kodkod.engine.satlab.ResolutionTrace#resolvents()
 	 */
 	public IntSet resolvents() { 
-		if (trace.length > axioms)
-			return Ints.rangeSet(Ints.range(axioms, trace.length-1)); 
+		if (size > axioms)
+			return Ints.rangeSet(Ints.range(axioms, size-1)); 
 		else
 			return Ints.EMPTY_SET;
 	}
@@ -363,26 +589,8 @@ final class LazyTrace implements ResolutionTrace {
 	 * @see kodkod.engine.satlab.ResolutionTrace#get(int)
 	 */
 	public Clause get(final int index) {
-		if (index>=0 && index<trace.length) {
-			if (axiom(index)) { // return a self-contained clause
-				return new Clause() {
-					final int[] literals = trace[index];
-					final int hashCode = Ints.superFastHash(literals);
-					public Iterator<Clause> antecedents() { return Containers.emptyIterator(); }
-					public IntIterator literals() { return new IntArrayIterator(literals,0,literals.length); }
-					public int maxVariable() { return StrictMath.abs(literals[literals.length-1]); }
-					public int numberOfAntecedents() { return 0; }
-					public int size() { return literals.length;	}
-					public int[] toArray(int[] array) {
-						if (array.length<literals.length) { array = new int[literals.length]; }
-						System.arraycopy(literals, 0, array, 0, literals.length);
-						return array;
-					}
-					public int hashCode() { return hashCode; }
-				};
-			} else {
-				return new ClauseView(index);
-			}
+		if (index>=0 && index<size) {
+			return new ClauseView().set(index);
 		}
 		throw new IndexOutOfBoundsException("invalid index: " + index);
 	}
@@ -394,7 +602,7 @@ final class LazyTrace implements ResolutionTrace {
 	public Iterator<Clause> iterator() { 
 		return new ClauseIterator(new IntIterator() {
 			int index = 0;
-			public boolean hasNext() { return index>=0 && index < trace.length; }
+			public boolean hasNext() { return index>=0 && index < size; }
 			public int next() { 
 				if (!hasNext()) throw new NoSuchElementException();
 				return index++;
@@ -409,7 +617,7 @@ final class LazyTrace implements ResolutionTrace {
 	 * @return indices.min() >= 0 && indices.max() < this.size()
 	 */
 	private boolean valid(IntSet indices) {
-		return indices.min()>=0 && indices.max()<trace.length;
+		return indices.min()>=0 && indices.max()<size;
 	}
 	
 	/**
@@ -441,19 +649,12 @@ final class LazyTrace implements ResolutionTrace {
 	public IntSet reachable(IntSet indices) {
 		if (indices.isEmpty()) return Ints.EMPTY_SET;
 		else if (valid(indices)) {
-			final IntSet ret = new IntBitSet(trace.length);
+			final IntSet ret = new IntBitSet(size);
 			ret.addAll(indices);
 			for(int i = indices.max(); i >= axioms; i--) {
 				if (ret.contains(i)) {
-					int[] resolvent = trace[i];
-					if (resolved(i)) { 
-						for(int j = 1, antes = resolvent[0]; j <= antes; j++) {
-							ret.add(resolvent[j]);
-						}
-					} else {
-						for(int j = 0; j < resolvent.length; j++) {
-							ret.add(resolvent[j]);
-						}
+					for(int ante : antecedents(i)) {
+						ret.add(ante);
 					}
 				}
 			}
@@ -469,23 +670,13 @@ final class LazyTrace implements ResolutionTrace {
 	public IntSet backwardReachable(IntSet indices) {
 		if (indices.isEmpty()) return Ints.EMPTY_SET;
 		else if (valid(indices)) {
-			final IntSet ret = new IntBitSet(trace.length);
+			final IntSet ret = new IntBitSet(size);
 			ret.addAll(indices);
-			for(int i = axioms, length = trace.length; i < length; i++) {
-				int[] resolvent = trace[i];
-				if (resolved(i)) { 
-					for(int j = 1, antes = resolvent[0]; j <= antes; j++) {
-						if (ret.contains(resolvent[j])) {
-							ret.add(i);
-							break;
-						}
-					}
-				} else {
-					for(int j = 0; j < resolvent.length; j++) {
-						if (ret.contains(resolvent[j])) {
-							ret.add(i);
-							break;
-						}
+			for(int i = axioms; i < size; i++) {
+				for(int ante : antecedents(i)) {
+					if (ret.contains(ante)) {
+						ret.add(i);
+						break;
 					}
 				}
 			}
@@ -501,21 +692,12 @@ final class LazyTrace implements ResolutionTrace {
 	public IntSet learnable(IntSet indices) {
 		if (indices.isEmpty()) return Ints.EMPTY_SET;
 		else if (valid(indices)) {
-			final IntSet ret = new IntBitSet(trace.length);
+			final IntSet ret = new IntBitSet(size);
 			ret.addAll(indices);
-			TOP: for(int i = axioms, length = trace.length; i < length; i++) {
-				int[] resolvent = trace[i];
-				if (resolved(i)) { 
-					for(int j = 1, antes = resolvent[0]; j <= antes; j++) {
-						if (!ret.contains(resolvent[j])) {
-							continue TOP;
-						}
-					}
-				} else {
-					for(int j = 0; j < resolvent.length; j++) {
-						if (!ret.contains(resolvent[j])) {
-							continue TOP;
-						}
+			TOP: for(int i = axioms; i < size; i++) {
+				for(int ante : antecedents(i)) {
+					if (!ret.contains(ante)) {
+						continue TOP;
 					}
 				}
 				ret.add(i);
@@ -532,21 +714,12 @@ final class LazyTrace implements ResolutionTrace {
 	public IntSet directlyLearnable(IntSet indices) { 
 		if (indices.isEmpty()) return Ints.EMPTY_SET;
 		else if (valid(indices)) {
-			final IntSet ret = new IntBitSet(trace.length);
+			final IntSet ret = new IntBitSet(size);
 			ret.addAll(indices);
-			TOP: for(int i = axioms, length = trace.length; i < length; i++) {
-				int[] resolvent = trace[i];
-				if (resolved(i)) { 
-					for(int j = 1, antes = resolvent[0]; j <= antes; j++) {
-						if (!indices.contains(resolvent[j])) {
-							continue TOP;
-						}
-					}
-				} else {
-					for(int j = 0; j < resolvent.length; j++) {
-						if (!indices.contains(resolvent[j])) {
-							continue TOP;
-						}
+			TOP: for(int i = axioms; i < size; i++) {
+				for(int ante : antecedents(i)) {
+					if (!indices.contains(ante)) {
+						continue TOP;
 					}
 				}
 				ret.add(i);
@@ -565,26 +738,17 @@ final class LazyTrace implements ResolutionTrace {
 		final StringBuilder ret = new StringBuilder();
 		for(int i = 0; i < axioms; i++) {
 			ret.append("AXIOM.  Literals: ");
-			int[] clause = trace[i];
-			for(int j = 0, c = clause.length; j < c; j++) {
-				ret.append(clause[j]);
+			for(int lit : literals(i)) {
+				ret.append(lit);
 				ret.append(" ");
 			}
 			ret.append("\n");
 		}
-		for(int i = axioms, max = trace.length; i < max; i++) {
+		for(int i = axioms; i < size; i++) {
 			ret.append("RESOLVENT.  Antecedents:  ");
-			int[] clause = trace[i];
-			if (resolved(i)) { 
-				for(int j = 1, c = clause[0]; j <= c; j++) {
-					ret.append(clause[j]);
-					ret.append(" ");
-				}
-			} else {
-				for(int j = 0; j < clause.length; j++) {
-					ret.append(clause[j]);
-					ret.append(" ");
-				}
+			for(int ante : antecedents(i)) {
+				ret.append(ante);
+				ret.append(" ");
 			}
 			ret.append("\n");
 		}
@@ -596,23 +760,8 @@ final class LazyTrace implements ResolutionTrace {
 	 * @author Emina Torlak
 	 */
 	private class ClauseView extends Clause {
-		private int[] clause;
-		private int litOffset, index;
-		
-		/**
-		 * Constructs a clause view for the ith clause.
-		 * @requires 0 <= index < trace.length
-		 */
-		ClauseView(int index) {
-			this.index = index;
-			this.clause = trace[index];
-			this.litOffset = litOffset(index);
-		}
-		
-		/**
-		 * Constructs a clause view for the 0th clause.
-		 */
-		ClauseView() { this(0); }
+		private int index;
+		private int[] antes, lits;
 		
 		/**
 		 * Sets the state of this clause view to represent
@@ -623,41 +772,40 @@ final class LazyTrace implements ResolutionTrace {
 		 */
 		ClauseView set(int index) {
 			this.index = index;
-			this.clause = trace[index];
-			this.litOffset = litOffset(index);
+			this.antes = axiom(index) ? EMPTY : null;
+			this.lits = null;
 			return this;
 		}
-		void ensureLiterals() {
-			if (litOffset<0) { 
-				resolve(index);
-				this.clause = trace[index];
-				this.litOffset = litOffset(index);
-			}
+		/** @return the indices of the antecedents of this clause */
+		int[] antes() {
+			if (antes==null) antes = LazyTrace.this.antecedents(index);
+			return antes;
 		}
-		public int maxVariable() { 
-			ensureLiterals(); 
-			return StrictMath.abs(clause[clause.length-1]); 
+		/** @return the literals of this clause */
+		int[] lits() {
+			if (lits==null) lits = resolve(index);
+			return lits;
 		}
-		public int numberOfAntecedents() { 
-			return litOffset<0 ? clause.length : StrictMath.max(0, litOffset-1); 
-		}		
-		public int size() {	
-			ensureLiterals();
-			return clause.length - litOffset; 
+		public int maxVariable() { 
+			final int[] lits = lits();
+			return lits.length==0 ? 0 : StrictMath.abs(lits[lits.length-1]); 
 		}
+		public int numberOfAntecedents() { return antes().length; }		
+		public int size() {	return lits().length; }
 		public Iterator<Clause> antecedents() { 
-			return new ClauseIterator(new IntArrayIterator(clause, 1, litOffset)); 
+			final int[] antes = antes();
+			return new ClauseIterator(new IntArrayIterator(antes, 0, antes.length)); 
 		}
 		public IntIterator literals() {	
-			ensureLiterals();
-			return new IntArrayIterator(clause, litOffset, clause.length); 
+			final int[] lits = lits();
+			return new IntArrayIterator(lits, 0, lits.length); 
 		}	
 		public int[] toArray(int[] array) {
-			final int size = size();
-			if (array.length < size) {
-				array = new int[size];
+			final int[] lits = lits();
+			if (array.length < lits.length) {
+				array = new int[lits.length];
 			}
-			System.arraycopy(clause, litOffset, array, 0, size);
+			System.arraycopy(lits, 0, array, 0, lits.length);
 			return array;
 		}
 	}
@@ -25,6 +25,7 @@ package kodkod.engine.satlab;
  * Java wrapper for the Lingeling solver by Armin Biere.
  * 
  * @author Emina Torlak
+ * @author Nuno Macedo // [HASLab] solver pooling
  */
 final class Lingeling extends NativeSolver {
 	/**
@@ -59,6 +60,13 @@ final class Lingeling extends NativeSolver {
 	 */
 	native void free(long peer);
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.NativeSolver#reset(long)
+	 */
+	// [HASLab] solver pooling
+	native long reset(long peer);
+	
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.NativeSolver#addVariables(long, int)
@@ -25,6 +25,7 @@ package kodkod.engine.satlab;
 /**
  * Java wrapper for the MiniSat solver by Niklas E&eacute;n and Niklas S&ouml;rensson.
  * @author Emina Torlak
+ * @author Nuno Macedo // [HASLab] solver pooling
  */
 final class MiniSat extends NativeSolver {
 	
@@ -60,6 +61,13 @@ final class MiniSat extends NativeSolver {
 	 */
 	native void free(long peer);
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.NativeSolver#reset(long)
+	 */
+	// [HASLab] solver pooling
+	native long reset(long peer);
+	
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.NativeSolver#addVariables(long, int)
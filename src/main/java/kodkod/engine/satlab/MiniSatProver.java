@@ -47,40 +47,6 @@ final class MiniSatProver extends NativeSolver implements SATProver {
 		loadLibrary(MiniSatProver.class);
 	}
 	
-	/**
-	 * Returns a subset of the given trivial trace that 
-	 * consists only of axioms.  A trace is trivial iff 
-	 * its last clause is an empty clause.  This means that 
-	 * the empty axiom was added to the solver via {@linkplain #addClause(int[])}, 
-	 * so no resolution was necessary to reach the conflict.  The empty axiom 
-	 * is always the last clause in the trace. 
-	 * @requires trace[trace.length].length = 0
-	 * @return a subset of the given trivial trace that 
-	 * consists only of axioms
-	 */
-	private int[][] formatTrivial(int[][] trace) {
-		final int length = trace.length;
-		final int empty = length-1;
-		final IntSet axioms = new IntBitSet(length);
-		axioms.add(empty);
-		final int numVars = numberOfVariables();
-		for(int i = 0; i < empty; i++) {
-			int[] clause = trace[i];
-			if (clause[0]<=numVars) {
-				axioms.add(i);
-			}
-		}
-		if (axioms.size()==length) {
-			return trace;
-		}
-		final int[][] axiomClauses = new int[axioms.size()][];
-		final IntIterator itr = axioms.iterator();
-		for(int i = 0; itr.hasNext(); i++) {
-			axiomClauses[i] = trace[itr.next()];
-		}
-		return axiomClauses;
-	}
-	
 	/**
 	 * Modifies the given raw trace so that it conforms to the 
 	 * specification of {@linkplain LazyTrace#LazyTrace(int[][], int)}, 
@@ -131,6 +97,23 @@ final class MiniSatProver extends NativeSolver implements SATProver {
 		return trace;
 	}
 		
+	/**
+	 * Adds the given raw trace, as returned by {@linkplain #trace(long, boolean) trace(peer, true)}, 
+	 * to the given builder, in the same way as {@linkplain #stream(long, LazyTrace.Builder)}.
+	 * @ensures adds the given raw trace to the given builder
+	 */
+	private void replay(int[][] raw, LazyTrace.Builder trace) {
+		final int offset = numberOfVariables() + 1;
+		for(int[] clause : raw) {
+			if (clause.length > 0 && clause[0] >= offset) {
+				clause[0] -= offset;
+				trace.resolvent(clause);
+			} else {
+				trace.axiom(clause);
+			}
+		}
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.SATProver#proof()
@@ -138,16 +121,18 @@ final class MiniSatProver extends NativeSolver implements SATProver {
 	public ResolutionTrace proof() {	
 		if (!Boolean.FALSE.equals(status())) throw new IllegalStateException();
 		if (proof==null) {
-			final int[][] trace = trace(peer(), true);
-			free();
-			// if the empty axiom was added to the solver, that axiom will be 
-			// the last clause in the trace, and it will form its own minimal unsat core.
-			//System.out.println(Arrays.deepToString(trace));
-			if (trace[trace.length-1].length==0) {
-				proof = new LazyTrace(formatTrivial(trace), numberOfClauses());
-			} else {
-				proof = new LazyTrace(format(trace), numberOfClauses());
+			// the trace is encoded as it is traversed; if the empty axiom was added to the solver, 
+			// that axiom will be the last clause in the trace, and it will form its own minimal unsat core.
+			final LazyTrace.Builder trace = new LazyTrace.Builder();
+			try {
+				stream(peer(), trace);
+			} catch (UnsatisfiedLinkError e) { 
+				// [HASLab] libraries built before stream was added only export trace
+				replay(trace(peer(), true), trace);
 			}
+			free();
+			proof = new LazyTrace(trace);
+			assert proof.axioms().size() == numberOfClauses();
 		}
 		return proof;
 	}
@@ -245,4 +230,17 @@ final class MiniSatProver extends NativeSolver implements SATProver {
 	 * @return an array of arrays that encodes the most recently generated resolution trace
 	 */
 	native int[][] trace(long peer, boolean recordAxioms);
+	
+	/**
+	 * Adds the most recently generated resolution trace to the given builder, one 
+	 * clause at a time, in the order in which the clauses were generated:  
+	 * each axiom is added by calling {@linkplain LazyTrace.Builder#axiom(int[])} with its literals, 
+	 * sorted in the increasing order of absolute values, and each resolvent by calling 
+	 * {@linkplain LazyTrace.Builder#resolvent(int[])} with the indices of its antecedents in the trace.
+	 * Native libraries built before this entry point was added do not export it, in which case 
+	 * {@linkplain #proof()} falls back to {@linkplain #trace(long, boolean)}; rebuilding the 
+	 * library avoids materializing the whole raw trace at once.
+	 * @ensures adds the most recently generated resolution trace to the given builder
+	 */
+	native void stream(long peer, LazyTrace.Builder trace);
 }
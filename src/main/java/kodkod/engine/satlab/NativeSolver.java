@@ -28,6 +28,7 @@ import java.io.File;
  * accessed through JNI.
  * 
  * @author Emina Torlak
+ * @author Nuno Macedo // [HASLab] solver pooling
  */
 abstract class NativeSolver implements SATSolver {
 	/**
@@ -197,6 +198,33 @@ abstract class NativeSolver implements SATSolver {
 	}
 	
 	
+	/**
+	 * Resets this solver to the state of a freshly constructed one, reusing its 
+	 * native peer where the native library allows it.  Returns false, leaving this
+	 * solver unchanged, if it has been freed or if its native library has no 
+	 * reset entry point, as is the case of libraries built before it was added.
+	 * @ensures the reset succeeded => no this.variables' && no this.clauses'
+	 * @return true if this solver was reset; false otherwise
+	 * @see #reset(long)
+	 */
+	// [HASLab] solver pooling
+	synchronized final boolean reset() {
+		if (peer==0) 
+			return false;
+		final long fresh;
+		try {
+			fresh = reset(peer);
+		} catch (UnsatisfiedLinkError e) {
+			return false;
+		}
+		if (fresh==0)
+			return false;
+		peer = fresh;
+		clauses = vars = 0;
+		sat = null;
+		return true;
+	}
+	
 	/**
 	 * Releases the resources used by this native solver.
 	 */
@@ -216,6 +244,16 @@ abstract class NativeSolver implements SATSolver {
 	 */
 	abstract void free(long peer);
 	
+	/**
+	 * Resets the native solver at the given memory address to an empty one and 
+	 * returns the address of the reset solver, which may differ from the given one.  
+	 * Returns 0, leaving the given peer unchanged, if the native solver cannot be 
+	 * reset, which is the default.
+	 * @return the address of the reset native peer, or 0 if it cannot be reset
+	 */
+	// [HASLab] solver pooling
+	long reset(long peer) { return 0; }
+	
 	/**
 	 * Adds the specified number of variables to the given native peer.
 	 * @ensures increases the vocabulary of the given native peer by 
@@ -0,0 +1,270 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.satlab;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A SATFactory that recycles the solvers generated by another factory.  When a
+ * solver obtained from this factory is {@link SATSolver#free() freed}, it is
+ * reset and kept for a subsequent call to {@link #instance()}, instead of being
+ * discarded.  This saves the allocation and warm-up costs of a fresh solver when
+ * many small, independent problems are solved in a row.  
+ * 
+ * <p>The SAT4J solvers are reset through their Java API, and the MiniSat, Glucose
+ * and Lingeling solvers through a reset entry point of their native libraries.  A
+ * native solver whose library was built without that entry point is released as
+ * usual when freed.  The solvers of other factories, such as provers and MaxSAT 
+ * solvers, are passed through unchanged.  This factory is safe for concurrent use
+ * by multiple threads.</p>
+ * 
+ * @specfield factory: SATFactory // the factory whose solvers are pooled
+ * @specfield capacity: int // the maximum number of idle solvers kept by this pool
+ * @specfield varsHint: int // the number of variables for which reset solvers are pre-sized
+ * @specfield idle: set SATSolver // the idle solvers 
+ * @invariant #idle <= capacity
+ * @author Nuno Macedo // [HASLab] solver pooling
+ */
+public final class PooledSATFactory extends SATFactory {
+	private final SATFactory factory;
+	private final int capacity, varsHint;
+	private final ConcurrentLinkedDeque<SATSolver> idle;
+	private final AtomicInteger idleCount;
+	private final AtomicLong created, reused, recycled, discarded;
+	
+	/**
+	 * Constructs a pool of at most capacity idle solvers generated by the given factory.
+	 * @requires capacity >= 0 && varsHint >= 0
+	 * @ensures this.factory' = factory && this.capacity' = capacity && 
+	 *          this.varsHint' = varsHint && no this.idle'
+	 * @throws NullPointerException  factory = null
+	 * @throws IllegalArgumentException  capacity < 0 || varsHint < 0
+	 */
+	public PooledSATFactory(SATFactory factory, int capacity, int varsHint) {
+		if (factory==null) 
+			throw new NullPointerException("factory");
+		if (capacity < 0 || varsHint < 0)
+			throw new IllegalArgumentException("capacity < 0 || varsHint < 0: " + capacity + ", " + varsHint);
+		this.factory = factory;
+		this.capacity = capacity;
+		this.varsHint = varsHint;
+		this.idle = new ConcurrentLinkedDeque<SATSolver>();
+		this.idleCount = new AtomicInteger();
+		this.created = new AtomicLong();
+		this.reused = new AtomicLong();
+		this.recycled = new AtomicLong();
+		this.discarded = new AtomicLong();
+	}
+	
+	/**
+	 * Constructs a pool of at most capacity idle solvers generated by the given factory, 
+	 * with no pre-sizing of reset solvers.
+	 * @ensures this(factory, capacity, 0)
+	 */
+	public PooledSATFactory(SATFactory factory, int capacity) {
+		this(factory, capacity, 0);
+	}
+	
+	/**
+	 * Returns an idle solver from this pool, if any, or a fresh instance 
+	 * of this.factory otherwise.
+	 * @ensures some this.idle => this.idle' = this.idle - solver
+	 * @see kodkod.engine.satlab.SATFactory#instance()
+	 */
+	public SATSolver instance() {
+		final SATSolver solver = idle.pollFirst();
+		if (solver != null) {
+			idleCount.decrementAndGet();
+			reused.incrementAndGet();
+			return lease(solver);
+		} 
+		final SATSolver fresh = factory.instance();
+		created.incrementAndGet();
+		return resettable(fresh) ? lease(fresh) : fresh;
+	}
+	
+	/**
+	 * Returns true if the given solver can be reset by this pool.
+	 * @return solver in SAT4J + MiniSat + Glucose + Lingeling
+	 */
+	private static boolean resettable(SATSolver solver) {
+		return solver instanceof SAT4J || solver instanceof MiniSat || 
+			   solver instanceof Glucose || solver instanceof Lingeling;
+	}
+	
+	/**
+	 * Returns a lease of the given resettable solver that preserves its
+	 * support for assumptions.
+	 * @requires resettable(solver)
+	 * @return a lease of the given solver
+	 */
+	private SATSolver lease(SATSolver solver) {
+		return solver instanceof AssumptionSATSolver ? new AssumptionLease(solver) : new Lease(solver);
+	}
+	
+	/**
+	 * Resets the given solver, returning true if it succeeded.
+	 * @requires resettable(solver)
+	 * @return true if the solver was reset; false otherwise
+	 */
+	private boolean reset(SATSolver solver) {
+		return solver instanceof SAT4J ? ((SAT4J) solver).reset(varsHint) : ((NativeSolver) solver).reset();
+	}
+	
+	/**
+	 * Resets the given solver and adds it to this.idle, if this.idle is not full
+	 * and the solver could be reset.  Otherwise frees the solver.
+	 * @ensures #this.idle < this.capacity => this.idle' = this.idle + solver, 
+	 *          this.idle' = this.idle
+	 */
+	private void recycle(SATSolver solver) {
+		if (idleCount.incrementAndGet() <= capacity && reset(solver)) {
+			idle.addFirst(solver);
+			recycled.incrementAndGet();
+		} else {
+			idleCount.decrementAndGet();
+			solver.free();
+			discarded.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Frees all idle solvers in this pool.
+	 * @ensures no this.idle'
+	 */
+	public void clear() {
+		for(SATSolver solver = idle.pollFirst(); solver != null; solver = idle.pollFirst()) {
+			idleCount.decrementAndGet();
+			solver.free();
+		}
+	}
+	
+	/**
+	 * Returns the number of idle solvers in this pool.
+	 * @return #this.idle
+	 */
+	public int idle() { return idleCount.get(); }
+	
+	/**
+	 * Returns the number of solvers obtained from this.factory so far.
+	 * @return number of calls to this.factory.instance()
+	 */
+	public long created() { return created.get(); }
+	
+	/**
+	 * Returns the number of calls to {@link #instance()} that were served 
+	 * by an idle solver.
+	 * @return number of calls to this.instance() that were served by an idle solver
+	 */
+	public long reused() { return reused.get(); }
+	
+	/**
+	 * Returns the number of freed solvers that were returned to this pool.
+	 * @return number of freed solvers that were returned to this pool
+	 */
+	public long recycled() { return recycled.get(); }
+	
+	/**
+	 * Returns the number of freed solvers that were released because
+	 * this pool was full or they could not be reset.
+	 * @return number of freed solvers that were released because this pool was full
+	 * or they could not be reset
+	 */
+	public long discarded() { return discarded.get(); }
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATFactory#prover()
+	 */
+	public boolean prover() { return factory.prover(); }
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATFactory#incremental()
+	 */
+	public boolean incremental() { return factory.incremental(); }
+	
+	/**
+	 * @see kodkod.engine.satlab.SATFactory#unbounded()
+	 */
+	public boolean unbounded() { return factory.unbounded(); }
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATFactory#maxsat()
+	 */
+	public boolean maxsat() { return factory.maxsat(); }
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATFactory#assumptions()
+	 */
+	public boolean assumptions() { return factory.assumptions(); }
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() { return "Pooled" + factory; }
+	
+	/**
+	 * A solver leased from this pool.  Freeing a lease returns its
+	 * solver to the pool; subsequent frees have no effect.
+	 * @author Nuno Macedo // [HASLab] solver pooling
+	 */
+	private class Lease implements SATSolver {
+		SATSolver solver;
+		
+		Lease(SATSolver solver) { this.solver = solver; }
+
+		public int numberOfVariables() 		{ return solver.numberOfVariables(); }
+		public int numberOfClauses() 		{ return solver.numberOfClauses(); }
+		public void addVariables(int numVars) { solver.addVariables(numVars); }
+		public boolean addClause(int[] lits) { return solver.addClause(lits); }
+		public boolean solve() 				{ return solver.solve(); }
+		public boolean valueOf(int variable) { return solver.valueOf(variable); }
+		
+		/**
+		 * Returns the solver of this lease to the pool.
+		 * @see kodkod.engine.satlab.SATSolver#free()
+		 */
+		public synchronized void free() {
+			if (solver != null) {
+				recycle(solver);
+				solver = null;
+			}
+		}
+	}
+	
+	/**
+	 * A lease of a solver that supports assumptions.
+	 * @author Nuno Macedo // [HASLab] solver pooling
+	 */
+	private final class AssumptionLease extends Lease implements AssumptionSATSolver {
+		
+		AssumptionLease(SATSolver solver) { super(solver); }
+		
+		public boolean solve(int[] assumptions) { return ((AssumptionSATSolver) solver).solve(assumptions); }
+	}
+}
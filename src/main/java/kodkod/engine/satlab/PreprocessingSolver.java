@@ -0,0 +1,752 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.satlab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import kodkod.util.ints.ArrayIntVector;
+import kodkod.util.ints.IntVector;
+
+/**
+ * A solver that simplifies its clauses before handing them to a base solver.
+ * The clauses added to this solver are recorded; when {@link #solve()} is
+ * called for the first time, they are simplified by unit propagation,
+ * equivalent literal substitution, subsumption, self-subsuming resolution and
+ * bounded variable elimination, and the result is added to a fresh solver
+ * produced by the base factory. Variables in [1..frozen] are never
+ * substituted or eliminated, so their values in the simplified problem are
+ * their values in a model of the recorded problem; the values of the other
+ * variables are reconstructed on demand.
+ * 
+ * <p>
+ * Clauses added after the first call to {@link #solve()} go straight to the
+ * base solver. If such a clause mentions a variable that was eliminated or
+ * substituted, the clauses removed with that variable are first restored.
+ * </p>
+ * 
+ * @specfield base: SATFactory
+ * @specfield frozen: int
+ * @author Nuno Macedo // [HASLab] CNF preprocessing
+ */
+final class PreprocessingSolver implements SATSolver {
+	/** the maximum number of occurrences of a literal whose variable is eliminated */
+	private static final int MAX_OCCURRENCES = 16;
+	/** the maximum length of a resolvent added by variable elimination */
+	private static final int MAX_RESOLVENT = 24;
+	/** the number of subsumption checks allowed per clause */
+	private static final int SUBSUMPTION_EFFORT = 32;
+
+	private final SATFactory base;
+	private final int frozen;
+	private int vars;
+	private List<int[]> clauses;
+	private SATSolver solver;
+	/** clauses removed with eliminated or substituted variables, with the pivot literal first */
+	private List<int[]> extension;
+	/** for each eliminated variable, the position of its clauses in the extension, or -1 */
+	private int[] extStart, extEnd;
+	private boolean[] model;
+	private boolean sat;
+
+	/**
+	 * Constructs a preprocessing solver that never eliminates the variables in
+	 * [1..frozen] and solves the simplified problems with solvers produced by
+	 * the given factory.
+	 * 
+	 * @requires frozen >= 0
+	 */
+	PreprocessingSolver(SATFactory base, int frozen) {
+		this.base = base;
+		this.frozen = frozen;
+		this.clauses = new ArrayList<int[]>();
+		this.vars = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#numberOfVariables()
+	 */
+	public int numberOfVariables() {
+		return vars;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#numberOfClauses()
+	 */
+	public int numberOfClauses() {
+		return solver == null ? clauses.size() : solver.numberOfClauses();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#addVariables(int)
+	 */
+	public void addVariables(int numVars) {
+		if (numVars < 0)
+			throw new IllegalArgumentException("numVars < 0: " + numVars);
+		vars += numVars;
+		if (solver != null)
+			solver.addVariables(numVars);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#addClause(int[])
+	 */
+	public boolean addClause(int[] lits) {
+		if (solver == null) {
+			clauses.add(lits.clone());
+			return true;
+		}
+		for (int lit : lits) {
+			final int var = StrictMath.abs(lit);
+			if (var < extStart.length && extStart[var] >= 0)
+				restore(var);
+		}
+		return solver.addClause(lits);
+	}
+
+	/**
+	 * Adds back to this.solver the clauses removed with the given variable, and
+	 * with any eliminated variable that they mention.
+	 */
+	private void restore(int var) {
+		final IntVector pending = new ArrayIntVector();
+		pending.add(var);
+		while (!pending.isEmpty()) {
+			final int v = pending.removeAt(pending.size() - 1);
+			if (extStart[v] < 0)
+				continue;
+			for (int i = extStart[v]; i < extEnd[v]; i++) {
+				final int[] clause = extension.get(i);
+				extension.set(i, null);
+				for (int lit : clause) {
+					final int w = StrictMath.abs(lit);
+					if (w != v && extStart[w] >= 0)
+						pending.add(w);
+				}
+				solver.addClause(clause);
+			}
+			extStart[v] = -1;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#solve()
+	 */
+	public boolean solve() throws SATAbortedException {
+		if (solver == null) {
+			final Simplifier simplifier = new Simplifier();
+			clauses = null;
+			simplifier.simplify();
+			solver = base.instance();
+			solver.addVariables(vars);
+			simplifier.export(solver);
+		}
+		model = null;
+		sat = solver.solve();
+		return sat;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#valueOf(int)
+	 */
+	public boolean valueOf(int variable) {
+		if (!sat)
+			throw new IllegalStateException();
+		if (variable < 1 || variable > vars)
+			throw new IllegalArgumentException(variable + " !in [1.." + vars + "]");
+		if (variable >= extStart.length || extStart[variable] < 0)
+			return solver.valueOf(variable);
+		if (model == null)
+			model = reconstruct();
+		return model[variable];
+	}
+
+	/**
+	 * Extends the model found by this.solver to the eliminated variables, by
+	 * satisfying the removed clauses in the reverse order of their removal.
+	 * 
+	 * @return a model of the recorded clauses
+	 */
+	private boolean[] reconstruct() {
+		final boolean[] values = new boolean[extStart.length];
+		for (int v = 1; v < values.length; v++)
+			values[v] = extStart[v] < 0 && solver.valueOf(v);
+		for (int i = extension.size() - 1; i >= 0; i--) {
+			final int[] clause = extension.get(i);
+			if (clause == null)
+				continue;
+			boolean satisfied = false;
+			for (int lit : clause) {
+				if (values[StrictMath.abs(lit)] == (lit > 0)) {
+					satisfied = true;
+					break;
+				}
+			}
+			if (!satisfied)
+				values[StrictMath.abs(clause[0])] = clause[0] > 0;
+		}
+		return values;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#free()
+	 */
+	public synchronized void free() {
+		if (solver != null)
+			solver.free();
+		clauses = null;
+		extension = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "preprocessing(" + base + ")";
+	}
+
+	/**
+	 * Returns the index of the given literal in the occurrence lists.
+	 */
+	private static int index(int lit) {
+		return lit > 0 ? lit << 1 : ((-lit) << 1) | 1;
+	}
+
+	/**
+	 * Returns the literal with the given occurrence list index.
+	 */
+	private static int literal(int index) {
+		return (index & 1) == 0 ? index >> 1 : -(index >> 1);
+	}
+
+	/**
+	 * Returns true if the given clause contains the given literal.
+	 */
+	private static boolean contains(int[] clause, int lit) {
+		for (int l : clause)
+			if (l == lit)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the given clause without the given literal.
+	 * 
+	 * @requires contains(clause, lit)
+	 */
+	private static int[] without(int[] clause, int lit) {
+		final int[] ret = new int[clause.length - 1];
+		for (int i = 0, j = 0; i < clause.length; i++)
+			if (clause[i] != lit)
+				ret[j++] = clause[i];
+		return ret;
+	}
+
+	/**
+	 * Simplifies the recorded clauses, filling in the extension of the
+	 * enclosing solver.
+	 */
+	private final class Simplifier {
+		/** the clauses being simplified; removed clauses are null */
+		private final List<int[]> cls;
+		/** the indices of the clauses in which each literal occurs, possibly stale */
+		private IntVector[] occs;
+		/** the value of each assigned variable: 1 if true, -1 if false, 0 if unassigned */
+		private final byte[] values;
+		private final IntVector units;
+		private final int[] marks;
+		private int stamp;
+		private boolean unsat;
+
+		Simplifier() {
+			this.cls = clauses;
+			this.values = new byte[vars + 1];
+			this.units = new ArrayIntVector();
+			this.marks = new int[2 * vars + 2];
+			this.stamp = 0;
+			extension = new ArrayList<int[]>();
+			extStart = new int[vars + 1];
+			extEnd = new int[vars + 1];
+			Arrays.fill(extStart, -1);
+			for (int i = 0, max = cls.size(); i < max; i++)
+				cls.set(i, normalize(cls.get(i)));
+			reindex();
+		}
+
+		/**
+		 * Returns the given clause without repeated literals, or null if it is a tautology.
+		 */
+		private int[] normalize(int[] clause) {
+			stamp++;
+			int size = 0;
+			for (int lit : clause) {
+				if (marks[index(-lit)] == stamp)
+					return null;
+				if (marks[index(lit)] != stamp) {
+					marks[index(lit)] = stamp;
+					clause[size++] = lit;
+				}
+			}
+			return size == clause.length ? clause : Arrays.copyOf(clause, size);
+		}
+
+		/**
+		 * Rebuilds the occurrence lists of the live clauses, and queues up any units.
+		 */
+		private void reindex() {
+			occs = new IntVector[2 * vars + 2];
+			for (int i = 0; i < occs.length; i++)
+				occs[i] = new ArrayIntVector(0);
+			for (int i = 0, max = cls.size(); i < max; i++) {
+				final int[] clause = cls.get(i);
+				if (clause == null)
+					continue;
+				for (int lit : clause)
+					occs[index(lit)].add(i);
+				if (clause.length < 2)
+					unit(clause);
+			}
+		}
+
+		/**
+		 * Adds the given clause to the clauses being simplified.
+		 */
+		private void add(int[] clause) {
+			final int i = cls.size();
+			cls.add(clause);
+			for (int lit : clause)
+				occs[index(lit)].add(i);
+			if (clause.length < 2)
+				unit(clause);
+		}
+
+		/**
+		 * Records the given unit or empty clause.
+		 */
+		private void unit(int[] clause) {
+			if (clause.length == 0) {
+				unsat = true;
+				return;
+			}
+			final int lit = clause[0], var = StrictMath.abs(lit);
+			if (values[var] == 0) {
+				values[var] = (byte) (lit > 0 ? 1 : -1);
+				units.add(lit);
+			} else if ((values[var] > 0) != (lit > 0)) {
+				unsat = true;
+			}
+		}
+
+		/**
+		 * Returns the indices of the live clauses that contain the given
+		 * literal, and removes the stale ones from its occurrence list.
+		 */
+		private IntVector occurrences(int lit) {
+			final IntVector occ = occs[index(lit)];
+			int size = 0;
+			for (int i = 0, max = occ.size(); i < max; i++) {
+				final int c = occ.get(i);
+				final int[] clause = cls.get(c);
+				if (clause != null && contains(clause, lit))
+					occ.set(size++, c);
+			}
+			while (occ.size() > size)
+				occ.removeAt(occ.size() - 1);
+			return occ;
+		}
+
+		/**
+		 * Propagates the queued units.
+		 */
+		private void propagate() {
+			while (!units.isEmpty() && !unsat) {
+				final int lit = units.removeAt(units.size() - 1);
+				final IntVector sat = occurrences(lit);
+				for (int i = 0, max = sat.size(); i < max; i++)
+					cls.set(sat.get(i), null);
+				final IntVector falsified = occurrences(-lit);
+				for (int i = 0, max = falsified.size(); i < max; i++) {
+					final int c = falsified.get(i);
+					final int[] clause = without(cls.get(c), -lit);
+					cls.set(c, clause);
+					if (clause.length < 2)
+						unit(clause);
+				}
+				occs[index(lit)] = new ArrayIntVector(0);
+				occs[index(-lit)] = new ArrayIntVector(0);
+			}
+		}
+
+		/**
+		 * Moves the live clauses that contain the given variable to the
+		 * extension, with their pivot literals first, and marks the variable
+		 * as eliminated.
+		 */
+		private void eliminate(int var, IntVector pos, IntVector neg) {
+			extStart[var] = extension.size();
+			for (int i = 0, max = pos.size(); i < max; i++)
+				extend(pos.get(i), var);
+			for (int i = 0, max = neg.size(); i < max; i++)
+				extend(neg.get(i), -var);
+			extEnd[var] = extension.size();
+		}
+
+		/**
+		 * Moves the given clause to the extension, with the given pivot first.
+		 */
+		private void extend(int c, int pivot) {
+			final int[] clause = cls.get(c);
+			cls.set(c, null);
+			for (int i = 0; i < clause.length; i++) {
+				if (clause[i] == pivot) {
+					clause[i] = clause[0];
+					clause[0] = pivot;
+					break;
+				}
+			}
+			extension.add(clause);
+		}
+
+		/**
+		 * Simplifies the clauses.
+		 */
+		void simplify() {
+			propagate();
+			if (!unsat)
+				substitute();
+			propagate();
+			for (int round = 0; round < 2 && !unsat; round++) {
+				subsume();
+				if (!unsat && !eliminate())
+					break;
+			}
+		}
+
+		/**
+		 * Replaces each unfrozen variable that is equivalent to another literal
+		 * by that literal. Equivalent literals are the strongly connected
+		 * components of the implication graph of the binary clauses.
+		 */
+		private void substitute() {
+			final int n = 2 * vars + 2;
+			final IntVector[] edges = new IntVector[n];
+			boolean binary = false;
+			for (int[] clause : cls) {
+				if (clause == null || clause.length != 2)
+					continue;
+				binary = true;
+				edge(edges, -clause[0], clause[1]);
+				edge(edges, -clause[1], clause[0]);
+			}
+			if (!binary)
+				return;
+
+			// Tarjan's algorithm, with an explicit stack
+			final int[] order = new int[n], low = new int[n], component = new int[n];
+			final boolean[] onStack = new boolean[n];
+			final int[] stack = new int[n], calls = new int[n], next = new int[n];
+			final IntVector reps = new ArrayIntVector();
+			int counter = 0, sp = 0;
+			for (int root = 2; root < n; root++) {
+				if (order[root] != 0 || edges[root] == null)
+					continue;
+				int cp = 0;
+				calls[0] = root;
+				next[0] = 0;
+				order[root] = low[root] = ++counter;
+				stack[sp++] = root;
+				onStack[root] = true;
+				while (cp >= 0) {
+					final int v = calls[cp];
+					if (edges[v] != null && next[cp] < edges[v].size()) {
+						final int w = edges[v].get(next[cp]++);
+						if (order[w] == 0) {
+							order[w] = low[w] = ++counter;
+							stack[sp++] = w;
+							onStack[w] = true;
+							calls[++cp] = w;
+							next[cp] = 0;
+						} else if (onStack[w]) {
+							low[v] = Math.min(low[v], order[w]);
+						}
+					} else {
+						if (low[v] == order[v]) {
+							int rep = literal(v), w;
+							final int start = sp;
+							do {
+								w = stack[--sp];
+								onStack[w] = false;
+								final int lit = literal(w);
+								if (better(lit, rep))
+									rep = lit;
+							} while (w != v);
+							for (int i = sp; i < start; i++)
+								component[stack[i]] = reps.size();
+							reps.add(rep);
+						}
+						if (--cp >= 0)
+							low[calls[cp]] = Math.min(low[calls[cp]], low[v]);
+					}
+				}
+			}
+
+			final int[] substitution = new int[vars + 1];
+			boolean substituted = false;
+			for (int v = 1; v <= vars; v++) {
+				if (order[index(v)] == 0)
+					continue;
+				if (component[index(v)] == component[index(-v)]) {
+					unsat = true;
+					return;
+				}
+				final int rep = reps.get(component[index(v)]);
+				if (v > frozen && StrictMath.abs(rep) != v) {
+					substitution[v] = rep;
+					substituted = true;
+				}
+			}
+			if (!substituted)
+				return;
+
+			for (int i = 0, max = cls.size(); i < max; i++) {
+				final int[] clause = cls.get(i);
+				if (clause != null)
+					cls.set(i, substitute(clause, substitution));
+			}
+			for (int v = 1; v <= vars; v++) {
+				if (substitution[v] != 0) {
+					extStart[v] = extension.size();
+					extension.add(new int[] { v, -substitution[v] });
+					extension.add(new int[] { -v, substitution[v] });
+					extEnd[v] = extension.size();
+				}
+			}
+			units.clear();
+			reindex();
+		}
+
+		/**
+		 * Adds the edge from -> to to the given implication graph.
+		 */
+		private void edge(IntVector[] edges, int from, int to) {
+			final int i = index(from);
+			if (edges[i] == null)
+				edges[i] = new ArrayIntVector(2);
+			edges[i].add(index(to));
+			if (edges[index(to)] == null)
+				edges[index(to)] = new ArrayIntVector(0);
+		}
+
+		/**
+		 * Returns true if the first literal is a better representative of its
+		 * equivalence class than the second: frozen variables come first, and
+		 * smaller variables before larger ones.
+		 */
+		private boolean better(int lit0, int lit1) {
+			final int v0 = StrictMath.abs(lit0), v1 = StrictMath.abs(lit1);
+			final boolean f0 = v0 <= frozen, f1 = v1 <= frozen;
+			return f0 != f1 ? f0 : v0 < v1;
+		}
+
+		/**
+		 * Applies the given substitution to the given clause, and returns the
+		 * result, or null if it is a tautology.
+		 */
+		private int[] substitute(int[] clause, int[] substitution) {
+			boolean changed = false;
+			for (int lit : clause)
+				changed |= substitution[StrictMath.abs(lit)] != 0;
+			if (!changed)
+				return clause;
+			stamp++;
+			final int[] ret = new int[clause.length];
+			int size = 0;
+			for (int lit : clause) {
+				final int s = substitution[StrictMath.abs(lit)];
+				final int l = s == 0 ? lit : (lit > 0 ? s : -s);
+				if (marks[index(-l)] == stamp)
+					return null;
+				if (marks[index(l)] != stamp) {
+					marks[index(l)] = stamp;
+					ret[size++] = l;
+				}
+			}
+			return size == ret.length ? ret : Arrays.copyOf(ret, size);
+		}
+
+		/**
+		 * Removes subsumed clauses and strengthens clauses by self-subsuming
+		 * resolution, within a fixed budget of checks.
+		 */
+		private void subsume() {
+			final int max = cls.size();
+			final long[] bySize = new long[max];
+			int size = 0;
+			for (int i = 0; i < max; i++) {
+				final int[] clause = cls.get(i);
+				if (clause != null)
+					bySize[size++] = ((long) clause.length << 32) | i;
+			}
+			Arrays.sort(bySize, 0, size);
+			long budget = (long) SUBSUMPTION_EFFORT * size;
+			for (int k = 0; k < size && budget > 0 && !unsat; k++) {
+				final int c = (int) bySize[k];
+				final int[] clause = cls.get(c);
+				if (clause == null)
+					continue;
+				int best = clause[0];
+				for (int lit : clause)
+					if (occs[index(lit)].size() + occs[index(-lit)].size() < occs[index(best)].size() + occs[index(-best)].size())
+						best = lit;
+				stamp++;
+				for (int lit : clause)
+					marks[index(lit)] = stamp;
+				for (int lit : new int[] { best, -best }) {
+					final IntVector occ = occurrences(lit);
+					for (int i = 0; i < occ.size() && budget > 0; i++) {
+						final int d = occ.get(i);
+						final int[] other = cls.get(d);
+						if (d == c || other == null || other.length < clause.length)
+							continue;
+						budget--;
+						int hits = 0, flip = 0;
+						for (int l : other) {
+							if (marks[index(l)] == stamp)
+								hits++;
+							else if (marks[index(-l)] == stamp)
+								flip = flip == 0 ? l : Integer.MAX_VALUE;
+						}
+						if (flip == 0 && hits == clause.length) {
+							cls.set(d, null);
+						} else if (flip != 0 && flip != Integer.MAX_VALUE && hits == clause.length - 1) {
+							final int[] strengthened = without(other, flip);
+							cls.set(d, strengthened);
+							if (strengthened.length < 2)
+								unit(strengthened);
+						}
+					}
+				}
+				propagate();
+			}
+		}
+
+		/**
+		 * Eliminates the unfrozen variables whose elimination by resolution
+		 * does not increase the number of clauses.
+		 * 
+		 * @return true if some variable was eliminated
+		 */
+		private boolean eliminate() {
+			final long[] byCost = new long[vars];
+			int size = 0;
+			for (int v = frozen + 1; v <= vars; v++) {
+				if (values[v] == 0 && extStart[v] < 0) {
+					final long pos = occs[index(v)].size(), neg = occs[index(-v)].size();
+					if (pos + neg > 0)
+						byCost[size++] = (Math.min(pos * neg, Integer.MAX_VALUE) << 32) | v;
+				}
+			}
+			Arrays.sort(byCost, 0, size);
+			boolean eliminated = false;
+			final List<int[]> resolvents = new ArrayList<int[]>();
+			for (int k = 0; k < size && !unsat; k++) {
+				final int v = (int) byCost[k];
+				if (values[v] != 0)
+					continue;
+				final IntVector pos = occurrences(v), neg = occurrences(-v);
+				if (pos.size() + neg.size() == 0 || pos.size() > MAX_OCCURRENCES || neg.size() > MAX_OCCURRENCES)
+					continue;
+				resolvents.clear();
+				boolean bounded = true;
+				for (int i = 0; i < pos.size() && bounded; i++) {
+					for (int j = 0; j < neg.size() && bounded; j++) {
+						final int[] resolvent = resolve(cls.get(pos.get(i)), cls.get(neg.get(j)), v);
+						if (resolvent != null) {
+							resolvents.add(resolvent);
+							bounded = resolvent.length <= MAX_RESOLVENT && resolvents.size() <= pos.size() + neg.size();
+						}
+					}
+				}
+				if (!bounded)
+					continue;
+				eliminate(v, pos, neg);
+				for (int[] resolvent : resolvents)
+					add(resolvent);
+				propagate();
+				eliminated = true;
+			}
+			return eliminated;
+		}
+
+		/**
+		 * Returns the resolvent of the given clauses on the given variable, or
+		 * null if it is a tautology.
+		 * 
+		 * @requires contains(pos, var) && contains(neg, -var)
+		 */
+		private int[] resolve(int[] pos, int[] neg, int var) {
+			stamp++;
+			final int[] ret = new int[pos.length + neg.length - 2];
+			int size = 0;
+			for (int lit : pos) {
+				if (lit != var) {
+					marks[index(lit)] = stamp;
+					ret[size++] = lit;
+				}
+			}
+			for (int lit : neg) {
+				if (lit == -var || marks[index(lit)] == stamp)
+					continue;
+				if (marks[index(-lit)] == stamp)
+					return null;
+				ret[size++] = lit;
+			}
+			return size == ret.length ? ret : Arrays.copyOf(ret, size);
+		}
+
+		/**
+		 * Adds the simplified clauses and the assigned units to the given solver.
+		 */
+		void export(SATSolver solver) {
+			if (unsat) {
+				solver.addClause(new int[0]);
+				return;
+			}
+			for (int v = 1; v <= vars; v++)
+				if (values[v] != 0)
+					solver.addClause(new int[] { values[v] > 0 ? v : -v });
+			for (int[] clause : cls)
+				if (clause != null)
+					solver.addClause(clause);
+		}
+	}
+}
@@ -23,10 +23,14 @@ package kodkod.engine.satlab;
 
 import java.util.NoSuchElementException;
 
+import org.sat4j.core.VecInt;
 import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IConstr;
 import org.sat4j.specs.ISolver;
 import org.sat4j.specs.IVecInt;
 import org.sat4j.specs.IteratorInt;
+import org.sat4j.specs.Lbool;
+import org.sat4j.specs.SearchListener;
 
 /**
  * A wrapper class that provides
@@ -35,7 +39,7 @@ import org.sat4j.specs.IteratorInt;
  * 
  * @author Emina Torlak
  */
-final class SAT4J implements SATSolver {
+final class SAT4J implements AssumptionSATSolver {
 	private ISolver solver;
 	private final ReadOnlyIVecInt wrapper;
 	private Boolean sat; 
@@ -50,6 +54,7 @@ final class SAT4J implements SATSolver {
 		if (solver==null)
 			throw new NullPointerException("solver");
 		this.solver = solver;
+		this.solver.setSearchListener(new Interruption(solver));
 		this.wrapper = new ReadOnlyIVecInt();
 		this.sat = null;
 		this.vars = this.clauses = 0;
@@ -113,11 +118,45 @@ final class SAT4J implements SATSolver {
 	public boolean solve() {
 		try {
 			if (!Boolean.FALSE.equals(sat))
-				sat = Boolean.valueOf(solver.isSatisfiable());
+				sat = Boolean.valueOf(solver.isSatisfiable(true));
 			return sat;
 		} catch (org.sat4j.specs.TimeoutException e) {
-			throw new RuntimeException("timed out");
-		} 
+			sat = null;
+			throw aborted(e);
+		} finally {
+			solver.expireTimeout();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.AssumptionSATSolver#solve(int[])
+	 */
+	public boolean solve(int[] assumptions) {
+		try {
+			if (Boolean.FALSE.equals(sat))
+				return false;
+			final boolean ret = solver.isSatisfiable(new VecInt(assumptions.clone()), true);
+			// an unsat outcome under assumptions does not make the clauses unsat
+			sat = ret ? Boolean.TRUE : null;
+			return ret;
+		} catch (org.sat4j.specs.TimeoutException e) {
+			sat = null;
+			throw aborted(e);
+		} finally {
+			solver.expireTimeout();
+		}
+	}
+
+	/**
+	 * Returns the exception to throw for a search that timed out, which is a
+	 * SATAbortedException if the search was stopped because the solving
+	 * thread was interrupted.  
+	 */
+	private static RuntimeException aborted(org.sat4j.specs.TimeoutException e) {
+		if (Thread.currentThread().isInterrupted())
+			return new SATAbortedException(e);
+		return new RuntimeException("timed out");
 	}
 
 	/**
@@ -140,6 +179,64 @@ final class SAT4J implements SATSolver {
 		solver = null;
 	}
 	
+	/**
+	 * Removes all variables and clauses from this solver, so that it can be
+	 * reused for an unrelated problem.  If varsHint is positive, the underlying
+	 * solver pre-allocates its data structures for that many variables.
+	 * Returns false if this solver has already been freed.
+	 * @ensures no this.variables' && no this.clauses'
+	 * @return this has not been freed
+	 */
+	synchronized final boolean reset(int varsHint) {
+		if (solver==null) 
+			return false;
+		solver.reset();
+		if (varsHint > 0)
+			solver.newVar(varsHint);
+		sat = null;
+		vars = clauses = 0;
+		return true;
+	}
+	
+	/**
+	 * Expires the timeout of a solver at the first conflict found after the
+	 * solving thread is interrupted, so that the search stops. Searches are
+	 * run with a global timeout, under which an expired search leaves the
+	 * solver in a consistent state, ready to be called again; the timer is
+	 * expired after each search, so that the next one starts a fresh timer.
+	 */
+	private static final class Interruption implements SearchListener {
+		private static final long serialVersionUID = 1L;
+		private final ISolver solver;
+
+		Interruption(ISolver solver) {
+			this.solver = solver;
+		}
+
+		public void conflictFound(IConstr confl, int dlevel, int trailLevel) {
+			if (Thread.currentThread().isInterrupted())
+				solver.expireTimeout();
+		}
+
+		public void conflictFound(int p) {
+			if (Thread.currentThread().isInterrupted())
+				solver.expireTimeout();
+		}
+
+		public void assuming(int p) {}
+		public void propagating(int p, IConstr reason) {}
+		public void backtracking(int p) {}
+		public void adding(int p) {}
+		public void learn(IConstr c) {}
+		public void delete(int[] clause) {}
+		public void solutionFound() {}
+		public void beginLoop() {}
+		public void start() {}
+		public void end(Lbool result) {}
+		public void restarting() {}
+		public void backjump(int backjumpLevel) {}
+	}
+	
 	/**
 	 * A wrapper for an int array that provides
 	 * read-only access to the array via the IVecInt interface. 
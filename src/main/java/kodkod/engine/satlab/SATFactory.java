@@ -59,7 +59,7 @@ public abstract class SATFactory {
 			solver.addVariables(1);
 			solver.addClause(new int[]{1});
 			return solver.solve();
-		} catch (RuntimeException|UnsatisfiedLinkError t) {	
+		} catch (RuntimeException|LinkageError t) { // [HASLab] NoClassDefFoundError once the library failed to load
 			return false;
 		} finally {
 			if (solver!=null) {
@@ -76,6 +76,7 @@ public abstract class SATFactory {
 		public SATSolver instance() { 
 			return new SAT4J(SolverFactory.instance().defaultSolver()); 
 		}
+		public boolean assumptions() { return true; }
 		public String toString() { return "DefaultSAT4J"; }
 	};
 	
@@ -101,6 +102,7 @@ public abstract class SATFactory {
 		public SATSolver instance() { 
 			return new SAT4J(SolverFactory.instance().lightSolver()); 
 		}
+		public boolean assumptions() { return true; }
 		public String toString() { return "LightSAT4J"; }
 	};
 	
@@ -207,6 +209,94 @@ public abstract class SATFactory {
 	
 	}
 	
+	/**
+	 * Returns a SATFactory that produces {@link CubeSolver cube-and-conquer
+	 * solvers}, which split a problem into cubes over a few of its variables
+	 * and solve them on the given number of threads, each thread solving its
+	 * cubes as assumptions on its own solver produced by the given factory.
+	 * The Kodkod solvers choose the splitting variables among the primary
+	 * variables of the relations that occur most often in the problem.
+	 * The base factory must produce {@link AssumptionSATSolver solvers with
+	 * assumptions}, which currently restricts it to the SAT4J factories,
+	 * possibly {@link PooledSATFactory pooled}.
+	 * 
+	 * @requires threads > 0
+	 * @return SATFactory that produces cube-and-conquer solvers over base
+	 * @throws IllegalArgumentException  threads < 1 || !base.assumptions() || 
+	 *         base.prover() || base.unbounded()
+	 */
+	public static final SATFactory cubes(final SATFactory base, final int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Number of threads must be at least 1: numberOfThreads=" + threads);
+		if (base.prover() || base.unbounded())
+			throw new IllegalArgumentException("Cube-and-conquer requires a plain SAT solver: " + base);
+		if (!base.assumptions())
+			throw new IllegalArgumentException("Cube-and-conquer requires solvers with assumptions: " + base);
+		return new SATFactory() {
+			public SATSolver instance() {
+				return new CubeSolver(base, threads);
+			}
+			public boolean incremental() {
+				return true;
+			}
+			public String toString() { return "cubes(" + base + ", " + threads + ")"; }
+		};
+	}
+
+	/**
+	 * Returns a SATFactory that produces solvers which simplify their clauses
+	 * before the first call to solve, by unit propagation, equivalent literal
+	 * substitution, subsumption and bounded variable elimination, and then
+	 * solve the simplified problem with a solver produced by the given factory.
+	 * The variables in [1..frozen] are never eliminated, so the Kodkod solvers
+	 * freeze the primary variables of a translation.
+	 * 
+	 * @requires frozen >= 0
+	 * @return SATFactory that produces preprocessing solvers over base
+	 */
+	public static final SATFactory preprocessing(final SATFactory base, final int frozen) {
+		if (frozen < 0)
+			throw new IllegalArgumentException("Number of frozen variables must be non-negative: frozen=" + frozen);
+		if (base.prover() || base.unbounded() || base.maxsat())
+			throw new IllegalArgumentException("Preprocessing requires a plain SAT solver: " + base);
+		return new SATFactory() {
+			public SATSolver instance() {
+				return new PreprocessingSolver(base, frozen);
+			}
+			public boolean incremental() {
+				return base.incremental();
+			}
+			public String toString() { return "preprocessing(" + base + ")"; }
+		};
+	}
+
+	/**
+	 * Returns a SATFactory that produces solvers which break the symmetries of 
+	 * their clauses before the first call to solve, and then solve the result 
+	 * with a solver produced by the given factory.  The symmetries are found by 
+	 * a bounded search for the generators of the automorphism group of the clauses, 
+	 * and each generator is broken by a lex-leader constraint over at most 
+	 * {@code length} variables.
+	 * 
+	 * @requires length > 0
+	 * @return SATFactory that produces symmetry breaking solvers over base
+	 */
+	public static final SATFactory symmetryBreaking(final SATFactory base, final int length) {
+		if (length < 1)
+			throw new IllegalArgumentException("Length of lex-leader constraints must be positive: length=" + length);
+		if (base.prover() || base.unbounded() || base.maxsat())
+			throw new IllegalArgumentException("Symmetry breaking requires a plain SAT solver: " + base);
+		return new SATFactory() {
+			public SATSolver instance() {
+				return new SymmetryBreakingSolver(base, length);
+			}
+			public boolean incremental() {
+				return base.incremental();
+			}
+			public String toString() { return "symmetryBreaking(" + base + ", " + length + ")"; }
+		};
+	}
+
 	/**
 	 * Returns a SATFactory that produces SATSolver wrappers for Syrup. This is
 	 * a parallel solver that is invoked as an external program rather than via
@@ -408,6 +498,17 @@ public abstract class SATFactory {
 		return false;
 	}
 	
+	/**
+	 * Returns true if the solvers returned by this.instance() are
+	 * {@link AssumptionSATSolver AssumptionSATSolvers}, i.e., they can solve 
+	 * their clauses under a set of assumptions.
+	 * @return true if the solvers returned by this.instance() are AssumptionSATSolvers
+	 */
+	// [HASLab]
+	public boolean assumptions() {
+		return false;
+	}
+	
 	/**
 	 * Returns true if the solvers returned by this.instance() are Max-SAT,
 	 * i.e., soft clauses and weights can added to the solver.
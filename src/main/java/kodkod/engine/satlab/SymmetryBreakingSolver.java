@@ -0,0 +1,554 @@
+/*
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.satlab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A solver that breaks the symmetries of its clauses before they are solved.
+ * The clauses added to this solver are passed on to a solver produced by the
+ * base factory, and recorded until {@link #solve()} is called for the first
+ * time. At that point, the solver searches for generators of the automorphism
+ * group of the recorded clauses, i.e. permutations of their variables that map
+ * the set of clauses onto itself, and adds to the base solver a lex-leader
+ * constraint for each generator found. The variables are compared in the
+ * order of their identifiers, so the primary variables of a Kodkod translation
+ * take precedence. Each constraint is truncated to its first
+ * {@code this.length} variables, and introduces a fresh variable for every
+ * comparison after the first.
+ *
+ * <p>
+ * The generators are found by a search in the style of saucy and bliss: the
+ * vertices of a graph that represents the clauses are coloured by iterated
+ * colour refinement, and the vertices of the first non-singleton cell are
+ * individualized, one at a time, until the colouring is discrete. The
+ * discrete colourings that are reached by individualizing different vertices
+ * of a cell induce candidate permutations, which are checked against the
+ * graph. The search is bounded, so it may miss some generators, but every
+ * generator that it reports is an automorphism of the clauses.
+ * </p>
+ *
+ * @specfield base: SATFactory
+ * @specfield length: int
+ * @author Nuno Macedo // [HASLab] CNF symmetry breaking
+ */
+final class SymmetryBreakingSolver implements SATSolver {
+	/** the number of vertex and edge visits allowed to the automorphism search */
+	private static final long SEARCH_EFFORT = 1 << 24;
+	/** the number of leaves that may be explored for each candidate generator */
+	private static final int LEAF_EFFORT = 16;
+
+	private final SATFactory base;
+	private final int length;
+	private final SATSolver solver;
+	private List<int[]> clauses;
+	private int generators;
+
+	/**
+	 * Constructs a solver that breaks the symmetries of its clauses with
+	 * lex-leader constraints of the given length, and solves the result with a
+	 * solver produced by the given factory.
+	 *
+	 * @requires length > 0
+	 */
+	SymmetryBreakingSolver(SATFactory base, int length) {
+		this.base = base;
+		this.length = length;
+		this.solver = base.instance();
+		this.clauses = new ArrayList<int[]>();
+		this.generators = -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#numberOfVariables()
+	 */
+	public int numberOfVariables() {
+		return solver.numberOfVariables();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#numberOfClauses()
+	 */
+	public int numberOfClauses() {
+		return solver.numberOfClauses();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#addVariables(int)
+	 */
+	public void addVariables(int numVars) {
+		solver.addVariables(numVars);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#addClause(int[])
+	 */
+	public boolean addClause(int[] lits) {
+		if (clauses != null)
+			clauses.add(lits.clone());
+		return solver.addClause(lits);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#solve()
+	 */
+	public boolean solve() throws SATAbortedException {
+		if (clauses != null) {
+			final Search search = new Search(clauses, solver.numberOfVariables());
+			clauses = null;
+			final List<int[]> perms = search.generators();
+			generators = perms.size();
+			for (int[] perm : perms)
+				lexLeader(perm);
+		}
+		return solver.solve();
+	}
+
+	/**
+	 * Returns the number of generators that were broken by this solver, or -1
+	 * if {@link #solve()} has not been called yet.
+	 *
+	 * @return the number of generators broken by this solver
+	 */
+	int generators() {
+		return generators;
+	}
+
+	/**
+	 * Adds to this.solver the clauses that constrain the assignment to the
+	 * variables to be lexicographically no greater than its image under the
+	 * given permutation, where perm[v] is the image of the variable v.
+	 */
+	private void lexLeader(int[] perm) {
+		final int[] support = new int[length];
+		int size = 0;
+		for (int v = 1; v < perm.length && size < length; v++) {
+			if (perm[v] != v)
+				support[size++] = v;
+		}
+		int prevEquals = 0; // the variable that is true if all previous comparisons are equalities, or 0 for the first
+		for (int i = 0; i < size; i++) {
+			final int v = support[i], p = perm[v];
+			solver.addClause(prevEquals == 0 ? new int[] { -v, p } : new int[] { -prevEquals, -v, p });
+			if (i < size - 1) {
+				solver.addVariables(1);
+				final int equals = solver.numberOfVariables();
+				if (prevEquals == 0) {
+					solver.addClause(new int[] { -v, -p, equals });
+					solver.addClause(new int[] { v, p, equals });
+				} else {
+					solver.addClause(new int[] { -prevEquals, -v, -p, equals });
+					solver.addClause(new int[] { -prevEquals, v, p, equals });
+				}
+				prevEquals = equals;
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#valueOf(int)
+	 */
+	public boolean valueOf(int variable) {
+		return solver.valueOf(variable);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#free()
+	 */
+	public synchronized void free() {
+		solver.free();
+		clauses = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "symmetryBreaking(" + base + ", " + length + ")";
+	}
+
+	/**
+	 * A bounded search for the generators of the automorphism group of a set
+	 * of clauses. The clauses are represented by a graph with two vertices per
+	 * variable, one for each of its literals, and a vertex per clause. The
+	 * literals of a variable are adjacent to each other and to the clauses in
+	 * which they occur. Positive literals, negative literals and clauses are
+	 * given different initial colours, so the automorphisms of the graph map
+	 * variables to variables.
+	 */
+	private static final class Search {
+		private final int vars, used;
+		/** the variable of each pair of literal vertices */
+		private final int[] varOf;
+		/** the adjacency lists of the vertices, sorted, in compressed form */
+		private final int[] start, adj;
+		private final int n;
+		private long effort;
+		/** the colourings, cell sizes and individualized vertices on the first path */
+		private final List<int[]> path, sizes;
+		private final List<Integer> chosen;
+		private int[] leaf;
+		/** the union-find forest of the vertex orbits under the generators found so far */
+		private final int[] orbits;
+
+		/**
+		 * Builds the graph of the given clauses over the given number of variables.
+		 */
+		Search(List<int[]> clauses, int vars) {
+			this.vars = vars;
+			final int[] id = new int[vars + 1];
+			Arrays.fill(id, -1);
+			final List<int[]> normal = new ArrayList<int[]>(clauses.size());
+			int used = 0;
+			for (int[] clause : clauses) {
+				final int[] c = normalize(clause);
+				if (c == null)
+					continue;
+				normal.add(c);
+				for (int lit : c) {
+					final int v = StrictMath.abs(lit);
+					if (id[v] < 0)
+						id[v] = 0;
+				}
+			}
+			this.varOf = new int[vars + 1];
+			for (int v = 1; v <= vars; v++) {
+				if (id[v] >= 0) {
+					varOf[used] = v;
+					id[v] = used++;
+				}
+			}
+			this.used = used;
+			this.n = 2 * used + normal.size();
+			final int[] degree = new int[n];
+			for (int i = 0; i < used; i++)
+				degree[2 * i] = degree[2 * i + 1] = 1;
+			for (int c = 0; c < normal.size(); c++) {
+				for (int lit : normal.get(c)) {
+					degree[vertex(id, lit)]++;
+					degree[2 * used + c]++;
+				}
+			}
+			this.start = new int[n + 1];
+			for (int u = 0; u < n; u++)
+				start[u + 1] = start[u] + degree[u];
+			this.adj = new int[start[n]];
+			final int[] fill = Arrays.copyOf(start, n);
+			for (int i = 0; i < used; i++) {
+				adj[fill[2 * i]++] = 2 * i + 1;
+				adj[fill[2 * i + 1]++] = 2 * i;
+			}
+			for (int c = 0; c < normal.size(); c++) {
+				final int cv = 2 * used + c;
+				for (int lit : normal.get(c)) {
+					final int lv = vertex(id, lit);
+					adj[fill[lv]++] = cv;
+					adj[fill[cv]++] = lv;
+				}
+			}
+			for (int u = 0; u < n; u++)
+				Arrays.sort(adj, start[u], start[u + 1]);
+			this.path = new ArrayList<int[]>();
+			this.sizes = new ArrayList<int[]>();
+			this.chosen = new ArrayList<Integer>();
+			this.orbits = new int[n];
+			for (int u = 0; u < n; u++)
+				orbits[u] = u;
+		}
+
+		/**
+		 * Returns the vertex of the given literal.
+		 */
+		private static int vertex(int[] id, int lit) {
+			return lit > 0 ? 2 * id[lit] : 2 * id[-lit] + 1;
+		}
+
+		/**
+		 * Returns the given clause without duplicate literals, or null if it is
+		 * a tautology.
+		 */
+		private static int[] normalize(int[] clause) {
+			final int[] c = clause.clone();
+			Arrays.sort(c);
+			int size = 0;
+			for (int i = 0; i < c.length; i++) {
+				if (size > 0 && c[size - 1] == c[i])
+					continue;
+				c[size++] = c[i];
+			}
+			for (int i = 0, j = size - 1; i < j;) {
+				final int sum = c[i] + c[j];
+				if (sum == 0)
+					return null;
+				else if (sum < 0)
+					i++;
+				else
+					j--;
+			}
+			return size == c.length ? c : Arrays.copyOf(c, size);
+		}
+
+		/**
+		 * Returns the generators found by this search, as permutations of
+		 * [0..vars] that fix 0.
+		 */
+		List<int[]> generators() {
+			final List<int[]> gens = new ArrayList<int[]>();
+			if (n == 0)
+				return gens;
+			final int[] initial = new int[n];
+			for (int u = 0; u < n; u++)
+				initial[u] = u < 2 * used ? (u & 1) : 2;
+			int[] col = refine(initial);
+			while (col != null) {
+				final int[] counts = counts(col);
+				path.add(col);
+				sizes.add(counts);
+				final int target = target(counts);
+				if (target < 0) {
+					leaf = col;
+					break;
+				}
+				final int v = first(col, target);
+				chosen.add(v);
+				col = refine(individualize(col, v));
+			}
+			if (leaf == null)
+				return gens;
+			for (int level = chosen.size() - 1; level >= 0 && effort < SEARCH_EFFORT; level--) {
+				final int[] lcol = path.get(level);
+				final int v = chosen.get(level);
+				final int target = lcol[v];
+				for (int w = 0; w < n && effort < SEARCH_EFFORT; w++) {
+					if (lcol[w] != target || w == v || find(w) == find(v))
+						continue;
+					final int[] budget = { LEAF_EFFORT };
+					final int[] perm = search(refine(individualize(lcol, w)), level + 1, budget);
+					if (perm != null) {
+						for (int u = 0; u < n; u++)
+							union(u, perm[u]);
+						final int[] varPerm = variables(perm);
+						if (varPerm != null)
+							gens.add(varPerm);
+					}
+				}
+			}
+			return gens;
+		}
+
+		/**
+		 * Returns the permutation of the variables induced by the given vertex
+		 * permutation, or null if it is the identity on the variables.
+		 */
+		private int[] variables(int[] perm) {
+			final int[] ret = new int[vars + 1];
+			for (int v = 0; v <= vars; v++)
+				ret[v] = v;
+			boolean identity = true;
+			for (int i = 0; i < used; i++) {
+				final int image = perm[2 * i] >> 1;
+				if (image != i) {
+					identity = false;
+					ret[varOf[i]] = varOf[image];
+				}
+			}
+			return identity ? null : ret;
+		}
+
+		/**
+		 * Searches for a discrete colouring below the given one, at the given
+		 * depth, that induces an automorphism together with the leaf of the
+		 * first path. Returns that automorphism, or null if none is found within
+		 * the given budget.
+		 */
+		private int[] search(int[] col, int depth, int[] budget) {
+			if (col == null || !Arrays.equals(counts(col), sizes.get(depth)))
+				return null;
+			if (depth == path.size() - 1) {
+				budget[0]--;
+				return automorphism(col);
+			}
+			final int target = target(sizes.get(depth));
+			for (int x = 0; x < n && budget[0] > 0 && effort < SEARCH_EFFORT; x++) {
+				if (col[x] != target)
+					continue;
+				final int[] perm = search(refine(individualize(col, x)), depth + 1, budget);
+				if (perm != null)
+					return perm;
+			}
+			return null;
+		}
+
+		/**
+		 * Returns the permutation that maps each vertex of this.leaf to the
+		 * vertex with the same colour in the given discrete colouring, if it is
+		 * an automorphism of the graph, or null otherwise.
+		 */
+		private int[] automorphism(int[] col) {
+			final int[] inverse = new int[n];
+			for (int u = 0; u < n; u++)
+				inverse[col[u]] = u;
+			final int[] perm = new int[n];
+			for (int u = 0; u < n; u++)
+				perm[u] = inverse[leaf[u]];
+			for (int u = 0; u < n; u++) {
+				final int pu = perm[u];
+				if (start[u + 1] - start[u] != start[pu + 1] - start[pu])
+					return null;
+				for (int i = start[u]; i < start[u + 1]; i++) {
+					if (Arrays.binarySearch(adj, start[pu], start[pu + 1], perm[adj[i]]) < 0)
+						return null;
+				}
+				effort += start[u + 1] - start[u] + 1;
+			}
+			return perm;
+		}
+
+		/**
+		 * Returns the colouring obtained from the given one by giving the
+		 * vertex v a colour of its own.
+		 */
+		private int[] individualize(int[] col, int v) {
+			final int[] ret = new int[n];
+			for (int u = 0; u < n; u++)
+				ret[u] = 2 * col[u] + (col[u] == col[v] && u != v ? 1 : 0);
+			return ret;
+		}
+
+		/**
+		 * Refines the given colouring until the colour of each vertex and the
+		 * multiset of the colours of its neighbours determine each other. The
+		 * colours are renumbered densely, in an order that depends only on the
+		 * colours of the given colouring and the structure of the graph, so
+		 * isomorphic colourings are refined to isomorphic colourings. Returns
+		 * null if the search effort is exhausted.
+		 */
+		private int[] refine(int[] col) {
+			int cells = renumber(col, null);
+			final long[] keys = new long[n];
+			while (effort < SEARCH_EFFORT) {
+				for (int u = 0; u < n; u++) {
+					int hash = 0;
+					for (int i = start[u]; i < start[u + 1]; i++)
+						hash += mix(col[adj[i]]);
+					keys[u] = ((long) col[u] << 32) | (hash & 0xffffffffL);
+				}
+				effort += n + adj.length;
+				final int refined = renumber(col, keys);
+				if (refined == cells)
+					return col;
+				cells = refined;
+			}
+			return null;
+		}
+
+		/**
+		 * Replaces each colour in col by the rank of its key, or of its colour
+		 * if keys is null, among the distinct keys of all vertices. Returns the
+		 * number of distinct keys.
+		 */
+		private int renumber(int[] col, long[] keys) {
+			final long[] sorted = new long[n];
+			for (int u = 0; u < n; u++)
+				sorted[u] = keys == null ? col[u] : keys[u];
+			Arrays.sort(sorted);
+			int distinct = 0;
+			for (int i = 0; i < n; i++) {
+				if (i == 0 || sorted[i] != sorted[distinct - 1])
+					sorted[distinct++] = sorted[i];
+			}
+			for (int u = 0; u < n; u++)
+				col[u] = Arrays.binarySearch(sorted, 0, distinct, keys == null ? col[u] : keys[u]);
+			effort += n;
+			return distinct;
+		}
+
+		/**
+		 * Returns a hash of the given colour.
+		 */
+		private static int mix(int c) {
+			int h = c * 0x9E3779B9;
+			h ^= h >>> 16;
+			h *= 0x85EBCA6B;
+			h ^= h >>> 13;
+			return h;
+		}
+
+		/**
+		 * Returns the size of each cell of the given colouring.
+		 */
+		private int[] counts(int[] col) {
+			int max = 0;
+			for (int u = 0; u < n; u++)
+				max = StrictMath.max(max, col[u]);
+			final int[] ret = new int[max + 1];
+			for (int u = 0; u < n; u++)
+				ret[col[u]]++;
+			return ret;
+		}
+
+		/**
+		 * Returns the first colour with more than one vertex, or -1 if the
+		 * colouring is discrete.
+		 */
+		private static int target(int[] counts) {
+			for (int c = 0; c < counts.length; c++)
+				if (counts[c] > 1)
+					return c;
+			return -1;
+		}
+
+		/**
+		 * Returns the first vertex with the given colour.
+		 */
+		private int first(int[] col, int colour) {
+			for (int u = 0;; u++)
+				if (col[u] == colour)
+					return u;
+		}
+
+		private int find(int u) {
+			while (orbits[u] != u) {
+				orbits[u] = orbits[orbits[u]];
+				u = orbits[u];
+			}
+			return u;
+		}
+
+		private void union(int u, int v) {
+			final int ru = find(u), rv = find(v);
+			if (ru != rv)
+				orbits[StrictMath.max(ru, rv)] = StrictMath.min(ru, rv);
+		}
+	}
+}
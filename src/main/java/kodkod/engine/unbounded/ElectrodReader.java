@@ -22,27 +22,28 @@
  */
 package kodkod.engine.unbounded;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import kodkod.ast.Relation;
 import kodkod.instance.Instance;
 import kodkod.instance.PardinusBounds;
 import kodkod.instance.TemporalInstance;
-import kodkod.instance.Tuple;
+import kodkod.instance.TupleFactory;
 import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
 import kodkod.util.ints.IndexedEntry;
 
 /**
@@ -51,6 +52,9 @@ import kodkod.util.ints.IndexedEntry;
  * Kodkod/Pardinus. Some renaming has been done between on the atoms/relations
  * in the translation to Electrod, which must be reverted.
  * 
+ * The XML solution is parsed by a streaming parser, and each state of the
+ * trace is built as it is read, so the document is never held in memory.
+ * 
  * @author Nuno Macedo // [HASLab] unbounded temporal model finding
  */
 public class ElectrodReader {
@@ -59,6 +63,9 @@ public class ElectrodReader {
 	private int loop;
 	public int nbvars, ctime, atime;
 	private PardinusBounds bounds;
+	/** the atoms and relations of the bounds, by their names in Electrod */
+	private final Map<String, Object> atoms;
+	private final Map<String, Relation> relations;
 
 	/**
 	 * Initializes the Electrod solution reader with the original problem
@@ -71,6 +78,12 @@ public class ElectrodReader {
 		this.insts = new ArrayList<Instance>();
 		this.loop = -1;
 		this.bounds = bounds;
+		this.atoms = new HashMap<String, Object>();
+		for (Object atom : bounds.universe())
+			atoms.put(ElectrodPrinter.normRel(atom.toString()), atom);
+		this.relations = new HashMap<String, Relation>();
+		for (Relation r : bounds.relations())
+			relations.put(ElectrodPrinter.normRel(r.toString()), r);
 	}
 
 	/**
@@ -85,30 +98,48 @@ public class ElectrodReader {
 	 *             if the parsing fails.
 	 */
 	public TemporalInstance read(File file) throws InvalidUnboundedSolution {
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setValidating(false);
-		factory.setIgnoringElementContentWhitespace(true);
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			return read(in);
+		} catch (IOException e) {
+			throw new InvalidUnboundedSolution("Failed to parse Electrod XML.", e);
+		}
+	}
+
+	/**
+	 * Reads an Electrod solution from an XML stream, creating a temporal
+	 * instance that can be processed by Kodkod/Pardinus. Returns null if the
+	 * problem is unsatisfiable. The stream is not closed.
+	 * 
+	 * @param in
+	 *            the XML Electrod solution to be parsed.
+	 * @return the parsed temporal instance or null if unsat.
+	 * @throws InvalidUnboundedSolution
+	 *             if the parsing fails.
+	 */
+	public TemporalInstance read(InputStream in) throws InvalidUnboundedSolution {
+		final XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
 		try {
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document doc = builder.parse(file);
-			Element root = doc.getDocumentElement();
-			nbvars = Integer.valueOf(root.getAttributes().getNamedItem("nbvars").getNodeValue());
-			ctime = Integer.valueOf(root.getAttributes().getNamedItem("conversion-time").getNodeValue());
-			atime = Integer.valueOf(root.getAttributes().getNamedItem("analysis-time").getNodeValue());
-			NodeList elems = root.getChildNodes();
-			int c = 0;
-			for (int i = 0; i < elems.getLength(); i++) {
-				if (elems.item(i).getNodeName().equals("st")) {
-					if (elems.item(i).getAttributes().getNamedItem("loop-target").getNodeValue()
-							.equals("true"))
-						loop = c;
-					insts.add(state(elems.item(i)));
-					c++;
+			final XMLStreamReader xml = factory.createXMLStreamReader(in);
+			try {
+				root(xml);
+				nbvars = Integer.valueOf(attribute(xml, "nbvars"));
+				ctime = Integer.valueOf(attribute(xml, "conversion-time"));
+				atime = Integer.valueOf(attribute(xml, "analysis-time"));
+				while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					if (xml.getLocalName().equals("st")) {
+						if (attribute(xml, "loop-target").equals("true"))
+							loop = insts.size();
+						insts.add(state(xml));
+					} else
+						skip(xml);
 				}
+			} finally {
+				xml.close();
 			}
-		} catch (ParserConfigurationException | SAXException | IOException e) {
-			throw new InvalidUnboundedSolution("Failed to parse Electrod XML.",
-					e);
+		} catch (XMLStreamException | NumberFormatException e) {
+			throw new InvalidUnboundedSolution("Failed to parse Electrod XML.", e);
 		}
 		if (insts.size() == 0)
 			return null;
@@ -116,66 +147,104 @@ public class ElectrodReader {
 		return new TemporalInstance(insts, loop, 1);
 	}
 
+	/**
+	 * Returns the value of the given attribute of the current element.
+	 * 
+	 * @throws InvalidUnboundedSolution
+	 *             if the attribute is missing.
+	 */
+	private static String attribute(XMLStreamReader xml, String name) {
+		final String value = xml.getAttributeValue(null, name);
+		if (value == null)
+			throw new InvalidUnboundedSolution("Missing attribute " + name + " in Electrod XML element " + xml.getLocalName() + ".");
+		return value;
+	}
+
+	/**
+	 * Moves the stream to the start of the root element, skipping the prolog,
+	 * including a document type declaration, which nextTag does not accept.
+	 * 
+	 * @throws InvalidUnboundedSolution
+	 *             if the document has no root element.
+	 */
+	private static void root(XMLStreamReader xml) throws XMLStreamException {
+		while (xml.getEventType() != XMLStreamConstants.START_ELEMENT) {
+			if (!xml.hasNext())
+				throw new InvalidUnboundedSolution("Missing root element in Electrod XML.");
+			xml.next();
+		}
+	}
+
+	/**
+	 * Skips the current element and its contents.
+	 */
+	private static void skip(XMLStreamReader xml) throws XMLStreamException {
+		for (int depth = 1; depth > 0;) {
+			final int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+	}
+
 	/**
 	 * Parses a single state of the trace as a static regular Kodkod
-	 * {@link Instance instance}. Atoms and relations may have been renamed by
+	 * {@link Instance instance}, consuming the state element from the given
+	 * stream. Atoms and relations may have been renamed by
 	 * {@link ElectrodPrinter#normRel(String)}, which must be reverted.
+	 * Relations omitted from the state take their exact bound if they have
+	 * one, since Electrod does not report relations fixed by the bounds, and
+	 * are empty otherwise.
 	 * 
-	 * @param node
-	 *            the XML node containing the state.
+	 * @param xml
+	 *            the XML stream, positioned at the start of the state.
 	 * @return the static instance corresponding to the state.
 	 */
-	private Instance state(Node node) {
-		Instance inst = new Instance(bounds.universe());
-
-		for (Relation r : bounds.relations()) {
-			NodeList e = null;
-			for (int i = 0; i < node.getChildNodes().getLength(); i++) {
-				if (node.getChildNodes().item(i).getNodeName().equals("rel")) {
-					String nm = ElectrodPrinter.normRel(r.toString());
-					if (node.getChildNodes().item(i).getAttributes()
-							.getNamedItem("name").getNodeValue().equals(nm))
-						e = node.getChildNodes().item(i).getChildNodes();
-				}
+	private Instance state(XMLStreamReader xml) throws XMLStreamException {
+		final Universe universe = bounds.universe();
+		final TupleFactory factory = universe.factory();
+		final Map<Relation, TupleSet> tuples = new HashMap<Relation, TupleSet>();
+		while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			final Relation r = xml.getLocalName().equals("rel") ? relations.get(attribute(xml, "name")) : null;
+			if (r == null) {
+				skip(xml);
+				continue;
 			}
-			List<List<String>> buff__ = new ArrayList<List<String>>();
-
-			if (e != null)
-				for (int i = 0; i < e.getLength(); i++) {
-					if (e.item(i).getNodeName().equals("t")) {
-						List<String> buff_ = new ArrayList<String>();
-						for (int j = 0; j < e.item(i).getChildNodes()
-								.getLength(); j++) {
-							if (e.item(i).getChildNodes().item(j).getNodeName()
-									.equals("a")) {
-								buff_.add(e.item(i).getChildNodes().item(j)
-										.getTextContent());
-							}
-						}
-						buff__.add(buff_);
-					}
+			final TupleSet ts = factory.noneOf(r.arity());
+			final List<Object> tuple = new ArrayList<Object>(r.arity());
+			while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				if (!xml.getLocalName().equals("t")) {
+					skip(xml);
+					continue;
 				}
-
-			List<Tuple> buff = new ArrayList<Tuple>();
-			for (List<String> buff_ : buff__) {
-				List<Object> _buff = new ArrayList<Object>();
-				for (String x : buff_)
-					for (int i = 0; i < bounds.universe().size(); i++) {
-						if (ElectrodPrinter.normRel(bounds.universe().atom(i).toString()).equals(x))
-							_buff.add(bounds.universe().atom(i));
+				tuple.clear();
+				while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					if (!xml.getLocalName().equals("a")) {
+						skip(xml);
+						continue;
 					}
-				buff.add(bounds.universe().factory().tuple(_buff));
+					final String name = xml.getElementText().trim();
+					final Object atom = atoms.get(name);
+					if (atom == null)
+						throw new InvalidUnboundedSolution("Unknown atom " + name + " in Electrod XML.");
+					tuple.add(atom);
+				}
+				ts.add(factory.tuple(tuple));
 			}
+			tuples.put(r, ts);
+		}
 
-			TupleSet t;
-			if (buff.isEmpty())
-				t = bounds.universe().factory().noneOf(r.arity());
-			else
-				t = bounds.universe().factory().setOf(buff);
-
-			inst.add(r, t);
+		final Instance inst = new Instance(universe);
+		for (Relation r : bounds.relations()) {
+			TupleSet ts = tuples.get(r);
+			if (ts == null) {
+				final TupleSet upper = bounds.upperBound(r);
+				ts = bounds.lowerBound(r).size() == upper.size() ? upper.clone() : factory.noneOf(r.arity());
+			}
+			inst.add(r, ts);
 		}
-		
+
 		// propagate integers
 		for(IndexedEntry<TupleSet> x : bounds.intBounds()) {
 			inst.add(x.index(), x.value());
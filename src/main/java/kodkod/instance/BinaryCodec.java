@@ -0,0 +1,1125 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.instance;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import kodkod.ast.BinaryExpression;
+import kodkod.ast.BinaryFormula;
+import kodkod.ast.BinaryIntExpression;
+import kodkod.ast.BinaryTempFormula;
+import kodkod.ast.ComparisonFormula;
+import kodkod.ast.Comprehension;
+import kodkod.ast.ConstantExpression;
+import kodkod.ast.ConstantFormula;
+import kodkod.ast.Decl;
+import kodkod.ast.Decls;
+import kodkod.ast.ExprToIntCast;
+import kodkod.ast.Expression;
+import kodkod.ast.Formula;
+import kodkod.ast.IfExpression;
+import kodkod.ast.IfIntExpression;
+import kodkod.ast.IntComparisonFormula;
+import kodkod.ast.IntConstant;
+import kodkod.ast.IntExpression;
+import kodkod.ast.IntToExprCast;
+import kodkod.ast.MultiplicityFormula;
+import kodkod.ast.NaryExpression;
+import kodkod.ast.NaryFormula;
+import kodkod.ast.NaryIntExpression;
+import kodkod.ast.Node;
+import kodkod.ast.NotFormula;
+import kodkod.ast.ProjectExpression;
+import kodkod.ast.QuantifiedFormula;
+import kodkod.ast.Relation;
+import kodkod.ast.RelationPredicate;
+import kodkod.ast.SumExpression;
+import kodkod.ast.TempExpression;
+import kodkod.ast.UnaryExpression;
+import kodkod.ast.UnaryIntExpression;
+import kodkod.ast.UnaryTempFormula;
+import kodkod.ast.Variable;
+import kodkod.ast.operator.ExprCastOperator;
+import kodkod.ast.operator.ExprCompOperator;
+import kodkod.ast.operator.ExprOperator;
+import kodkod.ast.operator.FormulaOperator;
+import kodkod.ast.operator.IntCastOperator;
+import kodkod.ast.operator.IntCompOperator;
+import kodkod.ast.operator.IntOperator;
+import kodkod.ast.operator.Multiplicity;
+import kodkod.ast.operator.Quantifier;
+import kodkod.ast.operator.TemporalOperator;
+import kodkod.ast.visitor.ReturnVisitor;
+import kodkod.util.ints.IndexedEntry;
+import kodkod.util.ints.IntIterator;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.Ints;
+
+/**
+ * Compact, versioned binary encoding of {@link Universe universes},
+ * {@link Bounds bounds} (including resolved {@link PardinusBounds}),
+ * {@link Instance instances}, {@link TemporalInstance temporal instances} and
+ * {@link Formula formulas}.
+ * Encodings are written to output streams and read back from byte buffers,
+ * which may be {@link #map(File) memory-mapped} from a file.
+ * 
+ * <p>
+ * An encoding starts with the magic bytes <tt>KKB</tt>, the format version and
+ * the kind of the encoded object, followed by the atoms of the universe. All
+ * numbers are varints, with 7 bits per byte and the high bit set in all but the
+ * last byte of a value; signed numbers are zig-zag encoded first. Atoms must be
+ * strings or integers. A relation is encoded by its index in the order of first
+ * occurrence, and its name, arity and whether it is variable follow that first
+ * occurrence. A tuple set is encoded as the runs of consecutive indices of its
+ * tuples: the number of runs, followed by the distance of each run from the end
+ * of the previous one and its length. Tuple sets are read back directly from
+ * these indices, so atoms are only hashed once, when the universe is created.
+ * </p>
+ * 
+ * <p>
+ * Formulas are not drawn from a universe, so their header is not followed by
+ * any atoms. A formula is encoded as the nodes of its DAG in post-order: each
+ * node is encoded by a tag, followed by its operator and children, and a node
+ * that was already encoded is referred to by its index in that order, so that
+ * shared sub-formulas are encoded, and read back, only once. Variables are
+ * encoded by their name and arity, and relations as above.
+ * </p>
+ * 
+ * <p>
+ * Relations are matched by name, arity and whether they are variable against
+ * the relations given to the read methods (and their expansions, for variable
+ * relations); the remaining ones are created afresh.
+ * </p>
+ * 
+ * @author Nuno Macedo // [HASLab] binary encoding
+ */
+public final class BinaryCodec {
+
+	/** The current version of the format. */
+	public static final int VERSION = 1;
+
+	private static final byte[] MAGIC = { 'K', 'K', 'B' };
+	private static final int UNIVERSE = 0, BOUNDS = 1, PARDINUS_BOUNDS = 2, INSTANCE = 3, TEMPORAL_INSTANCE = 4, FORMULA = 5;
+	private static final int STRING = 0, INTEGER = 1;
+	private static final int REF = 0, RELATION = 1, VARIABLE = 2, CONSTANT_EXPR = 3, UNARY_EXPR = 4, BINARY_EXPR = 5,
+			NARY_EXPR = 6, COMPREHENSION = 7, IF_EXPR = 8, PROJECT = 9, INT_TO_EXPR = 10, TEMP_EXPR = 11,
+			INT_CONSTANT = 12, IF_INT = 13, EXPR_TO_INT = 14, NARY_INT = 15, BINARY_INT = 16, UNARY_INT = 17, SUM = 18,
+			INT_COMPARISON = 19, QUANTIFIED = 20, NARY_FORMULA = 21, BINARY_FORMULA = 22, NOT = 23,
+			CONSTANT_FORMULA = 24, COMPARISON = 25, MULTIPLICITY = 26, FUNCTION = 27, ACYCLIC = 28,
+			TOTAL_ORDERING = 29, UNARY_TEMP = 30, BINARY_TEMP = 31, DECL = 32, DECLS = 33;
+	private static final Expression[] CONSTANTS = { Expression.UNIV, Expression.IDEN, Expression.NONE, Expression.INTS };
+
+	private BinaryCodec() {}
+
+	/**
+	 * Writes the encoding of the given universe to the given stream. The stream
+	 * is flushed but not closed.
+	 * 
+	 * @throws NullPointerException     universe = null || out = null
+	 * @throws IllegalArgumentException some atom of the universe is neither a
+	 *                                  String nor an Integer
+	 * @throws IOException              an I/O error occurs
+	 */
+	public static void write(Universe universe, OutputStream out) throws IOException {
+		final Writer w = new Writer(out, UNIVERSE, universe);
+		w.flush();
+	}
+
+	/**
+	 * Writes the encoding of the given bounds to the given stream. For
+	 * {@link PardinusBounds}, the targets, weights and amalgamated bounds are
+	 * also encoded. The stream is flushed but not closed.
+	 * 
+	 * @throws NullPointerException     bounds = null || out = null
+	 * @throws IllegalArgumentException some atom of bounds.universe is neither a
+	 *                                  String nor an Integer
+	 * @throws IllegalArgumentException bounds has unresolved symbolic bounds
+	 * @throws IOException              an I/O error occurs
+	 */
+	public static void write(Bounds bounds, OutputStream out) throws IOException {
+		if (bounds instanceof PardinusBounds) {
+			final Writer w = new Writer(out, PARDINUS_BOUNDS, bounds.universe());
+			w.pardinusBounds((PardinusBounds) bounds);
+			w.flush();
+		} else {
+			final Writer w = new Writer(out, BOUNDS, bounds.universe());
+			w.bounds(bounds);
+			w.flush();
+		}
+	}
+
+	/**
+	 * Writes the encoding of the given instance to the given stream. A
+	 * {@link TemporalInstance} is encoded by its static universe, its states and
+	 * its loop. The stream is flushed but not closed.
+	 * 
+	 * @throws NullPointerException     instance = null || out = null
+	 * @throws IllegalArgumentException some atom of the instance is neither a
+	 *                                  String nor an Integer
+	 * @throws IOException              an I/O error occurs
+	 */
+	public static void write(Instance instance, OutputStream out) throws IOException {
+		if (instance instanceof TemporalInstance) {
+			final TemporalInstance temporal = (TemporalInstance) instance;
+			final Writer w = new Writer(out, TEMPORAL_INSTANCE, temporal.staticUniverse());
+			w.varint(temporal.prefixLength());
+			w.varint(temporal.loop);
+			w.varint(temporal.unrolls);
+			for (int i = 0; i < temporal.prefixLength(); i++)
+				w.instance(temporal.state(i));
+			w.flush();
+		} else {
+			final Writer w = new Writer(out, INSTANCE, instance.universe());
+			w.instance(instance);
+			w.flush();
+		}
+	}
+
+	/**
+	 * Writes the encoding of the given formula to the given stream. The stream
+	 * is flushed but not closed.
+	 * 
+	 * @throws NullPointerException formula = null || out = null
+	 * @throws IOException          an I/O error occurs
+	 */
+	public static void write(Formula formula, OutputStream out) throws IOException {
+		final Writer w = new Writer(out, FORMULA, null);
+		try {
+			w.node(formula);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		w.flush();
+	}
+
+	/**
+	 * Reads a universe from the given buffer, starting at its current position.
+	 * 
+	 * @ensures advances the position of the buffer past the encoding
+	 * @return the decoded universe
+	 * @throws IllegalArgumentException the buffer does not hold the encoding of
+	 *                                  a universe
+	 */
+	public static Universe readUniverse(ByteBuffer in) {
+		return new Reader(in, Collections.<Relation>emptySet(), UNIVERSE, UNIVERSE).universe;
+	}
+
+	/**
+	 * Returns readBounds(in, {}).
+	 * 
+	 * @return readBounds(in, {})
+	 */
+	public static Bounds readBounds(ByteBuffer in) {
+		return readBounds(in, Collections.<Relation>emptySet());
+	}
+
+	/**
+	 * Reads bounds from the given buffer, starting at its current position. The
+	 * result is a {@link PardinusBounds} if so were the encoded bounds.
+	 * Relations are matched against the given ones.
+	 * 
+	 * @ensures advances the position of the buffer past the encoding
+	 * @return the decoded bounds
+	 * @throws IllegalArgumentException the buffer does not hold the encoding of
+	 *                                  bounds
+	 */
+	public static Bounds readBounds(ByteBuffer in, Collection<Relation> relations) {
+		final Reader r = new Reader(in, relations, BOUNDS, PARDINUS_BOUNDS);
+		try {
+			if (r.kind == BOUNDS)
+				return r.bounds(new Bounds(r.universe));
+			else
+				return r.pardinusBounds();
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("truncated encoding", e);
+		}
+	}
+
+	/**
+	 * Returns readInstance(in, {}).
+	 * 
+	 * @return readInstance(in, {})
+	 */
+	public static Instance readInstance(ByteBuffer in) {
+		return readInstance(in, Collections.<Relation>emptySet());
+	}
+
+	/**
+	 * Reads an instance from the given buffer, starting at its current
+	 * position. The result is a {@link TemporalInstance} if so was the encoded
+	 * instance. Relations are matched against the given ones.
+	 * 
+	 * @ensures advances the position of the buffer past the encoding
+	 * @return the decoded instance
+	 * @throws IllegalArgumentException the buffer does not hold the encoding of
+	 *                                  an instance
+	 */
+	public static Instance readInstance(ByteBuffer in, Collection<Relation> relations) {
+		return readInstance(in, null, relations);
+	}
+
+	/**
+	 * Reads an instance from the given buffer, as
+	 * {@link #readInstance(ByteBuffer, Collection)}, but drawn from the given
+	 * universe rather than a new one. For temporal instances, the given universe
+	 * is their static universe.
+	 * 
+	 * @ensures advances the position of the buffer past the encoding
+	 * @return the decoded instance
+	 * @throws IllegalArgumentException the buffer does not hold the encoding of
+	 *                                  an instance over the atoms of universe,
+	 *                                  in the same order
+	 */
+	public static Instance readInstance(ByteBuffer in, Universe universe, Collection<Relation> relations) {
+		final Reader r = new Reader(in, relations, INSTANCE, TEMPORAL_INSTANCE, universe);
+		try {
+			if (r.kind == INSTANCE)
+				return r.instance();
+			final int length = r.varint(), loop = r.varint(), unrolls = r.varint();
+			final List<Instance> states = new ArrayList<Instance>(length);
+			for (int i = 0; i < length; i++)
+				states.add(r.instance());
+			return new TemporalInstance(states, loop, unrolls);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("truncated encoding", e);
+		}
+	}
+
+	/**
+	 * Reads a formula from the given buffer, starting at its current position.
+	 * Relations are matched against the given ones, while variables are always
+	 * created afresh.
+	 * 
+	 * @ensures advances the position of the buffer past the encoding
+	 * @return the decoded formula
+	 * @throws IllegalArgumentException the buffer does not hold the encoding of
+	 *                                  a formula
+	 */
+	public static Formula readFormula(ByteBuffer in, Collection<Relation> relations) {
+		final Reader r = new Reader(in, relations, FORMULA, FORMULA);
+		try {
+			return r.node(Formula.class);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("truncated encoding", e);
+		}
+	}
+
+	/**
+	 * Maps the given file into memory, so that its encoding can be read without
+	 * copying it to the heap first.
+	 * 
+	 * @return a read-only buffer with the contents of the given file
+	 * @throws IOException an I/O error occurs
+	 */
+	public static ByteBuffer map(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		}
+	}
+
+	/**
+	 * Encodes objects over a given universe.
+	 */
+	private static final class Writer {
+		private final OutputStream out;
+		private final Map<Relation, Integer> relations = new IdentityHashMap<Relation, Integer>();
+		private final Map<Node, Integer> nodes = new IdentityHashMap<Node, Integer>();
+		private final Encoder encoder = new Encoder();
+
+		/**
+		 * Writes the header of an encoding of the given kind, followed by the
+		 * given universe, if any.
+		 */
+		Writer(OutputStream out, int kind, Universe universe) throws IOException {
+			this.out = new BufferedOutputStream(out);
+			this.out.write(MAGIC);
+			this.out.write(VERSION);
+			this.out.write(kind);
+			if (universe == null)
+				return;
+			varint(universe.size());
+			for (Object atom : universe) {
+				if (atom instanceof String) {
+					this.out.write(STRING);
+					string((String) atom);
+				} else if (atom instanceof Integer) {
+					this.out.write(INTEGER);
+					signed((Integer) atom);
+				} else
+					throw new IllegalArgumentException("atom is neither a String nor an Integer: " + atom);
+			}
+		}
+
+		void flush() throws IOException {
+			out.flush();
+		}
+
+		void varint(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				out.write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			out.write(value);
+		}
+
+		void signed(int value) throws IOException {
+			varint((value << 1) ^ (value >> 31));
+		}
+
+		void string(String s) throws IOException {
+			final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			varint(bytes.length);
+			out.write(bytes);
+		}
+
+		/** Writes the index of r, followed by its declaration if this is its first occurrence. */
+		void relation(Relation r) throws IOException {
+			final Integer id = relations.get(r);
+			if (id != null)
+				varint(id);
+			else {
+				varint(relations.size());
+				relations.put(r, relations.size());
+				string(r.name());
+				varint(r.arity());
+				out.write(r.isVariable() ? 1 : 0);
+			}
+		}
+
+		/** Writes the runs of consecutive indices in ts. */
+		void tuples(TupleSet ts) throws IOException {
+			final IntSet indices = ts.indexView();
+			int runs = 0;
+			for (IntIterator itr = indices.iterator(); itr.hasNext();) {
+				final int i = itr.next();
+				if (runs == 0 || !indices.contains(i - 1))
+					runs++;
+			}
+			varint(runs);
+			int end = 0, start = -1, last = -1;
+			for (IntIterator itr = indices.iterator(); itr.hasNext();) {
+				final int i = itr.next();
+				if (start >= 0 && i == last + 1) {
+					last = i;
+					continue;
+				}
+				if (start >= 0) {
+					varint(start - end);
+					varint(last - start);
+					end = last + 1;
+				}
+				start = last = i;
+			}
+			if (start >= 0) {
+				varint(start - end);
+				varint(last - start);
+			}
+		}
+
+		void bounds(Bounds bounds) throws IOException {
+			varint(bounds.relations().size());
+			for (Relation r : bounds.relations()) {
+				relation(r);
+				tuples(bounds.lowerBound(r));
+				tuples(bounds.upperBound(r));
+			}
+			varint(bounds.intBounds().size());
+			for (IndexedEntry<TupleSet> entry : bounds.intBounds()) {
+				signed(entry.index());
+				tuples(entry.value());
+			}
+		}
+
+		void pardinusBounds(PardinusBounds bounds) throws IOException {
+			if (!bounds.resolved())
+				throw new IllegalArgumentException("symbolic bounds must be resolved before encoding");
+			bounds(bounds);
+			varint(bounds.targets().size());
+			for (Map.Entry<Relation, TupleSet> entry : bounds.targets().entrySet()) {
+				relation(entry.getKey());
+				tuples(entry.getValue());
+			}
+			varint(bounds.weights().size());
+			for (Map.Entry<Relation, Integer> entry : bounds.weights().entrySet()) {
+				relation(entry.getKey());
+				signed(entry.getValue());
+			}
+			out.write((bounds.integrated ? 1 : 0) | (bounds.trivial_config ? 2 : 0)
+					| (bounds.amalgamated != null ? 4 : 0));
+			if (bounds.amalgamated != null)
+				pardinusBounds(bounds.amalgamated);
+		}
+
+		void instance(Instance instance) throws IOException {
+			varint(instance.relations().size());
+			for (Relation r : instance.relations()) {
+				relation(r);
+				tuples(instance.tuples(r));
+			}
+			varint(instance.intTuples().size());
+			for (IndexedEntry<TupleSet> entry : instance.intTuples()) {
+				signed(entry.index());
+				tuples(entry.value());
+			}
+		}
+
+		/**
+		 * Writes n, or its index if it was already written. Since nodes are
+		 * written by a visitor, I/O errors are rethrown unchecked.
+		 */
+		void node(Node n) {
+			final Integer id = nodes.get(n);
+			try {
+				if (id != null) {
+					varint(REF);
+					varint(id);
+				} else {
+					n.accept(encoder);
+					nodes.put(n, nodes.size());
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Writes the tag and the operator, or other values, of each node,
+		 * followed by its children.
+		 */
+		private final class Encoder implements ReturnVisitor<Object, Object, Object, Object> {
+
+			private void head(int tag, int... values) {
+				try {
+					varint(tag);
+					for (int v : values)
+						varint(v);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			private Object children(Node... children) {
+				for (Node child : children)
+					node(child);
+				return null;
+			}
+
+			public Object visit(Decls decls) {
+				head(DECLS, decls.size());
+				for (Decl decl : decls)
+					node(decl);
+				return null;
+			}
+
+			public Object visit(Decl decl) {
+				head(DECL, decl.multiplicity().ordinal());
+				return children(decl.variable(), decl.expression());
+			}
+
+			public Object visit(Relation relation) {
+				try {
+					varint(RELATION);
+					relation(relation);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return null;
+			}
+
+			public Object visit(Variable variable) {
+				try {
+					varint(VARIABLE);
+					string(variable.name());
+					varint(variable.arity());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return null;
+			}
+
+			public Object visit(ConstantExpression constExpr) {
+				final int i = Arrays.asList(CONSTANTS).indexOf(constExpr);
+				if (i < 0)
+					throw new IllegalArgumentException("unknown constant expression: " + constExpr);
+				head(CONSTANT_EXPR, i);
+				return null;
+			}
+
+			public Object visit(UnaryExpression unaryExpr) {
+				head(UNARY_EXPR, unaryExpr.op().ordinal());
+				return children(unaryExpr.expression());
+			}
+
+			public Object visit(BinaryExpression binExpr) {
+				head(BINARY_EXPR, binExpr.op().ordinal());
+				return children(binExpr.left(), binExpr.right());
+			}
+
+			public Object visit(NaryExpression expr) {
+				head(NARY_EXPR, expr.op().ordinal(), expr.size());
+				for (Expression child : expr)
+					node(child);
+				return null;
+			}
+
+			public Object visit(Comprehension comprehension) {
+				head(COMPREHENSION);
+				return children(comprehension.decls(), comprehension.formula());
+			}
+
+			public Object visit(IfExpression ifExpr) {
+				head(IF_EXPR);
+				return children(ifExpr.condition(), ifExpr.thenExpr(), ifExpr.elseExpr());
+			}
+
+			public Object visit(ProjectExpression project) {
+				head(PROJECT, project.arity());
+				node(project.expression());
+				for (int i = 0; i < project.arity(); i++)
+					node(project.column(i));
+				return null;
+			}
+
+			public Object visit(IntToExprCast castExpr) {
+				head(INT_TO_EXPR, castExpr.op().ordinal());
+				return children(castExpr.intExpr());
+			}
+
+			public Object visit(IntConstant intConst) {
+				try {
+					varint(INT_CONSTANT);
+					signed(intConst.value());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return null;
+			}
+
+			public Object visit(IfIntExpression intExpr) {
+				head(IF_INT);
+				return children(intExpr.condition(), intExpr.thenExpr(), intExpr.elseExpr());
+			}
+
+			public Object visit(ExprToIntCast intExpr) {
+				head(EXPR_TO_INT, intExpr.op().ordinal());
+				return children(intExpr.expression());
+			}
+
+			public Object visit(NaryIntExpression intExpr) {
+				head(NARY_INT, intExpr.op().ordinal(), intExpr.size());
+				for (IntExpression child : intExpr)
+					node(child);
+				return null;
+			}
+
+			public Object visit(BinaryIntExpression intExpr) {
+				head(BINARY_INT, intExpr.op().ordinal());
+				return children(intExpr.left(), intExpr.right());
+			}
+
+			public Object visit(UnaryIntExpression intExpr) {
+				head(UNARY_INT, intExpr.op().ordinal());
+				return children(intExpr.intExpr());
+			}
+
+			public Object visit(SumExpression intExpr) {
+				head(SUM);
+				return children(intExpr.decls(), intExpr.intExpr());
+			}
+
+			public Object visit(IntComparisonFormula intComp) {
+				head(INT_COMPARISON, intComp.op().ordinal());
+				return children(intComp.left(), intComp.right());
+			}
+
+			public Object visit(QuantifiedFormula quantFormula) {
+				head(QUANTIFIED, quantFormula.quantifier().ordinal());
+				return children(quantFormula.decls(), quantFormula.formula());
+			}
+
+			public Object visit(NaryFormula formula) {
+				head(NARY_FORMULA, formula.op().ordinal(), formula.size());
+				for (Formula child : formula)
+					node(child);
+				return null;
+			}
+
+			public Object visit(BinaryFormula binFormula) {
+				head(BINARY_FORMULA, binFormula.op().ordinal());
+				return children(binFormula.left(), binFormula.right());
+			}
+
+			public Object visit(NotFormula not) {
+				head(NOT);
+				return children(not.formula());
+			}
+
+			public Object visit(ConstantFormula constant) {
+				head(CONSTANT_FORMULA, constant.booleanValue() ? 1 : 0);
+				return null;
+			}
+
+			public Object visit(ComparisonFormula compFormula) {
+				head(COMPARISON, compFormula.op().ordinal());
+				return children(compFormula.left(), compFormula.right());
+			}
+
+			public Object visit(MultiplicityFormula multFormula) {
+				head(MULTIPLICITY, multFormula.multiplicity().ordinal());
+				return children(multFormula.expression());
+			}
+
+			public Object visit(RelationPredicate predicate) {
+				switch (predicate.name()) {
+				case ACYCLIC:
+					head(ACYCLIC);
+					return children(predicate.relation());
+				case FUNCTION:
+					final RelationPredicate.Function fun = (RelationPredicate.Function) predicate;
+					head(FUNCTION, fun.targetMult().ordinal());
+					return children(fun.relation(), fun.domain(), fun.range());
+				case TOTAL_ORDERING:
+					final RelationPredicate.TotalOrdering ord = (RelationPredicate.TotalOrdering) predicate;
+					head(TOTAL_ORDERING);
+					return children(ord.relation(), ord.ordered(), ord.first(), ord.last());
+				default:
+					throw new IllegalArgumentException("unknown relation predicate: " + predicate);
+				}
+			}
+
+			public Object visit(UnaryTempFormula temporalFormula) {
+				head(UNARY_TEMP, temporalFormula.op().ordinal());
+				return children(temporalFormula.formula());
+			}
+
+			public Object visit(BinaryTempFormula temporalFormula) {
+				head(BINARY_TEMP, temporalFormula.op().ordinal());
+				return children(temporalFormula.left(), temporalFormula.right());
+			}
+
+			public Object visit(TempExpression temporalExpr) {
+				head(TEMP_EXPR, temporalExpr.op().ordinal());
+				return children(temporalExpr.expression());
+			}
+		}
+	}
+
+	/**
+	 * Decodes objects over a given universe.
+	 */
+	private static final class Reader {
+		private final ByteBuffer in;
+		private final int kind;
+		private final Universe universe;
+		private final List<Relation> relations = new ArrayList<Relation>();
+		private final Map<List<Object>, Relation> known = new HashMap<List<Object>, Relation>();
+		private final List<Node> nodes = new ArrayList<Node>();
+
+		/**
+		 * Reads the header of an encoding of kind min or max, followed by its
+		 * universe.
+		 */
+		Reader(ByteBuffer in, Collection<Relation> relations, int min, int max) {
+			this(in, relations, min, max, null);
+		}
+
+		/**
+		 * Reads the header of an encoding of kind min or max, followed by its
+		 * universe, if any, which must have the same atoms as the given one,
+		 * unless null.
+		 */
+		Reader(ByteBuffer in, Collection<Relation> relations, int min, int max, Universe universe) {
+			this.in = in;
+			for (Relation r : relations)
+				declare(r);
+			try {
+				for (byte b : MAGIC)
+					if (in.get() != b)
+						throw new IllegalArgumentException("not a binary encoding");
+				final int version = in.get();
+				if (version != VERSION)
+					throw new IllegalArgumentException("unsupported version: " + version);
+				this.kind = in.get();
+				if (kind != min && kind != max)
+					throw new IllegalArgumentException("unexpected kind of encoding: " + kind);
+				if (kind == FORMULA) {
+					this.universe = null;
+					return;
+				}
+				final Object[] atoms = new Object[varint()];
+				for (int i = 0; i < atoms.length; i++) {
+					final int tag = in.get();
+					if (tag == STRING)
+						atoms[i] = string();
+					else if (tag == INTEGER)
+						atoms[i] = signed();
+					else
+						throw new IllegalArgumentException("unknown atom tag: " + tag);
+				}
+				if (universe == null)
+					this.universe = new Universe(atoms);
+				else if (sameAtoms(universe, atoms))
+					this.universe = universe;
+				else
+					throw new IllegalArgumentException("encoded atoms differ from those of " + universe);
+			} catch (BufferUnderflowException e) {
+				throw new IllegalArgumentException("truncated encoding", e);
+			}
+		}
+
+		/** Returns true if the atoms of u are the given ones, in the same order. */
+		private static boolean sameAtoms(Universe u, Object[] atoms) {
+			if (u.size() != atoms.length)
+				return false;
+			for (int i = 0; i < atoms.length; i++)
+				if (!u.atom(i).equals(atoms[i]))
+					return false;
+			return true;
+		}
+
+		/** Makes r, and its expansion if r is variable, known to this reader. */
+		private void declare(Relation r) {
+			known.put(Arrays.<Object>asList(r.name(), r.arity(), r.isVariable()), r);
+			if (r.isVariable())
+				known.put(Arrays.<Object>asList(r.name(), r.arity() + 1, false), r.getExpansion());
+		}
+
+		int varint() {
+			int value = 0;
+			for (int shift = 0;; shift += 7) {
+				final byte b = in.get();
+				value |= (b & 0x7F) << shift;
+				if (b >= 0)
+					return value;
+			}
+		}
+
+		int signed() {
+			final int value = varint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		String string() {
+			final byte[] bytes = new byte[varint()];
+			in.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		Relation relation() {
+			final int id = varint();
+			if (id < relations.size())
+				return relations.get(id);
+			if (id != relations.size())
+				throw new IllegalArgumentException("undeclared relation: " + id);
+			final String name = string();
+			final int arity = varint();
+			final boolean variable = in.get() != 0;
+			Relation r = known.get(Arrays.<Object>asList(name, arity, variable));
+			if (r == null) {
+				r = variable ? Relation.variable(name, arity) : Relation.nary(name, arity);
+				declare(r);
+			}
+			relations.add(r);
+			return r;
+		}
+
+		TupleSet tuples(int arity) {
+			final IntSet indices = Ints.bestSet((int) Math.min(StrictMath.pow(universe.size(), arity), Integer.MAX_VALUE));
+			for (int runs = varint(), end = 0; runs > 0; runs--) {
+				final int start = end + varint(), last = start + varint();
+				for (int i = start; i <= last; i++)
+					indices.add(i);
+				end = last + 1;
+			}
+			return new TupleSet(universe, arity, indices);
+		}
+
+		<B extends Bounds> B bounds(B bounds) {
+			for (int n = varint(); n > 0; n--) {
+				final Relation r = relation();
+				final TupleSet lower = tuples(r.arity());
+				bounds.bound(r, lower, tuples(r.arity()));
+			}
+			for (int n = varint(); n > 0; n--) {
+				final int i = signed();
+				bounds.boundExactly(i, tuples(1));
+			}
+			return bounds;
+		}
+
+		PardinusBounds pardinusBounds() {
+			final PardinusBounds bounds = bounds(new PardinusBounds(universe));
+			for (int n = varint(); n > 0; n--) {
+				final Relation r = relation();
+				bounds.setTarget(r, tuples(r.arity()));
+			}
+			for (int n = varint(); n > 0; n--) {
+				final Relation r = relation();
+				bounds.setWeight(r, signed());
+			}
+			final int flags = in.get();
+			bounds.integrated = (flags & 1) != 0;
+			bounds.trivial_config = (flags & 2) != 0;
+			if ((flags & 4) != 0)
+				bounds.amalgamated = pardinusBounds();
+			return bounds;
+		}
+
+		Instance instance() {
+			final Instance instance = new Instance(universe);
+			for (int n = varint(); n > 0; n--) {
+				final Relation r = relation();
+				instance.add(r, tuples(r.arity()));
+			}
+			for (int n = varint(); n > 0; n--) {
+				final int i = signed();
+				instance.add(i, tuples(1));
+			}
+			return instance;
+		}
+
+		/** Reads the next node, which must be of the given type. */
+		<T> T node(Class<T> type) {
+			final Node n = node();
+			if (!type.isInstance(n))
+				throw new IllegalArgumentException("expected " + type.getSimpleName() + " but found " + n);
+			return type.cast(n);
+		}
+
+		/** Reads an operator, or other enumerated value, given all its values. */
+		private <T> T op(T[] values) {
+			final int i = varint();
+			if (i < 0 || i >= values.length)
+				throw new IllegalArgumentException("unknown operator: " + i);
+			return values[i];
+		}
+
+		/** Reads the next node, or a reference to a node already read. */
+		Node node() {
+			final int tag = varint();
+			if (tag == REF) {
+				final int id = varint();
+				if (id < 0 || id >= nodes.size())
+					throw new IllegalArgumentException("undeclared node: " + id);
+				return nodes.get(id);
+			}
+			final Node n;
+			switch (tag) {
+			case RELATION:
+				n = relation();
+				break;
+			case VARIABLE:
+				final String name = string();
+				n = Variable.nary(name, varint());
+				break;
+			case CONSTANT_EXPR:
+				n = op(CONSTANTS);
+				break;
+			case UNARY_EXPR: {
+				final ExprOperator op = op(ExprOperator.values());
+				n = node(Expression.class).apply(op);
+				break;
+			}
+			case BINARY_EXPR: {
+				final ExprOperator op = op(ExprOperator.values());
+				n = node(Expression.class).compose(op, node(Expression.class));
+				break;
+			}
+			case NARY_EXPR: {
+				final ExprOperator op = op(ExprOperator.values());
+				final Expression[] children = new Expression[varint()];
+				for (int i = 0; i < children.length; i++)
+					children[i] = node(Expression.class);
+				n = Expression.compose(op, children);
+				break;
+			}
+			case COMPREHENSION: {
+				final Decls decls = node(Decls.class);
+				n = node(Formula.class).comprehension(decls);
+				break;
+			}
+			case IF_EXPR: {
+				final Formula condition = node(Formula.class);
+				n = condition.thenElse(node(Expression.class), node(Expression.class));
+				break;
+			}
+			case PROJECT: {
+				final IntExpression[] columns = new IntExpression[varint()];
+				final Expression expr = node(Expression.class);
+				for (int i = 0; i < columns.length; i++)
+					columns[i] = node(IntExpression.class);
+				n = expr.project(columns);
+				break;
+			}
+			case INT_TO_EXPR: {
+				final IntCastOperator op = op(IntCastOperator.values());
+				n = node(IntExpression.class).cast(op);
+				break;
+			}
+			case TEMP_EXPR: {
+				final TemporalOperator op = op(TemporalOperator.values());
+				n = node(Expression.class).apply(op);
+				break;
+			}
+			case INT_CONSTANT:
+				n = IntConstant.constant(signed());
+				break;
+			case IF_INT: {
+				final Formula condition = node(Formula.class);
+				n = condition.thenElse(node(IntExpression.class), node(IntExpression.class));
+				break;
+			}
+			case EXPR_TO_INT: {
+				final ExprCastOperator op = op(ExprCastOperator.values());
+				n = node(Expression.class).apply(op);
+				break;
+			}
+			case NARY_INT: {
+				final IntOperator op = op(IntOperator.values());
+				final IntExpression[] children = new IntExpression[varint()];
+				for (int i = 0; i < children.length; i++)
+					children[i] = node(IntExpression.class);
+				n = IntExpression.compose(op, children);
+				break;
+			}
+			case BINARY_INT: {
+				final IntOperator op = op(IntOperator.values());
+				n = node(IntExpression.class).compose(op, node(IntExpression.class));
+				break;
+			}
+			case UNARY_INT: {
+				final IntOperator op = op(IntOperator.values());
+				n = node(IntExpression.class).apply(op);
+				break;
+			}
+			case SUM: {
+				final Decls decls = node(Decls.class);
+				n = node(IntExpression.class).sum(decls);
+				break;
+			}
+			case INT_COMPARISON: {
+				final IntCompOperator op = op(IntCompOperator.values());
+				n = node(IntExpression.class).compare(op, node(IntExpression.class));
+				break;
+			}
+			case QUANTIFIED: {
+				final Quantifier quantifier = op(Quantifier.values());
+				final Decls decls = node(Decls.class);
+				n = node(Formula.class).quantify(quantifier, decls);
+				break;
+			}
+			case NARY_FORMULA: {
+				final FormulaOperator op = op(FormulaOperator.values());
+				final Formula[] children = new Formula[varint()];
+				for (int i = 0; i < children.length; i++)
+					children[i] = node(Formula.class);
+				n = Formula.compose(op, children);
+				break;
+			}
+			case BINARY_FORMULA: {
+				final FormulaOperator op = op(FormulaOperator.values());
+				n = node(Formula.class).compose(op, node(Formula.class));
+				break;
+			}
+			case NOT:
+				n = node(Formula.class).not();
+				break;
+			case CONSTANT_FORMULA:
+				n = Formula.constant(varint() != 0);
+				break;
+			case COMPARISON: {
+				final ExprCompOperator op = op(ExprCompOperator.values());
+				n = node(Expression.class).compare(op, node(Expression.class));
+				break;
+			}
+			case MULTIPLICITY: {
+				final Multiplicity mult = op(Multiplicity.values());
+				n = node(Expression.class).apply(mult);
+				break;
+			}
+			case FUNCTION: {
+				final Multiplicity mult = op(Multiplicity.values());
+				final Relation r = node(Relation.class);
+				final Expression domain = node(Expression.class);
+				final Expression range = node(Expression.class);
+				n = mult == Multiplicity.LONE ? r.partialFunction(domain, range) : r.function(domain, range);
+				break;
+			}
+			case ACYCLIC:
+				n = node(Relation.class).acyclic();
+				break;
+			case TOTAL_ORDERING: {
+				final Relation r = node(Relation.class), ordered = node(Relation.class), first = node(Relation.class);
+				n = r.totalOrder(ordered, first, node(Relation.class));
+				break;
+			}
+			case UNARY_TEMP: {
+				final TemporalOperator op = op(TemporalOperator.values());
+				n = node(Formula.class).apply(op);
+				break;
+			}
+			case BINARY_TEMP: {
+				final TemporalOperator op = op(TemporalOperator.values());
+				n = Formula.compose(op, node(Formula.class), node(Formula.class));
+				break;
+			}
+			case DECL: {
+				final Multiplicity mult = op(Multiplicity.values());
+				final Variable variable = node(Variable.class);
+				n = variable.declare(mult, node(Expression.class));
+				break;
+			}
+			case DECLS: {
+				Decls decls = null;
+				for (int size = varint(); size > 0; size--)
+					decls = decls == null ? node(Decl.class) : decls.and(node(Decl.class));
+				if (decls == null)
+					throw new IllegalArgumentException("empty declarations");
+				n = decls;
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("unknown node tag: " + tag);
+			}
+			nodes.add(n);
+			return n;
+		}
+	}
+}
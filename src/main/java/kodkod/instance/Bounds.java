@@ -338,6 +338,90 @@ public class Bounds implements Cloneable {
 		uppers.put(r, upper.clone().unmodifiableView());
 	}
 
+	/**
+	 * Sets both the lower and upper bounds of the given relation to the tuples
+	 * whose atoms are given column by column, by their indices in this.universe,
+	 * as specified by {@link TupleFactory#setOfColumns(int[]...)}.
+	 * 
+	 * @ensures this.relations' = this.relations + r && this.lowerBound' =
+	 *          this.lowerBound ++ r->this.universe.factory.setOfColumns(columns) &&
+	 *          this.upperBound' = this.upperBound ++ r->this.universe.factory.setOfColumns(columns)
+	 * @throws NullPointerException
+	 *             r = null || columns = null || some columns[int] = null
+	 * @throws IllegalArgumentException
+	 *             columns.length != r.arity || the columns have different lengths
+	 * @throws IndexOutOfBoundsException
+	 *             some columns[int][int] !in [0..this.universe.size)
+	 */
+	public void boundExactly(Relation r, int[][] columns) {
+		final TupleSet tuples = columns(r, columns).unmodifiableView();
+		lowers.put(r, tuples);
+		uppers.put(r, tuples);
+	}
+
+	/**
+	 * Sets the lower and upper bounds for the given relation to the tuples whose
+	 * atoms are given column by column, by their indices in this.universe, as
+	 * specified by {@link TupleFactory#setOfColumns(int[]...)}.
+	 * 
+	 * @ensures this.relations' = this.relations + r && this.lowerBound' =
+	 *          this.lowerBound ++ r->this.universe.factory.setOfColumns(lower) &&
+	 *          this.upperBound' = this.upperBound ++ r->this.universe.factory.setOfColumns(upper)
+	 * @throws NullPointerException
+	 *             r = null || lower = null || upper = null || some (lower + upper)[int] = null
+	 * @throws IllegalArgumentException
+	 *             lower.length != r.arity || upper.length != r.arity || the
+	 *             columns of lower or of upper have different lengths
+	 * @throws IllegalArgumentException
+	 *             lower.tuples !in upper.tuples
+	 * @throws IndexOutOfBoundsException
+	 *             some (lower + upper)[int][int] !in [0..this.universe.size)
+	 */
+	public void bound(Relation r, int[][] lower, int[][] upper) {
+		final TupleSet l = columns(r, lower), u = columns(r, upper);
+		if (!u.containsAll(l))
+			throw new IllegalArgumentException("lower.tuples !in upper.tuples");
+		lowers.put(r, l.unmodifiableView());
+		uppers.put(r, u.size() == l.size() ? lowers.get(r) : u.unmodifiableView());
+	}
+
+	/**
+	 * Makes the tuples whose atoms are given column by column, by their indices
+	 * in this.universe, the upper bound on the contents of the given relation,
+	 * as specified by {@link TupleFactory#setOfColumns(int[]...)}. The lower
+	 * bound automatically becomes an empty tupleset with the same arity as the
+	 * relation.
+	 * 
+	 * @ensures this.relations' = this.relations + r && this.lowerBound' =
+	 *          this.lowerBound ++ r->{s: TupleSet | s.universe = this.universe && s.arity = r.arity && no s.tuples} &&
+	 *          this.upperBound' = this.upperBound ++ r->this.universe.factory.setOfColumns(upper)
+	 * @throws NullPointerException
+	 *             r = null || upper = null || some upper[int] = null
+	 * @throws IllegalArgumentException
+	 *             upper.length != r.arity || the columns have different lengths
+	 * @throws IndexOutOfBoundsException
+	 *             some upper[int][int] !in [0..this.universe.size)
+	 */
+	public void bound(Relation r, int[][] upper) {
+		final TupleSet u = columns(r, upper);
+		lowers.put(r, factory.noneOf(r.arity()).unmodifiableView());
+		uppers.put(r, u.unmodifiableView());
+	}
+
+	/**
+	 * Returns the tuples whose atoms are given column by column, checking that
+	 * there is a column for each position of r.
+	 * 
+	 * @return this.universe.factory.setOfColumns(columns)
+	 * @throws IllegalArgumentException
+	 *             columns.length != r.arity
+	 */
+	private TupleSet columns(Relation r, int[][] columns) {
+		if (columns.length != r.arity())
+			throw new IllegalArgumentException("columns.length != r.arity");
+		return factory.setOfColumns(columns);
+	}
+
 	/**
 	 * Makes the specified tupleset an exact bound on the relational value that
 	 * corresponds to the given integer.
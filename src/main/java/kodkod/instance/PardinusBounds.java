@@ -38,6 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import kodkod.ast.ConstantExpression;
 import kodkod.ast.Expression;
@@ -51,6 +52,7 @@ import kodkod.engine.config.Reporter;
 import kodkod.engine.fol2sat.RelationCollector;
 import kodkod.engine.ltl2fol.TemporalTranslator;
 import kodkod.engine.fol2sat.ComplRelationReplacer;
+import kodkod.util.ints.IndexedEntry;
 import kodkod.util.ints.SparseSequence;
 
 /**
@@ -149,7 +151,7 @@ public class PardinusBounds extends Bounds {
 		this.integrated = integrated;
 		this.lowers_symb = lowers_s;
 		this.uppers_symb = uppers_s;
-		this.symbolic = new SymbolicStructures(symbolic.reif,symbolic.dereif,symbolic.deps,symbolic.compls);
+		this.symbolic = new SymbolicStructures(symbolic.reif,symbolic.dereif,symbolic.deps,symbolic.compls,symbolic.resolutions);
 		this.relations_all = relations(lowers, lowers_symb, uppers, uppers_symb);
 		this.relations_symb = relations(lowers_symb, uppers_symb);
 		this.integration = integration;
@@ -179,7 +181,29 @@ public class PardinusBounds extends Bounds {
 	 * @return the bounds split between static and mutable relations
 	 */
 	static public PardinusBounds splitAtTemporal(PardinusBounds bounds) {
-		// Create a new bound with static information
+		// the automatic partition splits static / variable relations
+		// however, symbolic bounds of static relations may refer to variable relations
+		// (even indirectly, for instance, if a var sig extends a static sig)
+		// in this automatic splitting they are irrelevant any way, since static are resolved first
+		Set<Relation> statics = new HashSet<Relation>();
+		for (Relation r : bounds.relations())
+			if (!r.isVariable())
+				statics.add(r);
+		return splitAt(bounds, statics);
+	}
+	
+	/**
+	 * Partition of exiting bounds into partial/remainder bounds, with the
+	 * partial problem bounding the given relations. Relations whose symbolic
+	 * bounds depend on relations outside the partial problem are left to the 
+	 * remainder.
+	 * 
+	 * @param bounds the original, non-decomposed bounds
+	 * @param partials the relations of the partial problem
+	 * @return the bounds split between the partial and the remaining relations
+	 */
+	static public PardinusBounds splitAt(PardinusBounds bounds, Set<Relation> partials) {
+		// Create a new bound with the partial information
 		PardinusBounds b = new PardinusBounds(bounds.universe().factory(), 
 				new HashMap<Relation, TupleSet>(bounds.lowers), new HashMap<Relation, TupleSet>(bounds.uppers),
 				new HashMap<Relation, TupleSet>(bounds.targets), new HashMap<Relation, Integer>(bounds.weights), 
@@ -190,18 +214,14 @@ public class PardinusBounds extends Bounds {
 		
 		b.amalgamated = bounds.clone();
 
-		// the automatic partition splits static / variable relations
-		// however, symbolic bounds of static relations may refer to variable relations
-		// (even indirectly, for instance, if a var sig extends a static sig)
-		// in this automatic splitting they are irrelevant any way, since static are resolved first
 		List<Relation> problematic = new LinkedList<Relation>();
 		Set<Relation> rs = b.relations_symb; 
 		for (Relation r : rs) {
-		    if (r.isVariable())
+		    if (!partials.contains(r))
 		        problematic.add(r);
-		    else 
+		    else if (b.symbolic.deps.get(r) != null)
     			for (Relation d : b.symbolic.deps.get(r))
-    				if (d.isVariable())
+    				if (!partials.contains(d))
     					problematic.add(r);
 		}
 		
@@ -210,7 +230,7 @@ public class PardinusBounds extends Bounds {
 		problematic.clear();
 		
 		for (Relation r : b.relations)
-			if (r.isVariable())
+			if (!partials.contains(r))
 				problematic.add(r);
 		
 		b.relations.removeAll(problematic);
@@ -403,23 +423,39 @@ public class PardinusBounds extends Bounds {
 	}
 	
 	public synchronized PardinusBounds integrated(Solution sol) {
+		if (!sol.sat())
+			throw new IllegalArgumentException("Can't integrate unsat.");
+		if (sol.stats().primaryVariables() == 0)
+			trivial_config = true;
+		return integrated(sol.instance());
+	}
+
+	/**
+	 * Integrates a configuration into these decomposed bounds, fixing the value
+	 * of each partial relation to its value in the configuration. Relations
+	 * are matched by name, so the configuration may have been calculated
+	 * over a different copy of the partial problem, namely by a worker
+	 * process.
+	 * 
+	 * @param config
+	 *            the configuration to be integrated.
+	 * @return the integrated bounds.
+	 * @throws IllegalArgumentException
+	 *             this.integrated || no this.amalgamated
+	 */
+	public synchronized PardinusBounds integrated(Instance config) {
 		if (integrated)
 			throw new IllegalArgumentException("Already integrated.");
 		if (amalgamated == null)
 			throw new IllegalArgumentException("Decomposed solving requires decomposed bounds.");
-		if (!sol.sat())
-			throw new IllegalArgumentException("Can't integrate unsat.");
 		
 		integration++;
 		
 		PardinusBounds integrated = amalgamated.clone();
 
-		if (sol.stats().primaryVariables() == 0)
-			trivial_config = true;
-
 		for (Relation e : this.relations())
-			if (getTupleConfiguration(e.name(), sol.instance()) != null)
-				integrated.boundExactly(e,getTupleConfiguration(e.name(), sol.instance()));
+			if (getTupleConfiguration(e.name(), config) != null)
+				integrated.boundExactly(e,getTupleConfiguration(e.name(), config));
 
 		integrated.amalgamated = this.amalgamated;
 		integrated.trivial_config = this.trivial_config;
@@ -720,13 +756,17 @@ public class PardinusBounds extends Bounds {
 	 * A class that stores information relevant for handling symbolic bounds. This
 	 * includes a relation that reifies every atom of the universe into a relation,
 	 * the dependencies of these symbolic bounds found thus far, and the
-	 * complemented relations needed for correct bound resolution.
+	 * complemented relations needed for correct bound resolution. It also caches
+	 * the resolution of each symbolic bound, which is shared by every copy of
+	 * these bounds (including integrated ones) and reused while the symbolic
+	 * bound and the constant bounds of its dependencies remain unchanged.
 	 */
 	private class SymbolicStructures {
 		private final Map<Object,Relation> reif;
 		private final Map<Relation,TupleSet> dereif;
 		private final Map<Relation,Set<Relation>> deps;
 		private final Map<Relation,Relation> compls;
+		private final Map<Relation,Resolution> resolutions;
 
 		/**
 		 * Initializes the symbolic structures, by reifying every atom of the
@@ -737,6 +777,7 @@ public class PardinusBounds extends Bounds {
 			dereif = new HashMap<Relation, TupleSet>();
 			deps = new HashMap<Relation, Set<Relation>>();
 			compls = new HashMap<Relation, Relation>();
+			resolutions = new ConcurrentHashMap<Relation, Resolution>();
 			// [HASLab] this will conflict with the reification from the iteration!
 			for (int i = 0; i < universe().size(); i++) {
 				Relation r = Relation.atom(universe().atom(i).toString());
@@ -756,15 +797,19 @@ public class PardinusBounds extends Bounds {
 		 *            the direct dependencies of symbolically bound relation.
 		 * @param compls
 		 *            the complemented relations.
+		 * @param resolutions
+		 *            the cached resolutions of symbolic bounds.
 		 */
 		private SymbolicStructures(Map<Object, Relation> reif,
 				Map<Relation, TupleSet> dereif,
 				Map<Relation, Set<Relation>> deps,
-				Map<Relation, Relation> compls) {
+				Map<Relation, Relation> compls,
+				Map<Relation, Resolution> resolutions) {
 			this.reif = reif;
 			this.dereif = dereif;
 			this.deps = deps;
 			this.compls = compls;
+			this.resolutions = resolutions;
 		}
 
 		/**
@@ -839,8 +884,9 @@ public class PardinusBounds extends Bounds {
 				return constrs;
 			}
 			
-			TupleSet low_low = resolveLower(lowerSymbBound(rel));
-			TupleSet upp_upp = resolveUpper(upperSymbBound(rel));
+			Resolution res = resolution(rel);
+			TupleSet low_low = res.low_low;
+			TupleSet upp_upp = res.upp_upp;
 			
 			if (!upp_upp.containsAll(low_low))
 				throw new IllegalArgumentException("Resolved lower larger than resolver upper.");
@@ -856,8 +902,8 @@ public class PardinusBounds extends Bounds {
 			bound(rel, low_low, upp_upp);
 			reporter.debug("resolved "+rel+" from ["+pre1+","+pre2+"] into ["+low_low+","+upp_upp+"]");
 			
-			TupleSet low_upp = resolveUpper(lowerSymbBound(rel));
-			TupleSet upp_low = resolveLower(upperSymbBound(rel));
+			TupleSet low_upp = res.low_upp;
+			TupleSet upp_low = res.upp_low;
 
 			// resolved bounds not exact, create additional constraints
 			Formula constr = null;
@@ -885,6 +931,38 @@ public class PardinusBounds extends Bounds {
 			return constrs;
 		}
 		
+		/**
+		 * Returns the resolution of a relation's symbolic bounds under the current
+		 * constant bounds, reusing the cached one if it was calculated for the
+		 * same symbolic bounds and the same constant bounds of the dependencies.
+		 * Assumes every dependency is already resolved.
+		 * 
+		 * @param rel
+		 *            the relation whose bounds are to be resolved.
+		 * @return the resolution of the symbolic bounds of rel.
+		 */
+		private Resolution resolution(Relation rel) {
+			Expression lower = lowerSymbBound(rel), upper = upperSymbBound(rel);
+			Map<Relation, TupleSet> deps_lowers = new HashMap<Relation, TupleSet>();
+			Map<Relation, TupleSet> deps_uppers = new HashMap<Relation, TupleSet>();
+			for (Relation dep : deps.get(rel)) {
+				deps_lowers.put(dep, lowers.get(dep));
+				deps_uppers.put(dep, uppers.get(dep));
+			}
+			Map<Integer, TupleSet> ints = new HashMap<Integer, TupleSet>();
+			for (IndexedEntry<TupleSet> e : intBounds())
+				ints.put(e.index(), e.value());
+
+			Resolution res = resolutions.get(rel);
+			if (res != null && res.universe == universe() && res.lower == lower && res.upper == upper
+					&& res.deps_lowers.equals(deps_lowers) && res.deps_uppers.equals(deps_uppers) && res.ints.equals(ints))
+				return res;
+			res = new Resolution(universe(), lower, upper, deps_lowers, deps_uppers, ints, 
+					resolveLower(lower), resolveUpper(upper), resolveUpper(lower), resolveLower(upper));
+			resolutions.put(rel, res);
+			return res;
+		}
+
 		/**
 		 * Given the current constant bounds, resolves the lower symbolic bounds of a
 		 * relation. Assumes every dependency is already resolved. Relations under
@@ -952,7 +1030,8 @@ public class PardinusBounds extends Bounds {
 					new HashMap<Object, Relation>(reif),
 					new HashMap<Relation, TupleSet>(dereif),
 					new HashMap<Relation, Set<Relation>>(deps),
-					new HashMap<Relation, Relation>(compls));
+					new HashMap<Relation, Relation>(compls),
+					resolutions);
 		}
 
 		/**
@@ -965,7 +1044,37 @@ public class PardinusBounds extends Bounds {
 					unmodifiableMap(reif),
 					unmodifiableMap(dereif), 
 					unmodifiableMap(deps),
-					unmodifiableMap(compls));
+					unmodifiableMap(compls),
+					resolutions);
+		}
+	}
+
+	/**
+	 * The resolution of the symbolic bounds of a relation, together with the
+	 * inputs from which it was calculated: the symbolic bounds themselves, and
+	 * the constant bounds of their dependencies and of the integers.
+	 */
+	private static final class Resolution {
+		private final Universe universe;
+		private final Expression lower, upper;
+		private final Map<Relation, TupleSet> deps_lowers, deps_uppers;
+		private final Map<Integer, TupleSet> ints;
+		private final TupleSet low_low, upp_upp, low_upp, upp_low;
+
+		private Resolution(Universe universe, Expression lower, Expression upper, 
+				Map<Relation, TupleSet> deps_lowers, Map<Relation, TupleSet> deps_uppers, 
+				Map<Integer, TupleSet> ints, TupleSet low_low, TupleSet upp_upp, 
+				TupleSet low_upp, TupleSet upp_low) {
+			this.universe = universe;
+			this.lower = lower;
+			this.upper = upper;
+			this.deps_lowers = deps_lowers;
+			this.deps_uppers = deps_uppers;
+			this.ints = ints;
+			this.low_low = low_low.unmodifiableView();
+			this.upp_upp = upp_upp.unmodifiableView();
+			this.low_upp = low_upp.unmodifiableView();
+			this.upp_low = upp_low.unmodifiableView();
 		}
 	}
 
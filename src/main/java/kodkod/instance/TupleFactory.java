@@ -21,6 +21,7 @@
  */
 package kodkod.instance;
 
+import java.nio.IntBuffer;
 import java.util.Collection;
 import java.util.List;
 
@@ -192,6 +193,88 @@ public final class TupleFactory {
 		}
 	}
 	
+	/**
+	 * Returns a set of tuples whose atoms are given column by column, by their
+	 * indices in this.universe:  the ith tuple in the set consists of the atoms 
+	 * at indices columns[0][i], ..., columns[columns.length-1][i].  The indices of 
+	 * the tuples are computed directly from the columns, so no tuples are created 
+	 * and no atoms are looked up.  Duplicate rows are allowed.
+	 * @return {s: TupleSet | s.universe = this.universe && s.arity = columns.length &&
+	 *                        s.tuples = {t: Tuple | some i: [0..columns[0].length) | 
+	 *                                      all j: [0..s.arity) | this.universe.index(t.atoms[j]) = columns[j][i] } }
+	 * @throws NullPointerException  columns = null || some columns[int] = null
+	 * @throws IllegalArgumentException  columns.length < 1
+	 * @throws IllegalArgumentException  some i: [1..columns.length) | columns[i].length != columns[0].length
+	 * @throws IndexOutOfBoundsException  some columns[int][int] !in [0..this.universe.size) 
+	 * @throws CapacityExceededException  this.universe.size^columns.length > Integer.MAX_VALUE
+	 */
+	public TupleSet setOfColumns(int[]... columns) {
+		final int arity = columns.length;
+		if (arity < 1) throw new IllegalArgumentException("columns.length < 1");
+		checkCapacity(arity);
+		final int rows = columns[0].length;
+		for(int[] column : columns) { 
+			if (column.length != rows)
+				throw new IllegalArgumentException("columns of different lengths: " + rows + " and " + column.length);
+		}
+		final IntSet indices = Ints.bestSet((int) StrictMath.pow(base, arity));
+		for(int i = 0; i < rows; i++) { 
+			int index = 0;
+			for(int[] column : columns) { 
+				index = index * base + checkAtom(column[i]);
+			}
+			indices.add(index);
+		}
+		return new TupleSet(universe, arity, indices);
+	}
+	
+	/**
+	 * Returns a set of tuples of the given arity whose atoms are given column by 
+	 * column, by their indices in this.universe, in the remaining elements of the
+	 * given buffer.  That is, the buffer holds arity consecutive columns of 
+	 * n = columns.remaining()/arity indices each, and the ith tuple in the set 
+	 * consists of the atoms at indices columns.get(columns.position() + j*n + i), 
+	 * for all j in [0..arity).  The position of the buffer is not changed.  
+	 * A binary file with this layout can be loaded without copying it to the 
+	 * heap by {@link BinaryCodec#map(java.io.File) mapping} it into memory and 
+	 * viewing the resulting buffer as an int buffer.
+	 * @return {s: TupleSet | s.universe = this.universe && s.arity = arity &&
+	 *                        s.tuples = {t: Tuple | some i: [0..n) | all j: [0..arity) | 
+	 *                          this.universe.index(t.atoms[j]) = columns.get(columns.position() + j*n + i) } }
+	 * @throws NullPointerException  columns = null
+	 * @throws IllegalArgumentException  arity < 1 || columns.remaining() % arity != 0
+	 * @throws IndexOutOfBoundsException  some atom index in the buffer is not in [0..this.universe.size) 
+	 * @throws CapacityExceededException  this.universe.size^arity > Integer.MAX_VALUE
+	 */
+	public TupleSet setOfColumns(int arity, IntBuffer columns) {
+		if (arity < 1) throw new IllegalArgumentException("arity < 1");
+		if (columns.remaining() % arity != 0) 
+			throw new IllegalArgumentException("columns.remaining() % arity != 0");
+		checkCapacity(arity);
+		final int rows = columns.remaining() / arity, start = columns.position();
+		final IntSet indices = Ints.bestSet((int) StrictMath.pow(base, arity));
+		for(int i = 0; i < rows; i++) { 
+			int index = 0;
+			for(int j = start + i, end = start + arity*rows; j < end; j += rows) { 
+				index = index * base + checkAtom(columns.get(j));
+			}
+			indices.add(index);
+		}
+		return new TupleSet(universe, arity, indices);
+	}
+	
+	/**
+	 * Returns the given atom index if it is in [0..this.universe.size), and 
+	 * throws an IndexOutOfBoundsException otherwise.
+	 * @return atom
+	 * @throws IndexOutOfBoundsException  atom !in [0..this.universe.size) 
+	 */
+	private int checkAtom(int atom) { 
+		if (atom < 0 || atom >= base) 
+			throw new IndexOutOfBoundsException("atom index " + atom + " !in [0.." + base + ")");
+		return atom;
+	}
+	
 	/**
 	 * Returns an initially empty tuple set of the given arity, based on this.universe.
 	 * @return { s: TupleSet | s.universe = this.universe && s.arity = arity && no s.tuples }
@@ -375,6 +375,24 @@ public final class CacheSet<E> extends AbstractSet<E> {
 		};
 	}
 	
+	/**
+	 * Returns the length of the longest chain of elements that share a bucket
+	 * in the backing table.  The longer the chain, the more elements are compared
+	 * on each call to {@link #get(int)}.
+	 * @return length of the longest bucket chain in the backing table
+	 */
+	public int maxChain() {
+		int max = 0;
+		for(Entry<E> head : table) {
+			int len = 0;
+			for(Entry<E> e = head; e != null; e = e.next)
+				len++;
+			if (len > max) 
+				max = len;
+		}
+		return max;
+	}
+	
 	/**
 	 * Removes all elements from this set.
 	 * @ensures no this.elts'
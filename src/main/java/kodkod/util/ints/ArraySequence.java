@@ -21,6 +21,7 @@
  */
 package kodkod.util.ints;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -34,14 +35,22 @@ import java.util.NoSuchElementException;
  * of the sequence's pre-set indices, and iteration time is proportional
  * to the number of  pre-set indices.  This sequence does not
  * allow null values.  The lookup and put operations are logarithmic in 
- * the number of pre-set indices.
+ * the number of pre-set indices.  
+ * 
+ * <p>The indices and values are stored in two parallel arrays, so the 
+ * sequence allocates no objects per entry.  The iterators returned by 
+ * this sequence are cursors:  they return the same (mutable) IndexedEntry 
+ * on each call to next(), updated to reflect the current position.  
+ * Clients that need to retain an entry past the next call to next() must
+ * copy its index and value.</p>
  * 
  * @specfield indeces: set int
  * @specfield entries: indeces -> lone (V - null)
  * @author Emina Torlak
  */
 public final class ArraySequence<V> extends AbstractSparseSequence<V> implements Cloneable {
-	private final EntryView<V>[] entries;
+	private final int[] indices;
+	private final Object[] values;
 	private int size;
 	
 	/**
@@ -50,14 +59,10 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	 * @ensures this.indeces' = indeces && no this.entries'
 	 * @throws NullPointerException  indeces = null
 	 */
-	@SuppressWarnings("unchecked")
 	public ArraySequence(IntSet indices) {
-		this.entries = new EntryView[indices.size()];
-		this.size = indices.size();
-		final IntIterator indexIter = indices.iterator();
-		for(int i = 0; indexIter.hasNext(); i++) {
-			entries[i] = new EntryView<V>(indexIter.next(), null);
-		}
+		this.indices = indices.toArray();
+		this.values = new Object[this.indices.length];
+		this.size = 0;
 	}
 	
 	/**
@@ -66,15 +71,16 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	 * @ensures this.entries' = s.entries
 	 * @throws NullPointerException  s = null || null in s
 	 */
-	@SuppressWarnings("unchecked")
 	public ArraySequence(SparseSequence<? extends V> s) {
-		this.entries = new EntryView[s.size()];
+		this.indices = new int[s.size()];
+		this.values = new Object[s.size()];
 		this.size = s.size();
 		int i = 0;
 		for(IndexedEntry<?> entry : s) {
 			if (entry.value()==null)
 				throw new NullPointerException();
-			entries[i++] = new EntryView<V>(entry.index(), (V)entry.value());
+			indices[i] = entry.index();
+			values[i++] = entry.value();
 		}
 	}
 	
@@ -82,13 +88,27 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	 * Copy constructor.
 	 * @ensures constructs a deep copy of the original array sequence.
 	 */
-	@SuppressWarnings("unchecked")
 	private ArraySequence(ArraySequence<V> original) {
 		this.size = original.size;
-		this.entries = new EntryView[original.entries.length];
-		int i = 0;
-		for(EntryView<V> e : original.entries)
-			this.entries[i++] = new EntryView<V>(e.index(), e.value());
+		this.indices = original.indices.clone();
+		this.values = original.values.clone();
+	}
+	
+	/**
+	 * Returns the value stored at the given position in this.values.
+	 * @return this.values[position]
+	 */
+	@SuppressWarnings("unchecked")
+	private final V valueAt(int position) { 
+		return (V) values[position];
+	}
+	
+	/**
+	 * Returns a new entry for the given position in this.values.
+	 * @return {e: IndexedEntry | e.index = this.indices[position] && e.value = this.values[position] }
+	 */
+	private final IndexedEntry<V> entry(int position) { 
+		return new EntryView<V>(indices[position], valueAt(position));
 	}
 	
 	/**
@@ -114,37 +134,22 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	 * @see kodkod.util.ints.SparseSequence#clear()
 	 */
 	public void clear() {
-		for(EntryView<V> e : entries) {
-			e.setValue(null);
-		}
+		Arrays.fill(values, null);
+		size = 0;
 	}
 	
 	/**  
-	 * Searches this.entries for the specified index using the
+	 * Searches this.indices for the specified index using the
 	 * binary search algorithm.  If the index is not found, then
 	 * -insertionPoint - 1 is returned, where insertionPoint is 
 	 * the point at which the given index would be inserted into
-	 * this.entries.  
-	 * @return the position in this.entries where the entry with
-	 * the given index is located, or -insertionPoint - 1 if 
+	 * this.indices.  
+	 * @return the position in this.indices where the given index
+	 * is located, or -insertionPoint - 1 if 
 	 * the index is not in this.indeces
 	 */
 	private final int search(int index) {
-		int low = 0;
-		int high = entries.length-1;
-		
-		while (low <= high) {
-			int mid = (low + high) >>> 1;
-			int midIndex = entries[mid].index();		
-			if (midIndex < index)
-				low = mid + 1;
-			else if (midIndex > index)
-				high = mid - 1;
-			else
-				return mid; // key found
-		}
-		
-		return -(low + 1);  // key not found.
+		return Arrays.binarySearch(indices, index);
 	}
 	
 	/**
@@ -164,8 +169,10 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 		final int position = search(index);
 		if (position < 0)
 			throw new IndexOutOfBoundsException(""+index);
-		if (entries[position]==null) size++;
-		return entries[position].setValue(value);
+		final V old = valueAt(position);
+		if (old==null) size++;
+		values[position] = value;
+		return old;
 	}
 	
 	/**
@@ -176,7 +183,7 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	 */
 	public V get(int index) {
 		final int position = search(index);
-		return position < 0 ? null : entries[position].value();
+		return position < 0 ? null : valueAt(position);
 	}
 	
 	/**
@@ -192,8 +199,10 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 		if (position < 0)  
 			return null;
 		else {
-			if (entries[position].value()!=null) size--;
-			return entries[position].setValue(null);
+			final V old = valueAt(position);
+			if (old!=null) size--;
+			values[position] = null;
+			return old;
 		}
 	}
 	
@@ -205,7 +214,7 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	 */
 	public boolean containsIndex(int index) {
 		final int position = search(index);
-		return position >= 0 && entries[position].value()!=null;
+		return position >= 0 && values[position]!=null;
 	}
 	
 	/**
@@ -213,7 +222,8 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	 * whose indeces are between from and to.  If from < to, 
 	 * the entries are returned in the ascending order of 
 	 * indeces.  Otherwise, they are returned in the descending
-	 * order of indeces.
+	 * order of indeces.  The returned iterator is a cursor: 
+	 * it returns the same IndexedEntry object on each call to next().
 	 * @return an iterator over the entries in this sequence
 	 * whose indeces are between from and to.  Formally, if 
 	 * from < to, then the first and last entries returned
@@ -235,9 +245,9 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	public IndexedEntry<V> first() {
 		if (size==0)
 			return null;
-		for(EntryView<V> e : entries) {
-			if (e.value()!=null)
-				return e;
+		for(int i = 0; i < values.length; i++) {
+			if (values[i]!=null)
+				return entry(i);
 		}
 		throw new InternalError(); // unreachable code
 	}
@@ -252,9 +262,9 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	public IndexedEntry<V> last() {
 		if (size==0)
 			return null;
-		for(int i = entries.length-1; i>=0; i--) {
-			if (entries[i].value()!=null)
-				return entries[i];
+		for(int i = values.length-1; i>=0; i--) {
+			if (values[i]!=null)
+				return entry(i);
 		}
 		throw new InternalError(); // unreachable code
 	}
@@ -269,9 +279,9 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	 */
 	public IndexedEntry<V> ceil(int index) {
 		final int position = search(index);
-		for(int i = position < 0 ? -position-1 : position; i < entries.length; i++) {
-			if (entries[i].value()!=null)
-				return entries[i];
+		for(int i = position < 0 ? -position-1 : position; i < values.length; i++) {
+			if (values[i]!=null)
+				return entry(i);
 		}
 		return null;
 	}
@@ -287,8 +297,8 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	public IndexedEntry<V> floor(int index) {
 		final int position = search(index);
 		for(int i = position < -1 ? -position-2 : position; i >=0 ; i--) {
-			if (entries[i].value()!=null)
-				return entries[i];
+			if (values[i]!=null)
+				return entry(i);
 		}
 		return null;
 	}
@@ -304,19 +314,20 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 	}
 	
 	/**
-	 * An iterator that traverses this sequence in the ascending order.
+	 * A cursor that traverses this sequence in the ascending order.
 	 * 
 	 * @author Emina Torlak
 	 */
-	private final class AscendingIterator implements Iterator<IndexedEntry<V>> {
+	private final class AscendingIterator extends EntryView<V> implements Iterator<IndexedEntry<V>> {
 		final int endIndex;
-		IndexedEntry<V> lastReturned = null;
+		int lastReturned = -1;
 		int cursor;
 		
 		/**
 		 * @requires from <= to
 		 */
 		AscendingIterator(int from, int to) {
+			super(Integer.MIN_VALUE, null);
 			final int fromPos = search(from);
 			final int toPos = search(to);
 			cursor = fromPos < 0 ? -fromPos-1 : fromPos;
@@ -324,7 +335,7 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 		}
 		
 		public boolean hasNext() {
-			while (cursor < entries.length && entries[cursor].value()==null)
+			while (cursor < values.length && values[cursor]==null)
 				cursor++;
 			return cursor<=endIndex;
 		}
@@ -332,31 +343,34 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 		public IndexedEntry<V> next() {
 			if (!hasNext())
 				throw new NoSuchElementException();
-			return lastReturned=entries[cursor++];
+			lastReturned = cursor++;
+			return setView(indices[lastReturned], valueAt(lastReturned));
 		}
 
 		public void remove() {
-			if (lastReturned==null)
+			if (lastReturned < 0)
 				throw new IllegalStateException();
-			entries[lastReturned.index()].setValue(null);
-			lastReturned = null;
+			values[lastReturned] = null;
+			size--;
+			lastReturned = -1;
 		}
 	}
 	
 	/**
-	 * An iterator that traverses this sequence in the descending order.
+	 * A cursor that traverses this sequence in the descending order.
 	 * 
 	 * @author Emina Torlak
 	 */
-	private final class DescendingIterator implements Iterator<IndexedEntry<V>> {
+	private final class DescendingIterator extends EntryView<V> implements Iterator<IndexedEntry<V>> {
 		final int endIndex;
-		IndexedEntry<V> lastReturned = null;
+		int lastReturned = -1;
 		int cursor;
 		
 		/**
 		 * @requires from >= to
 		 */
 		DescendingIterator(int from , int to) {
+			super(Integer.MIN_VALUE, null);
 			final int fromPos = search(from);
 			final int toPos = search(to);
 			cursor = fromPos < -1 ? -fromPos-2 : fromPos;
@@ -364,7 +378,7 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 		}
 		
 		public boolean hasNext() {
-			while (cursor >= 0 && entries[cursor].value()==null)
+			while (cursor >= 0 && values[cursor]==null)
 				cursor--;
 			return cursor>=endIndex;
 		}
@@ -372,14 +386,16 @@ public final class ArraySequence<V> extends AbstractSparseSequence<V> implements
 		public IndexedEntry<V> next() {
 			if (!hasNext())
 				throw new NoSuchElementException();
-			return lastReturned=entries[cursor--];
+			lastReturned = cursor--;
+			return setView(indices[lastReturned], valueAt(lastReturned));
 		}
 
 		public void remove() {
-			if (lastReturned==null)
+			if (lastReturned < 0)
 				throw new IllegalStateException();
-			entries[lastReturned.index()].setValue(null);
-			lastReturned = null;
+			values[lastReturned] = null;
+			size--;
+			lastReturned = -1;
 		}
 		
 	}
@@ -0,0 +1,1221 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.util.ints;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A compressed implementation of the IntSet interface, in the style of 
+ * Roaring bitmaps.  The set partitions the int space into chunks of 2^16
+ * consecutive integers.  The elements of each non-empty chunk are stored in a 
+ * container that is either a sorted array of 16-bit values (for sparse chunks), 
+ * a bit map (for dense chunks), or a sorted list of runs (for clustered chunks).  
+ * Containers switch representation automatically as elements are added and removed.  
+ * 
+ * <p>An IntRoaringSet can store any int.  It is more compact than an {@link IntBitSet}
+ * for sparse sets over a large range, and than an {@link IntTreeSet} for sets 
+ * that are clustered but not contiguous.  Union, intersection and difference with 
+ * another IntRoaringSet are performed a chunk at a time, and {@link #rank(int)} 
+ * runs in time proportional to the number of chunks.  Iterators keep a cursor
+ * into the container of the current element, so stepping through the set 
+ * does not search for each element anew.</p>
+ * 
+ * @specfield ints: set int
+ * @author Nuno Macedo // [HASLab] compressed int sets
+ */
+public final class IntRoaringSet extends AbstractIntSet implements Cloneable {
+	/* Bounds on the size of array containers and on the number of runs in run containers. */
+	private static final int MAX_ARRAY = 4096, MAX_RUNS = 2047;
+	
+	/* Values returned by successor / predecessor when there is no such element. */
+	private static final long NONE_ABOVE = Long.MAX_VALUE, NONE_BELOW = Long.MIN_VALUE;
+	
+	/*
+	 * keys[0..count) holds the sorted chunk keys; containers[i] holds
+	 * the elements of the chunk with key keys[i].
+	 */
+	private char[] keys;
+	private Container[] containers;
+	private int count;
+	
+	// Redundant - maintained for performance
+	private int size;
+	
+	/**
+	 * Constructs an empty IntRoaringSet.
+	 * @ensures no this.ints'
+	 */
+	public IntRoaringSet() {
+		this.keys = new char[4];
+		this.containers = new Container[4];
+		this.count = 0;
+		this.size = 0;
+	}
+	
+	/**
+	 * Constructs a new IntRoaringSet containing the elements
+	 * in the specified set.
+	 * @ensures this.ints' = s.ints
+	 * @throws NullPointerException  s = null
+	 */
+	public IntRoaringSet(IntSet s) {
+		this();
+		addAll(s);
+	}
+	
+	/**
+	 * Copy constructor.
+	 * @ensures constructs a deep copy of the original set.
+	 */
+	private IntRoaringSet(IntRoaringSet original) {
+		this.keys = Arrays.copyOf(original.keys, Math.max(4, original.count));
+		this.containers = new Container[keys.length];
+		for(int i = 0; i < original.count; i++) {
+			containers[i] = original.containers[i].copy();
+		}
+		this.count = original.count;
+		this.size = original.size;
+	}
+	
+	/*-------------------------------------------------------------------------*
+	 * Mapping between ints and (key, low) pairs.  The sign bit is flipped so that
+	 * the unsigned order of keys agrees with the signed order of ints.
+	 *-------------------------------------------------------------------------*/
+	
+	/** @return the chunk key of i */
+	private static int key(int i) { return (i ^ Integer.MIN_VALUE) >>> 16; }
+	
+	/** @return the low 16 bits of i */
+	private static int low(int i) { return i & 0xFFFF; }
+	
+	/** @return the int with the given chunk key and low bits */
+	private static int join(int key, int low) { return ((key << 16) | low) ^ Integer.MIN_VALUE; }
+	
+	/**
+	 * Returns the position of the given key in this.keys, or 
+	 * -insertionPoint - 1 if the key is not present.
+	 */
+	private int search(int key) {
+		int low = 0, high = count - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int midKey = keys[mid];
+			if (midKey < key) low = mid + 1;
+			else if (midKey > key) high = mid - 1;
+			else return mid;
+		}
+		return -(low + 1);
+	}
+	
+	/**
+	 * Inserts the given container at the given position.
+	 * @ensures this.keys' = insert(this.keys, pos, key) && this.containers' = insert(this.containers, pos, c)
+	 */
+	private void insert(int pos, int key, Container c) {
+		if (count == keys.length) {
+			final int newLength = count + (count >> 1) + 1;
+			keys = Arrays.copyOf(keys, newLength);
+			containers = Arrays.copyOf(containers, newLength);
+		}
+		System.arraycopy(keys, pos, keys, pos + 1, count - pos);
+		System.arraycopy(containers, pos, containers, pos + 1, count - pos);
+		keys[pos] = (char) key;
+		containers[pos] = c;
+		count++;
+	}
+	
+	/**
+	 * Removes the container at the given position.
+	 */
+	private void delete(int pos) {
+		System.arraycopy(keys, pos + 1, keys, pos, count - pos - 1);
+		System.arraycopy(containers, pos + 1, containers, pos, count - pos - 1);
+		containers[--count] = null;
+	}
+	
+	/**
+	 * Removes all empty containers and recomputes this.size.
+	 */
+	private void compact() {
+		int j = 0;
+		size = 0;
+		for(int i = 0; i < count; i++) {
+			final Container c = containers[i];
+			if (c != null && c.cardinality() > 0) {
+				keys[j] = keys[i];
+				containers[j++] = c;
+				size += c.cardinality();
+			}
+		}
+		Arrays.fill(containers, j, count, null);
+		count = j;
+	}
+	
+	/**
+	 * Returns the smallest element of this set that is greater than or equal to i, 
+	 * or NONE_ABOVE if there is no such element.
+	 */
+	private long successor(int i) {
+		final int k = key(i);
+		int pos = search(k);
+		if (pos >= 0) {
+			final int v = containers[pos].ceil(low(i));
+			if (v >= 0) return join(k, v);
+			pos++;
+		} else {
+			pos = -pos - 1;
+		}
+		return pos < count ? join(keys[pos], containers[pos].min()) : NONE_ABOVE;
+	}
+	
+	/**
+	 * Returns the largest element of this set that is less than or equal to i, 
+	 * or NONE_BELOW if there is no such element.
+	 */
+	private long predecessor(int i) {
+		final int k = key(i);
+		int pos = search(k);
+		if (pos >= 0) {
+			final int v = containers[pos].floor(low(i));
+			if (v >= 0) return join(k, v);
+			pos--;
+		} else {
+			pos = -pos - 2;
+		}
+		return pos >= 0 ? join(keys[pos], containers[pos].max()) : NONE_BELOW;
+	}
+	
+	/*-------------------------------------------------------------------------*
+	 * IntSet methods
+	 *-------------------------------------------------------------------------*/
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#size()
+	 */
+	public int size() { return size; }
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#isEmpty()
+	 */
+	public boolean isEmpty() { return size==0; }
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#contains(int)
+	 */
+	public boolean contains(int i) {
+		final int pos = search(key(i));
+		return pos >= 0 && containers[pos].contains(low(i));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#min()
+	 */
+	public int min() {
+		checkNonEmpty();
+		return join(keys[0], containers[0].min());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#max()
+	 */
+	public int max() {
+		checkNonEmpty();
+		return join(keys[count-1], containers[count-1].max());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#ceil(int)
+	 */
+	public int ceil(int i) {
+		final long ceil = successor(i);
+		if (ceil==NONE_ABOVE) throw new NoSuchElementException();
+		return (int) ceil;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#floor(int)
+	 */
+	public int floor(int i) {
+		final long floor = predecessor(i);
+		if (floor==NONE_BELOW) throw new NoSuchElementException();
+		return (int) floor;
+	}
+	
+	/**
+	 * Returns the number of elements in this set that are less than
+	 * or equal to i.
+	 * @return #{j: this.ints | j <= i}
+	 */
+	public int rank(int i) {
+		final int k = key(i);
+		int rank = 0;
+		for(int pos = 0; pos < count; pos++) {
+			final int key = keys[pos];
+			if (key < k) rank += containers[pos].cardinality();
+			else {
+				if (key == k) rank += containers[pos].rank(low(i));
+				break;
+			}
+		}
+		return rank;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#iterator(int, int)
+	 */
+	public IntIterator iterator(int from, int to) {
+		return from <= to ? new AscendingIterator(from, to) : new DescendingIterator(from, to);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#add(int)
+	 */
+	public boolean add(int i) {
+		final int k = key(i);
+		final int pos = search(k);
+		if (pos < 0) {
+			insert(-pos - 1, k, new ArrayContainer(low(i)));
+			size++;
+			return true;
+		}
+		final Container c = containers[pos];
+		final int card = c.cardinality();
+		containers[pos] = c.add(low(i));
+		if (containers[pos].cardinality() > card) {
+			size++;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#remove(int)
+	 */
+	public boolean remove(int i) {
+		final int pos = search(key(i));
+		if (pos < 0) return false;
+		final Container c = containers[pos];
+		final int card = c.cardinality();
+		final Container r = c.remove(low(i));
+		if (r.cardinality() == card) return false;
+		size--;
+		if (r.cardinality()==0) delete(pos);
+		else containers[pos] = r;
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#containsAll(kodkod.util.ints.IntCollection)
+	 */
+	public boolean containsAll(IntCollection other) {
+		if (other instanceof IntRoaringSet) {
+			final IntRoaringSet s = (IntRoaringSet) other;
+			if (s.size > size) return false;
+			for(int i = 0; i < s.count; i++) {
+				final int pos = search(s.keys[i]);
+				if (pos < 0 || !containers[pos].containsAll(s.containers[i])) return false;
+			}
+			return true;
+		}
+		if (other.size() > size) return false;
+		// cursor into the container of the last checked element
+		int key = -1;
+		Container c = null;
+		for(IntIterator itr = other.iterator(); itr.hasNext(); ) {
+			final int i = itr.next(), k = key(i);
+			if (k != key) {
+				final int pos = search(k);
+				if (pos < 0) return false;
+				key = k;
+				c = containers[pos];
+			}
+			if (!c.contains(low(i))) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#addAll(kodkod.util.ints.IntCollection)
+	 */
+	public boolean addAll(IntCollection other) {
+		if (other instanceof IntRoaringSet) {
+			final IntRoaringSet s = (IntRoaringSet) other;
+			final int oldSize = size;
+			for(int i = 0; i < s.count; i++) {
+				final int pos = search(s.keys[i]);
+				if (pos < 0) {
+					insert(-pos - 1, s.keys[i], s.containers[i].copy());
+					size += s.containers[i].cardinality();
+				} else {
+					final int card = containers[pos].cardinality();
+					containers[pos] = containers[pos].or(s.containers[i]);
+					size += containers[pos].cardinality() - card;
+				}
+			}
+			return size > oldSize;
+		}
+		final int oldSize = size;
+		// cursor into the container of the last added element
+		int key = -1, pos = -1;
+		for(IntIterator itr = other.iterator(); itr.hasNext(); ) {
+			final int i = itr.next(), k = key(i);
+			if (k != key) {
+				key = k;
+				pos = search(k);
+				if (pos < 0) {
+					pos = -pos - 1;
+					insert(pos, k, new ArrayContainer(low(i)));
+					size++;
+					continue;
+				}
+			}
+			final Container c = containers[pos];
+			final int card = c.cardinality();
+			containers[pos] = c.add(low(i));
+			size += containers[pos].cardinality() - card;
+		}
+		return size > oldSize;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#retainAll(kodkod.util.ints.IntCollection)
+	 */
+	public boolean retainAll(IntCollection other) {
+		if (other instanceof IntRoaringSet) {
+			final IntRoaringSet s = (IntRoaringSet) other;
+			final int oldSize = size;
+			for(int i = 0; i < count; i++) {
+				final int pos = s.search(keys[i]);
+				containers[i] = pos < 0 ? null : containers[i].and(s.containers[pos]);
+			}
+			compact();
+			return size < oldSize;
+		}
+		final int oldSize = size;
+		for(int i = 0; i < count; i++) {
+			containers[i] = containers[i].filter(keys[i], other, true);
+		}
+		compact();
+		return size < oldSize;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#removeAll(kodkod.util.ints.IntCollection)
+	 */
+	public boolean removeAll(IntCollection other) {
+		if (other instanceof IntRoaringSet) {
+			final IntRoaringSet s = (IntRoaringSet) other;
+			final int oldSize = size;
+			for(int i = 0; i < count; i++) {
+				final int pos = s.search(keys[i]);
+				if (pos >= 0) containers[i] = containers[i].andNot(s.containers[pos]);
+			}
+			compact();
+			return size < oldSize;
+		}
+		final int oldSize = size;
+		if (other.size() < size) {
+			// cursor into the container of the last removed element
+			int key = -1, pos = -1;
+			for(IntIterator itr = other.iterator(); itr.hasNext(); ) {
+				final int i = itr.next(), k = key(i);
+				if (k != key) {
+					key = k;
+					pos = search(k);
+				}
+				if (pos >= 0) containers[pos] = containers[pos].remove(low(i));
+			}
+		} else {
+			for(int i = 0; i < count; i++) {
+				containers[i] = containers[i].filter(keys[i], other, false);
+			}
+		}
+		compact();
+		return size < oldSize;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#clear()
+	 */
+	public void clear() {
+		Arrays.fill(containers, 0, count, null);
+		count = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Returns a copy of this set.
+	 * @return a copy of this set.
+	 * @see kodkod.util.ints.IntSet#clone()
+	 */
+	public IntRoaringSet clone() {
+		// ok to use copy constructor to clone a final class
+		return new IntRoaringSet(this);
+	}
+	
+	/*-------------------------------------------------------------------------*
+	 * Iterators
+	 *-------------------------------------------------------------------------*/
+	
+	/**
+	 * A skeletal iterator over the elements of this set.  Iterators keep a
+	 * cursor into the container of the next element, and move to the 
+	 * neighbouring container once it is exhausted.  Removing the last returned
+	 * element may replace or delete that container, so the iterator then 
+	 * positions its cursor again at the next element.
+	 */
+	private abstract class ValueIterator implements IntIterator {
+		int pos;
+		IntIterator values;
+		long next;
+		int lastReturned;
+		boolean canRemove = false;
+		
+		/**
+		 * Positions the cursor at the first element, in iteration order, that
+		 * is at or past from, and stores it in this.next.
+		 */
+		abstract void seek(int from);
+		
+		/**
+		 * Stores in this.next the element after the one returned last, or the 
+		 * sentinel value if there is no such element.
+		 */
+		abstract void advance();
+		
+		/** @return true if this.next holds an element */
+		abstract boolean pending();
+		
+		public final int next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			lastReturned = (int) next;
+			canRemove = true;
+			advance();
+			return lastReturned;
+		}
+		
+		public final void remove() {
+			if (!canRemove) throw new IllegalStateException();
+			IntRoaringSet.this.remove(lastReturned);
+			canRemove = false;
+			if (pending()) seek((int) next);
+		}
+	}
+	
+	private final class AscendingIterator extends ValueIterator {
+		private final int to;
+		
+		/**
+		 * @requires from <= to
+		 */
+		AscendingIterator(int from, int to) {
+			this.to = to;
+			seek(from);
+		}
+		
+		void seek(int from) {
+			pos = search(key(from));
+			if (pos >= 0) {
+				values = containers[pos].ascending(low(from));
+			} else {
+				pos = -pos - 1;
+				values = pos < count ? containers[pos].ascending(0) : null;
+			}
+			advance();
+		}
+		
+		void advance() {
+			while (values != null && !values.hasNext()) {
+				values = ++pos < count ? containers[pos].ascending(0) : null;
+			}
+			next = values == null ? NONE_ABOVE : join(keys[pos], values.next());
+		}
+		
+		boolean pending() { return next != NONE_ABOVE; }
+		
+		public boolean hasNext() {
+			return next != NONE_ABOVE && next <= to;
+		}
+	}
+	
+	private final class DescendingIterator extends ValueIterator {
+		private final int to;
+		
+		/**
+		 * @requires from >= to
+		 */
+		DescendingIterator(int from, int to) {
+			this.to = to;
+			seek(from);
+		}
+		
+		void seek(int from) {
+			pos = search(key(from));
+			if (pos >= 0) {
+				values = containers[pos].descending(low(from));
+			} else {
+				pos = -pos - 2;
+				values = pos >= 0 ? containers[pos].descending(0xFFFF) : null;
+			}
+			advance();
+		}
+		
+		void advance() {
+			while (values != null && !values.hasNext()) {
+				values = --pos >= 0 ? containers[pos].descending(0xFFFF) : null;
+			}
+			next = values == null ? NONE_BELOW : join(keys[pos], values.next());
+		}
+		
+		boolean pending() { return next != NONE_BELOW; }
+		
+		public boolean hasNext() {
+			return next != NONE_BELOW && next >= to;
+		}
+	}
+	
+	/**
+	 * An iterator over the values of a container, which does not support removal.
+	 */
+	private static abstract class LowIterator implements IntIterator {
+		public final void remove() { throw new UnsupportedOperationException(); }
+	}
+	
+	/*-------------------------------------------------------------------------*
+	 * Containers
+	 *-------------------------------------------------------------------------*/
+	
+	/**
+	 * Returns the most compact container for the given bit map, or 
+	 * an empty array container if the bit map is empty.
+	 * @requires words.length = 1024
+	 */
+	private static Container best(long[] words) {
+		int card = 0, runs = 0;
+		long carry = 0;
+		for(long w : words) {
+			card += Long.bitCount(w);
+			runs += Long.bitCount(w & ~((w << 1) | carry));
+			carry = w >>> 63;
+		}
+		if (card <= MAX_ARRAY && card <= 2*runs) 
+			return ArrayContainer.fromBitmap(words, card);
+		else if (runs <= MAX_RUNS && 2*runs < card) 
+			return RunContainer.fromBitmap(words, runs);
+		else if (card <= MAX_ARRAY)
+			return ArrayContainer.fromBitmap(words, card);
+		else
+			return new BitmapContainer(words, card);
+	}
+	
+	/**
+	 * A set of 16-bit values.  Mutators return the container that 
+	 * holds the result, which may or may not be this container.
+	 */
+	private static abstract class Container {
+		
+		/** @return the number of values in this container */
+		abstract int cardinality();
+		
+		/** @return true if this container holds the given value */
+		abstract boolean contains(int low);
+		
+		/** @return a container holding this + low */
+		abstract Container add(int low);
+		
+		/** @return a container holding this - low */
+		abstract Container remove(int low);
+		
+		/** @return the smallest value, which must exist */
+		abstract int min();
+		
+		/** @return the largest value, which must exist */
+		abstract int max();
+		
+		/** @return the smallest value >= low, or -1 if none */
+		abstract int ceil(int low);
+		
+		/** @return the largest value <= low, or -1 if none */
+		abstract int floor(int low);
+		
+		/** @return the number of values <= low */
+		abstract int rank(int low);
+		
+		/** @return an iterator over the values >= from, in ascending order */
+		abstract IntIterator ascending(int from);
+		
+		/** @return an iterator over the values <= from, in descending order */
+		abstract IntIterator descending(int from);
+		
+		/** Sets the bits that correspond to the values in this container. */
+		abstract void orInto(long[] words);
+		
+		/** @return a bit map that holds the values in this container */
+		final long[] toBitmap() {
+			final long[] words = new long[1024];
+			orInto(words);
+			return words;
+		}
+		
+		/** @return a bit map that holds the values in this container, which must not be modified */
+		long[] view() { return toBitmap(); }
+		
+		/** 
+		 * @return a container holding the values v in this such that 
+		 * other.contains(join(key, v)) = keep 
+		 */
+		final Container filter(int key, IntCollection other, boolean keep) {
+			final long[] words = new long[1024];
+			for(IntIterator itr = ascending(0); itr.hasNext(); ) {
+				final int v = itr.next();
+				if (other.contains(join(key, v)) == keep) words[v >>> 6] |= 1L << v;
+			}
+			return best(words);
+		}
+		
+		/** @return a container holding this + other */
+		Container or(Container other) {
+			final long[] words = toBitmap();
+			other.orInto(words);
+			return best(words);
+		}
+		
+		/** @return a container holding this & other */
+		Container and(Container other) {
+			final long[] words = toBitmap(), others = other.view();
+			for(int i = 0; i < 1024; i++) { words[i] &= others[i]; }
+			return best(words);
+		}
+		
+		/** @return a container holding this - other */
+		Container andNot(Container other) {
+			final long[] words = toBitmap(), others = other.view();
+			for(int i = 0; i < 1024; i++) { words[i] &= ~others[i]; }
+			return best(words);
+		}
+		
+		/** @return true if this contains all values in other */
+		boolean containsAll(Container other) {
+			if (other.cardinality() > cardinality()) return false;
+			final long[] words = view(), others = other.view();
+			for(int i = 0; i < 1024; i++) { 
+				if ((others[i] & ~words[i]) != 0) return false;
+			}
+			return true;
+		}
+		
+		abstract Container copy();
+	}
+	
+	/**
+	 * A container that stores its values in a sorted array.
+	 * @invariant cardinality <= MAX_ARRAY
+	 */
+	private static final class ArrayContainer extends Container {
+		private char[] content;
+		private int card;
+		
+		ArrayContainer(int low) {
+			this.content = new char[4];
+			this.content[0] = (char) low;
+			this.card = 1;
+		}
+		
+		private ArrayContainer(char[] content, int card) {
+			this.content = content;
+			this.card = card;
+		}
+		
+		static ArrayContainer fromBitmap(long[] words, int card) {
+			final char[] content = new char[Math.max(card, 1)];
+			int pos = 0;
+			for(int i = 0; i < 1024; i++) {
+				for(long w = words[i]; w != 0; w &= w - 1) {
+					content[pos++] = (char) ((i << 6) + Long.numberOfTrailingZeros(w));
+				}
+			}
+			return new ArrayContainer(content, card);
+		}
+		
+		private int search(int low) { return Arrays.binarySearch(content, 0, card, (char) low); }
+		
+		int cardinality() { return card; }
+		
+		boolean contains(int low) { return search(low) >= 0; }
+		
+		Container add(int low) {
+			final int pos = search(low);
+			if (pos >= 0) return this;
+			if (card == MAX_ARRAY) {
+				final long[] words = toBitmap();
+				words[low >>> 6] |= 1L << low;
+				return best(words);
+			}
+			final int ins = -pos - 1;
+			if (card == content.length) {
+				content = Arrays.copyOf(content, Math.min(MAX_ARRAY, card + (card >> 1) + 1));
+			}
+			System.arraycopy(content, ins, content, ins + 1, card - ins);
+			content[ins] = (char) low;
+			card++;
+			return this;
+		}
+		
+		Container remove(int low) {
+			final int pos = search(low);
+			if (pos >= 0) {
+				System.arraycopy(content, pos + 1, content, pos, card - pos - 1);
+				card--;
+			}
+			return this;
+		}
+		
+		int min() { return content[0]; }
+		
+		int max() { return content[card - 1]; }
+		
+		int ceil(int low) {
+			final int pos = search(low);
+			if (pos >= 0) return low;
+			final int ins = -pos - 1;
+			return ins < card ? content[ins] : -1;
+		}
+		
+		int floor(int low) {
+			final int pos = search(low);
+			if (pos >= 0) return low;
+			final int ins = -pos - 1;
+			return ins > 0 ? content[ins - 1] : -1;
+		}
+		
+		int rank(int low) {
+			final int pos = search(low);
+			return pos >= 0 ? pos + 1 : -pos - 1;
+		}
+		
+		IntIterator ascending(int from) {
+			final int pos = search(from);
+			return new LowIterator() {
+				int i = pos >= 0 ? pos : -pos - 1;
+				public boolean hasNext() { return i < card; }
+				public int next() { return content[i++]; }
+			};
+		}
+		
+		IntIterator descending(int from) {
+			final int pos = search(from);
+			return new LowIterator() {
+				int i = pos >= 0 ? pos : -pos - 2;
+				public boolean hasNext() { return i >= 0; }
+				public int next() { return content[i--]; }
+			};
+		}
+		
+		void orInto(long[] words) {
+			for(int i = 0; i < card; i++) {
+				final int v = content[i];
+				words[v >>> 6] |= 1L << v;
+			}
+		}
+		
+		Container or(Container other) {
+			if (other instanceof ArrayContainer) {
+				final ArrayContainer o = (ArrayContainer) other;
+				if (card + o.card <= MAX_ARRAY) {
+					final char[] merged = new char[Math.max(1, card + o.card)];
+					int i = 0, j = 0, k = 0;
+					while (i < card && j < o.card) {
+						final char a = content[i], b = o.content[j];
+						if (a < b) { merged[k++] = a; i++; }
+						else if (a > b) { merged[k++] = b; j++; }
+						else { merged[k++] = a; i++; j++; }
+					}
+					while (i < card) merged[k++] = content[i++];
+					while (j < o.card) merged[k++] = o.content[j++];
+					return new ArrayContainer(merged, k);
+				}
+			}
+			return super.or(other);
+		}
+		
+		Container and(Container other) {
+			final char[] result = new char[Math.max(1, card)];
+			int k = 0;
+			if (other instanceof ArrayContainer) {
+				final ArrayContainer o = (ArrayContainer) other;
+				int i = 0, j = 0;
+				while (i < card && j < o.card) {
+					final char a = content[i], b = o.content[j];
+					if (a < b) i++;
+					else if (a > b) j++;
+					else { result[k++] = a; i++; j++; }
+				}
+			} else {
+				for(int i = 0; i < card; i++) {
+					if (other.contains(content[i])) result[k++] = content[i];
+				}
+			}
+			return new ArrayContainer(result, k);
+		}
+		
+		Container andNot(Container other) {
+			final char[] result = new char[Math.max(1, card)];
+			int k = 0;
+			for(int i = 0; i < card; i++) {
+				if (!other.contains(content[i])) result[k++] = content[i];
+			}
+			return new ArrayContainer(result, k);
+		}
+		
+		boolean containsAll(Container other) {
+			if (other instanceof ArrayContainer) {
+				final ArrayContainer o = (ArrayContainer) other;
+				if (o.card > card) return false;
+				for(int j = 0; j < o.card; j++) {
+					if (!contains(o.content[j])) return false;
+				}
+				return true;
+			}
+			return super.containsAll(other);
+		}
+		
+		ArrayContainer copy() {
+			return new ArrayContainer(Arrays.copyOf(content, Math.max(1, card)), card);
+		}
+	}
+	
+	/**
+	 * A container that stores its values in a bit map of 2^16 bits.
+	 * @invariant cardinality > MAX_ARRAY
+	 */
+	private static final class BitmapContainer extends Container {
+		private final long[] words;
+		private int card;
+		
+		BitmapContainer(long[] words, int card) {
+			this.words = words;
+			this.card = card;
+		}
+		
+		int cardinality() { return card; }
+		
+		boolean contains(int low) { return (words[low >>> 6] & (1L << low)) != 0; }
+		
+		Container add(int low) {
+			final long w = words[low >>> 6];
+			final long n = w | (1L << low);
+			if (n != w) {
+				words[low >>> 6] = n;
+				card++;
+			}
+			return this;
+		}
+		
+		Container remove(int low) {
+			final long w = words[low >>> 6];
+			final long n = w & ~(1L << low);
+			if (n != w) {
+				words[low >>> 6] = n;
+				if (--card <= MAX_ARRAY) return ArrayContainer.fromBitmap(words, card);
+			}
+			return this;
+		}
+		
+		int min() { return ceil(0); }
+		
+		int max() { return floor(0xFFFF); }
+		
+		int ceil(int low) {
+			int i = low >>> 6;
+			long w = words[i] & (-1L << low);
+			while (w == 0) {
+				if (++i == 1024) return -1;
+				w = words[i];
+			}
+			return (i << 6) + Long.numberOfTrailingZeros(w);
+		}
+		
+		int floor(int low) {
+			int i = low >>> 6;
+			long w = words[i] & (-1L >>> (63 - (low & 63)));
+			while (w == 0) {
+				if (--i < 0) return -1;
+				w = words[i];
+			}
+			return (i << 6) + 63 - Long.numberOfLeadingZeros(w);
+		}
+		
+		int rank(int low) {
+			final int last = low >>> 6;
+			int rank = 0;
+			for(int i = 0; i < last; i++) { rank += Long.bitCount(words[i]); }
+			return rank + Long.bitCount(words[last] & (-1L >>> (63 - (low & 63))));
+		}
+		
+		IntIterator ascending(final int from) {
+			return new LowIterator() {
+				int v = ceil(from);
+				public boolean hasNext() { return v >= 0; }
+				public int next() {
+					final int ret = v;
+					v = ret == 0xFFFF ? -1 : ceil(ret + 1);
+					return ret;
+				}
+			};
+		}
+		
+		IntIterator descending(final int from) {
+			return new LowIterator() {
+				int v = floor(from);
+				public boolean hasNext() { return v >= 0; }
+				public int next() {
+					final int ret = v;
+					v = ret == 0 ? -1 : floor(ret - 1);
+					return ret;
+				}
+			};
+		}
+		
+		void orInto(long[] other) {
+			for(int i = 0; i < 1024; i++) { other[i] |= words[i]; }
+		}
+		
+		long[] view() { return words; }
+		
+		BitmapContainer copy() {
+			return new BitmapContainer(words.clone(), card);
+		}
+	}
+	
+	/**
+	 * A container that stores its values as a sorted list of disjoint, 
+	 * non-adjacent runs.  The ith run starts at runs[2i] and contains
+	 * runs[2i+1]+1 values.
+	 * @invariant nruns <= MAX_RUNS
+	 */
+	private static final class RunContainer extends Container {
+		private char[] runs;
+		private int nruns, card;
+		
+		private RunContainer(char[] runs, int nruns, int card) {
+			this.runs = runs;
+			this.nruns = nruns;
+			this.card = card;
+		}
+		
+		static RunContainer fromBitmap(long[] words, int nruns) {
+			final char[] runs = new char[2*Math.max(nruns, 1)];
+			int r = 0, card = 0;
+			int v = ceil(words, 0);
+			while (v >= 0) {
+				int end = v;
+				while (end < 0xFFFF && (words[(end + 1) >>> 6] & (1L << (end + 1))) != 0) end++;
+				runs[2*r] = (char) v;
+				runs[2*r+1] = (char) (end - v);
+				card += end - v + 1;
+				r++;
+				v = end == 0xFFFF ? -1 : ceil(words, end + 1);
+			}
+			return new RunContainer(runs, r, card);
+		}
+		
+		/** @return the smallest set bit in words at or above from, or -1 */
+		private static int ceil(long[] words, int from) {
+			int i = from >>> 6;
+			long w = words[i] & (-1L << from);
+			while (w == 0) {
+				if (++i == 1024) return -1;
+				w = words[i];
+			}
+			return (i << 6) + Long.numberOfTrailingZeros(w);
+		}
+		
+		private int start(int r) { return runs[2*r]; }
+		
+		private int end(int r) { return runs[2*r] + runs[2*r+1]; }
+		
+		/** @return the index of the last run that starts at or before low, or -1 */
+		private int search(int low) {
+			int lo = 0, hi = nruns - 1;
+			while (lo <= hi) {
+				final int mid = (lo + hi) >>> 1;
+				if (start(mid) <= low) lo = mid + 1;
+				else hi = mid - 1;
+			}
+			return hi;
+		}
+		
+		private void set(int r, int start, int end) {
+			runs[2*r] = (char) start;
+			runs[2*r+1] = (char) (end - start);
+		}
+		
+		private void insertRun(int r, int start, int end) {
+			if (2*(nruns + 1) > runs.length) runs = Arrays.copyOf(runs, 2*(nruns + (nruns >> 1) + 1));
+			System.arraycopy(runs, 2*r, runs, 2*r + 2, 2*(nruns - r));
+			nruns++;
+			set(r, start, end);
+		}
+		
+		private void deleteRun(int r) {
+			System.arraycopy(runs, 2*r + 2, runs, 2*r, 2*(nruns - r - 1));
+			nruns--;
+		}
+		
+		int cardinality() { return card; }
+		
+		boolean contains(int low) {
+			final int r = search(low);
+			return r >= 0 && low <= end(r);
+		}
+		
+		Container add(int low) {
+			final int r = search(low);
+			if (r >= 0 && low <= end(r)) return this;
+			card++;
+			final boolean extendsPrev = r >= 0 && end(r) + 1 == low;
+			final boolean extendsNext = r + 1 < nruns && start(r + 1) == low + 1;
+			if (extendsPrev && extendsNext) {
+				set(r, start(r), end(r + 1));
+				deleteRun(r + 1);
+			} else if (extendsPrev) {
+				set(r, start(r), low);
+			} else if (extendsNext) {
+				set(r + 1, low, end(r + 1));
+			} else {
+				insertRun(r + 1, low, low);
+				if (nruns > MAX_RUNS) return best(toBitmap());
+			}
+			return this;
+		}
+		
+		Container remove(int low) {
+			final int r = search(low);
+			if (r < 0 || low > end(r)) return this;
+			card--;
+			final int start = start(r), end = end(r);
+			if (start == end) {
+				deleteRun(r);
+			} else if (low == start) {
+				set(r, start + 1, end);
+			} else if (low == end) {
+				set(r, start, end - 1);
+			} else {
+				set(r, start, low - 1);
+				insertRun(r + 1, low + 1, end);
+				if (nruns > MAX_RUNS) return best(toBitmap());
+			}
+			return this;
+		}
+		
+		int min() { return start(0); }
+		
+		int max() { return end(nruns - 1); }
+		
+		int ceil(int low) {
+			final int r = search(low);
+			if (r >= 0 && low <= end(r)) return low;
+			return r + 1 < nruns ? start(r + 1) : -1;
+		}
+		
+		int floor(int low) {
+			final int r = search(low);
+			if (r < 0) return -1;
+			return Math.min(low, end(r));
+		}
+		
+		int rank(int low) {
+			final int last = search(low);
+			int rank = 0;
+			for(int r = 0; r < last; r++) { rank += runs[2*r+1] + 1; }
+			return last < 0 ? 0 : rank + Math.min(low, end(last)) - start(last) + 1;
+		}
+		
+		IntIterator ascending(int from) {
+			int r = search(from);
+			if (r < 0 || from > end(r)) {
+				r++;
+				from = r < nruns ? start(r) : -1;
+			}
+			final int run = r, value = from;
+			return new LowIterator() {
+				int r = run, v = value;
+				public boolean hasNext() { return r < nruns; }
+				public int next() {
+					final int ret = v;
+					if (v < end(r)) v++;
+					else if (++r < nruns) v = start(r);
+					return ret;
+				}
+			};
+		}
+		
+		IntIterator descending(int from) {
+			final int run = search(from), value = run < 0 ? -1 : Math.min(from, end(run));
+			return new LowIterator() {
+				int r = run, v = value;
+				public boolean hasNext() { return r >= 0; }
+				public int next() {
+					final int ret = v;
+					if (v > start(r)) v--;
+					else if (--r >= 0) v = end(r);
+					return ret;
+				}
+			};
+		}
+		
+		void orInto(long[] words) {
+			for(int r = 0; r < nruns; r++) {
+				final int start = start(r), end = end(r);
+				final int first = start >>> 6, last = end >>> 6;
+				if (first == last) {
+					words[first] |= (-1L << start) & (-1L >>> (63 - (end & 63)));
+				} else {
+					words[first] |= -1L << start;
+					for(int i = first + 1; i < last; i++) { words[i] = -1L; }
+					words[last] |= -1L >>> (63 - (end & 63));
+				}
+			}
+		}
+		
+		RunContainer copy() {
+			return new RunContainer(Arrays.copyOf(runs, 2*Math.max(1, nruns)), nruns, card);
+		}
+	}
+}
@@ -337,7 +337,7 @@ public final class IntTreeSet extends AbstractIntSet implements Cloneable {
 			if (!canRemove) 
 				throw new IllegalStateException();
 			IntTreeSet.this.remove((int)lastReturned);
-			next = tree.searchGTE((int)cursor);
+			next = currentMax==Integer.MAX_VALUE ? null : tree.searchGTE(currentMax+1);
 			canRemove = false;
 		}
 		
@@ -370,10 +370,12 @@ public final class IntTreeSet extends AbstractIntSet implements Cloneable {
 				} else {
 					cursor = StrictMath.min(next.key, from);
 					currentMin = next.min;
+					next = tree.predecessor(next);
 				}
 			} else {
 				cursor = StrictMath.min(next.key, from);
 				currentMin = next.min;
+				next = tree.predecessor(next);
 			}
 		}
 		
@@ -398,7 +400,7 @@ public final class IntTreeSet extends AbstractIntSet implements Cloneable {
 			if (!canRemove) 
 				throw new IllegalStateException();
 			IntTreeSet.this.remove(lastReturned);
-			next = tree.searchLTE(cursor);
+			next = currentMin==Integer.MIN_VALUE ? null : tree.searchLTE(currentMin-1);
 			canRemove = false;
 		}
 		
@@ -147,12 +147,14 @@ public final class Ints {
 	 * that offers the best time/space trade-off for a 
 	 * set that can store all elements in the half open
 	 * range [0..max).  The returned instance may or may
-	 * not admit elements out of the range [0..max).
+	 * not admit elements out of the range [0..max).  Small 
+	 * ranges are backed by an {@link IntBitSet}, and large ones
+	 * by a compressed {@link IntRoaringSet}.
 	 * @return an int set that can store at least the 
 	 * elements in [0..max).
 	 */
 	public static IntSet bestSet(int max) {
-		return max > BITSET_CUTOFF ? new IntTreeSet() : new IntBitSet(max);
+		return max > BITSET_CUTOFF ? new IntRoaringSet() : new IntBitSet(max);
 	}
 
 	/**
@@ -167,7 +169,7 @@ public final class Ints {
 	 */
 	public static IntSet bestSet(int min, int max) {
 		if (min > max) throw new IllegalArgumentException("min > max");
-		return min < 0 ? new IntTreeSet() : bestSet(max+1);
+		return min < 0 ? new IntRoaringSet() : bestSet(max+1);
 	}
 	
 	/**
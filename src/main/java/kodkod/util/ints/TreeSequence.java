@@ -21,26 +21,44 @@
  */
 package kodkod.util.ints;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 
 /**
  * An implementation of a sparse sequence based on a
- * balanced binary search tree. 
+ * sorted array of indices. 
+ * 
+ * <p>The indices and values are stored in two parallel arrays, sorted by 
+ * index, so the sequence allocates no objects per entry.  Lookups are 
+ * logarithmic in the size of the sequence.  Insertions and removals shift 
+ * the entries that follow, so they take constant amortized time when 
+ * indices are added in increasing order, as is mostly the case for the 
+ * cells of boolean matrices and the inputs of accumulators, and linear time 
+ * otherwise.  The iterators returned by this sequence are cursors:  they 
+ * return the same (mutable) IndexedEntry on each call to next(), updated 
+ * to reflect the current position.  Clients that need to retain an entry 
+ * past the next call to next() must copy its index and value.  The sequence 
+ * must not be structurally modified while iterated, except through the 
+ * iterator itself.</p>
  * 
  * @author Emina Torlak
  */
 public final class TreeSequence<V> extends AbstractSparseSequence<V> 
  implements Cloneable {
-	private final IntTree<Entry<V>> tree;
+	private static final int[] NO_INDICES = {};
+	private static final Object[] NO_VALUES = {};
+	private int[] indices;
+	private Object[] values;
 	private int size;
 	/**
 	 * Constructs an empty tree sequence.
 	 * @ensures no this.entries'
 	 */
 	public TreeSequence() {
-		tree = new IntTree<Entry<V>>();
+		indices = NO_INDICES;
+		values = NO_VALUES;
 		size = 0;
 	}
 
@@ -56,11 +74,45 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 	 */
 	private TreeSequence(TreeSequence<V> original) {
 		this.size = original.size;
-		try {
-			this.tree = original.tree.clone();
-		} catch (CloneNotSupportedException e) {
-			throw new InternalError(); // unreachable code;
-		}
+		this.indices = Arrays.copyOf(original.indices, size);
+		this.values = Arrays.copyOf(original.values, size);
+	}
+	
+	/**
+	 * Returns the value stored at the given position in this.values.
+	 * @return this.values[position]
+	 */
+	@SuppressWarnings("unchecked")
+	private final V valueAt(int position) { 
+		return (V) values[position];
+	}
+	
+	/**
+	 * Returns a new entry for the given position in this.values.
+	 * @return {e: IndexedEntry | e.index = this.indices[position] && e.value = this.values[position] }
+	 */
+	private final IndexedEntry<V> entry(int position) { 
+		return new EntryView<V>(indices[position], valueAt(position));
+	}
+	
+	/**  
+	 * Searches the first this.size indices for the specified index using 
+	 * the binary search algorithm.  
+	 * @return the position in this.indices where the given index
+	 * is located, or -insertionPoint - 1 if the index is not in this.indices
+	 */
+	private final int search(int index) {
+		return Arrays.binarySearch(indices, 0, size, index);
+	}
+	
+	/**
+	 * Removes the entry at the given position, shifting the following ones.
+	 * @ensures removes the entry at the given position
+	 */
+	private final void removeAt(int position) { 
+		System.arraycopy(indices, position+1, indices, position, size-position-1);
+		System.arraycopy(values, position+1, values, position, size-position-1);
+		values[--size] = null;
 	}
 	
 	/**
@@ -85,7 +137,7 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 	 * @see kodkod.util.ints.SparseSequence#clear()
 	 */
 	public void clear() {
-		tree.clear();
+		Arrays.fill(values, 0, size, null);
 		size = 0;
 	}
 
@@ -94,14 +146,24 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 	 * @see kodkod.util.ints.SparseSequence#put(int, Object)
 	 */
 	public V put(int index, V value) {
-		final Entry<V> e = tree.search(index);
-		if (e==null) {
-			size++;
-			tree.insert(new Entry<V>(index, value));
-			return null;
-		} else {
-			return e.setValue(value);
+		int position = search(index);
+		if (position >= 0) {
+			final V old = valueAt(position);
+			values[position] = value;
+			return old;
+		} 
+		position = -position-1;
+		if (size == indices.length) { 
+			final int capacity = Math.max(4, size + (size >> 1));
+			indices = Arrays.copyOf(indices, capacity);
+			values = Arrays.copyOf(values, capacity);
 		}
+		System.arraycopy(indices, position, indices, position+1, size-position);
+		System.arraycopy(values, position, values, position+1, size-position);
+		indices[position] = index;
+		values[position] = value;
+		size++;
+		return null;
 	}
 
 	/**
@@ -109,8 +171,8 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 	 * @see kodkod.util.ints.SparseSequence#get(int)
 	 */
 	public V get(int index) {
-		final Entry<V> e = tree.search(index);
-		return e==null ? null : e.value;
+		final int position = search(index);
+		return position < 0 ? null : valueAt(position);
 	}
 
 	/**
@@ -122,13 +184,13 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 	 * @see kodkod.util.ints.SparseSequence#remove(int)
 	 */
 	public V remove(int index) {
-		final Entry<V> e = tree.search(index);
-		if (e==null)
+		final int position = search(index);
+		if (position < 0)
 			return null;
 		else {
-			size--;
-			tree.delete(e);
-			return e.value;
+			final V old = valueAt(position);
+			removeAt(position);
+			return old;
 		}
 	}
 
@@ -137,7 +199,7 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 	 * @see kodkod.util.ints.SparseSequence#containsIndex(int)
 	 */
 	public boolean containsIndex(int index) {
-		return tree.search(index) != null;
+		return search(index) >= 0;
 	}
 
 	/**
@@ -145,7 +207,7 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 	 * @see kodkod.util.ints.SparseSequence#first()
 	 */
 	public IndexedEntry<V> first() {
-		return tree.min();
+		return size==0 ? null : entry(0);
 	}
 
 	/**
@@ -153,7 +215,7 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 	 * @see kodkod.util.ints.SparseSequence#last()
 	 */
 	public IndexedEntry<V> last() {
-		return tree.max();
+		return size==0 ? null : entry(size-1);
 	}
 
 	/**
@@ -161,7 +223,9 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 	 * @see kodkod.util.ints.SparseSequence#ceil(int)
 	 */
 	public IndexedEntry<V> ceil(int index) {
-		return tree.searchGTE(index);
+		final int position = search(index);
+		final int ceil = position < 0 ? -position-1 : position;
+		return ceil < size ? entry(ceil) : null;
 	}
 
 	/**
@@ -169,7 +233,9 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 	 * @see kodkod.util.ints.SparseSequence#floor(int)
 	 */
 	public IndexedEntry<V> floor(int index) {
-		return tree.searchLTE(index);
+		final int position = search(index);
+		final int floor = position < 0 ? -position-2 : position;
+		return floor >= 0 ? entry(floor) : null;
 	}
 	
 	/**
@@ -184,154 +250,92 @@ public final class TreeSequence<V> extends AbstractSparseSequence<V>
 		
 	}
 	
-//	public String toString() {
-//		return tree.toString();
-//	}
-
-	private static final class Entry<V> extends IntTree.Node<Entry<V>> implements IndexedEntry<V>, Cloneable {
-		V value;
-		
-		Entry(int key, V value) {
-			super(key);
-			this.value = value;
-		}
-
-		public int index() {
-			return key;
-		}
-
-		public V value() {
-			return value;
-		}
-		
-		/**
-		 * Sets this.value to the given value and returns the previous value.
-		 * @ensures this.value' = value
-		 * @requires this.value
-		 */
-		V setValue(V value) {
-			V oldValue = this.value;
-			this.value = value;
-			return oldValue;
-		}
-		
-		public boolean equals(Object o) {
-			if (o==this) return true;
-			if (!(o instanceof IndexedEntry)) return false;
-			return AbstractSparseSequence.equal(this, (IndexedEntry<?>)o);
-		}
-		
-		public int hashCode() {
-			return AbstractSparseSequence.hashCode(this);
-		}
-		
-		public String toString() {
-			return key + "=" + value;
-		}		
-		
-		protected Entry<V> clone() throws CloneNotSupportedException {
-			return (Entry<V>)super.clone();
-		}
-	}
-	
-	
-	private abstract class EntryIterator implements Iterator<IndexedEntry<V>> {
+	/**
+	 * A cursor that traverses this sequence in the ascending order.
+	 */
+	private final class AscendingIterator extends EntryView<V> implements Iterator<IndexedEntry<V>> {
 		final int endIndex;
-		Entry<V> lastReturned ;
-		Entry<V> next;
+		int lastReturned = -1;
+		int cursor;
 		
 		/**
-		 * Constructs a tree iterator which traverses the tree starting at
-		 * the given Entry in either descending or ascending order, depending 
-		 * on whether start.index is greater than endIndex. 
+		 * Constructs an ascending iterator over the entries with
+		 * indeces between from and to.
+		 * @requires from <= to
 		 */
-		EntryIterator(Entry<V> start, int endIndex) {
-			this.next = start;
-			this.lastReturned = null;
-			this.endIndex = endIndex;
+		AscendingIterator(int from, int to) {
+			super(Integer.MIN_VALUE, null);
+			final int position = search(from);
+			this.cursor = position < 0 ? -position-1 : position;
+			this.endIndex = to;
 		}
 		
 		/**
-		 * Advances the next pointer to its successor,
-		 * if this is an ascending iterator or to 
-		 * its predecessor, if this is a descending iterator.
-		 * @requires next != NIL
+		 * Returns true if the cursor is within this sequence and its index 
+		 * is less than or equal to the ending index.
 		 */
-		abstract void advance();
-		
-		public abstract boolean hasNext();
+		public boolean hasNext() { 
+			return cursor < size && indices[cursor]<=endIndex; 
+		}
 		
 		public IndexedEntry<V> next() {
 			if (!hasNext())
 				throw new NoSuchElementException();
-			lastReturned = next;
-			advance();
-			return lastReturned;
+			lastReturned = cursor++;
+			return setView(indices[lastReturned], valueAt(lastReturned));
 		}
 		
-		public final void remove() {
-			if (lastReturned == null)
+		public void remove() {
+			if (lastReturned < 0)
 				throw new IllegalStateException();
-			if (next==null) {
-				TreeSequence.this.remove(lastReturned.key);
-			} else {
-				final int nextIndex = next.key;
-				TreeSequence.this.remove(lastReturned.key);
-				// necessary since the structural modifications made by the delete
-				// procedure may affect the next pointer
-				next = tree.search(nextIndex);
-			}
-			lastReturned = null;
-		}
-	}
-		
-	private final class AscendingIterator extends EntryIterator {
-		/**
-		 * Constructs an ascending iterator over the entries with
-		 * indeces between from and to.
-		 * @requires from <= to
-		 */
-		AscendingIterator(int from, int to) {
-			super(tree.searchGTE(from),to);
-		}
-		/**
-		 * Sets next to its successor.
-		 */
-		final void advance() {
-			next = tree.successor(next);
-		}
-		
-		/**
-		 * Returns true if next != NIL and its index is less 
-		 * than or equal to the ending index.
-		 */
-		public boolean hasNext() { 
-			return next != null && next.key<=endIndex; 
+			removeAt(lastReturned);
+			// the following entries were shifted into the removed position
+			cursor = lastReturned;
+			lastReturned = -1;
 		}
 	}
 	
-	private final class DescendingIterator extends EntryIterator {
+	/**
+	 * A cursor that traverses this sequence in the descending order.
+	 */
+	private final class DescendingIterator extends EntryView<V> implements Iterator<IndexedEntry<V>> {
+		final int endIndex;
+		int lastReturned = -1;
+		int cursor;
+		
 		/**
 		 * Constructs a descending iterator over the entries with
 		 * indeces between from and to.
 		 * @requires from >= to
 		 */
 		DescendingIterator(int from, int to) {
-			super(tree.searchLTE(from),to);
-		}
-		/**
-		 * Sets next to its predecessor.
-		 */
-		final void advance() {
-			next = tree.predecessor(next);
+			super(Integer.MIN_VALUE, null);
+			final int position = search(from);
+			this.cursor = position < 0 ? -position-2 : position;
+			this.endIndex = to;
 		}
 		
 		/**
-		 * Returns true if next != NIL and its index is greater 
-		 * than or equal to the ending index.
+		 * Returns true if the cursor is within this sequence and its index 
+		 * is greater than or equal to the ending index.
 		 */
 		public boolean hasNext() { 
-			return next != null && next.key>=endIndex; 
+			return cursor >= 0 && indices[cursor]>=endIndex; 
+		}
+		
+		public IndexedEntry<V> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			lastReturned = cursor--;
+			return setView(indices[lastReturned], valueAt(lastReturned));
+		}
+		
+		public void remove() {
+			if (lastReturned < 0)
+				throw new IllegalStateException();
+			// the preceding entries are not shifted
+			removeAt(lastReturned);
+			lastReturned = -1;
 		}
 	}
 	
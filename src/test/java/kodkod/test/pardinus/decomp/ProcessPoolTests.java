@@ -0,0 +1,123 @@
+package kodkod.test.pardinus.decomp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import kodkod.ast.Formula;
+import kodkod.engine.DProcessPool;
+import kodkod.engine.PardinusSolver;
+import kodkod.engine.Solution;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.engine.decomp.DModel;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.examples.pardinus.decomp.RingP;
+import kodkod.examples.pardinus.temporal.RingT;
+import kodkod.instance.PardinusBounds;
+import kodkod.instance.TemporalInstance;
+
+import org.junit.Test;
+
+/**
+ * Tests whether integrated problems solved by worker processes yield the
+ * same results as those solved by threads.
+ * 
+ * @author Nuno Macedo // [HASLab] decomposed model finding
+ */
+public class ProcessPoolTests {
+
+	private static ExtendedOptions options(DModel model) {
+		final ExtendedOptions opt = new ExtendedOptions();
+		opt.setSolver(SATFactory.DefaultSAT4J);
+		opt.setBitwidth(model.getBitwidth());
+		opt.setSymmetryBreaking(20);
+		opt.setThreads(2);
+		opt.setRunDecomposed(true);
+		return opt;
+	}
+
+	private static Solution solve(String[] args, boolean processes) throws IOException {
+		final DModel model = new RingP(args);
+		return solve(options(model), model.formula(), model.bounds(), processes);
+	}
+
+	private static Solution solve(ExtendedOptions opt, Formula formula, PardinusBounds bounds, boolean processes) throws IOException {
+		final DProcessPool pool = processes ? new DProcessPool(opt, 2) : null;
+		opt.setProcesses(pool);
+		try {
+			final PardinusSolver solver = new PardinusSolver(opt);
+			final Solution sol = solver.solve(formula, bounds);
+			if (processes)
+				assertTrue(pool.workers() > 0);
+			return sol;
+		} finally {
+			if (pool != null)
+				pool.close();
+		}
+	}
+
+	@Test
+	public void testSAT() throws IOException {
+		final String[] args = new String[] { "3", "6", RingP.Variant1.BADLIVENESS.name(), RingP.Variant2.VARIABLE.name() };
+		final Solution sol = solve(args, true);
+		assertEquals(solve(args, false).sat(), sol.sat());
+		assertTrue(sol.sat());
+		assertTrue(sol.instance().relations().size() > 0);
+	}
+
+	@Test
+	public void testUNSAT() throws IOException {
+		final String[] args = new String[] { "3", "6", RingP.Variant1.GOODSAFETY.name(), RingP.Variant2.STATIC.name() };
+		final Solution sol = solve(args, true);
+		assertEquals(solve(args, false).sat(), sol.sat());
+	}
+
+	@Test
+	public void testUndecomposed() throws IOException {
+		final String[] args = new String[] { "3", "6", RingP.Variant1.BADLIVENESS.name(), RingP.Variant2.VARIABLE.name() };
+		final DModel model = new RingP(args);
+		final Solution sol = solve(options(model), model.formula(), model.bounds().amalgamated(), true);
+		assertTrue(sol.sat());
+	}
+
+	@Test
+	public void testTemporal() throws IOException {
+		final String[] args = new String[] { "3", RingT.Variant1.BADLIVENESS.name(), RingT.Variant2.VARIABLE.name() };
+		final DModel model = new RingT(args);
+		final ExtendedOptions opt = options(model);
+		opt.setRunTemporal(true);
+		opt.setMaxTraceLength(10);
+		final Solution sol = solve(opt, model.formula(), model.bounds(), true);
+		assertEquals(solve(opt, model.formula(), model.bounds(), false).sat(), sol.sat());
+		assertTrue(sol.sat());
+		assertTrue(sol.instance() instanceof TemporalInstance);
+	}
+
+	@Test
+	public void testEnumeration() throws IOException {
+		final String[] args = new String[] { "3", "6", RingP.Variant1.BADLIVENESS.name(), RingP.Variant2.VARIABLE.name() };
+		final DModel model = new RingP(args);
+		final ExtendedOptions opt = options(model);
+		final DProcessPool pool = new DProcessPool(opt, 2);
+		opt.setProcesses(pool);
+		try {
+			final PardinusSolver solver = new PardinusSolver(opt);
+			final Iterator<Solution> sols = solver.solveAll(model.formula(), model.bounds());
+			final Set<String> instances = new HashSet<String>();
+			for (int i = 0; i < 5 && sols.hasNext(); i++) {
+				final Solution sol = sols.next();
+				assertTrue(sol.sat());
+				assertTrue(instances.add(sol.instance().toString()));
+			}
+			assertEquals(5, instances.size());
+			solver.free();
+		} finally {
+			pool.close();
+		}
+	}
+
+}
@@ -2,9 +2,12 @@ package kodkod.test.pardinus.decomp;
 
 import static org.junit.Assert.assertEquals;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import kodkod.ast.Expression;
 import kodkod.ast.Formula;
@@ -363,6 +366,44 @@ public class SlicerUnitTesting {
 		assertEquals("incorrect partial partition", Formula.TRUE.toString(), staticRel.toString());
 	}
 
+	@Test
+	public final void testPartition() {
+		Relation a = Relation.unary("a");
+		Relation r = Relation.binary("r");
+		Relation s = Relation.binary("s");
+		Relation v = Relation.binary_variable("v");
+		List<Object> atoms = new ArrayList<Object>();
+		for (int i = 0; i < 10; i++)
+			atoms.add("A" + i);
+		Universe u = new Universe(atoms);
+		PardinusBounds bounds = new PardinusBounds(u);
+		bounds.bound(a, u.factory().allOf(1));
+		bounds.bound(r, u.factory().allOf(2));
+		bounds.bound(s, u.factory().allOf(2));
+		bounds.bound(v, u.factory().allOf(2));
+		
+		Formula f1 = a.some();
+		Formula f2 = r.in(a.product(a));
+		Formula f3 = s.in(r);
+		Formula f4 = v.in(a.product(a)).always();
+		Formula total = Formula.and(f1, f2, f3, f4);
+		
+		// a and r cover two conjuncts, s would exceed half the variables
+		Set<Relation> partials = DecompFormulaSlicer.partition(total, bounds);
+		assertEquals(new HashSet<Relation>(Arrays.asList(a, r)), partials);
+		
+		// with no limit, every static conjunct is in the partial problem
+		partials = DecompFormulaSlicer.partition(total, bounds, 1);
+		assertEquals(new HashSet<Relation>(Arrays.asList(a, r, s)), partials);
+		
+		PardinusBounds split = PardinusBounds.splitAt(bounds, DecompFormulaSlicer.partition(total, bounds));
+		assertEquals(new HashSet<Relation>(Arrays.asList(a, r)), split.relations());
+		assertEquals(bounds.relations(), split.amalgamated().relations());
+		Entry<Formula, Formula> entry = DecompFormulaSlicer.slice(total, split);
+		assertEquals(Formula.and(f1, f2).toString(), entry.getKey().toString());
+		assertEquals(Formula.and(f3, f4).toString(), entry.getValue().toString());
+	}
+
 	public static void p(String s) {
 		System.out.println(s);
 	}
@@ -295,6 +295,47 @@ public class ResolutionTests {
 
 	}
 	
+	@Test
+	public void testCachedResolution() {
+		PardinusBounds bnds = new PardinusBounds(uni);
+		
+		// a :1 {A0} {A0,...,An}
+		bnds.bound(a, a0, as);
+		// c :1 a a
+		bnds.boundExactly(c, a);
+		// r :2 (a -> a) (a -> a)
+		bnds.bound(r, a.product(a), a.product(a));
+		
+		// copies share the resolutions, which must match for the same bounds
+		PardinusBounds cpy1 = bnds.clone(), cpy2 = bnds.clone();
+		Formula f1 = cpy1.resolve(new SLF4JReporter());
+		Formula f2 = cpy2.resolve(new SLF4JReporter());
+		assertEquals(f1.toString(), f2.toString());
+		assertEquals(cpy1.lowerBound(r), cpy2.lowerBound(r));
+		assertEquals(cpy1.upperBound(r), cpy2.upperBound(r));
+		assertEquals(a0.product(a0), cpy2.lowerBound(r));
+		
+		// changing the constant bounds of a dependency invalidates the resolution
+		PardinusBounds cpy3 = bnds.clone();
+		cpy3.boundExactly(a, as);
+		cpy3.resolve(new SLF4JReporter());
+		assertEquals(as, cpy3.lowerBound(c));
+		assertEquals(as.product(as), cpy3.lowerBound(r));
+		
+		// as does changing the symbolic bound itself
+		PardinusBounds cpy4 = bnds.clone();
+		cpy4.bound(r, a.product(bnds.reify(a0)));
+		cpy4.resolve(new SLF4JReporter());
+		assertEquals(0, cpy4.lowerBound(r).size());
+		assertEquals(as.product(a0), cpy4.upperBound(r));
+
+		// and the original resolution is still reused for unchanged bounds
+		PardinusBounds cpy5 = bnds.clone();
+		cpy5.resolve(new SLF4JReporter());
+		assertEquals(a0.product(a0), cpy5.lowerBound(r));
+		assertEquals(as.product(as), cpy5.upperBound(r));
+	}
+	
 	private boolean compare(Bounds b1, Bounds b2) {
 		for (Relation r : b1.relations()) {
 			if (b1.lowerBound(r).size() != b2.lowerBound(r).size()) return false;
@@ -22,18 +22,22 @@
  */
 package kodkod.test.pardinus.temporal;
 
+import kodkod.ast.Expression;
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
+import kodkod.engine.AbortedException;
 import kodkod.engine.PardinusSolver;
 import kodkod.engine.Solution;
 import kodkod.engine.Solution.Outcome;
 import kodkod.engine.config.ExtendedOptions;
 import kodkod.engine.satlab.SATFactory;
 import kodkod.instance.PardinusBounds;
+import kodkod.instance.TemporalInstance;
 import kodkod.instance.TupleFactory;
 import kodkod.instance.TupleSet;
 import kodkod.instance.Universe;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
@@ -171,6 +175,89 @@ public class BaseTests {
 		assertTrue("base problem should be sat for this trace length", sol.sat());
 	}
 	
+	@Test
+	public void testSatSATParallelLength() {
+		int n = 3;
+
+		Relation a = Relation.unary_variable("a");
+
+		Object[] atoms = new Object[n];
+		for (int i = 0; i < n; i++)
+			atoms[i] = "A" + i;
+
+		Universe uni = new Universe(atoms);
+		TupleFactory f = uni.factory();
+		TupleSet as = f.range(f.tuple("A0"), f.tuple("A" + (n - 1)));
+
+		PardinusBounds bounds = new PardinusBounds(uni);
+		bounds.bound(a, as);
+		// a grows by at most one atom per state, so filling it needs n+1 states
+		Formula formula = a.no().and(a.in(a.prime()).and(a.prime().difference(a).lone()).always());
+		Formula run = a.eq(Expression.UNIV).eventually();
+
+		int[] lengths = new int[2];
+		for (int threads = 1; threads <= 3; threads += 2) {
+			ExtendedOptions o = new ExtendedOptions();
+			o.setSolver(SATFactory.DefaultSAT4J);
+			o.setRunTemporal(true);
+			o.setMinTraceLength(1);
+			o.setMaxTraceLength(10);
+			o.setTraceThreads(threads);
+			Solution sol = new PardinusSolver(o).solve(formula.and(run), bounds);
+			assertTrue("base problem should be sat for this trace length", sol.sat());
+			lengths[threads / 2] = ((TemporalInstance) sol.instance()).prefixLength();
+		}
+		assertEquals("parallel exploration should find the shortest trace", lengths[0], lengths[1]);
+		assertEquals(n + 1, lengths[1]);
+		
+		ExtendedOptions o = new ExtendedOptions();
+		o.setSolver(SATFactory.DefaultSAT4J);
+		o.setRunTemporal(true);
+		o.setMaxTraceLength(n);
+		o.setTraceThreads(2);
+		assertFalse("base problem should be unsat for this trace length", 
+				new PardinusSolver(o).solve(formula.and(run), bounds).sat());
+	}
+	
+	@Test
+	public void testHybridSAT() {
+		int n = 2;
+
+		Relation a = Relation.unary_variable("a");
+
+		Object[] atoms = new Object[n];
+		for (int i = 0; i < n; i++)
+			atoms[i] = "A" + i;
+
+		Universe uni = new Universe(atoms);
+		TupleFactory f = uni.factory();
+		TupleSet as = f.range(f.tuple("A0"), f.tuple("A" + (n - 1)));
+
+		PardinusBounds bounds = new PardinusBounds(uni);
+		bounds.bound(a, as);
+		Formula formula = a.no().and(a.some().eventually());
+
+		ExtendedOptions o = new ExtendedOptions();
+		o.setSolver(SATFactory.electrod("-t", "NuSMV"));
+		o.setBoundedSolver(SATFactory.DefaultSAT4J);
+		o.setRunTemporal(true);
+		o.setRunUnbounded(true);
+		o.setMaxTraceLength(5);
+		PardinusSolver solver = new PardinusSolver(o);
+		// whichever engine answers (or survives), the problem is sat
+		Solution sol = solver.solve(formula, bounds);
+		assertTrue("base problem should be sat", sol.sat());
+		
+		// a bounded unsat is inconclusive, so only the model checker can answer
+		try {
+			sol = solver.solve(formula.and(a.no().always()), bounds);
+			assertFalse("base problem should be unsat", sol.sat());
+		} catch (AbortedException e) {
+			// the model checker failed, there is no conclusive answer
+		}
+		solver.free();
+	}
+	
 	@Test
 	public void testUnsatSATLength() {
 		opt.setSolver(SATFactory.MiniSat);
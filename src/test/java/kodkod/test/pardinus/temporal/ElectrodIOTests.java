@@ -0,0 +1,139 @@
+/*
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.pardinus.temporal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import kodkod.ast.Formula;
+import kodkod.ast.Relation;
+import kodkod.engine.config.AbstractReporter;
+import kodkod.engine.unbounded.ElectrodPrinter;
+import kodkod.engine.unbounded.ElectrodReader;
+import kodkod.engine.unbounded.InvalidUnboundedSolution;
+import kodkod.instance.PardinusBounds;
+import kodkod.instance.TemporalInstance;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.Universe;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ElectrodPrinter printing} of Electrod problems and the
+ * {@link ElectrodReader reading} of Electrod solutions, which do not require
+ * the Electrod executable.
+ *
+ * @author Nuno Macedo // [HASLab] unbounded temporal model finding
+ */
+public class ElectrodIOTests {
+
+	private final Relation a = Relation.unary_variable("a");
+	private final Relation b = Relation.unary("this/b");
+	private final PardinusBounds bounds;
+
+	public ElectrodIOTests() {
+		final Universe uni = new Universe("A0", "A1", "B0");
+		final TupleFactory f = uni.factory();
+		bounds = new PardinusBounds(uni);
+		bounds.bound(a, f.setOf("A0", "A1"));
+		bounds.boundExactly(b, f.setOf("B0"));
+	}
+
+	private static InputStream xml(String xml) {
+		return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testPrint() throws IOException {
+		final Formula formula = a.some().and(a.eq(a.prime()).not().always());
+		final String printed = ElectrodPrinter.print(formula, bounds, new AbstractReporter() {});
+		final StringWriter streamed = new StringWriter();
+		ElectrodPrinter.print(formula, bounds, new AbstractReporter() {}, streamed);
+		assertEquals(printed, streamed.toString());
+		assertTrue(printed.startsWith("univ : { A0 A1 B0 };"));
+		assertTrue(printed.contains("var a :1 { } { ( A0 ) ( A1 ) };"));
+		assertTrue(printed.contains("const this##b :1 { ( B0 ) };"));
+		assertTrue(printed.contains("run\n"));
+	}
+
+	@Test
+	public void testRead() {
+		final String sol =
+				"<?xml version=\"1.0\"?>\n" +
+				"<trace nbvars=\"12\" conversion-time=\"3\" analysis-time=\"7\">\n" +
+				"  <st loop-target=\"false\">\n" +
+				"    <rel name=\"a\"><t><a>A0</a></t><t><a>A1</a></t></rel>\n" +
+				"    <rel name=\"this##b\"><t><a>B0</a></t></rel>\n" +
+				"  </st>\n" +
+				"  <st loop-target=\"true\">\n" +
+				"    <rel name=\"a\"></rel>\n" +
+				"    <rel name=\"this##b\"><t><a>B0</a></t></rel>\n" +
+				"  </st>\n" +
+				"</trace>\n";
+		final ElectrodReader reader = new ElectrodReader(bounds);
+		final TemporalInstance inst = reader.read(xml(sol));
+		assertEquals(12, reader.nbvars);
+		assertEquals(3, reader.ctime);
+		assertEquals(7, reader.atime);
+		assertEquals(1, inst.loop);
+		assertEquals(bounds.upperBound(a), inst.state(0).tuples(a));
+		assertTrue(inst.state(1).tuples(a).isEmpty());
+		assertTrue(inst.state(2).tuples(a).isEmpty()); // loops back to the second state
+		assertEquals(bounds.upperBound(b), inst.state(1).tuples(b));
+	}
+
+	@Test
+	public void testReadDoctype() {
+		final String sol =
+				"<?xml version=\"1.0\"?>\n" +
+				"<!DOCTYPE trace SYSTEM \"trace.dtd\">\n" +
+				"<!-- generated by electrod -->\n" +
+				"<trace nbvars=\"4\" conversion-time=\"1\" analysis-time=\"2\">\n" +
+				"  <st loop-target=\"true\"><rel name=\"a\"><t><a>A1</a></t></rel></st>\n" +
+				"</trace>\n";
+		final TemporalInstance inst = new ElectrodReader(bounds).read(xml(sol));
+		assertEquals(0, inst.loop);
+		assertEquals(bounds.universe().factory().setOf("A1"), inst.state(0).tuples(a));
+		assertEquals(bounds.upperBound(b), inst.state(0).tuples(b));
+	}
+
+	@Test
+	public void testReadUnsat() {
+		final ElectrodReader reader = new ElectrodReader(bounds);
+		assertNull(reader.read(xml("<trace nbvars=\"0\" conversion-time=\"1\" analysis-time=\"2\"/>")));
+		try {
+			new ElectrodReader(bounds).read(xml("<trace nbvars=\"0\" conversion-time=\"1\" analysis-time=\"2\"><st loop-target=\"true\"><rel name=\"a\"><t><a>C0</a></t></rel></st></trace>"));
+			fail("Expected an InvalidUnboundedSolution for an unknown atom.");
+		} catch (InvalidUnboundedSolution e) {
+			// fine
+		}
+	}
+}
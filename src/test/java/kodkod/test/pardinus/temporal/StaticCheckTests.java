@@ -0,0 +1,125 @@
+package kodkod.test.pardinus.temporal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import kodkod.ast.Formula;
+import kodkod.ast.Relation;
+import kodkod.engine.Explorer;
+import kodkod.engine.PardinusSolver;
+import kodkod.engine.Solution;
+import kodkod.engine.config.AbstractReporter;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.instance.PardinusBounds;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.Universe;
+
+/**
+ * Tests the check of the static part of temporal problems, as enabled by
+ * {@link ExtendedOptions#setStaticCheck(boolean)}.
+ *
+ * @author Nuno Macedo // [HASLab] temporal model finding
+ */
+public class StaticCheckTests {
+
+	private final Relation a = Relation.unary_variable("a");
+	private final Relation c = Relation.unary("c");
+	private final Relation d = Relation.unary("d");
+	private final PardinusBounds bounds;
+	private int solved;
+
+	public StaticCheckTests() {
+		Universe uni = new Universe("A0", "A1", "A2");
+		TupleFactory f = uni.factory();
+		bounds = new PardinusBounds(uni);
+		bounds.bound(a, f.allOf(1));
+		bounds.bound(c, f.allOf(1));
+		bounds.bound(d, f.allOf(1));
+	}
+
+	private ExtendedOptions options(boolean check) {
+		ExtendedOptions opt = new ExtendedOptions();
+		opt.setRunTemporal(true);
+		opt.setRunUnbounded(false);
+		opt.setRunDecomposed(false);
+		opt.setMaxTraceLength(10);
+		opt.setSymmetryBreaking(0);
+		opt.setSolver(SATFactory.DefaultSAT4J);
+		opt.setStaticCheck(check);
+		opt.setReporter(new AbstractReporter() {
+			@Override
+			public void solvingCNF(int step, int primaryVars, int vars, int clauses) {
+				solved++;
+			}
+		});
+		return opt;
+	}
+
+	// the static part alone is unsatisfiable
+	@Test
+	public void testStaticUnsat() {
+		Formula formula = c.one().and(c.lone().not()).and(a.some().always());
+
+		PardinusSolver solver = new PardinusSolver(options(false));
+		assertFalse(solver.solve(formula, bounds).sat());
+		assertEquals(10, solved);
+
+		solved = 0;
+		solver = new PardinusSolver(options(true));
+		assertFalse(solver.solve(formula, bounds).sat());
+		assertEquals(0, solved);
+
+		formula = c.one().and(a.eq(c).always());
+		assertTrue(solver.solve(formula, bounds).sat());
+		assertEquals(1, solved);
+	}
+
+	// one configuration per atom of c, the last iteration needs not explore
+	// every trace length
+	@Test
+	public void testConfigurations() {
+		Formula formula = c.one().and(a.eq(c).always());
+		for (boolean check : new boolean[] { false, true }) {
+			PardinusSolver solver = new PardinusSolver(options(check));
+			Explorer<Solution> sols = (Explorer<Solution>) solver.solveAll(formula, bounds);
+			int configs = 0;
+			Solution sol = sols.next();
+			while (sol.sat()) {
+				configs++;
+				solved = 0;
+				sol = sols.nextC();
+			}
+			assertEquals(3, configs);
+			assertFalse(sols.hasNextC());
+			if (check)
+				assertEquals(0, solved);
+			else
+				assertEquals(10, solved);
+			solver.free();
+		}
+	}
+
+	// d is part of the configuration but made exact by the static translation
+	@Test
+	public void testTightenedConfigurations() {
+		Formula formula = c.one().and(d.no()).and(a.eq(c).always());
+		ExtendedOptions opt = options(true);
+		opt.setBoundTightening(true);
+		PardinusSolver solver = new PardinusSolver(opt);
+		Explorer<Solution> sols = (Explorer<Solution>) solver.solveAll(formula, bounds);
+		int configs = 0;
+		Solution sol = sols.next();
+		while (sol.sat()) {
+			configs++;
+			solved = 0;
+			sol = sols.nextC();
+		}
+		assertEquals(3, configs);
+		assertEquals(0, solved);
+		solver.free();
+	}
+}
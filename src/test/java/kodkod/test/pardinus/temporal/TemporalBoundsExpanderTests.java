@@ -0,0 +1,118 @@
+/*
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.pardinus.temporal;
+
+import static kodkod.engine.ltl2fol.TemporalTranslator.STATEATOM;
+import static kodkod.engine.ltl2fol.TemporalTranslator.STATE_SEP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import kodkod.ast.Relation;
+import kodkod.engine.ltl2fol.TemporalBoundsExpander;
+import kodkod.engine.ltl2fol.TemporalTranslator;
+import kodkod.instance.PardinusBounds;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the expansion of temporal bounds by {@link TemporalBoundsExpander}.
+ *
+ * Assumes past translation with {@link TemporalTranslator#ExplicitUnrolls} true.
+ *
+ * @author Nuno Macedo // [HASLab] temporal model finding
+ */
+public class TemporalBoundsExpanderTests {
+
+	private final Relation a = Relation.binary_variable("a");
+	private final Relation b = Relation.unary("b");
+	private final PardinusBounds bounds;
+
+	public TemporalBoundsExpanderTests() {
+		final Universe uni = new Universe("A0", "A1", "A2");
+		final TupleFactory f = uni.factory();
+		bounds = new PardinusBounds(uni);
+		bounds.bound(a, f.setOf(f.tuple("A0", "A1")), f.allOf(2));
+		bounds.boundExactly(b, f.setOf("A2"));
+	}
+
+	@BeforeClass
+	public static void rightEnc() {
+		assert TemporalTranslator.ExplicitUnrolls;
+	}
+
+	private static String state(int step, int unroll) {
+		return STATEATOM + step + STATE_SEP + unroll;
+	}
+
+	@Test
+	public final void testUniverse() {
+		final Universe u = TemporalBoundsExpander.expandUniverse(bounds.universe(), 3, 2);
+		assertSame(u, TemporalBoundsExpander.expandUniverse(bounds.universe(), 3, 2));
+		assertNotSame(u, TemporalBoundsExpander.expandUniverse(bounds.universe(), 4, 2));
+		assertEquals(3 * 2 + 3, u.size());
+		for (int j = 0; j < 2; j++)
+			for (int i = 0; i < 3; i++)
+				assertEquals(state(i, j), u.atom(j * 3 + i));
+		assertEquals("A0", u.atom(6));
+	}
+
+	@Test
+	public final void testExpand() {
+		final PardinusBounds exp = TemporalBoundsExpander.expand(bounds, 3, 2);
+		final TupleFactory f = exp.universe().factory();
+		final TupleSet time = f.setOf(state(0, 0), state(1, 0), state(2, 0));
+
+		assertEquals(f.setOf(f.tuple("A0", "A1")).product(time), exp.lowerBound(a.getExpansion()));
+		assertEquals(f.setOf("A0", "A1", "A2").product(f.setOf("A0", "A1", "A2")).product(time), exp.upperBound(a.getExpansion()));
+		assertEquals(f.setOf("A2"), exp.upperBound(b));
+
+		assertEquals(f.setOf(state(0, 0)), exp.upperBound(TemporalTranslator.FIRST));
+		assertEquals(f.setOf(state(2, 1)), exp.upperBound(TemporalTranslator.LAST));
+		assertEquals(f.setOf(state(2, 0)), exp.upperBound(TemporalTranslator.LAST_));
+		assertEquals(f.setOf(state(0, 1), state(1, 1), state(2, 1)), exp.upperBound(TemporalTranslator.LOOP));
+		assertEquals(f.setOf(state(0, 0), state(1, 0), state(2, 0), state(2, 1)), exp.lowerBound(TemporalTranslator.STATE));
+		assertEquals(f.setOf(f.tuple(state(0, 0), state(1, 0)), f.tuple(state(1, 0), state(2, 0))),
+				exp.lowerBound(TemporalTranslator.PREFIX));
+		// 2 successors per unroll, and 3 possible loops from the last state of the first unroll
+		assertEquals(2 * 2 + 3, exp.upperBound(TemporalTranslator.PREFIX).size());
+		assertEquals(3 * 2, exp.upperBound(TemporalTranslator.UNROLL_MAP).size());
+		assertTrue(exp.upperBound(TemporalTranslator.UNROLL_MAP).contains(f.tuple(state(1, 1), state(1, 0))));
+	}
+
+	@Test
+	public final void testConvert() {
+		final Universe u = TemporalBoundsExpander.expandUniverse(bounds.universe(), 2, 1);
+		final TupleSet upper = bounds.upperBound(a);
+		final TupleSet converted = TemporalBoundsExpander.convertToUniv(upper, u);
+		assertSame(u, converted.universe());
+		assertEquals(upper.size(), converted.size());
+		assertEquals(u.factory().setOf("A0", "A1", "A2").product(u.factory().setOf("A0", "A1", "A2")), converted);
+		assertEquals(upper, TemporalBoundsExpander.convertToUniv(converted, bounds.universe()));
+	}
+}
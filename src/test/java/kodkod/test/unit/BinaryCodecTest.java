@@ -0,0 +1,238 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import kodkod.ast.BinaryFormula;
+import kodkod.ast.Expression;
+import kodkod.ast.Formula;
+import kodkod.ast.IntConstant;
+import kodkod.ast.Relation;
+import kodkod.ast.RelationPredicate;
+import kodkod.ast.Variable;
+import kodkod.instance.BinaryCodec;
+import kodkod.instance.Bounds;
+import kodkod.instance.Instance;
+import kodkod.instance.PardinusBounds;
+import kodkod.instance.TemporalInstance;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+import kodkod.util.ints.IndexedEntry;
+
+import org.junit.Test;
+
+/**
+ * Tests the binary encoding of universes, bounds, instances and formulas by {@link BinaryCodec}.
+ *
+ * @author Nuno Macedo // [HASLab] binary encoding
+ */
+public final class BinaryCodecTest {
+	private final Relation a = Relation.unary("a"), f = Relation.binary("f"), v = Relation.unary_variable("v");
+	private final Universe universe = new Universe("A0", "A1", "A2", 0, -1, 128);
+	private final TupleFactory factory = universe.factory();
+
+	private static ByteBuffer encode(Object o) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if (o instanceof Formula)
+			BinaryCodec.write((Formula) o, out);
+		else if (o instanceof Bounds)
+			BinaryCodec.write((Bounds) o, out);
+		else if (o instanceof Instance)
+			BinaryCodec.write((Instance) o, out);
+		else
+			BinaryCodec.write((Universe) o, out);
+		return ByteBuffer.wrap(out.toByteArray());
+	}
+
+	private Bounds bounds() {
+		final Bounds b = new Bounds(universe);
+		b.bound(a, factory.setOf("A0"), factory.setOf("A0", "A1", "A2"));
+		b.bound(f, factory.setOf(factory.tuple("A0", "A1"), factory.tuple("A2", "A0"), factory.tuple("A2", "A1")));
+		b.boundExactly(0, factory.setOf(0));
+		b.boundExactly(-1, factory.setOf(-1));
+		b.boundExactly(128, factory.setOf(128));
+		return b;
+	}
+
+	private static void assertSameBounds(Bounds expected, Bounds actual, boolean sameRelations) {
+		assertEquals(expected.relations().size(), actual.relations().size());
+		for (Relation r : expected.relations()) {
+			Relation s = r;
+			if (!sameRelations) {
+				for (Relation t : actual.relations())
+					if (t.name().equals(r.name()))
+						s = t;
+				assertNotSame(r, s);
+			}
+			assertEquals(expected.lowerBound(r).indexView(), actual.lowerBound(s).indexView());
+			assertEquals(expected.upperBound(r).indexView(), actual.upperBound(s).indexView());
+		}
+		assertEquals(expected.ints(), actual.ints());
+		for (IndexedEntry<TupleSet> entry : expected.intBounds())
+			assertEquals(entry.value().indexView(), actual.exactBound(entry.index()).indexView());
+	}
+
+	@Test
+	public void testUniverse() throws IOException {
+		final Universe read = BinaryCodec.readUniverse(encode(universe));
+		assertEquals(universe.size(), read.size());
+		for (int i = 0; i < universe.size(); i++)
+			assertEquals(universe.atom(i), read.atom(i));
+	}
+
+	@Test
+	public void testBounds() throws IOException {
+		final Bounds bounds = bounds();
+		final ByteBuffer encoded = encode(bounds);
+		assertSameBounds(bounds, BinaryCodec.readBounds(encoded.duplicate(), Arrays.asList(a, f)), true);
+		assertSameBounds(bounds, BinaryCodec.readBounds(encoded.duplicate()), false);
+		assertEquals(Bounds.class, BinaryCodec.readBounds(encoded).getClass());
+		assertEquals(0, encoded.remaining());
+	}
+
+	@Test
+	public void testPardinusBounds() throws IOException {
+		final PardinusBounds bounds = new PardinusBounds(universe);
+		bounds.bound(a, factory.setOf("A0", "A1"));
+		bounds.bound(v, factory.setOf("A1", "A2"));
+		bounds.setTarget(a, factory.setOf("A1"));
+		bounds.setWeight(a, 3);
+		final Bounds remainder = new Bounds(universe);
+		remainder.bound(f, factory.allOf(2));
+		final PardinusBounds decomposed = new PardinusBounds(bounds, remainder);
+
+		final PardinusBounds read = (PardinusBounds) BinaryCodec.readBounds(encode(decomposed), Arrays.asList(a, f, v));
+		assertSameBounds(decomposed, read, true);
+		assertEquals(factory.setOf("A1").indexView(), read.target(a).indexView());
+		assertEquals(Integer.valueOf(3), read.weight(a));
+		assertSameBounds(decomposed.amalgamated(), read.amalgamated(), true);
+
+		bounds.bound(f, a.product(a));
+		try {
+			encode(bounds);
+			fail("Expected an IllegalArgumentException for unresolved bounds.");
+		} catch (IllegalArgumentException e) {
+			// fine
+		}
+	}
+
+	@Test
+	public void testTemporalInstance() throws IOException {
+		final List<Instance> states = new ArrayList<Instance>();
+		for (int i = 0; i < 3; i++) {
+			final Instance state = new Instance(universe);
+			state.add(a, factory.setOf("A0"));
+			state.add(v, i == 0 ? factory.noneOf(1) : factory.setOf(universe.atom(i)));
+			state.add(0, factory.setOf(0));
+			states.add(state);
+		}
+		final TemporalInstance instance = new TemporalInstance(states, 1, 1);
+		final TemporalInstance read = (TemporalInstance) BinaryCodec.readInstance(encode(instance), Arrays.asList(a, v));
+		assertEquals(1, read.loop);
+		assertEquals(3, read.prefixLength());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(states.get(i).tuples(v).indexView(), read.state(i).tuples(v).indexView());
+			assertEquals(states.get(i).tuples(a).indexView(), read.state(i).tuples(a).indexView());
+			assertEquals(states.get(i).tuples(0).indexView(), read.state(i).tuples(0).indexView());
+		}
+		assertEquals(instance.tuples(v.getExpansion()).size(), read.tuples(v.getExpansion()).size());
+	}
+
+	@Test
+	public void testInstanceOverUniverse() throws IOException {
+		final Instance instance = new Instance(universe);
+		instance.add(f, factory.setOf(factory.tuple("A2", "A0")));
+		final Instance read = BinaryCodec.readInstance(encode(instance), universe, Arrays.asList(f));
+		assertSame(universe, read.universe());
+		assertEquals(instance.tuples(f).indexView(), read.tuples(f).indexView());
+		try {
+			BinaryCodec.readInstance(encode(instance), new Universe("A0", "A1", "A2", 0, -1, 127), Arrays.asList(f));
+			fail("Expected an IllegalArgumentException for a different universe.");
+		} catch (IllegalArgumentException e) {
+			// fine
+		}
+	}
+
+	@Test
+	public void testFormula() throws IOException {
+		final Variable x = Variable.unary("x"), y = Variable.unary("y");
+		final Formula shared = x.join(f).some();
+		final Formula body = shared.and(x.in(v.prime())).and(shared.implies(y.product(x).in(f)).always());
+		final Formula formula = Formula.and(body.forAll(x.oneOf(a).and(y.loneOf(Expression.UNIV))),
+				f.function(a, a), f.acyclic(), a.count().plus(IntConstant.constant(-3)).gt(IntConstant.constant(128)),
+				v.some().until(a.no()).not(), x.sum().eq(IntConstant.constant(1)).forSome(x.oneOf(Expression.INTS)));
+		final Formula read = BinaryCodec.readFormula(encode(formula), Arrays.asList(a, f, v));
+		assertEquals(formula.toString(), read.toString());
+		// relations are matched and shared sub-formulas are read back once
+		final BinaryFormula sharing = (BinaryFormula) BinaryCodec.readFormula(encode(shared.and(shared.implies(f.acyclic()))),
+				Arrays.asList(a, f, v));
+		assertSame(sharing.left(), ((BinaryFormula) sharing.right()).left());
+		assertSame(f, ((RelationPredicate) ((BinaryFormula) sharing.right()).right()).relation());
+		try {
+			BinaryCodec.readBounds(encode(formula));
+			fail("Expected an IllegalArgumentException for the wrong kind of encoding.");
+		} catch (IllegalArgumentException e) {
+			// fine
+		}
+	}
+
+	@Test
+	public void testMapped() throws IOException {
+		final List<Object> atoms = new ArrayList<Object>();
+		for (int i = 0; i < 1000; i++)
+			atoms.add("A" + i);
+		final Universe large = new Universe(atoms);
+		final Instance instance = new Instance(large);
+		final TupleSet all = large.factory().allOf(2);
+		instance.add(f, all);
+
+		final File file = File.createTempFile("kodkod", ".bin");
+		file.deleteOnExit();
+		try (OutputStream out = new FileOutputStream(file)) {
+			BinaryCodec.write(instance, out);
+		}
+		// the 10^6 tuples form a single run
+		assertTrue(file.length() < 10 * atoms.size());
+		final Instance read = BinaryCodec.readInstance(BinaryCodec.map(file), Arrays.asList(f));
+		assertSame(f, read.relations().iterator().next());
+		assertEquals(all.indexView(), read.tuples(f).indexView());
+		file.delete();
+	}
+
+	@Test
+	public void testMalformed() throws IOException {
+		final ByteBuffer encoded = encode(bounds());
+		try {
+			BinaryCodec.readInstance(encoded.duplicate());
+			fail("Expected an IllegalArgumentException for the wrong kind of encoding.");
+		} catch (IllegalArgumentException e) {
+			// fine
+		}
+		try {
+			BinaryCodec.readBounds((ByteBuffer) encoded.duplicate().limit(encoded.limit() - 1));
+			fail("Expected an IllegalArgumentException for a truncated encoding.");
+		} catch (IllegalArgumentException e) {
+			// fine
+		}
+		try {
+			BinaryCodec.readUniverse(ByteBuffer.wrap(new byte[] { 'K', 'K', 'B', 0, 0, 0 }));
+			fail("Expected an IllegalArgumentException for an unsupported version.");
+		} catch (IllegalArgumentException e) {
+			// fine
+		}
+	}
+}
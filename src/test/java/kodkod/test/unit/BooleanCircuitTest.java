@@ -4,8 +4,10 @@ import static kodkod.engine.bool.BooleanConstant.FALSE;
 import static kodkod.engine.bool.BooleanConstant.TRUE;
 import static kodkod.engine.bool.Operator.AND;
 import static kodkod.engine.bool.Operator.OR;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -17,6 +19,7 @@ import kodkod.engine.bool.BooleanFactory;
 import kodkod.engine.bool.BooleanValue;
 import kodkod.engine.bool.BooleanVariable;
 import kodkod.engine.bool.Operator;
+import kodkod.engine.config.AbstractReporter;
 import kodkod.engine.config.Options;
 
 import org.junit.Before;
@@ -336,6 +339,40 @@ public class BooleanCircuitTest {
 		assertSame(f.ite(f.and(v[1],v[2]), o67, a45), f.ite(a12, f.or(v[6], v[7]), a45));
 		
 	}
+	
+	@Test
+	public final void testGateCache() {
+		final Options opt = new Options();
+		opt.setSharingCache(4);
+		f = BooleanFactory.factory(size, opt);
+		assertEquals(4, f.sharingCache());
+		final BooleanValue a01 = f.and(f.variable(1), f.variable(2));
+		assertSame(a01, f.and(f.variable(2), f.variable(1)));
+		for(int i = 3; i < size; i++) {
+			assertTrue(f.contains(f.and(f.variable(1), f.variable(i))));
+		}
+		// the cache has been flushed, so a01 is no longer shared but still in the factory 
+		assertTrue(f.contains(a01));
+		assertNotSame(a01, f.and(f.variable(1), f.variable(2)));
+		// gates of another factory are not mistaken for flushed ones
+		final BooleanFactory g = BooleanFactory.factory(size, opt);
+		for(int i = 3; i < size; i++) {
+			assertFalse(f.contains(g.and(g.variable(2), g.variable(i))));
+		}
+		
+		final long[] stats = new long[4];
+		f.reportGateCaches(new AbstractReporter() {
+			public void reportGateCache(Operator op, int gates, long lookups, long misses, long probes, int maxChain, long flushes) {
+				if (op==AND) {
+					stats[0] = gates; stats[1] = lookups; stats[2] = misses; stats[3] = flushes;
+				}
+			}
+		});
+		assertEquals(size, stats[1]);
+		assertEquals(size-1, stats[2]);
+		assertEquals(4, stats[3]);
+		assertTrue(stats[0] <= 4);
+	}
 
 //	@Test
 //	public final void testReductions() {
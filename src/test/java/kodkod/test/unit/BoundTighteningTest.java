@@ -0,0 +1,108 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import kodkod.ast.Formula;
+import kodkod.ast.Relation;
+import kodkod.engine.Evaluator;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.examples.alloy.CeilingsAndFloors;
+import kodkod.instance.Bounds;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.Universe;
+
+import org.junit.Test;
+
+/**
+ * Tests the tightening of bounds performed when {@link kodkod.engine.config.Options#boundTightening()} is set.
+ *
+ * @author Nuno Macedo // [HASLab] bound tightening
+ */
+public final class BoundTighteningTest {
+	private final Relation a = Relation.unary("a"), b = Relation.unary("b"), c = Relation.unary("c"), d = Relation.unary("d");
+	private final Relation f = Relation.binary("f"), g = Relation.binary("g");
+	private final Bounds bounds;
+
+	public BoundTighteningTest() {
+		final List<String> atoms = new ArrayList<String>();
+		for(int i = 0; i < 8; i++) 
+			atoms.add("A"+i);
+		final Universe u = new Universe(atoms);
+		final TupleFactory t = u.factory();
+		bounds = new Bounds(u);
+		bounds.bound(a, t.range(t.tuple("A0"), t.tuple("A2")));
+		bounds.bound(b, t.range(t.tuple("A3"), t.tuple("A5")));
+		bounds.bound(c, t.setOf("A6"), t.range(t.tuple("A6"), t.tuple("A7")));
+		bounds.bound(d, t.setOf("A7"));
+		bounds.bound(f, t.allOf(2));
+		bounds.bound(g, t.allOf(2));
+	}
+
+	private Solver solver(boolean tighten) {
+		final Solver solver = new Solver();
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		solver.options().setSymmetryBreaking(0);
+		solver.options().setBoundTightening(tighten);
+		return solver;
+	}
+
+	private int count(Solver solver, Formula formula, Bounds bounds) {
+		int n = 0;
+		for(Iterator<Solution> sols = solver.solveAll(formula, bounds); sols.hasNext(); ) {
+			final Solution sol = sols.next();
+			if (sol.sat()) {
+				assertTrue(new Evaluator(sol.instance(), solver.options()).evaluate(formula));
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Checks that tightening preserves the satisfiability of the given problem, and returns the number of primary 
+	 * variables saved by it.
+	 */
+	private int check(Formula formula, Bounds bounds) {
+		final Solution loose = solver(false).solve(formula, bounds), tight = solver(true).solve(formula, bounds);
+		assertEquals(loose.sat(), tight.sat());
+		if (tight.sat())
+			assertTrue(new Evaluator(tight.instance()).evaluate(formula));
+		return loose.stats().primaryVariables() - tight.stats().primaryVariables();
+	}
+
+	@Test
+	public void testFunction() {
+		final Formula formula = f.function(a, b).and(g.in(f.union(b.product(c))));
+		// f shrinks to a->b and g to a->b + b->c
+		assertEquals(64 - 9 + 64 - 15, check(formula, bounds));
+	}
+
+	@Test
+	public void testMultiplicities() {
+		assertEquals(64, check(g.no().and(c.one()).and(a.some()), bounds));
+		assertEquals(1, check(d.one().and(d.in(c).not()), bounds));
+	}
+
+	@Test
+	public void testLowerBounds() {
+		final Formula formula = c.product(c).in(f).and(f.in(c.product(c.union(b)))).and(a.in(b).not());
+		// f shrinks to c->(c+b) and the lower bound of c->c is added to its lower bound  
+		assertEquals(64 - 10 + 1, check(formula, bounds));
+	}
+
+	@Test
+	public void testAlloy() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		check(prob.declarations().and(prob.paulSimon()).and(prob.noSharing()), prob.bounds(3));
+		check(prob.checkBelowTooDoublePrime(), prob.bounds(3));
+		final Formula formula = prob.declarations().and(prob.paulSimon());
+		assertEquals(count(solver(false), formula, prob.bounds(2)), count(solver(true), formula, prob.bounds(2)));
+	}
+}
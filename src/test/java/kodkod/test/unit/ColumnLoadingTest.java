@@ -0,0 +1,145 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import kodkod.ast.Relation;
+import kodkod.instance.BinaryCodec;
+import kodkod.instance.Bounds;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+
+import org.junit.Test;
+
+/**
+ * Tests the construction of tuple sets and bounds from columns of atom indices,
+ * by {@link TupleFactory#setOfColumns(int[]...)} and friends.
+ *
+ * @author Nuno Macedo // [HASLab] columnar bound loading
+ */
+public final class ColumnLoadingTest {
+	private final Random random = new Random(7);
+	private final Universe universe;
+	private final TupleFactory factory;
+
+	public ColumnLoadingTest() {
+		final List<Object> atoms = new ArrayList<Object>();
+		for (int i = 0; i < 50; i++)
+			atoms.add("A" + i);
+		universe = new Universe(atoms);
+		factory = universe.factory();
+	}
+
+	private int[][] columns(int arity, int rows) {
+		final int[][] columns = new int[arity][rows];
+		for (int[] column : columns)
+			for (int i = 0; i < rows; i++)
+				column[i] = random.nextInt(universe.size());
+		return columns;
+	}
+
+	private TupleSet tuples(int[][] columns) {
+		final TupleSet tuples = factory.noneOf(columns.length);
+		final Object[] atoms = new Object[columns.length];
+		for (int i = 0; i < columns[0].length; i++) {
+			for (int j = 0; j < columns.length; j++)
+				atoms[j] = universe.atom(columns[j][i]);
+			tuples.add(factory.tuple(atoms));
+		}
+		return tuples;
+	}
+
+	@Test
+	public void testArrays() {
+		for (int arity = 1; arity <= 3; arity++) {
+			final int[][] columns = columns(arity, 1000);
+			assertEquals(tuples(columns), factory.setOfColumns(columns));
+		}
+		assertTrue(factory.setOfColumns(new int[0], new int[0]).isEmpty());
+	}
+
+	@Test
+	public void testBuffer() throws IOException {
+		final int[][] columns = columns(3, 500);
+		final File file = File.createTempFile("kodkod", ".cols");
+		file.deleteOnExit();
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(-1); // a header that is skipped by the position of the buffer
+			for (int[] column : columns)
+				for (int atom : column)
+					out.writeInt(atom);
+		}
+		final IntBuffer buffer = BinaryCodec.map(file).asIntBuffer();
+		buffer.position(1);
+		assertEquals(tuples(columns), factory.setOfColumns(3, buffer));
+		assertEquals(1, buffer.position());
+		file.delete();
+	}
+
+	@Test
+	public void testBounds() {
+		final Relation r = Relation.binary("r"), s = Relation.binary("s");
+		final int[][] lower = columns(2, 10), upper = new int[2][20];
+		for (int j = 0; j < 2; j++) {
+			System.arraycopy(lower[j], 0, upper[j], 0, 10);
+			for (int i = 10; i < 20; i++)
+				upper[j][i] = random.nextInt(universe.size());
+		}
+		final Bounds bounds = new Bounds(universe);
+		bounds.bound(r, lower, upper);
+		assertEquals(tuples(lower), bounds.lowerBound(r));
+		assertEquals(tuples(upper), bounds.upperBound(r));
+		bounds.boundExactly(s, lower);
+		assertSame(bounds.lowerBound(s), bounds.upperBound(s));
+		assertEquals(tuples(lower), bounds.upperBound(s));
+		bounds.bound(s, upper);
+		assertTrue(bounds.lowerBound(s).isEmpty());
+		assertEquals(tuples(upper), bounds.upperBound(s));
+		try {
+			bounds.bound(r, upper, lower);
+			fail("Expected an IllegalArgumentException for a lower bound that exceeds the upper bound.");
+		} catch (IllegalArgumentException e) {
+			// fine
+		}
+	}
+
+	@Test
+	public void testErrors() {
+		try {
+			factory.setOfColumns(new int[] { 0, 1 }, new int[] { 0 });
+			fail("Expected an IllegalArgumentException for columns of different lengths.");
+		} catch (IllegalArgumentException e) {
+			// fine
+		}
+		try {
+			factory.setOfColumns(new int[] { 0, universe.size() });
+			fail("Expected an IndexOutOfBoundsException for an invalid atom index.");
+		} catch (IndexOutOfBoundsException e) {
+			// fine
+		}
+		try {
+			factory.setOfColumns(2, IntBuffer.wrap(new int[] { 0, 1, 2 }));
+			fail("Expected an IllegalArgumentException for a partial column.");
+		} catch (IllegalArgumentException e) {
+			// fine
+		}
+		try {
+			new Bounds(universe).bound(Relation.unary("r"), new int[][] { { 0 }, { 0 } });
+			fail("Expected an IllegalArgumentException for a column count that differs from the arity.");
+		} catch (IllegalArgumentException e) {
+			// fine
+		}
+	}
+}
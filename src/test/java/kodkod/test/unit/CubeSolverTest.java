@@ -0,0 +1,122 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import kodkod.ast.Formula;
+import kodkod.engine.Evaluator;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.satlab.AssumptionSATSolver;
+import kodkod.engine.satlab.PooledSATFactory;
+import kodkod.engine.satlab.SATAbortedException;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.engine.satlab.SATSolver;
+import kodkod.examples.alloy.CeilingsAndFloors;
+import kodkod.examples.alloy.Pigeonhole;
+import kodkod.instance.Bounds;
+
+import org.junit.Test;
+
+/**
+ * Tests the cube-and-conquer solvers produced by {@link SATFactory#cubes(SATFactory, int)}.
+ * 
+ * @author Nuno Macedo // [HASLab] cube-and-conquer solving
+ */
+public class CubeSolverTest {
+	private final SATFactory cubes = SATFactory.cubes(SATFactory.DefaultSAT4J, 4);
+	
+	private Solution solve(Formula formula, Bounds bounds, SATFactory factory) {
+		final Solver solver = new Solver();
+		solver.options().setSolver(factory);
+		return solver.solve(formula, bounds);
+	}
+	
+	@Test
+	public void testCNF() {
+		final SATSolver s = cubes.instance();
+		s.addVariables(4);
+		s.addClause(new int[]{1, 2});
+		s.addClause(new int[]{-1, 3});
+		s.addClause(new int[]{-2, 3});
+		assertTrue(s.solve());
+		assertTrue(s.valueOf(3));
+		assertTrue(s.valueOf(1) || s.valueOf(2));
+		s.addClause(new int[]{-3, 4});
+		s.addClause(new int[]{-4});
+		assertFalse(s.solve());
+		assertFalse(s.addClause(new int[]{1}));
+		s.free();
+	}
+	
+	@Test
+	public void testSAT() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		final Formula formula = prob.declarations().and(prob.paulSimon()).and(prob.noSharing());
+		final Bounds bounds = prob.bounds(4, 4);
+		final Solution sol = solve(formula, bounds, cubes);
+		assertTrue(sol.sat());
+		assertTrue(new Evaluator(sol.instance()).evaluate(formula));
+	}
+	
+	@Test
+	public void testUNSAT() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		assertTrue(solve(prob.checkBelowTooDoublePrime(), prob.bounds(3, 3), cubes).unsat());
+		final Pigeonhole ph = new Pigeonhole();
+		final Formula formula = ph.declarations().and(ph.pigeonPerHole());
+		assertEquals(solve(formula, ph.bounds(6, 5), SATFactory.DefaultSAT4J).sat(), 
+				solve(formula, ph.bounds(6, 5), cubes).sat());
+		assertTrue(solve(formula, ph.bounds(5, 5), cubes).sat());
+	}
+	
+	@Test
+	public void testAssumptionsRequired() {
+		final SATFactory pooled = new PooledSATFactory(SATFactory.DefaultSAT4J, 2);
+		assertTrue(pooled.assumptions());
+		SATFactory.cubes(pooled, 2).instance().free();
+		assertFalse(SATFactory.MiniSat.assumptions());
+		try {
+			// rejected before any native solver is instantiated
+			SATFactory.cubes(SATFactory.MiniSat, 2);
+			fail("Expected cube-and-conquer to reject solvers without assumptions");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testInterruptedSAT4J() {
+		// pigeonhole problem, too hard to be solved before the first conflict
+		final int holes = 10, pigeons = holes + 1;
+		final SATSolver solver = SATFactory.DefaultSAT4J.instance();
+		solver.addVariables(pigeons * holes);
+		for(int p = 0; p < pigeons; p++) {
+			final int[] clause = new int[holes];
+			for(int h = 0; h < holes; h++)
+				clause[h] = p * holes + h + 1;
+			solver.addClause(clause);
+		}
+		for(int h = 0; h < holes; h++)
+			for(int p = 0; p < pigeons; p++)
+				for(int q = p + 1; q < pigeons; q++)
+					solver.addClause(new int[]{-(p * holes + h + 1), -(q * holes + h + 1)});
+		Thread.currentThread().interrupt();
+		try {
+			solver.solve();
+			fail("Expected the interrupted solver to abort");
+		} catch (SATAbortedException e) {
+			assertTrue(Thread.interrupted());
+		} finally {
+			Thread.interrupted();
+		}
+		// the aborted solver remains usable
+		final int[] nowhere = new int[holes];
+		for(int h = 0; h < holes; h++)
+			nowhere[h] = -(h + 1);
+		assertFalse(((AssumptionSATSolver) solver).solve(nowhere));
+		solver.free();
+	}
+}
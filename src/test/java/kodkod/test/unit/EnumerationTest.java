@@ -8,17 +8,25 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
 import kodkod.engine.Solution;
 import kodkod.engine.Solver;
+import kodkod.engine.config.AbstractReporter;
 import kodkod.engine.satlab.SATFactory;
 import kodkod.instance.Bounds;
 import kodkod.instance.TupleFactory;
+import kodkod.instance.TupleSet;
 import kodkod.instance.Universe;
 
 import org.junit.Test;
@@ -94,5 +102,125 @@ public class EnumerationTest {
 
 	}
 	
+	private static Solver sat4j(boolean minimalBlocking, Set<Relation> projection) {
+		final Solver solver = new Solver();
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		solver.options().setSymmetryBreaking(0);
+		solver.options().setMinimalBlocking(minimalBlocking);
+		solver.options().setProjection(projection);
+		return solver;
+	}
+	
+	@Test
+	public final void testMinimalBlocking() {
+		final Relation r = Relation.unary("r"), s = Relation.unary("s");
+		final Universe u  = new Universe(Arrays.asList("a","b","c"));
+		final Bounds b = new Bounds(u);
+		b.bound(r, u.factory().allOf(1));
+		b.bound(s, u.factory().allOf(1));
+		final Formula f = r.some().and(s.some());
+		
+		int all = 0;
+		for(Iterator<Solution> sol = sat4j(false, Collections.<Relation>emptySet()).solveAll(f, b); sol.next().sat(); )
+			all++;
+		assertEquals(7 * 7, all);
+		
+		// each model is blocked by an atom of r and an atom of s
+		int minimal = 0;
+		for(Iterator<Solution> sol = sat4j(true, Collections.<Relation>emptySet()).solveAll(f, b); sol.hasNext(); ) {
+			final Solution next = sol.next();
+			if (next.sat()) {
+				minimal++;
+				assertFalse(next.instance().tuples(r).isEmpty());
+				assertFalse(next.instance().tuples(s).isEmpty());
+			}
+		}
+		assertTrue(minimal >= 4 && minimal <= 3 * 3);
+	}
+	
+	private static Set<String> enumerate(Solver solver, Formula f, Bounds b) {
+		final Set<String> instances = new HashSet<String>();
+		final Iterator<Solution> sol = solver.solveAll(f, b);
+		Solution next = sol.next();
+		for(; next.sat(); next = sol.next()) {
+			final Map<String, TupleSet> tuples = new TreeMap<String, TupleSet>();
+			for(Map.Entry<Relation, TupleSet> e : next.instance().relationTuples().entrySet())
+				tuples.put(e.getKey().name(), e.getValue());
+			assertTrue(instances.add(tuples.toString()));
+		}
+		assertEquals(Solution.Outcome.UNSATISFIABLE, next.outcome());
+		assertFalse(sol.hasNext());
+		return instances;
+	}
+	
+	@Test
+	public final void testParallel() {
+		final Relation r = Relation.unary("r"), s = Relation.binary("s");
+		final Universe u  = new Universe(Arrays.asList("a","b","c"));
+		final Bounds b = new Bounds(u);
+		b.bound(r, u.factory().allOf(1));
+		b.bound(s, u.factory().allOf(2));
+		final Formula f = r.some().and(s.join(r).in(r)).and(s.function(r, r));
+		
+		final Set<String> sequential = enumerate(sat4j(false, Collections.<Relation>emptySet()), f, b);
+		for(int threads : new int[] { 2, 3, 8 }) {
+			final Solver solver = sat4j(false, Collections.<Relation>emptySet());
+			solver.options().setEnumerationThreads(threads);
+			assertEquals(sequential, enumerate(solver, f, b));
+		}
+		
+		// projected cubes do not enumerate the same projection
+		final Solver solver = sat4j(false, Collections.singleton(r));
+		solver.options().setEnumerationThreads(4);
+		assertEquals(7, enumerate(solver, f, b).size());
+		
+		// trivial problems are enumerated sequentially
+		final Bounds trivial = new Bounds(u);
+		trivial.bound(r, u.factory().setOf("a"), u.factory().allOf(1));
+		assertEquals(4, enumerate(solver, r.some(), trivial).size());
+	}
+	
+	@Test(timeout = 60000)
+	public final void testParallelFailure() {
+		final Relation r = Relation.unary("r"), s = Relation.binary("s");
+		final Universe u  = new Universe(Arrays.asList("a","b","c"));
+		final Bounds b = new Bounds(u);
+		b.bound(r, u.factory().allOf(1));
+		b.bound(s, u.factory().allOf(2));
+		
+		// three threads enumerate four cubes, so one is still queued when the others fail
+		final Solver solver = sat4j(false, Collections.<Relation>emptySet());
+		solver.options().setEnumerationThreads(3);
+		solver.options().setReporter(new AbstractReporter() {
+			@Override
+			public void solvingCNF(int step, int primaryVars, int vars, int clauses) {
+				throw new IllegalStateException("failed to solve");
+			}
+		});
+		try {
+			solver.solveAll(r.some().and(s.some()), b).next();
+			fail("Expected the failure of the enumerating threads.");
+		} catch (IllegalStateException e) {
+			assertEquals("failed to solve", e.getMessage());
+		}
+	}
+	
+	@Test
+	public final void testProjection() {
+		final Relation r = Relation.unary("r"), s = Relation.unary("s");
+		final Universe u  = new Universe(Arrays.asList("a","b","c"));
+		final Bounds b = new Bounds(u);
+		b.bound(r, u.factory().allOf(1));
+		b.bound(s, u.factory().allOf(1));
+		final Formula f = r.some().and(s.in(r));
+		
+		final Set<TupleSet> projections = new HashSet<TupleSet>();
+		final Iterator<Solution> sol = sat4j(true, Collections.singleton(r)).solveAll(f, b);
+		for(Solution next = sol.next(); next.sat(); next = sol.next()) 
+			assertTrue(projections.add(next.instance().tuples(r)));
+		assertEquals(7, projections.size());
+		assertFalse(sol.hasNext());
+	}
+	
 	
 }
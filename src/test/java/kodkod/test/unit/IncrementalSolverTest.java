@@ -30,10 +30,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 import java.util.ArrayList;
 import java.util.Collection;
 
+import kodkod.ast.Expression;
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
 import kodkod.engine.Evaluator;
@@ -41,7 +43,9 @@ import kodkod.engine.IncrementalSolver;
 import kodkod.engine.Solution;
 import kodkod.engine.Solution.Outcome;
 import kodkod.engine.config.Options;
+import kodkod.engine.satlab.AssumptionSATSolver;
 import kodkod.engine.satlab.SATFactory;
+import kodkod.engine.satlab.SATSolver;
 import kodkod.instance.Bounds;
 import kodkod.instance.Instance;
 import kodkod.instance.TupleFactory;
@@ -263,4 +267,118 @@ public final class IncrementalSolverTest {
 	}
 
 
+	/**
+	 * Opens a scope, skipping the calling test if the solver under test does not accept assumptions.
+	 */
+	private void push() {
+		final SATSolver probe = solver.options().solver().instance();
+		final boolean assumes = probe instanceof AssumptionSATSolver;
+		probe.free();
+		assumeTrue(assumes);
+		solver.push();
+	}
+
+	@Test
+	public void testScopes() {
+		final Bounds b = new Bounds(new Universe("A0", "A1", "A2"));
+		final TupleFactory t = b.universe().factory();
+		final Relation r0 = Relation.unary("r0");
+		final Relation r1 = Relation.unary("r1");
+		b.bound(r0, t.allOf(1));
+		b.bound(r1, t.allOf(1));
+		final Formula[] f = { r0.some(), 
+				r0.in(r1), 
+				r1.no(), 
+				r1.one() };
+
+		checkModel(solver.solve(f[0], b), f[0]);
+		b.relations().clear();
+
+		push();
+		assertEquals(1, solver.scopes());
+		final Solution sol = checkModel(solver.solve(f[1], b), f[0], f[1]);
+		assertEquals(2, sol.instance().relations().size());
+		assertEquals(UNSATISFIABLE, solver.solve(f[2], b).outcome());
+		assertTrue(solver.usable());
+		solver.pop();
+		assertEquals(0, solver.scopes());
+
+		checkModel(solver.solve(f[2], b), f[0], f[2]);
+		push();
+		assertEquals(UNSATISFIABLE, solver.solve(f[1], b).outcome());
+		solver.pop();
+		checkModel(solver.solve(f[3].not(), b), f[0], f[2], f[3].not());
+	}
+
+	@Test
+	public void testNestedScopes() {
+		final Bounds b = new Bounds(new Universe("A0", "A1", "A2"));
+		final TupleFactory t = b.universe().factory();
+		final Relation r0 = Relation.unary("r0");
+		final Relation r1 = Relation.unary("r1");
+		b.bound(r0, t.allOf(1));
+		
+		push(); // before the first call to solve
+		checkModel(solver.solve(r0.some(), b), r0.some());
+		b.relations().clear();
+		b.bound(r1, t.allOf(1));
+		
+		push();
+		push(); // an empty scope
+		checkModel(solver.solve(r1.in(r0), b), r0.some(), r1.in(r0));
+		b.relations().clear();
+		solver.pop();
+		
+		assertEquals(UNSATISFIABLE, solver.solve(r0.no(), b).outcome());
+		solver.pop();
+		checkModel(solver.solve(r1.some(), b), r0.some(), r1.some());
+		solver.pop();
+		checkModel(solver.solve(r0.no().and(r1.some()), b), r0.no(), r1.some());
+		
+		try {
+			solver.pop();
+			fail("Expected an IllegalStateException when no scope is open.");
+		} catch (IllegalStateException ise) {
+			// fine
+		}
+	}
+
+	@Test
+	public void testScopeGuards() {
+		final Bounds b = new Bounds(new Universe("A0", "A1", "A2", "A3", "A4", "A5"));
+		final Relation r0 = Relation.unary("r0");
+		b.bound(r0, b.universe().factory().allOf(1));
+
+		checkModel(solver.solve(r0.some(), b), r0.some());
+		b.relations().clear();
+		
+		// each scope adds a single guard variable, and no relation
+		push();
+		final Solution sol = checkModel(solver.solve(r0.lone(), b), r0.some(), r0.lone());
+		assertEquals(1, sol.instance().relations().size());
+		assertEquals(6, sol.stats().primaryVariables());
+		push();
+		assertEquals(UNSATISFIABLE, solver.solve(r0.no(), b).outcome());
+		solver.pop();
+		solver.pop();
+		checkModel(solver.solve(r0.eq(Expression.UNIV), b), r0.some(), r0.eq(Expression.UNIV));
+	}
+
+	@Test
+	public void testTrivialScopes() {
+		final Bounds b = new Bounds(new Universe("A0", "A1"));
+		final TupleFactory t = b.universe().factory();
+		final Relation r0 = Relation.unary("r0");
+		
+		assertEquals(TRIVIALLY_SATISFIABLE, solver.solve(Formula.TRUE, b).outcome());
+		push();
+		assertEquals(TRIVIALLY_SATISFIABLE, solver.solve(Formula.TRUE, b).outcome());
+		b.bound(r0, t.allOf(1));
+		assertEquals(UNSATISFIABLE, solver.solve(Formula.FALSE, b).outcome());
+		assertTrue(solver.usable());
+		solver.pop();
+		b.relations().clear();
+		checkModel(solver.solve(r0.some(), b), r0.some());
+	}
+
 }
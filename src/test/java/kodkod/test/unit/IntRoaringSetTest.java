@@ -0,0 +1,146 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import kodkod.util.ints.IntIterator;
+import kodkod.util.ints.IntRoaringSet;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.IntTreeSet;
+
+import org.junit.Test;
+
+/**
+ * Tests the compressed int set implementation against {@link IntTreeSet}.
+ * 
+ * @author Nuno Macedo // [HASLab] compressed int sets
+ */
+public class IntRoaringSetTest {
+	private final Random random = new Random(1234);
+	
+	/**
+	 * Adds to both sets n ints drawn from [min..min+range), clustered into 
+	 * runs of the given length.
+	 */
+	private void fill(IntSet s0, IntSet s1, int min, int range, int n, int run) {
+		for(int i = 0; i < n; ) {
+			final int start = min + random.nextInt(range);
+			for(int j = 0; j < run && i < n; j++, i++) {
+				s0.add(start + j);
+				s1.add(start + j);
+			}
+		}
+	}
+	
+	private void assertSame(IntSet expected, IntSet actual) {
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected, actual);
+		assertEquals(actual, expected);
+		assertEquals(expected.hashCode(), actual.hashCode());
+		if (!expected.isEmpty()) {
+			assertEquals(expected.min(), actual.min());
+			assertEquals(expected.max(), actual.max());
+		}
+		final IntIterator e = expected.iterator(Integer.MAX_VALUE, Integer.MIN_VALUE);
+		final IntIterator a = actual.iterator(Integer.MAX_VALUE, Integer.MIN_VALUE);
+		while (e.hasNext()) {
+			assertTrue(a.hasNext());
+			assertEquals(e.next(), a.next());
+		}
+		assertFalse(a.hasNext());
+	}
+	
+	@Test
+	public final void testAddRemove() {
+		final int[][] shapes = { {0, 100000, 1000, 1}, {0, 1<<20, 50000, 1}, {-5000, 70000, 20000, 37}, 
+				{Integer.MAX_VALUE - 70000, 60000, 30000, 500}, {Integer.MIN_VALUE, 1 << 17, 100000, 1} };
+		for(int[] shape : shapes) {
+			final IntSet expected = new IntTreeSet(), actual = new IntRoaringSet();
+			fill(expected, actual, shape[0], shape[1], shape[2], shape[3]);
+			assertSame(expected, actual);
+			for(int i = 0; i < shape[2]/2; i++) {
+				final int v = shape[0] + random.nextInt(shape[1]);
+				assertEquals(expected.remove(v), actual.remove(v));
+				assertEquals(expected.contains(v+1), actual.contains(v+1));
+			}
+			assertSame(expected, actual);
+			for(IntIterator e = expected.iterator(), a = actual.iterator(); e.hasNext(); ) {
+				assertEquals(e.next(), a.next());
+				if (random.nextBoolean()) { e.remove(); a.remove(); }
+			}
+			assertSame(expected, actual);
+			for(IntIterator e = expected.iterator(Integer.MAX_VALUE, Integer.MIN_VALUE), 
+					a = actual.iterator(Integer.MAX_VALUE, Integer.MIN_VALUE); e.hasNext(); ) {
+				assertEquals(e.next(), a.next());
+				if (random.nextInt(3)==0) { e.remove(); a.remove(); }
+			}
+			assertSame(expected, actual);
+			final int probe = shape[0] + shape[1]/2;
+			if (expected.min() <= probe)
+				assertEquals(expected.floor(probe), actual.floor(probe));
+			if (expected.max() >= probe)
+				assertEquals(expected.ceil(probe), actual.ceil(probe));
+		}
+	}
+	
+	@Test
+	public final void testRange() {
+		final IntSet s = new IntRoaringSet();
+		for(int i = 0; i < 1000000; i++) 
+			s.add(i);
+		assertEquals(1000000, s.size());
+		assertEquals(999999, s.max());
+		assertTrue(s.remove(65536));
+		assertFalse(s.contains(65536));
+		assertEquals(65536, s.ceil(65536) - 1);
+		assertEquals(65535, s.floor(65536));
+		assertEquals(999999, s.size());
+	}
+	
+	@Test
+	public final void testSetOperations() {
+		for(int run : new int[] {1, 8, 2000}) {
+			final IntSet e0 = new IntTreeSet(), a0 = new IntRoaringSet();
+			final IntSet e1 = new IntTreeSet(), a1 = new IntRoaringSet();
+			fill(e0, a0, 0, 300000, 60000, run);
+			fill(e1, a1, 100000, 300000, 60000, run);
+			
+			final IntSet eu = new IntTreeSet(e0), au = ((IntRoaringSet)a0).clone();
+			assertEquals(eu.addAll(e1), au.addAll(a1));
+			assertSame(eu, au);
+			assertTrue(au.containsAll(a1) && au.containsAll(a0));
+			
+			final IntSet ei = new IntTreeSet(e0), ai = ((IntRoaringSet)a0).clone();
+			assertEquals(ei.retainAll(e1), ai.retainAll(a1));
+			assertSame(ei, ai);
+			
+			final IntSet ed = new IntTreeSet(e0), ad = ((IntRoaringSet)a0).clone();
+			assertEquals(ed.removeAll(e1), ad.removeAll(a1));
+			assertSame(ed, ad);
+			assertFalse(ad.containsAll(a1));
+			
+			final IntSet gu = ((IntRoaringSet)a0).clone(), gi = ((IntRoaringSet)a0).clone(), gd = ((IntRoaringSet)a0).clone();
+			assertTrue(gu.addAll(e1));
+			assertSame(eu, gu);
+			assertTrue(gu.containsAll(e1) && !gd.containsAll(e1));
+			assertEquals(ei.size() < e0.size(), gi.retainAll(e1));
+			assertSame(ei, gi);
+			assertEquals(ed.size() < e0.size(), gd.removeAll(e1));
+			assertSame(ed, gd);
+			
+			assertSame(e0, a0);
+			int rank = 0;
+			for(IntIterator itr = e0.iterator(); itr.hasNext(); ) {
+				final int v = itr.next();
+				rank++;
+				if (random.nextInt(50)==0) {
+					assertEquals(rank, ((IntRoaringSet)a0).rank(v));
+					assertEquals(rank, ((IntRoaringSet)a0).rank(v+1) - (a0.contains(v+1) ? 1 : 0));
+				}
+			}
+		}
+	}
+}
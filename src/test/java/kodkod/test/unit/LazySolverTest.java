@@ -0,0 +1,94 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import kodkod.ast.Formula;
+import kodkod.engine.Evaluator;
+import kodkod.engine.LazySolver;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.config.Options;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.examples.alloy.CeilingsAndFloors;
+import kodkod.examples.alloy.Handshake;
+import kodkod.examples.alloy.Pigeonhole;
+import kodkod.instance.Bounds;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LazySolver lazy quantifier instantiation}.
+ *
+ * @author Nuno Macedo // [HASLab] lazy quantifier instantiation
+ */
+public final class LazySolverTest {
+	private final Options options;
+
+	public LazySolverTest() {
+		this.options = new Options();
+		options.setSolver(SATFactory.DefaultSAT4J);
+	}
+
+	/**
+	 * Checks that the lazy solver, which defers all eligible conjuncts, agrees with
+	 * the regular solver on the given problem, and that its instances are models of the formula.
+	 */
+	private void check(Formula formula, Bounds bounds) {
+		final Solution expected = new Solver(options).solve(formula, bounds);
+		final Solution actual = LazySolver.solver(options, 0).solve(formula, bounds);
+		assertEquals(expected.sat(), actual.sat());
+		if (actual.sat())
+			assertTrue(new Evaluator(actual.instance(), options).evaluate(formula));
+	}
+
+	@Test
+	public void testBadOptions() {
+		final Options opt = new Options();
+		opt.setLogTranslation(1);
+		try {
+			LazySolver.solver(opt, 0);
+			fail("Expected an IllegalArgumentException when logging is enabled.");
+		} catch (IllegalArgumentException iae) {
+			// fine
+		}
+		try {
+			LazySolver.solver(options, -1);
+			fail("Expected an IllegalArgumentException for a negative threshold.");
+		} catch (IllegalArgumentException iae) {
+			// fine
+		}
+	}
+
+	@Test
+	public void testPigeonhole() {
+		final Pigeonhole prob = new Pigeonhole();
+		final Formula f = prob.declarations().and(prob.pigeonPerHole());
+		check(f, prob.bounds(5, 5));
+		check(f, prob.bounds(6, 5));
+	}
+
+	@Test
+	public void testCeilingsAndFloors() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		check(prob.checkBelowTooAssertion(), prob.bounds(4));
+		check(prob.checkBelowTooDoublePrime(), prob.bounds(4));
+		check(prob.declarations().and(prob.paulSimon()).and(prob.noSharing()), prob.bounds(5));
+	}
+
+	@Test
+	public void testHandshake() {
+		final Handshake prob = new Handshake();
+		check(prob.runPuzzle(), prob.bounds(6));
+	}
+
+	@Test
+	public void testThreshold() {
+		final Pigeonhole prob = new Pigeonhole();
+		final Formula f = prob.declarations().and(prob.pigeonPerHole());
+		final Bounds b = prob.bounds(6, 5);
+		// nothing is deferred with a large threshold
+		assertEquals(new Solver(options).solve(f, b).sat(), LazySolver.solver(options, Integer.MAX_VALUE).solve(f, b).sat());
+	}
+}
@@ -0,0 +1,124 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import kodkod.engine.satlab.Clause;
+import kodkod.engine.satlab.ReductionStrategy;
+import kodkod.engine.satlab.ResolutionTrace;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.engine.satlab.SATProver;
+import kodkod.util.ints.IntBitSet;
+import kodkod.util.ints.IntIterator;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.Ints;
+
+import org.junit.Test;
+
+/**
+ * Tests the resolution traces produced by the {@link SATProver provers},
+ * whose clauses are encoded as varints of one to three bytes.
+ *
+ * @author Nuno Macedo // [HASLab] compact resolution traces
+ */
+public class LazyTraceTest {
+	// variables whose deltas need one, two and three bytes
+	private static final int V1 = 3, V2 = 200, V3 = 70000, V4 = 300000;
+	private static final int PADDING = 300;
+	// the axioms, with unit clauses over fresh variables that no refutation can use
+	private static final int[][] AXIOMS = new int[6 + PADDING][];
+	static {
+		AXIOMS[0] = new int[] { V1, -V2 };
+		AXIOMS[1] = new int[] { -V1, -V2, V4 };
+		AXIOMS[2] = new int[] { V2, -V3 };
+		for(int i = 0; i < PADDING; i++)
+			AXIOMS[3+i] = new int[] { -(V4+1+i) };
+		AXIOMS[3+PADDING] = new int[] { V2, -V4 };
+		AXIOMS[4+PADDING] = new int[] { V2, V4 };
+		AXIOMS[5+PADDING] = new int[] { -V2, -V4 };
+	}
+	// the only minimal core of the axioms
+	private static final int[] CORE = { 0, 1, 3+PADDING, 4+PADDING, 5+PADDING };
+
+	private static SATProver prover() {
+		final SATProver prover = (SATProver) SATFactory.MiniSatProver.instance();
+		prover.addVariables(V4 + PADDING);
+		for(int[] axiom : AXIOMS)
+			prover.addClause(axiom);
+		assertFalse(prover.solve());
+		return prover;
+	}
+
+	private static IntSet core() {
+		final IntSet core = new IntBitSet(AXIOMS.length);
+		for(int i : CORE)
+			core.add(i);
+		return core;
+	}
+
+	private static void check(ResolutionTrace trace, int axioms) {
+		assertEquals(Ints.rangeSet(Ints.range(0, axioms-1)), trace.axioms());
+		assertEquals(trace.size() - axioms, trace.resolvents().size());
+
+		for(IntIterator itr = trace.axioms().iterator(); itr.hasNext(); ) {
+			final int i = itr.next();
+			assertEquals(0, trace.get(i).numberOfAntecedents());
+		}
+
+		// each resolvent only has literals of its antecedents, and the last one is the conflict
+		for(IntIterator itr = trace.resolvents().iterator(); itr.hasNext(); ) {
+			final Clause resolvent = trace.get(itr.next());
+			assertTrue(resolvent.numberOfAntecedents() > 1);
+			final IntSet lits = new IntBitSet(2 * (V4 + PADDING) + 1);
+			for(Iterator<Clause> ante = resolvent.antecedents(); ante.hasNext(); )
+				for(IntIterator lit = ante.next().literals(); lit.hasNext(); )
+					lits.add(lit.next() + V4 + PADDING);
+			for(IntIterator lit = resolvent.literals(); lit.hasNext(); )
+				assertTrue(lits.contains(lit.next() + V4 + PADDING));
+		}
+		assertEquals(0, trace.get(trace.size()-1).size());
+
+		final IntSet reachable = new IntBitSet(trace.size());
+		reachable.addAll(trace.core());
+		reachable.addAll(trace.resolvents());
+		assertEquals(reachable, trace.reachable(Ints.singleton(trace.size()-1)));
+	}
+
+	@Test
+	public void testProof() {
+		if (!SATFactory.available(SATFactory.MiniSatProver)) return;
+		final SATProver prover = prover();
+		final ResolutionTrace trace = prover.proof();
+
+		check(trace, AXIOMS.length);
+		assertEquals(core(), trace.core());
+		for(int i = 0; i < AXIOMS.length; i++)
+			assertArrayEquals(AXIOMS[i], trace.get(i).toArray());
+		assertEquals(AXIOMS.length, prover.numberOfClauses());
+	}
+
+	@Test
+	public void testReduce() {
+		if (!SATFactory.available(SATFactory.MiniSatProver)) return;
+		final SATProver prover = prover();
+		prover.reduce(new ReductionStrategy() {
+			private boolean done = false;
+			public IntSet next(ResolutionTrace trace) {
+				if (done) return Ints.EMPTY_SET;
+				done = true;
+				return trace.core();
+			}
+		});
+		final ResolutionTrace trace = prover.proof();
+
+		check(trace, CORE.length);
+		assertEquals(Ints.rangeSet(Ints.range(0, CORE.length-1)), trace.core());
+		for(int i = 0; i < CORE.length; i++)
+			assertArrayEquals(AXIOMS[CORE[i]], trace.get(i).toArray());
+		assertEquals(CORE.length, prover.numberOfClauses());
+	}
+}
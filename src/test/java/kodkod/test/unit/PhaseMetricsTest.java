@@ -0,0 +1,56 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import kodkod.ast.Formula;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.config.AbstractReporter;
+import kodkod.engine.fol2sat.PhaseMetrics;
+import kodkod.engine.fol2sat.PhaseMetrics.Phase;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.examples.alloy.CeilingsAndFloors;
+
+import org.junit.Test;
+
+/**
+ * Tests the gathering of {@link PhaseMetrics} during translation and solving.
+ *
+ * @author Nuno Macedo // [HASLab] phase metrics
+ */
+public class PhaseMetricsTest {
+
+	@Test
+	public final void testMetrics() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		final Formula f = prob.declarations().and(prob.paulSimon()).and(prob.noSharing());
+		final Set<Phase> reported = EnumSet.noneOf(Phase.class);
+		final Solver solver = new Solver();
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		solver.options().setReporter(new AbstractReporter() {
+			@Override
+			public void reportPhase(Phase phase, long nanos, long bytes) {
+				assertTrue(nanos >= 0);
+				reported.add(phase);
+			}
+		});
+
+		final Solution sol = solver.solve(f, prob.bounds(5));
+		final PhaseMetrics metrics = sol.stats().metrics();
+		assertNotNull(metrics);
+		assertTrue(metrics.gates() > 0);
+		assertTrue(metrics.cacheLookups() >= metrics.cacheHits());
+		assertTrue(metrics.nanos(Phase.FOL2BOOL) > 0);
+		assertTrue(metrics.nanos(Phase.BOOL2CNF) > 0);
+		assertTrue(metrics.nanos(Phase.SOLVING) > 0);
+		assertEquals(EnumSet.allOf(Phase.class), reported);
+		assertTrue(metrics.toString().contains("fol2bool"));
+		assertFalse(sol.stats().toString().contains("fol2bool"));
+	}
+}
@@ -0,0 +1,120 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import kodkod.ast.Formula;
+import kodkod.engine.Solver;
+import kodkod.engine.satlab.PooledSATFactory;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.engine.satlab.SATSolver;
+import kodkod.examples.alloy.CeilingsAndFloors;
+import kodkod.instance.Bounds;
+
+import org.junit.Test;
+
+/**
+ * Tests the recycling of solvers by {@link PooledSATFactory}.
+ * 
+ * @author Nuno Macedo // [HASLab] solver pooling
+ */
+public class PooledSATFactoryTest {
+
+	@Test
+	public void testRecycle() {
+		final PooledSATFactory pool = new PooledSATFactory(SATFactory.DefaultSAT4J, 1, 16);
+		
+		final SATSolver s0 = pool.instance();
+		s0.addVariables(2);
+		s0.addClause(new int[]{1});
+		s0.addClause(new int[]{-1});
+		assertFalse(s0.solve());
+		s0.free();
+		s0.free();
+		assertEquals(1, pool.idle());
+		assertEquals(1, pool.recycled());
+		
+		final SATSolver s1 = pool.instance(), s2 = pool.instance();
+		assertEquals(0, pool.idle());
+		assertEquals(1, pool.reused());
+		assertEquals(2, pool.created());
+		assertEquals(0, s1.numberOfVariables());
+		assertEquals(0, s1.numberOfClauses());
+		s1.addVariables(1);
+		s1.addClause(new int[]{-1});
+		assertTrue(s1.solve());
+		assertFalse(s1.valueOf(1));
+		
+		s1.free();
+		s2.free();
+		assertEquals(1, pool.idle());
+		assertEquals(1, pool.discarded());
+		pool.clear();
+		assertEquals(0, pool.idle());
+	}
+	
+	@Test
+	public void testNativeRecycle() {
+		for(SATFactory factory : new SATFactory[]{ SATFactory.MiniSat, SATFactory.Glucose, SATFactory.Lingeling }) {
+			if (!SATFactory.available(factory)) continue;
+			final PooledSATFactory pool = new PooledSATFactory(factory, 1);
+			
+			final SATSolver s0 = pool.instance();
+			s0.addVariables(1);
+			s0.addClause(new int[]{1});
+			s0.addClause(new int[]{-1});
+			assertFalse(s0.solve());
+			s0.free();
+			assertEquals(factory.toString(), 1, pool.recycled() + pool.discarded());
+			
+			final SATSolver s1 = pool.instance();
+			assertEquals(0, s1.numberOfVariables());
+			assertEquals(0, s1.numberOfClauses());
+			s1.addVariables(1);
+			s1.addClause(new int[]{-1});
+			assertTrue(factory.toString(), s1.solve());
+			assertFalse(s1.valueOf(1));
+			s1.free();
+			pool.clear();
+		}
+	}
+	
+	@Test
+	public void testConcurrentSolves() throws Exception {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		final boolean unsat = new Solver().solve(prob.checkBelowTooDoublePrime(), prob.bounds(3, 3)).unsat();
+		final PooledSATFactory pool = new PooledSATFactory(SATFactory.DefaultSAT4J, 4);
+		final ExecutorService exec = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<Boolean>> outcomes = new ArrayList<Future<Boolean>>();
+			for(int i = 0; i < 16; i++) {
+				final boolean sat = i % 2 == 0;
+				outcomes.add(exec.submit(new Callable<Boolean>() {
+					public Boolean call() {
+						final Formula formula = sat ? prob.declarations() : prob.checkBelowTooDoublePrime();
+						final Bounds bounds = prob.bounds(3, 3);
+						final Solver solver = new Solver();
+						solver.options().setSolver(pool);
+						return solver.solve(formula, bounds).sat();
+					}
+				}));
+			}
+			for(int i = 0; i < outcomes.size(); i++) {
+				assertEquals(i % 2 == 0 || !unsat, outcomes.get(i).get());
+			}
+		} finally {
+			exec.shutdown();
+		}
+		assertTrue(pool.created() <= 16);
+		assertEquals(16, pool.created() + pool.reused());
+		assertTrue(pool.idle() <= 4);
+	}
+}
@@ -0,0 +1,159 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import kodkod.ast.Formula;
+import kodkod.engine.Evaluator;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.engine.satlab.SATSolver;
+import kodkod.examples.alloy.CeilingsAndFloors;
+import kodkod.examples.alloy.Pigeonhole;
+import kodkod.instance.Bounds;
+
+import org.junit.Test;
+
+/**
+ * Tests the preprocessing solvers produced by {@link SATFactory#preprocessing(SATFactory, int)}.
+ * 
+ * @author Nuno Macedo // [HASLab] CNF preprocessing
+ */
+public class PreprocessingSolverTest {
+	private final Random random = new Random(42);
+	
+	private Solver solver(boolean preprocessing) {
+		final Solver solver = new Solver();
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		solver.options().setPreprocessing(preprocessing);
+		return solver;
+	}
+	
+	/**
+	 * Returns a random clause over [1..vars] with the given number of literals.
+	 */
+	private int[] clause(int vars, int size) {
+		final int[] clause = new int[size];
+		for (int i = 0; i < size; ) {
+			final int var = 1 + random.nextInt(vars);
+			boolean fresh = true;
+			for (int j = 0; j < i; j++) 
+				fresh &= Math.abs(clause[j]) != var;
+			if (fresh) 
+				clause[i++] = random.nextBoolean() ? var : -var;
+		}
+		return clause;
+	}
+	
+	private boolean satisfies(SATSolver solver, List<int[]> clauses) {
+		for (int[] clause : clauses) {
+			boolean sat = false;
+			for (int lit : clause) 
+				sat |= solver.valueOf(Math.abs(lit)) == (lit > 0);
+			if (!sat) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Enumerates the models of the given solver projected onto [1..frozen].
+	 */
+	private int enumerate(SATSolver solver, int frozen) {
+		int models = 0;
+		while (solver.solve()) {
+			models++;
+			final int[] block = new int[frozen];
+			for (int v = 1; v <= frozen; v++) 
+				block[v-1] = solver.valueOf(v) ? -v : v;
+			solver.addClause(block);
+		}
+		return models;
+	}
+	
+	@Test
+	public void testCNF() {
+		final SATSolver s = SATFactory.preprocessing(SATFactory.DefaultSAT4J, 1).instance();
+		s.addVariables(4);
+		s.addClause(new int[]{1, 2});
+		s.addClause(new int[]{-1, 3});
+		s.addClause(new int[]{-2, 3});
+		s.addClause(new int[]{-3, 4});
+		assertTrue(s.solve());
+		assertTrue(s.valueOf(3) && s.valueOf(4));
+		assertTrue(s.valueOf(1) || s.valueOf(2));
+		// 4 was eliminated, so its clauses are restored
+		s.addClause(new int[]{-4});
+		assertFalse(s.solve());
+		s.free();
+	}
+	
+	@Test
+	public void testRandom() {
+		final int vars = 40, frozen = 8;
+		for (int round = 0; round < 50; round++) {
+			final List<int[]> clauses = new ArrayList<int[]>();
+			final int n = 100 + random.nextInt(100);
+			for (int i = 0; i < n; i++) 
+				clauses.add(clause(vars, 1 + random.nextInt(i % 7 == 0 ? 2 : 4)));
+			final SATSolver expected = SATFactory.DefaultSAT4J.instance(), 
+					actual = SATFactory.preprocessing(SATFactory.DefaultSAT4J, frozen).instance();
+			expected.addVariables(vars);
+			actual.addVariables(vars);
+			for (int[] clause : clauses) {
+				expected.addClause(clause.clone());
+				actual.addClause(clause.clone());
+			}
+			final boolean sat = expected.solve();
+			assertEquals(sat, actual.solve());
+			if (sat) {
+				assertTrue(satisfies(actual, clauses));
+				// a clause over eliminated variables forces their clauses to be restored
+				final int[] extra = clause(vars, 3);
+				expected.addClause(extra.clone());
+				actual.addClause(extra.clone());
+				clauses.add(extra);
+				assertEquals(expected.solve(), actual.solve());
+				if (actual.solve())
+					assertTrue(satisfies(actual, clauses));
+				assertEquals(enumerate(expected, frozen), enumerate(actual, frozen));
+			}
+			expected.free();
+			actual.free();
+		}
+	}
+	
+	@Test
+	public void testEnumeration() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		final Formula formula = prob.declarations().and(prob.paulSimon());
+		final Bounds bounds = prob.bounds(3);
+		int expected = 0, actual = 0;
+		for (Iterator<Solution> sols = solver(false).solveAll(formula, bounds); sols.hasNext(); ) 
+			if (sols.next().sat()) expected++;
+		for (Iterator<Solution> sols = solver(true).solveAll(formula, bounds); sols.hasNext(); ) {
+			final Solution sol = sols.next();
+			if (sol.sat()) {
+				actual++;
+				assertTrue(new Evaluator(sol.instance()).evaluate(formula));
+			}
+		}
+		assertEquals(expected, actual);
+	}
+	
+	@Test
+	public void testUNSAT() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		assertTrue(solver(true).solve(prob.checkBelowTooDoublePrime(), prob.bounds(3, 3)).unsat());
+		final Pigeonhole ph = new Pigeonhole();
+		final Formula formula = ph.declarations().and(ph.pigeonPerHole());
+		assertTrue(solver(true).solve(formula, ph.bounds(6, 5)).unsat());
+		assertTrue(solver(true).solve(formula, ph.bounds(5, 5)).sat());
+	}
+}
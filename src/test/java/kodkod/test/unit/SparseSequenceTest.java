@@ -170,6 +170,67 @@ public class SparseSequenceTest {
 		
 	}
 	
+	@Test
+	public final void testArraySequence() {
+		final IntSet s = Ints.bestSet(100);
+		for(int i = 0; i < 100; i += 3)
+			s.add(i);
+		s0 = new ArraySequence<Integer>(s);
+		assertTrue(s0.isEmpty());
+		for(int i = 0; i < 100; i += 6)
+			s0.put(i, i);
+		assertTrue(s0.size()==17);
+		assertTrue(s0.first().index()==0 && s0.last().index()==96);
+		assertTrue(s0.ceil(1).index()==6 && s0.floor(95).index()==90);
+		int expected = 0;
+		for(IndexedEntry<Integer> e : s0) {
+			assertTrue(e.index()==expected && e.value().intValue()==expected);
+			expected += 6;
+		}
+		expected = 96;
+		for(Iterator<IndexedEntry<Integer>> itr = s0.iterator(Integer.MAX_VALUE, Integer.MIN_VALUE); itr.hasNext(); ) {
+			assertTrue(itr.next().index()==expected);
+			itr.remove();
+			expected -= 6;
+		}
+		assertTrue(s0.isEmpty());
+		try {
+			s0.put(1, 1);
+			assertTrue(false);
+		} catch (IndexOutOfBoundsException e) { }
+	}
+	
+	@Test
+	public final void testTreeSequence() {
+		// indices are put out of order, so that entries are shifted
+		for(int i = 99; i >= 0; i -= 3)
+			s0.put(i % 2 == 0 ? i : 99 - i + 1, i);
+		for(int i = 0; i < 100; i++)
+			s0.put(i, i);
+		s0.put(100, null);
+		assertTrue(s0.size()==101 && s0.containsIndex(100) && s0.get(100)==null);
+		assertTrue(s0.first().index()==0 && s0.last().index()==100);
+		assertTrue(s0.ceil(101)==null && s0.floor(-1)==null && s0.ceil(-5).index()==0);
+		int expected = 0;
+		for(Iterator<IndexedEntry<Integer>> itr = s0.iterator(); itr.hasNext(); ) {
+			final IndexedEntry<Integer> e = itr.next();
+			assertTrue(e.index()==expected);
+			if (expected % 2 == 0) itr.remove();
+			expected++;
+		}
+		assertTrue(s0.size()==50 && !s0.containsIndex(50) && s0.get(51)==51);
+		expected = 99;
+		for(Iterator<IndexedEntry<Integer>> itr = s0.iterator(Integer.MAX_VALUE, 40); itr.hasNext(); ) {
+			assertTrue(itr.next().index()==expected);
+			itr.remove();
+			expected -= 2;
+		}
+		assertTrue(s0.size()==20 && s0.last().index()==39);
+		final SparseSequence<Integer> s1 = ((TreeSequence<Integer>) s0).clone();
+		s0.clear();
+		assertTrue(s0.isEmpty() && s1.size()==20 && s1.get(39)==39);
+	}
+	
 	@Test
 	public final void testIntTreeSet() {
 		IntTreeSet s = new IntTreeSet();
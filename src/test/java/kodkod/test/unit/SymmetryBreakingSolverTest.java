@@ -0,0 +1,152 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import kodkod.ast.Formula;
+import kodkod.engine.Evaluator;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.engine.satlab.SATSolver;
+import kodkod.examples.alloy.CeilingsAndFloors;
+import kodkod.examples.alloy.Pigeonhole;
+import kodkod.instance.Bounds;
+
+import org.junit.Test;
+
+/**
+ * Tests the symmetry breaking solvers produced by {@link SATFactory#symmetryBreaking(SATFactory, int)}.
+ *
+ * @author Nuno Macedo // [HASLab] CNF symmetry breaking
+ */
+public class SymmetryBreakingSolverTest {
+	private final Random random = new Random(42);
+
+	private Solver solver(int cnfSymmetryBreaking) {
+		final Solver solver = new Solver();
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		solver.options().setSymmetryBreaking(0);
+		solver.options().setCnfSymmetryBreaking(cnfSymmetryBreaking);
+		return solver;
+	}
+
+	private boolean satisfies(SATSolver solver, List<int[]> clauses) {
+		for (int[] clause : clauses) {
+			boolean sat = false;
+			for (int lit : clause)
+				sat |= solver.valueOf(Math.abs(lit)) == (lit > 0);
+			if (!sat) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Enumerates the models of the given solver projected onto [1..vars].
+	 */
+	private int enumerate(SATSolver solver, int vars) {
+		int models = 0;
+		while (solver.solve()) {
+			models++;
+			final int[] block = new int[vars];
+			for (int v = 1; v <= vars; v++)
+				block[v-1] = solver.valueOf(v) ? -v : v;
+			solver.addClause(block);
+		}
+		return models;
+	}
+
+	@Test
+	public void testExactlyOne() {
+		final int vars = 8;
+		final SATSolver s = SATFactory.symmetryBreaking(SATFactory.DefaultSAT4J, 100).instance();
+		s.addVariables(vars);
+		final int[] some = new int[vars];
+		for (int i = 1; i <= vars; i++) {
+			some[i-1] = i;
+			for (int j = i+1; j <= vars; j++)
+				s.addClause(new int[]{-i, -j});
+		}
+		s.addClause(some);
+		// all 8 models are symmetric, and all transpositions of adjacent variables are generators
+		assertEquals(1, enumerate(s, vars));
+		s.free();
+	}
+
+	@Test
+	public void testRandom() {
+		final int half = 15;
+		for (int round = 0; round < 50; round++) {
+			// clauses that are invariant under swapping the variables in [1..half] with those in [half+1..2*half]
+			final List<int[]> clauses = new ArrayList<int[]>();
+			final int n = 30 + random.nextInt(30);
+			for (int i = 0; i < n; i++) {
+				final int[] clause = new int[1 + random.nextInt(3)];
+				for (int j = 0; j < clause.length; j++) {
+					final int var = 1 + random.nextInt(2*half);
+					clause[j] = random.nextBoolean() ? var : -var;
+				}
+				final int[] image = new int[clause.length];
+				for (int j = 0; j < clause.length; j++) {
+					final int var = Math.abs(clause[j]);
+					final int swapped = var > half ? var - half : var + half;
+					image[j] = clause[j] > 0 ? swapped : -swapped;
+				}
+				clauses.add(clause);
+				clauses.add(image);
+			}
+			final SATSolver expected = SATFactory.DefaultSAT4J.instance(),
+					actual = SATFactory.symmetryBreaking(SATFactory.DefaultSAT4J, 2*half).instance();
+			expected.addVariables(2*half);
+			actual.addVariables(2*half);
+			for (int[] clause : clauses) {
+				expected.addClause(clause.clone());
+				actual.addClause(clause.clone());
+			}
+			final boolean sat = expected.solve();
+			assertEquals(sat, actual.solve());
+			if (sat) {
+				assertTrue(satisfies(actual, clauses));
+				final int all = enumerate(expected, 2*half), reduced = enumerate(actual, 2*half);
+				assertTrue(reduced > 0 && reduced <= all);
+			}
+			expected.free();
+			actual.free();
+		}
+	}
+
+	@Test
+	public void testEnumeration() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		final Formula formula = prob.declarations().and(prob.paulSimon());
+		final Bounds bounds = prob.bounds(3);
+		int all = 0, reduced = 0;
+		for (Iterator<Solution> sols = solver(0).solveAll(formula, bounds); sols.hasNext(); )
+			if (sols.next().sat()) all++;
+		for (Iterator<Solution> sols = solver(100).solveAll(formula, bounds); sols.hasNext(); ) {
+			final Solution sol = sols.next();
+			if (sol.sat()) {
+				reduced++;
+				assertTrue(new Evaluator(sol.instance()).evaluate(formula));
+			}
+		}
+		assertTrue(reduced > 0 && reduced < all);
+	}
+
+	@Test
+	public void testPigeonhole() {
+		final Pigeonhole ph = new Pigeonhole();
+		final Formula formula = ph.declarations().and(ph.pigeonPerHole());
+		assertTrue(solver(100).solve(formula, ph.bounds(7, 6)).unsat());
+		final Solution sol = solver(100).solve(formula, ph.bounds(6, 6));
+		assertTrue(sol.sat());
+		assertTrue(new Evaluator(sol.instance()).evaluate(formula));
+		assertFalse(solver(100).solve(ph.declarations(), ph.bounds(6, 6)).unsat());
+	}
+}